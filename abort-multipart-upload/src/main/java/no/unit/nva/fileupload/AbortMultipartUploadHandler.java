@@ -1,13 +1,35 @@
 package no.unit.nva.fileupload;
 
 import static java.util.Objects.requireNonNull;
+import static no.unit.nva.fileupload.priming.HandlerPriming.PRIMING_BUCKET;
+import static no.unit.nva.fileupload.priming.HandlerPriming.PRIMING_KEY;
+import static no.unit.nva.fileupload.priming.HandlerPriming.PRIMING_UPLOAD_ID;
 import static org.apache.http.HttpStatus.SC_OK;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import no.unit.nva.fileupload.exception.InvalidInputException;
 import no.unit.nva.fileupload.exception.NotFoundException;
+import no.unit.nva.fileupload.exception.ServiceUnavailableException;
+import no.unit.nva.fileupload.gateway.BlockingS3Gateway;
+import no.unit.nva.fileupload.gateway.MeteredS3Gateway;
+import no.unit.nva.fileupload.gateway.PartListingCache;
+import no.unit.nva.fileupload.gateway.ResilientS3Gateway;
+import no.unit.nva.fileupload.gateway.S3Gateway;
+import no.unit.nva.fileupload.metrics.HandlerInvocations;
+import no.unit.nva.fileupload.metrics.InvocationMetrics;
+import no.unit.nva.fileupload.priming.HandlerPriming;
+import no.unit.nva.fileupload.priming.StubAmazonS3;
+import no.unit.nva.fileupload.recording.HandlerRecording;
+import no.unit.nva.fileupload.resilience.Deadline;
+import no.unit.nva.fileupload.resilience.S3UnavailableException;
+import no.unit.nva.fileupload.session.InMemoryUploadSessionStore;
+import no.unit.nva.fileupload.session.UploadSessionStore;
+import no.unit.nva.fileupload.session.UploadSessionStores;
 import no.unit.nva.fileupload.util.S3Constants;
 import no.unit.nva.fileupload.util.S3Utils;
 import nva.commons.apigateway.ApiGatewayHandler;
@@ -26,9 +48,13 @@ public class AbortMultipartUploadHandler extends ApiGatewayHandler<AbortMultipar
 
     private static final Logger logger = LoggerFactory.getLogger(AbortMultipartUploadHandler.class);
     public static final String S3_ERROR = "S3 error";
+    public static final String S3_UNAVAILABLE = "S3 is unavailable, try again later";
 
     private final transient String bucketName;
-    private final transient  AmazonS3 s3Client;
+    private final transient S3Gateway s3Gateway;
+    private final transient UploadSessionStore sessionStore;
+    private final transient PartListingCache partListingCache;
+    private final transient InvocationMetrics metrics;
 
     /**
      * Default constructor for AbortMultipartUploadHandler.
@@ -47,40 +73,100 @@ public class AbortMultipartUploadHandler extends ApiGatewayHandler<AbortMultipar
     public AbortMultipartUploadHandler(Environment environment) {
         this(
                 environment,
-                S3Utils.createAmazonS3Client(environment.readEnv(S3Constants.AWS_REGION_KEY)),
-                environment.readEnv(S3Constants.S3_UPLOAD_BUCKET_KEY)
+                ResilientS3Gateway.shared(
+                    environment,
+                    new MeteredS3Gateway(new BlockingS3Gateway(S3Utils.sharedAmazonS3Client(environment)),
+                                         InvocationMetrics.shared(environment))),
+                environment.readEnv(S3Constants.S3_UPLOAD_BUCKET_KEY),
+                UploadSessionStores.fromEnvironment(environment),
+                PartListingCache.shared(environment),
+                InvocationMetrics.shared(environment)
         );
+        HandlerRecording.startFromEnvironment(environment);
+        HandlerPriming.register(primingHandler(environment), "/abort",
+                                new AbortMultipartUploadRequestBody(PRIMING_UPLOAD_ID, PRIMING_KEY));
+    }
+
+    /**
+     * Handler used to prime the SnapStart snapshot, calling a stub S3 instead of AWS.
+     */
+    @JacocoGenerated
+    private static AbortMultipartUploadHandler primingHandler(Environment environment) {
+        return new AbortMultipartUploadHandler(environment, new StubAmazonS3(), PRIMING_BUCKET);
     }
 
     /**
      * Construct for lambda eventhandler to create an upload request for S3.
      */
     public AbortMultipartUploadHandler(Environment environment, AmazonS3 s3Client, String bucketName) {
+        this(environment, new BlockingS3Gateway(s3Client), bucketName);
+    }
+
+    /**
+     * Construct for lambda event handler calling S3 through the given gateway.
+     */
+    public AbortMultipartUploadHandler(Environment environment, S3Gateway s3Gateway, String bucketName) {
+        this(environment, s3Gateway, bucketName, new InMemoryUploadSessionStore(), new PartListingCache());
+    }
+
+    /**
+     * Construct for lambda event handler calling S3 through the given gateway and forgetting aborted uploads in the
+     * given session store and part listing cache.
+     */
+    public AbortMultipartUploadHandler(Environment environment, S3Gateway s3Gateway, String bucketName,
+                                       UploadSessionStore sessionStore, PartListingCache partListingCache) {
+        this(environment, s3Gateway, bucketName, sessionStore, partListingCache, InvocationMetrics.disabled());
+    }
+
+    /**
+     * Construct for lambda event handler as above, recording the metrics of every invocation.
+     */
+    public AbortMultipartUploadHandler(Environment environment, S3Gateway s3Gateway, String bucketName,
+                                       UploadSessionStore sessionStore, PartListingCache partListingCache,
+                                       InvocationMetrics metrics) {
         super(AbortMultipartUploadRequestBody.class, environment);
         this.bucketName = bucketName;
-        this.s3Client = s3Client;
+        this.s3Gateway = s3Gateway;
+        this.sessionStore = sessionStore;
+        this.partListingCache = partListingCache;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void handleRequest(InputStream inputStream, OutputStream outputStream, Context context)
+        throws IOException {
+        HandlerInvocations.handle(metrics, getClass().getSimpleName(),
+                                  () -> super.handleRequest(inputStream, outputStream, context));
     }
 
     @Override
     protected void validateRequest(AbortMultipartUploadRequestBody abortMultipartUploadRequestBody,
                                    RequestInfo requestInfo, Context context) throws ApiGatewayException {
-        validate(abortMultipartUploadRequestBody);
+        HandlerInvocations.validate(metrics, () -> validate(abortMultipartUploadRequestBody));
     }
 
     @Override
     protected SimpleMessageResponse processInput(AbortMultipartUploadRequestBody input, RequestInfo requestInfo,
                                                  Context context) throws ApiGatewayException {
+        Deadline deadline = Deadline.fromContext(context);
+        return HandlerInvocations.process(metrics, () -> deadline.call(() -> abort(input)));
+    }
 
+    private SimpleMessageResponse abort(AbortMultipartUploadRequestBody input) throws ApiGatewayException {
+        partListingCache.invalidate(input.getKey(), input.getUploadId());
         abortMultipartUpload(toAbortMultipartUploadRequest(input));
+        sessionStore.delete(input.getKey(), input.getUploadId());
         return new SimpleMessageResponse(MULTIPART_UPLOAD_ABORTED_MESSAGE);
     }
 
     private void abortMultipartUpload(AbortMultipartUploadRequest abortMultipartUploadRequest)
-            throws NotFoundException {
+            throws NotFoundException, ServiceUnavailableException {
         try {
-            s3Client.abortMultipartUpload(abortMultipartUploadRequest);
+            s3Gateway.abortMultipartUpload(abortMultipartUploadRequest);
         } catch (AmazonS3Exception e) {
             throw new NotFoundException(S3_ERROR, e);
+        } catch (S3UnavailableException e) {
+            throw new ServiceUnavailableException(S3_UNAVAILABLE, e);
         }
     }
 
@@ -3,6 +3,16 @@ package no.unit.nva.fileupload;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.s3.AmazonS3Client;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
+import java.time.Instant;
+import java.util.Optional;
+import com.amazonaws.services.s3.model.PartSummary;
+import java.util.List;
+import no.unit.nva.fileupload.gateway.BlockingS3Gateway;
+import no.unit.nva.fileupload.gateway.PartListingCache;
+import no.unit.nva.fileupload.gateway.ResilientS3Gateway;
+import no.unit.nva.fileupload.resilience.S3UnavailableException;
+import no.unit.nva.fileupload.session.InMemoryUploadSessionStore;
+import no.unit.nva.fileupload.session.UploadSession;
 import no.unit.nva.fileupload.util.S3Constants;
 import no.unit.nva.testutils.HandlerRequestBuilder;
 import nva.commons.apigateway.ApiGatewayHandler;
@@ -22,6 +32,7 @@ import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
 import static org.apache.http.HttpStatus.SC_BAD_REQUEST;
 import static org.apache.http.HttpStatus.SC_NOT_FOUND;
 import static org.apache.http.HttpStatus.SC_OK;
+import static org.apache.http.HttpStatus.SC_SERVICE_UNAVAILABLE;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.equalTo;
@@ -41,13 +52,14 @@ public class AbortMultipartUploadHandlerTest {
     private ByteArrayOutputStream outputStream;
     private Context context;
     private AmazonS3Client s3client;
+    private Environment environment;
 
     /**
      * Setup test env.
      */
     @BeforeEach
     void setUp() {
-        Environment environment = mock(Environment.class);
+        environment = mock(Environment.class);
         when(environment.readEnv(ApiGatewayHandler.ALLOWED_ORIGIN_ENV)).thenReturn(WILDCARD);
         when(environment.readEnv(S3Constants.S3_UPLOAD_BUCKET_KEY)).thenReturn(S3Constants.S3_UPLOAD_BUCKET_KEY);
         s3client = mock(AmazonS3Client.class);
@@ -67,6 +79,33 @@ public class AbortMultipartUploadHandlerTest {
         assertThat(response.getBody(), is(notNullValue()));
     }
 
+    @Test
+    void shouldForgetSessionAndPartListingOfAbortedUpload() throws IOException {
+        var sessionStore = new InMemoryUploadSessionStore();
+        sessionStore.put(new UploadSession(SAMPLE_KEY, SAMPLE_UPLOAD_ID, "filename.pdf", "application/pdf", null,
+                                           Instant.now()));
+        var partListingCache = new PartListingCache();
+        partListingCache.get(SAMPLE_KEY, SAMPLE_UPLOAD_ID, () -> List.of(new PartSummary()));
+        var handler = new AbortMultipartUploadHandler(environment, new BlockingS3Gateway(s3client),
+                                                      TEST_BUCKET_NAME, sessionStore, partListingCache);
+
+        handler.handleRequest(abortMultipartUploadRequestWithBody(), outputStream, context);
+
+        assertThat(sessionStore.get(SAMPLE_KEY, SAMPLE_UPLOAD_ID), is(equalTo(Optional.empty())));
+        assertThat(partListingCache.getCachedParts(), is(equalTo(0)));
+    }
+
+    @Test
+    void abortMultipartUploadWhenS3IsUnavailableReturnsServiceUnavailable() throws IOException {
+        doThrow(new S3UnavailableException(ResilientS3Gateway.CIRCUIT_OPEN))
+            .when(s3client).abortMultipartUpload(Mockito.any());
+
+        abortMultipartUploadHandler.handleRequest(abortMultipartUploadRequestWithBody(), outputStream, context);
+
+        GatewayResponse<Problem> response = GatewayResponse.fromOutputStream(outputStream, Problem.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_SERVICE_UNAVAILABLE)));
+    }
+
     @Test
     void abortMultipartUploadWithInvalidInputReturnsBadRequest() throws IOException {
         abortMultipartUploadHandler.handleRequest(abortMultipartUploadRequestWithoutBody(), outputStream, context);
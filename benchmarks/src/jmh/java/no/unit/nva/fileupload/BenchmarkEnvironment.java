@@ -0,0 +1,38 @@
+package no.unit.nva.fileupload;
+
+import java.util.Map;
+import java.util.Optional;
+import no.unit.nva.fileupload.util.S3Constants;
+import nva.commons.apigateway.ApiGatewayHandler;
+import nva.commons.core.Environment;
+
+/**
+ * Environment of the handlers under benchmark, read from a map instead of the process environment.
+ */
+public class BenchmarkEnvironment extends Environment {
+
+    public static final String BUCKET = "benchmark-bucket";
+
+    private final Map<String, String> variables;
+
+    public BenchmarkEnvironment() {
+        this(Map.of(ApiGatewayHandler.ALLOWED_ORIGIN_ENV, "*",
+                    S3Constants.S3_UPLOAD_BUCKET_KEY, BUCKET,
+                    S3Constants.AWS_REGION_KEY, "eu-west-1"));
+    }
+
+    public BenchmarkEnvironment(Map<String, String> variables) {
+        super();
+        this.variables = variables;
+    }
+
+    @Override
+    public String readEnv(String name) {
+        return variables.get(name);
+    }
+
+    @Override
+    public Optional<String> readEnvOpt(String name) {
+        return Optional.ofNullable(variables.get(name));
+    }
+}
@@ -0,0 +1,113 @@
+package no.unit.nva.fileupload;
+
+import static no.unit.nva.fileupload.BenchmarkEnvironment.BUCKET;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import no.unit.nva.fileupload.model.CreateUploadRequestBody;
+import no.unit.nva.fileupload.priming.HandlerPriming;
+import no.unit.nva.fileupload.priming.PrimingContext;
+import no.unit.nva.fileupload.priming.StubAmazonS3;
+import nva.commons.core.Environment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Every handler invoked end to end through handleRequest, from the API Gateway event to the written response, with
+ * a typical request and a {@link StubAmazonS3} in place of S3. Uploads have three parts; see
+ * {@link LargeUploadBenchmark} for uploads with many parts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HandlerBenchmark {
+
+    private static final String UPLOAD_ID = "benchmark-upload-id";
+    private static final String KEY = "benchmark-key";
+    private static final int PREPARED_PARTS = 20;
+
+    private Invocation create;
+    private Invocation prepare;
+    private Invocation listParts;
+    private Invocation abort;
+    private Invocation complete;
+
+    @Setup
+    public void setUp() throws IOException {
+        Environment environment = new BenchmarkEnvironment();
+        create = new Invocation(new CreateUploadHandler(environment, new StubAmazonS3(), BUCKET), "/create",
+                                new CreateUploadRequestBody("rapport_ø.pdf", "15728640", "application/pdf"));
+        prepare = new Invocation(new PrepareUploadPartHandler(environment, new StubAmazonS3(), BUCKET), "/prepare",
+                                 new PrepareUploadPartRequestBody(UPLOAD_ID, KEY, null, null, null, 1,
+                                                                  PREPARED_PARTS));
+        listParts = new Invocation(LargeUploadBenchmark.uncachedListParts(environment, new StubAmazonS3()),
+                                   "/listparts", new ListPartsRequestBody(UPLOAD_ID, KEY));
+        abort = new Invocation(new AbortMultipartUploadHandler(environment, new StubAmazonS3(), BUCKET), "/abort",
+                               new AbortMultipartUploadRequestBody(UPLOAD_ID, KEY));
+        complete = new Invocation(LargeUploadBenchmark.completeWithoutSessions(environment, new StubAmazonS3()),
+                                  "/complete",
+                                  LargeUploadBenchmark.completeRequest(UPLOAD_ID, KEY,
+                                                                       StubAmazonS3.DEFAULT_PARTS_PER_UPLOAD));
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream createUpload() throws IOException {
+        return create.invoke();
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream prepareUploadParts() throws IOException {
+        return prepare.invoke();
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream listParts() throws IOException {
+        return listParts.invoke();
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream abortUpload() throws IOException {
+        return abort.invoke();
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream completeUpload() throws IOException {
+        return complete.invoke();
+    }
+
+    /**
+     * A handler with the API Gateway event it is invoked with, serialized once up front.
+     */
+    static final class Invocation {
+
+        private final RequestStreamHandler handler;
+        private final byte[] event;
+        private final Context context;
+
+        Invocation(RequestStreamHandler handler, String path, Object requestBody) throws IOException {
+            this.handler = handler;
+            this.event = HandlerPriming.apiGatewayEvent(path, requestBody);
+            this.context = new PrimingContext(path);
+        }
+
+        ByteArrayOutputStream invoke() throws IOException {
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            handler.handleRequest(new ByteArrayInputStream(event), response, context);
+            return response;
+        }
+    }
+}
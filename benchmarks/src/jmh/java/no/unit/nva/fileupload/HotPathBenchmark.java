@@ -0,0 +1,101 @@
+package no.unit.nva.fileupload;
+
+import static no.unit.nva.fileupload.BenchmarkEnvironment.BUCKET;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.PartSummary;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import no.unit.nva.fileupload.priming.StubAmazonS3;
+import no.unit.nva.fileupload.util.ContentDisposition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The hot paths inside the handlers on their own: escaping a filename into a Content-Disposition and reading it
+ * back, mapping listed parts to response elements, and turning the parts of a complete request into the request
+ * sent to S3.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HotPathBenchmark {
+
+    private static final String UPLOAD_ID = "benchmark-upload-id";
+    private static final String KEY = "benchmark-key";
+
+    @Param({"report.pdf", "Årsrapport for Høgskolen på Vestlandet 2023 – endelig versjon.pdf"})
+    public String filename;
+
+    @Param("10000")
+    public int parts;
+
+    private String contentDisposition;
+    private List<PartSummary> partSummaries;
+    private CompleteUploadRequestBody completeRequest;
+    private CompleteUploadHandler completeHandler;
+
+    @Setup
+    public void setUp() {
+        contentDisposition = ContentDisposition.forFileName(filename);
+        partSummaries = partSummaries(parts);
+        completeRequest = LargeUploadBenchmark.completeRequest(UPLOAD_ID, KEY, parts);
+        completeHandler = new CompleteUploadHandler(new BenchmarkEnvironment(), new StubAmazonS3(), BUCKET);
+    }
+
+    /**
+     * Content-Disposition written by create, escaping characters outside ASCII.
+     */
+    @Benchmark
+    public String escapeFilename() {
+        return ContentDisposition.forFileName(filename);
+    }
+
+    /**
+     * Filename read back by complete with the filename regex.
+     */
+    @Benchmark
+    public String toFileName() {
+        return ContentDisposition.toFileName(contentDisposition);
+    }
+
+    @Benchmark
+    public void listPartsElementOf(Blackhole blackhole) {
+        for (PartSummary part : partSummaries) {
+            blackhole.consume(ListPartsElement.of(part));
+        }
+    }
+
+    @Benchmark
+    public CompleteMultipartUploadRequest toCompleteMultipartUploadRequest() {
+        return completeHandler.toCompleteMultipartUploadRequest(completeRequest);
+    }
+
+    private static List<PartSummary> partSummaries(int count) {
+        List<PartSummary> summaries = new ArrayList<>(count);
+        Date lastModified = new Date();
+        for (int partNumber = 1; partNumber <= count; partNumber++) {
+            PartSummary part = new PartSummary();
+            part.setPartNumber(partNumber);
+            part.setETag(String.format(StubAmazonS3.ETAG_TEMPLATE, partNumber));
+            part.setSize(StubAmazonS3.PART_SIZE);
+            part.setLastModified(lastModified);
+            summaries.add(part);
+        }
+        return summaries;
+    }
+}
@@ -0,0 +1,115 @@
+package no.unit.nva.fileupload;
+
+import static no.unit.nva.fileupload.BenchmarkEnvironment.BUCKET;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import no.unit.nva.fileupload.gateway.BlockingS3Gateway;
+import no.unit.nva.fileupload.gateway.PartListingCache;
+import no.unit.nva.fileupload.priming.StubAmazonS3;
+import no.unit.nva.fileupload.session.UploadSession;
+import no.unit.nva.fileupload.session.UploadSessionStore;
+import nva.commons.core.Environment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * List parts and complete invoked end to end for uploads with many parts, where the work grows with the number of
+ * parts: paging through S3 listings, mapping and writing thousands of parts, and reading thousands of part ETags.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LargeUploadBenchmark {
+
+    private static final String UPLOAD_ID = "benchmark-upload-id";
+    private static final String KEY = "benchmark-key";
+
+    @Param({"1000", "10000"})
+    public int parts;
+
+    private HandlerBenchmark.Invocation listParts;
+    private HandlerBenchmark.Invocation complete;
+
+    @Setup
+    public void setUp() throws IOException {
+        Environment environment = new BenchmarkEnvironment();
+        StubAmazonS3 s3 = new StubAmazonS3(parts);
+        listParts = new HandlerBenchmark.Invocation(uncachedListParts(environment, s3), "/listparts",
+                                                    new ListPartsRequestBody(UPLOAD_ID, KEY));
+        complete = new HandlerBenchmark.Invocation(completeWithoutSessions(environment, s3), "/complete",
+                                                   completeRequest(UPLOAD_ID, KEY, parts));
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream listParts() throws IOException {
+        return listParts.invoke();
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream completeUpload() throws IOException {
+        return complete.invoke();
+    }
+
+    /**
+     * List parts reading every listing from S3, as the cache would otherwise answer all but the first invocation.
+     */
+    static ListPartsHandler uncachedListParts(Environment environment, StubAmazonS3 s3) {
+        return new ListPartsHandler(environment, new BlockingS3Gateway(s3), BUCKET,
+                                    new PartListingCache(PartListingCache.DEFAULT_MAX_PARTS, Duration.ZERO,
+                                                         System::nanoTime));
+    }
+
+    /**
+     * Complete keeping no sessions, as a recorded completion would otherwise answer all but the first invocation
+     * without calling S3.
+     */
+    static CompleteUploadHandler completeWithoutSessions(Environment environment, StubAmazonS3 s3) {
+        return new CompleteUploadHandler(environment, new BlockingS3Gateway(s3), BUCKET, new NoSessions(),
+                                         new PartListingCache());
+    }
+
+    static CompleteUploadRequestBody completeRequest(String uploadId, String key, int partCount) {
+        List<CompleteUploadPart> completedParts = new ArrayList<>(partCount);
+        for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+            completedParts.add(new CompleteUploadPart(partNumber, String.format(StubAmazonS3.ETAG_TEMPLATE,
+                                                                                partNumber),
+                                                      StubAmazonS3.PART_SIZE));
+        }
+        return new CompleteUploadRequestBody(uploadId, key, completedParts);
+    }
+
+    private static final class NoSessions implements UploadSessionStore {
+
+        @Override
+        public void put(UploadSession session) {
+            // sessions are not kept
+        }
+
+        @Override
+        public Optional<UploadSession> get(String key, String uploadId) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void delete(String key, String uploadId) {
+            // sessions are not kept
+        }
+    }
+}
@@ -2,6 +2,9 @@ package no.unit.nva.fileupload;
 
 import static java.util.Objects.requireNonNull;
 import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
+import static no.unit.nva.fileupload.priming.HandlerPriming.PRIMING_BUCKET;
+import static no.unit.nva.fileupload.priming.HandlerPriming.PRIMING_KEY;
+import static no.unit.nva.fileupload.priming.HandlerPriming.PRIMING_UPLOAD_ID;
 import static nva.commons.core.attempt.Try.attempt;
 import static org.apache.http.HttpStatus.SC_OK;
 import com.amazonaws.services.lambda.runtime.Context;
@@ -9,14 +12,44 @@ import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
 import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.ListPartsRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PartSummary;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.OptionalLong;
 import no.unit.nva.fileupload.exception.InvalidInputException;
 import no.unit.nva.fileupload.exception.NotFoundException;
+import no.unit.nva.fileupload.exception.ServiceUnavailableException;
+import no.unit.nva.fileupload.gateway.BlockingS3Gateway;
+import no.unit.nva.fileupload.gateway.ExecutorAsyncS3Gateway;
+import no.unit.nva.fileupload.gateway.HedgingS3Gateway;
+import no.unit.nva.fileupload.gateway.MeteredS3Gateway;
+import no.unit.nva.fileupload.gateway.ParallelPartLister;
+import no.unit.nva.fileupload.gateway.PartListingCache;
+import no.unit.nva.fileupload.gateway.ResilientS3Gateway;
+import no.unit.nva.fileupload.gateway.S3Gateway;
+import no.unit.nva.fileupload.metrics.HandlerInvocations;
+import no.unit.nva.fileupload.metrics.InvocationMetrics;
+import no.unit.nva.fileupload.metrics.MetricUnit;
+import no.unit.nva.fileupload.priming.HandlerPriming;
+import no.unit.nva.fileupload.priming.StubAmazonS3;
+import no.unit.nva.fileupload.recording.HandlerRecording;
+import no.unit.nva.fileupload.recording.HandlerStages;
+import no.unit.nva.fileupload.recording.Stage;
+import no.unit.nva.fileupload.resilience.Deadline;
+import no.unit.nva.fileupload.resilience.S3UnavailableException;
+import no.unit.nva.fileupload.session.InMemoryUploadSessionStore;
+import no.unit.nva.fileupload.session.UploadSession;
+import no.unit.nva.fileupload.session.UploadSessionStore;
+import no.unit.nva.fileupload.session.UploadSessionStores;
+import no.unit.nva.fileupload.util.ContentDisposition;
 import no.unit.nva.fileupload.util.S3Constants;
 import no.unit.nva.fileupload.util.S3Utils;
 import nva.commons.apigateway.ApiGatewayHandler;
@@ -31,17 +64,31 @@ import org.slf4j.LoggerFactory;
 public class CompleteUploadHandler extends ApiGatewayHandler<CompleteUploadRequestBody, CompleteUploadResponseBody> {
 
     private static final Logger logger = LoggerFactory.getLogger(CompleteUploadHandler.class);
+    private static final String PRIMING_ETAG = "priming-etag";
+    private static final String NO_SUCH_UPLOAD = "NoSuchUpload";
     public static final String S3_ERROR = "S3 error";
-    public static final String FILE_NAME_REGEX = "filename=\"(.*)\"";
+    public static final String S3_UNAVAILABLE = "S3 is unavailable, try again later";
+    public static final String FILE_NAME_REGEX = ContentDisposition.FILE_NAME_REGEX;
 
-    // The total time the SDK will wait for the entire request execution, including retries
-    public static final int SDK_CLIENT_EXECUTION_TIMEOUT_MS = 8 * 1000; // 8 seconds, enough for 3 retries of 2 seconds
-
-    // The time the SDK will wait for data transfer for a single request.
-    public static final int SDK_REQUEST_TIMEOUT_MS = 2 * 1000; // 2 seconds
+    // Where the response metadata comes from: "head" (default) asks S3 after completing, "session" uses the filename
+    // and mimetype kept with the upload session at create and the part sizes listed from S3, "request" also uses the
+    // metadata and part sizes sent by the client. Both fall back to HEAD when anything is missing
+    public static final String COMPLETE_METADATA_SOURCE_KEY = "COMPLETE_METADATA_SOURCE";
+    public static final String METADATA_SOURCE_HEAD = "head";
+    public static final String METADATA_SOURCE_SESSION = "session";
+    public static final String METADATA_SOURCE_REQUEST = "request";
+    public static final String NO_UPLOADED_PARTS = "No parts have been uploaded";
+    public static final String PARTS_WITHOUT_UPLOAD_ID = "Parts can only be completed with an uploadId";
+    public static final String NO_USABLE_PARTS =
+        "No part has both a PartNumber and an ETag, leave out parts to complete the parts uploaded to S3";
 
     private final transient String bucketName;
-    private final transient AmazonS3 s3Client;
+    private final transient S3Gateway s3Gateway;
+    private final transient CompletedObjectMetadata completedObjectMetadata;
+    private final transient ParallelPartLister partLister;
+    private final transient UploadCompletions completions;
+    private final transient PartListingCache partListingCache;
+    private final transient InvocationMetrics metrics;
 
     /**
      * Default constructor for CompleteUploadHandler.
@@ -60,34 +107,117 @@ public class CompleteUploadHandler extends ApiGatewayHandler<CompleteUploadReque
     public CompleteUploadHandler(Environment environment) {
         this(
                 environment,
-                S3Utils.createAmazonS3Client(environment.readEnv(S3Constants.AWS_REGION_KEY)),
-                environment.readEnv(S3Constants.S3_UPLOAD_BUCKET_KEY)
+                HedgingS3Gateway.fromEnvironment(
+                    environment,
+                    ResilientS3Gateway.shared(
+                        environment,
+                        new MeteredS3Gateway(new BlockingS3Gateway(S3Utils.sharedAmazonS3Client(environment)),
+                                             InvocationMetrics.shared(environment)))),
+                environment.readEnv(S3Constants.S3_UPLOAD_BUCKET_KEY),
+                UploadSessionStores.fromEnvironment(environment),
+                PartListingCache.shared(environment),
+                InvocationMetrics.shared(environment)
         );
+        HandlerRecording.startFromEnvironment(environment);
+        HandlerPriming.register(primingHandler(environment), "/complete",
+                                new CompleteUploadRequestBody(PRIMING_UPLOAD_ID, PRIMING_KEY,
+                                                              List.of(new CompleteUploadPart(1, PRIMING_ETAG))));
+    }
+
+    /**
+     * Handler used to prime the SnapStart snapshot, calling a stub S3 instead of AWS.
+     */
+    @JacocoGenerated
+    private static CompleteUploadHandler primingHandler(Environment environment) {
+        return new CompleteUploadHandler(environment, new StubAmazonS3(), PRIMING_BUCKET);
     }
 
     /**
      * Construct for lambda event handler to create an upload request for S3.
      */
     public CompleteUploadHandler(Environment environment, AmazonS3 s3Client, String bucketName) {
+        this(environment, new BlockingS3Gateway(s3Client), bucketName);
+    }
+
+    /**
+     * Construct for lambda event handler calling S3 through the given gateway.
+     */
+    public CompleteUploadHandler(Environment environment, S3Gateway s3Gateway, String bucketName) {
+        this(environment, s3Gateway, bucketName, new InMemoryUploadSessionStore(), new PartListingCache());
+    }
+
+    /**
+     * Construct for lambda event handler calling S3 through the given gateway, reading the metadata of uploads
+     * from the given session store and dropping completed uploads from the given part listing cache.
+     */
+    public CompleteUploadHandler(Environment environment, S3Gateway s3Gateway, String bucketName,
+                                 UploadSessionStore sessionStore, PartListingCache partListingCache) {
+        this(environment, s3Gateway, bucketName, sessionStore, partListingCache, InvocationMetrics.disabled());
+    }
+
+    /**
+     * Construct for lambda event handler as above, recording the metrics of every invocation.
+     */
+    public CompleteUploadHandler(Environment environment, S3Gateway s3Gateway, String bucketName,
+                                 UploadSessionStore sessionStore, PartListingCache partListingCache,
+                                 InvocationMetrics metrics) {
         super(CompleteUploadRequestBody.class, environment);
         this.bucketName = bucketName;
-        this.s3Client = s3Client;
+        this.s3Gateway = s3Gateway;
+        this.completions = new UploadCompletions(sessionStore);
+        this.partListingCache = partListingCache;
+        this.metrics = metrics;
+        this.partLister = new ParallelPartLister(new ExecutorAsyncS3Gateway(s3Gateway));
+        this.completedObjectMetadata = new CompletedObjectMetadata(
+            environment.readEnvOpt(COMPLETE_METADATA_SOURCE_KEY).orElse(METADATA_SOURCE_HEAD));
+    }
+
+    @Override
+    public void handleRequest(InputStream inputStream, OutputStream outputStream, Context context)
+        throws IOException {
+        HandlerInvocations.handle(metrics, getClass().getSimpleName(),
+                                  () -> super.handleRequest(inputStream, outputStream, context));
     }
 
     @Override
     protected void validateRequest(CompleteUploadRequestBody completeUploadRequestBody, RequestInfo requestInfo,
                                    Context context) throws ApiGatewayException {
-        validate(completeUploadRequestBody);
+        HandlerInvocations.validate(metrics, () -> validate(completeUploadRequestBody));
     }
 
     @Override
     protected CompleteUploadResponseBody processInput(CompleteUploadRequestBody input, RequestInfo requestInfo,
                                                       Context context) throws ApiGatewayException {
+        Deadline deadline = Deadline.fromContext(context);
+        CompleteUploadResponseBody response =
+            HandlerInvocations.process(metrics, () -> deadline.call(() -> complete(input)));
+        metrics.put(InvocationMetrics.SIZE, response.size(), MetricUnit.BYTES);
+        return response;
+    }
 
-        return attempt(() -> toCompleteMultipartUploadRequest(input))
-                   .map(this::completeMultipartUpload)
-                   .map(this::toCompletedUploadResponseBody)
-                   .orElseThrow(CompleteUploadHandler::handleFailure);
+    private CompleteUploadResponseBody complete(CompleteUploadRequestBody input) throws ApiGatewayException {
+        if (input.getUploadId() == null) {
+            return attempt(() -> confirmSinglePut(input))
+                       .map(this::toCompletedUploadResponseBody)
+                       .orElseThrow(CompleteUploadHandler::handleFailure);
+        }
+        Optional<UploadSession> session = completions.session(input);
+        Optional<CompleteUploadResponseBody> recorded = completions.recorded(session);
+        if (recorded.isPresent()) {
+            logger.info("Upload {} was already completed, answering from its completion", input.getUploadId());
+            return recorded.get();
+        }
+        try {
+            CompleteUploadResponseBody response = attempt(() -> toCompleteMultipartUploadRequest(input))
+                                                      .map(request -> completeMultipartUpload(request, input, session))
+                                                      .map(this::toCompletedUploadResponseBody)
+                                                      .orElseThrow(CompleteUploadHandler::handleFailure);
+            completions.record(session, response);
+            return response;
+        } catch (nva.commons.apigateway.exceptions.NotFoundException e) {
+            // S3 no longer knows an upload that a concurrent complete of it finished and recorded first
+            return completions.recorded(input).orElseThrow(() -> e);
+        }
     }
 
     private static  ApiGatewayException handleFailure(
@@ -100,18 +230,13 @@ public class CompleteUploadHandler extends ApiGatewayHandler<CompleteUploadReque
 
     private CompleteUploadResponseBody toCompletedUploadResponseBody(CompleteResult result) {
         var metadata = result.getS3ObjectMetadata();
-        return new CompleteUploadResponseBody.Builder()
-                   .withSize(metadata.getContentLength())
-                   .withLocation(result.getKey())
-                   .withMimeType(metadata.getContentType())
-                   .withFileName(toFileName(metadata.getContentDisposition()))
-                   .build();
-    }
-
-    private String toFileName(String contentDisposition) {
-        var pattern = Pattern.compile(FILE_NAME_REGEX);
-        var matcher = pattern.matcher(contentDisposition);
-        return matcher.matches() ? matcher.group(1) : contentDisposition;
+        return HandlerStages.stage(Stage.MAP_RESPONSE, () -> new CompleteUploadResponseBody.Builder()
+                                                                 .withSize(metadata.getContentLength())
+                                                                 .withLocation(result.getKey())
+                                                                 .withMimeType(metadata.getContentType())
+                                                                 .withFileName(ContentDisposition.toFileName(
+                                                                     metadata.getContentDisposition()))
+                                                                 .build());
     }
 
     /**
@@ -119,52 +244,114 @@ public class CompleteUploadHandler extends ApiGatewayHandler<CompleteUploadReque
      * @param requestBody Request from frontend
      * @return request to send to S3
      */
-    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
     protected CompleteMultipartUploadRequest toCompleteMultipartUploadRequest(CompleteUploadRequestBody requestBody) {
         CompleteMultipartUploadRequest completeMultipartUploadRequest = new CompleteMultipartUploadRequest();
         completeMultipartUploadRequest.setBucketName(bucketName);
         completeMultipartUploadRequest.setKey(requestBody.getKey());
         completeMultipartUploadRequest.setUploadId(requestBody.getUploadId());
-        completeMultipartUploadRequest.setSdkClientExecutionTimeout(SDK_CLIENT_EXECUTION_TIMEOUT_MS);
-        completeMultipartUploadRequest.setSdkRequestTimeout(SDK_REQUEST_TIMEOUT_MS);
-
-        List<PartETag> partETags = requestBody.getParts().stream()
-                .filter(CompleteUploadPart::hasValue)
-                .map(this::toPartETag)
-                .collect(Collectors.toList());
-
-        completeMultipartUploadRequest.setPartETags(partETags);
+        // Parts without a part number or ETag were already left out when the request body was read
+        completeMultipartUploadRequest.setPartETags(requestBody.getParts().getPartETags());
         return completeMultipartUploadRequest;
     }
 
-    private PartETag toPartETag(CompleteUploadPart completeUploadPart) {
-        return new PartETag(completeUploadPart.getPartNumber(), completeUploadPart.getEtag());
-    }
-
     private CompleteResult completeMultipartUpload(
-            CompleteMultipartUploadRequest completeMultipartUploadRequest)
-        throws NotFoundException, JsonProcessingException {
+            CompleteMultipartUploadRequest completeMultipartUploadRequest, CompleteUploadRequestBody input,
+            Optional<UploadSession> session)
+        throws NotFoundException, InvalidInputException, ServiceUnavailableException, JsonProcessingException {
         try {
+            final OptionalLong listedSize = input.listsParts()
+                                                ? OptionalLong.empty()
+                                                : assemblePartETags(completeMultipartUploadRequest);
+            partListingCache.invalidate(input.getKey(), input.getUploadId());
+            metrics.put(InvocationMetrics.PARTS, completeMultipartUploadRequest.getPartETags().size(),
+                        MetricUnit.COUNT);
             logger.info("Completing multipart upload...");
-            var result = s3Client.completeMultipartUpload(completeMultipartUploadRequest);
+            var result = s3Gateway.completeMultipartUpload(completeMultipartUploadRequest);
             logger.info("Completed multipart upload");
             logger.info(dtoObjectMapper.writeValueAsString(result));
-            var request = new GetObjectMetadataRequest(bucketName, result.getKey());
-            request.setSdkRequestTimeout(SDK_REQUEST_TIMEOUT_MS);
-            request.setSdkClientExecutionTimeout(SDK_CLIENT_EXECUTION_TIMEOUT_MS);
-            return new CompleteResult(result.getKey(), s3Client.getObjectMetadata(request));
+            var metadata = completedObjectMetadata.resolve(input, session, listedSize)
+                               .orElseGet(() -> headObject(result.getKey()));
+            return new CompleteResult(result.getKey(), metadata);
+        } catch (AmazonS3Exception e) {
+            logger.warn(e.getMessage());
+            // Only an upload this service created has a session, so an unknown uploadId never answers from the key
+            Optional<CompleteResult> completed = NO_SUCH_UPLOAD.equals(e.getErrorCode()) && session.isPresent()
+                                                     ? completedObject(completeMultipartUploadRequest.getKey())
+                                                     : Optional.empty();
+            return completed.orElseThrow(() -> new NotFoundException(S3_ERROR, e));
+        } catch (S3UnavailableException e) {
+            logger.warn(e.getMessage());
+            throw new ServiceUnavailableException(S3_UNAVAILABLE, e);
+        }
+    }
+
+    /**
+     * The object of an upload that S3 no longer knows, when an earlier complete of it finished in S3 but did not get
+     * to record its completion, for instance because its invocation timed out.
+     */
+    private Optional<CompleteResult> completedObject(String key) throws ServiceUnavailableException {
+        try {
+            var metadata = headObject(key);
+            logger.info("Upload of {} was already completed in S3, answering from the object", key);
+            return Optional.of(new CompleteResult(key, metadata));
+        } catch (AmazonS3Exception e) {
+            return Optional.empty();
+        } catch (S3UnavailableException e) {
+            logger.warn(e.getMessage());
+            throw new ServiceUnavailableException(S3_UNAVAILABLE, e);
+        }
+    }
+
+    /**
+     * Confirms a file uploaded with a single presigned PutObject request. There is no multipart upload to complete,
+     * so this only checks that the object exists and reads its metadata back.
+     */
+    private CompleteResult confirmSinglePut(CompleteUploadRequestBody input)
+        throws NotFoundException, ServiceUnavailableException {
+        try {
+            return new CompleteResult(input.getKey(), headObject(input.getKey()));
         } catch (AmazonS3Exception e) {
             logger.warn(e.getMessage());
             throw new NotFoundException(S3_ERROR, e);
+        } catch (S3UnavailableException e) {
+            logger.warn(e.getMessage());
+            throw new ServiceUnavailableException(S3_UNAVAILABLE, e);
         }
     }
 
+    /**
+     * Fills in the parts of the upload from S3 when the request leaves them out, so an upload can be completed with
+     * only its key and uploadId.
+     * @param request request to complete the upload, given the listed parts
+     * @return total size of the listed parts
+     */
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    private OptionalLong assemblePartETags(CompleteMultipartUploadRequest request) throws InvalidInputException {
+        var listPartsRequest = new ListPartsRequest(bucketName, request.getKey(), request.getUploadId());
+        List<PartETag> partETags = new ArrayList<>();
+        long contentLength = 0;
+        for (PartSummary part : partLister.listParts(listPartsRequest)) {
+            partETags.add(new PartETag(part.getPartNumber(), part.getETag()));
+            contentLength += part.getSize();
+        }
+
+        if (partETags.isEmpty()) {
+            throw new InvalidInputException(new IllegalStateException(NO_UPLOADED_PARTS));
+        }
+        logger.info("Assembled {} parts from S3", partETags.size());
+        request.setPartETags(partETags);
+        return OptionalLong.of(contentLength);
+    }
+
+    private ObjectMetadata headObject(String key) {
+        var request = new GetObjectMetadataRequest(bucketName, key);
+        return s3Gateway.headObject(request);
+    }
+
     private void validate(CompleteUploadRequestBody input) throws InvalidInputException {
         try {
             requireNonNull(input);
-            requireNonNull(input.getUploadId());
-            requireNonNull(input.getKey());
-            requireNonNull(input.getParts());
+            input.validate();
         } catch (Exception e) {
             throw new InvalidInputException(e);
         }
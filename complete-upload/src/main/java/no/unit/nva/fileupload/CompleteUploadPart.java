@@ -3,19 +3,30 @@ package no.unit.nva.fileupload;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-import static java.util.Objects.requireNonNull;
-
 public class CompleteUploadPart {
 
     private final String etag;
     private final Integer partNumber;
+    private final Long size;
+
+    public CompleteUploadPart(Integer partNumber, String etag) {
+        this(partNumber, etag, null);
+    }
 
+    /**
+     * Creates a part of a completed upload.
+     * @param partNumber index of the part in the upload
+     * @param etag eTag returned by S3 when the part was uploaded
+     * @param size optional size of the part in bytes
+     */
     @JsonCreator
     public CompleteUploadPart(
             @JsonProperty("PartNumber") Integer partNumber,
-            @JsonProperty("ETag") String etag) {
+            @JsonProperty("ETag") String etag,
+            @JsonProperty("Size") Long size) {
         this.partNumber = partNumber;
         this.etag = etag;
+        this.size = size;
     }
 
     public String getEtag() {
@@ -26,18 +37,7 @@ public class CompleteUploadPart {
         return partNumber;
     }
 
-    /**
-     *  Check if properties have values.
-     *
-     * @return  true if all properties have values
-     */
-    public boolean hasValue() {
-        try {
-            requireNonNull(etag);
-            requireNonNull(partNumber);
-        } catch (Exception e) {
-            return false;
-        }
-        return true;
+    public Long getSize() {
+        return size;
     }
 }
@@ -1,31 +1,68 @@
 package no.unit.nva.fileupload;
 
+import static java.util.Objects.requireNonNull;
+import static no.unit.nva.fileupload.CompleteUploadHandler.NO_USABLE_PARTS;
+import static no.unit.nva.fileupload.CompleteUploadHandler.PARTS_WITHOUT_UPLOAD_ID;
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.List;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class CompleteUploadRequestBody {
 
+    private static final Logger logger = LoggerFactory.getLogger(CompleteUploadRequestBody.class);
+
     private final String uploadId;
     private final String key;
-    private final List<CompleteUploadPart> parts;
+    private final CompletedParts parts;
+    private final boolean partsListed;
+    private final String filename;
+    private final String mimetype;
+
 
+    public CompleteUploadRequestBody(String uploadId, String key, List<CompleteUploadPart> parts) {
+        this(uploadId, key, parts, null, null);
+    }
 
     /**
      * Creates an request to complete aa S3 upload.
      * @param uploadId  identifier of the upload from create
      * @param key bucket key for identify s3 object
-     * @param parts list of uploaded pars index and eTag
+     * @param parts list of uploaded pars index and eTag, or null to complete the parts uploaded to S3
+     * @param filename optional filename given when the upload was created
+     * @param mimetype optional mimetype given when the upload was created
+     */
+    public CompleteUploadRequestBody(String uploadId, String key, List<CompleteUploadPart> parts, String filename,
+                                     String mimetype) {
+        this(uploadId, key, parts == null ? null : CompletedParts.of(parts), filename, mimetype);
+    }
+
+    private CompleteUploadRequestBody(String uploadId, String key, CompletedParts parts, String filename,
+                                      String mimetype) {
+        this.uploadId = uploadId;
+        this.key = key;
+        this.parts = Optional.ofNullable(parts).orElseGet(CompletedParts::new);
+        this.partsListed = parts != null;
+        this.filename = filename;
+        this.mimetype = mimetype;
+    }
+
+    /**
+     * Creates an request to complete aa S3 upload from JSON, reading the parts with
+     * {@link CompletedPartsDeserializer}.
      */
     @JsonCreator
-    public CompleteUploadRequestBody(
+    static CompleteUploadRequestBody fromJson(
             @JsonProperty("uploadId") String uploadId,
             @JsonProperty("key") String key,
-            @JsonProperty("parts") List<CompleteUploadPart> parts) {
-        this.uploadId = uploadId;
-        this.key = key;
-        this.parts = parts;
+            @JsonProperty("parts") CompletedParts parts,
+            @JsonProperty("filename") String filename,
+            @JsonProperty("mimetype") String mimetype) {
+        return new CompleteUploadRequestBody(uploadId, key, parts, filename, mimetype);
     }
 
 
@@ -37,7 +74,59 @@ public class CompleteUploadRequestBody {
         return key;
     }
 
-    public List<CompleteUploadPart> getParts() {
+    @JsonIgnore
+    public CompletedParts getParts() {
         return parts;
     }
+
+    /**
+     * Whether the request lists its parts. A request that leaves them out completes the parts uploaded to S3, while
+     * a listed part that was skipped while reading the request leaves fewer parts, possibly none.
+     *
+     * @return true if the request has a parts list, even an empty one
+     */
+    public boolean listsParts() {
+        return partsListed;
+    }
+
+    // Written as null when the request leaves the parts out, so it reads back the same
+    @JsonProperty("parts")
+    CompletedParts getListedParts() {
+        return partsListed ? parts : null;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public String getMimetype() {
+        return mimetype;
+    }
+
+    /**
+     * Checks the request and sorts and dedupes the parts the client sent, so S3 never rejects a complete for their
+     * order and broken part lists are turned down before calling S3.
+     *
+     * @throws NullPointerException     if the key is missing
+     * @throws IllegalArgumentException if the parts cannot be completed
+     */
+    public void validate() {
+        requireNonNull(key);
+        if (uploadId == null && !parts.isEmpty()) {
+            throw new IllegalArgumentException(PARTS_WITHOUT_UPLOAD_ID);
+        }
+        if (uploadId != null && partsListed && parts.isEmpty()) {
+            throw new IllegalArgumentException(NO_USABLE_PARTS);
+        }
+        int received = parts.size();
+        int missingPartNumbers = parts.normalise();
+        if (parts.size() < received) {
+            logger.warn("Upload {} had {} duplicate part numbers, keeping the last ETag of each",
+                        uploadId, received - parts.size());
+        }
+        if (missingPartNumbers > 0) {
+            logger.info("Completing upload {} with {} part numbers missing below the highest part",
+                        uploadId, missingPartNumbers);
+        }
+    }
 }
@@ -0,0 +1,71 @@
+package no.unit.nva.fileupload;
+
+import static no.unit.nva.fileupload.CompleteUploadHandler.METADATA_SOURCE_REQUEST;
+import static no.unit.nva.fileupload.CompleteUploadHandler.METADATA_SOURCE_SESSION;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import java.util.Optional;
+import java.util.OptionalLong;
+import no.unit.nva.fileupload.session.UploadSession;
+import no.unit.nva.fileupload.util.ContentDisposition;
+
+/**
+ * Metadata of a completed object put together without asking S3 for it, from the session kept when the upload was
+ * created or from the complete request, as far as the configured metadata source allows.
+ */
+public class CompletedObjectMetadata {
+
+    private final boolean sessionEnabled;
+    private final boolean requestEnabled;
+
+    /**
+     * Create for one of the metadata sources of {@link CompleteUploadHandler}.
+     *
+     * @param metadataSource "head", "session" or "request"
+     */
+    public CompletedObjectMetadata(String metadataSource) {
+        this.requestEnabled = METADATA_SOURCE_REQUEST.equalsIgnoreCase(metadataSource);
+        this.sessionEnabled = requestEnabled || METADATA_SOURCE_SESSION.equalsIgnoreCase(metadataSource);
+    }
+
+    /**
+     * Metadata of the completed object, when it is known without a HEAD. The size is the one S3 listed for the parts,
+     * and only when the client is trusted for the metadata the sizes of the parts it sent are used instead.
+     *
+     * @param input      the complete request
+     * @param session    session of the upload, if one was kept
+     * @param listedSize total size of the parts listed from S3, empty when the client sent the parts
+     * @return metadata, or empty when S3 has to be asked
+     */
+    public Optional<ObjectMetadata> resolve(CompleteUploadRequestBody input, Optional<UploadSession> session,
+                                            OptionalLong listedSize) {
+        OptionalLong contentLength = requestEnabled && listedSize.isEmpty()
+                                         ? input.getParts().totalSize()
+                                         : listedSize;
+        if (contentLength.isEmpty()) {
+            return Optional.empty();
+        }
+        return fromSession(session, contentLength.getAsLong())
+                   .or(() -> fromRequest(input, contentLength.getAsLong()));
+    }
+
+    private Optional<ObjectMetadata> fromSession(Optional<UploadSession> session, long contentLength) {
+        return sessionEnabled
+                   ? session.map(upload -> objectMetadata(contentLength, upload.filename(), upload.mimetype()))
+                   : Optional.empty();
+    }
+
+    private Optional<ObjectMetadata> fromRequest(CompleteUploadRequestBody input, long contentLength) {
+        if (!requestEnabled || input.getFilename() == null || input.getMimetype() == null) {
+            return Optional.empty();
+        }
+        return Optional.of(objectMetadata(contentLength, input.getFilename(), input.getMimetype()));
+    }
+
+    private static ObjectMetadata objectMetadata(long contentLength, String filename, String mimetype) {
+        var metadata = new ObjectMetadata();
+        metadata.setContentLength(contentLength);
+        metadata.setContentType(mimetype);
+        metadata.setContentDisposition(ContentDisposition.forFileName(filename));
+        return metadata;
+    }
+}
@@ -0,0 +1,176 @@
+package no.unit.nva.fileupload;
+
+import static no.unit.nva.fileupload.util.S3Constants.MAX_PART_NUMBER;
+import static no.unit.nva.fileupload.util.S3Constants.MIN_PART_NUMBER;
+import com.amazonaws.services.s3.model.PartETag;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * The parts of a complete request, held as the {@link PartETag}s S3 is sent and a primitive array of the part sizes
+ * the client reported. Read from JSON by {@link CompletedPartsDeserializer} in one pass over the tokens, so the
+ * parts of a 10 000 part upload are not first built as {@link CompleteUploadPart}s and then copied.
+ */
+@JsonSerialize(using = CompletedPartsSerializer.class)
+@JsonDeserialize(using = CompletedPartsDeserializer.class)
+@SuppressWarnings("PMD.ShortMethodName")
+public class CompletedParts extends AbstractList<PartETag> {
+
+    public static final long UNKNOWN_SIZE = -1;
+    public static final String INVALID_PART_NUMBER = "PartNumber %d is not between %d and %d";
+    public static final String EMPTY_ETAG = "ETag of part %d is empty";
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final List<PartETag> partETags;
+    private long[] sizes;
+
+    /**
+     * Create an empty list of parts.
+     */
+    public CompletedParts() {
+        super();
+        this.partETags = new ArrayList<>();
+        this.sizes = new long[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Create the parts of a complete request from parts built in code. Parts without a part number or an ETag are
+     * left out, as they are when read from JSON.
+     *
+     * @param parts parts of the upload, may be null
+     * @return  CompletedParts
+     */
+    public static CompletedParts of(List<CompleteUploadPart> parts) {
+        CompletedParts completedParts = new CompletedParts();
+        if (parts != null) {
+            for (CompleteUploadPart part : parts) {
+                completedParts.add(part.getPartNumber(), part.getEtag(),
+                                   part.getSize() == null ? UNKNOWN_SIZE : part.getSize());
+            }
+        }
+        return completedParts;
+    }
+
+    /**
+     * Add a part, unless it lacks the part number or the ETag S3 needs to complete the upload.
+     *
+     * @param partNumber index of the part in the upload
+     * @param etag eTag returned by S3 when the part was uploaded
+     * @param size size of the part in bytes, or {@link #UNKNOWN_SIZE}
+     * @return  true if the part was added
+     */
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    public boolean add(Integer partNumber, String etag, long size) {
+        if (partNumber == null || etag == null) {
+            return false;
+        }
+        if (partETags.size() == sizes.length) {
+            sizes = Arrays.copyOf(sizes, sizes.length * 2);
+        }
+        sizes[partETags.size()] = size;
+        partETags.add(new PartETag(partNumber, etag));
+        return true;
+    }
+
+    @Override
+    public PartETag get(int index) {
+        return partETags.get(index);
+    }
+
+    @Override
+    public int size() {
+        return partETags.size();
+    }
+
+    /**
+     * The parts to set on the request to S3. The list is mutable and owned by this object.
+     *
+     * @return  PartETags in the order the client sent them
+     */
+    public List<PartETag> getPartETags() {
+        return partETags;
+    }
+
+    /**
+     * Size the client reported for a part.
+     *
+     * @param index position of the part
+     * @return  size in bytes, or {@link #UNKNOWN_SIZE}
+     */
+    public long getSize(int index) {
+        return sizes[index];
+    }
+
+    /**
+     * Total size of the parts, if the client reported the size of every part.
+     *
+     * @return  sum of the part sizes, or empty if any is unknown
+     */
+    public OptionalLong totalSize() {
+        long total = 0;
+        for (int i = 0; i < partETags.size(); i++) {
+            if (sizes[i] == UNKNOWN_SIZE) {
+                return OptionalLong.empty();
+            }
+            total += sizes[i];
+        }
+        return OptionalLong.of(total);
+    }
+
+    /**
+     * Put the parts in the order S3 completes them: ascending by part number, each part number once. When a part
+     * number is sent more than once the last ETag wins, as that is the last upload of the part. Parts already in
+     * strictly ascending order are left as they are.
+     *
+     * @return  number of part numbers missing below the highest part, which S3 accepts
+     * @throws IllegalArgumentException if a part number is outside the range S3 accepts or an ETag is blank
+     */
+    public int normalise() {
+        int count = partETags.size();
+        BitSet partNumbers = new BitSet();
+        int highest = 0;
+        boolean ascending = true;
+        for (int i = 0; i < count; i++) {
+            PartETag part = partETags.get(i);
+            int partNumber = validPartNumber(part);
+            ascending = ascending && partNumber > highest;
+            highest = Math.max(highest, partNumber);
+            partNumbers.set(partNumber);
+        }
+        if (!ascending) {
+            sortKeepingLastOfEachPartNumber(partNumbers, highest);
+        }
+        return highest - partNumbers.cardinality();
+    }
+
+    private static int validPartNumber(PartETag part) {
+        int partNumber = part.getPartNumber();
+        if (partNumber < MIN_PART_NUMBER || partNumber > MAX_PART_NUMBER) {
+            throw new IllegalArgumentException(
+                String.format(INVALID_PART_NUMBER, partNumber, MIN_PART_NUMBER, MAX_PART_NUMBER));
+        }
+        if (part.getETag().isBlank()) {
+            throw new IllegalArgumentException(String.format(EMPTY_ETAG, partNumber));
+        }
+        return partNumber;
+    }
+
+    private void sortKeepingLastOfEachPartNumber(BitSet partNumbers, int highest) {
+        int[] lastIndex = new int[highest + 1];
+        for (int i = 0; i < partETags.size(); i++) {
+            lastIndex[partETags.get(i).getPartNumber()] = i;
+        }
+        int[] sortedIndices = partNumbers.stream().map(partNumber -> lastIndex[partNumber]).toArray();
+        long[] sortedSizes = Arrays.stream(sortedIndices).mapToLong(index -> sizes[index]).toArray();
+        List<PartETag> sortedPartETags = Arrays.stream(sortedIndices).mapToObj(partETags::get).toList();
+        partETags.clear();
+        partETags.addAll(sortedPartETags);
+        sizes = Arrays.copyOf(sortedSizes, Math.max(sortedSizes.length, INITIAL_CAPACITY));
+    }
+}
@@ -0,0 +1,96 @@
+package no.unit.nva.fileupload;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import java.io.IOException;
+
+/**
+ * Reads the parts array of a complete request token by token, straight into {@link CompletedParts}. Entries that
+ * are not objects, or lack a usable PartNumber or ETag, are skipped instead of failing the request, as the client
+ * has always been allowed to send them.
+ */
+public class CompletedPartsDeserializer extends StdDeserializer<CompletedParts> {
+
+    public static final String PART_NUMBER_FIELD = "PartNumber";
+    public static final String ETAG_FIELD = "ETag";
+    public static final String SIZE_FIELD = "Size";
+
+    public CompletedPartsDeserializer() {
+        super(CompletedParts.class);
+    }
+
+    @Override
+    public CompletedParts deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        CompletedParts parts = new CompletedParts();
+        if (!parser.isExpectedStartArrayToken()) {
+            parser.skipChildren();
+            return parts;
+        }
+        JsonToken token = parser.nextToken();
+        while (token != JsonToken.END_ARRAY) {
+            if (token == JsonToken.START_OBJECT) {
+                readPart(parser, parts);
+            } else {
+                parser.skipChildren();
+            }
+            token = parser.nextToken();
+        }
+        return parts;
+    }
+
+    private static void readPart(JsonParser parser, CompletedParts parts) throws IOException {
+        Integer partNumber = null;
+        String etag = null;
+        long size = CompletedParts.UNKNOWN_SIZE;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (PART_NUMBER_FIELD.equals(field)) {
+                partNumber = readPartNumber(parser, value);
+            } else if (ETAG_FIELD.equals(field)) {
+                etag = readEtag(parser, value);
+            } else if (SIZE_FIELD.equals(field)) {
+                size = readSize(parser, value);
+            }
+            parser.skipChildren();
+        }
+        parts.add(partNumber, etag, size);
+    }
+
+    private static String readEtag(JsonParser parser, JsonToken value) throws IOException {
+        if (value.isScalarValue() && value != JsonToken.VALUE_NULL) {
+            return parser.getText();
+        }
+        return null;
+    }
+
+    private static Integer readPartNumber(JsonParser parser, JsonToken value) throws IOException {
+        if (value.isNumeric()) {
+            return parser.getIntValue();
+        }
+        if (value == JsonToken.VALUE_STRING) {
+            try {
+                return Integer.valueOf(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static long readSize(JsonParser parser, JsonToken value) throws IOException {
+        if (value.isNumeric()) {
+            return parser.getLongValue();
+        }
+        if (value == JsonToken.VALUE_STRING) {
+            try {
+                return Long.parseLong(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                return CompletedParts.UNKNOWN_SIZE;
+            }
+        }
+        return CompletedParts.UNKNOWN_SIZE;
+    }
+}
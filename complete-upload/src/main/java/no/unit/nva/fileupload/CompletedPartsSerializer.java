@@ -0,0 +1,35 @@
+package no.unit.nva.fileupload;
+
+import static no.unit.nva.fileupload.CompletedPartsDeserializer.ETAG_FIELD;
+import static no.unit.nva.fileupload.CompletedPartsDeserializer.PART_NUMBER_FIELD;
+import static no.unit.nva.fileupload.CompletedPartsDeserializer.SIZE_FIELD;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+
+/**
+ * Writes {@link CompletedParts} in the format of the complete request, an array of {PartNumber, ETag, Size}.
+ */
+public class CompletedPartsSerializer extends StdSerializer<CompletedParts> {
+
+    public CompletedPartsSerializer() {
+        super(CompletedParts.class);
+    }
+
+    @Override
+    public void serialize(CompletedParts parts, JsonGenerator generator, SerializerProvider provider)
+        throws IOException {
+        generator.writeStartArray(parts, parts.size());
+        for (int i = 0; i < parts.size(); i++) {
+            generator.writeStartObject();
+            generator.writeNumberField(PART_NUMBER_FIELD, parts.get(i).getPartNumber());
+            generator.writeStringField(ETAG_FIELD, parts.get(i).getETag());
+            if (parts.getSize(i) != CompletedParts.UNKNOWN_SIZE) {
+                generator.writeNumberField(SIZE_FIELD, parts.getSize(i));
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+}
@@ -0,0 +1,71 @@
+package no.unit.nva.fileupload;
+
+import java.util.Optional;
+import no.unit.nva.fileupload.session.UploadCompletion;
+import no.unit.nva.fileupload.session.UploadSession;
+import no.unit.nva.fileupload.session.UploadSessionStore;
+
+/**
+ * Completions of multipart uploads, kept with the session of each upload so a retried complete is answered without
+ * calling S3 again.
+ */
+public class UploadCompletions {
+
+    private final UploadSessionStore sessionStore;
+
+    public UploadCompletions(UploadSessionStore sessionStore) {
+        this.sessionStore = sessionStore;
+    }
+
+    /**
+     * Session of the upload a request completes, if one was kept.
+     *
+     * @param input the complete request
+     * @return session of the upload
+     */
+    public Optional<UploadSession> session(CompleteUploadRequestBody input) {
+        return sessionStore.get(input.getKey(), input.getUploadId());
+    }
+
+    /**
+     * Response of an earlier complete of the upload, read from the session store again, for instance after a
+     * concurrent complete of the same upload finished first.
+     *
+     * @param input the complete request
+     * @return recorded response
+     */
+    public Optional<CompleteUploadResponseBody> recorded(CompleteUploadRequestBody input) {
+        return recorded(session(input));
+    }
+
+    /**
+     * Response of an earlier complete of the upload, as recorded in its session.
+     *
+     * @param session session of the upload
+     * @return recorded response
+     */
+    public Optional<CompleteUploadResponseBody> recorded(Optional<UploadSession> session) {
+        return session.flatMap(UploadSession::getCompletion).map(UploadCompletions::toResponseBody);
+    }
+
+    /**
+     * Keeps the response with the session of the upload. An upload without a session was not created by this
+     * service, or its session has expired, so nothing is recorded for it.
+     *
+     * @param session  session of the upload, if one was kept
+     * @param response response to the complete
+     */
+    public void record(Optional<UploadSession> session, CompleteUploadResponseBody response) {
+        session.ifPresent(upload -> sessionStore.put(upload.completed(
+            new UploadCompletion(response.location(), response.fileName(), response.mimeType(), response.size()))));
+    }
+
+    private static CompleteUploadResponseBody toResponseBody(UploadCompletion completion) {
+        return new CompleteUploadResponseBody.Builder()
+                   .withSize(completion.size())
+                   .withLocation(completion.location())
+                   .withMimeType(completion.mimeType())
+                   .withFileName(completion.fileName())
+                   .build();
+    }
+}
@@ -5,28 +5,48 @@ import static no.unit.nva.testutils.RandomDataGenerator.randomString;
 import static org.apache.http.HttpStatus.SC_BAD_REQUEST;
 import static org.apache.http.HttpStatus.SC_NOT_FOUND;
 import static org.apache.http.HttpStatus.SC_OK;
+import static org.apache.http.HttpStatus.SC_SERVICE_UNAVAILABLE;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
-import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.s3.AmazonS3Client;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
 import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.ListPartsRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartListing;
+import com.amazonaws.services.s3.model.PartSummary;
 import com.amazonaws.services.s3.model.S3Object;
+import com.fasterxml.jackson.databind.JsonNode;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.time.Clock;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import no.unit.nva.fileupload.gateway.BlockingS3Gateway;
+import no.unit.nva.fileupload.gateway.MeteredS3Gateway;
+import no.unit.nva.fileupload.gateway.PartListingCache;
+import no.unit.nva.fileupload.gateway.ResilientS3Gateway;
+import no.unit.nva.fileupload.gateway.S3Operation;
+import no.unit.nva.fileupload.metrics.InvocationMetrics;
+import no.unit.nva.fileupload.resilience.S3UnavailableException;
+import no.unit.nva.fileupload.session.InMemoryUploadSessionStore;
+import no.unit.nva.fileupload.session.UploadCompletion;
+import no.unit.nva.fileupload.session.UploadSession;
 import no.unit.nva.fileupload.util.S3Constants;
 import no.unit.nva.testutils.HandlerRequestBuilder;
 import nva.commons.apigateway.GatewayResponse;
@@ -34,7 +54,9 @@ import nva.commons.core.Environment;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.zalando.problem.Problem;
 
@@ -49,19 +71,25 @@ public class CompleteUploadHandlerTest {
     public static final String SAMPLE_UPLOAD_ID = "uploadID";
     public static final String WILDCARD = "*";
     public static final int EXPECTED_ONE_PART = 1;
+    public static final int EXPECTED_PARTS_WITHOUT_EMPTY_ELEMENT = 99;
     private static final String ALLOWED_ORIGIN_ENV = "ALLOWED_ORIGIN";
+    private static final long PART_SIZE = 5L * 1024 * 1024;
+    private static final String PDF = "application/pdf";
+    private static final String UNICODE_FILENAME = "rapport_ø.pdf";
+    private static final String ESCAPED_UNICODE_FILENAME = "rapport_\\u00F8.pdf";
 
     private CompleteUploadHandler completeUploadHandler;
     private ByteArrayOutputStream outputStream;
     private Context context;
     private AmazonS3Client s3client;
+    private Environment environment;
 
     /**
      * Setup test env.
      */
     @BeforeEach
     void setUp() {
-        Environment environment = mock(Environment.class);
+        environment = mock(Environment.class);
         when(environment.readEnv(ALLOWED_ORIGIN_ENV)).thenReturn(WILDCARD);
         when(environment.readEnv(S3Constants.S3_UPLOAD_BUCKET_KEY)).thenReturn(S3Constants.S3_UPLOAD_BUCKET_KEY);
         s3client = mock(AmazonS3Client.class);
@@ -103,6 +131,95 @@ public class CompleteUploadHandlerTest {
         assertThat(response.getBody(), is(notNullValue()));
     }
 
+    @Test
+    void completeUploadWhenS3IsUnavailableReturnsServiceUnavailable() throws IOException {
+        when(s3client.completeMultipartUpload(Mockito.any(CompleteMultipartUploadRequest.class)))
+                .thenThrow(new S3UnavailableException(ResilientS3Gateway.CIRCUIT_OPEN));
+
+        completeUploadHandler.handleRequest(completeUploadRequestWithBody(), outputStream, context);
+        GatewayResponse<Problem> response = GatewayResponse.fromOutputStream(outputStream, Problem.class);
+
+        assertThat(response.getStatusCode(), is(equalTo(SC_SERVICE_UNAVAILABLE)));
+    }
+
+    @Test
+    void shouldWriteMetricsOfInvocationAsEmbeddedMetricFormat() throws IOException {
+        mockS3("filename=\"filename.pdf\"");
+        var documents = new ArrayList<String>();
+        var handler = meteredHandler(documents);
+
+        handler.handleRequest(completeUploadRequestWithBody(), outputStream, context);
+
+        assertThat(documents, hasSize(1));
+        var document = dtoObjectMapper.readTree(documents.get(0));
+        assertThat(document.get(InvocationMetrics.HANDLER_DIMENSION).asText(),
+                   is(equalTo(CompleteUploadHandler.class.getSimpleName())));
+        assertThat(document.get(InvocationMetrics.PARTS).get(0).asInt(), is(equalTo(EXPECTED_ONE_PART)));
+        assertThat(document.get(InvocationMetrics.SIZE).get(0).asLong(), is(equalTo(12345L)));
+        assertThat(document.has(InvocationMetrics.LATENCY), is(true));
+        assertThat(document.has(MeteredS3Gateway.latencyMetric(S3Operation.COMPLETE_MULTIPART_UPLOAD)), is(true));
+        assertThat(document.has(MeteredS3Gateway.latencyMetric(S3Operation.HEAD_OBJECT)), is(true));
+    }
+
+    @Test
+    void shouldWriteErrorClassesOfFailedInvocation() throws IOException {
+        var failure = new AmazonS3Exception("One or more of the specified parts could not be found");
+        failure.setErrorCode("InvalidPart");
+        when(s3client.completeMultipartUpload(Mockito.any(CompleteMultipartUploadRequest.class))).thenThrow(failure);
+        var documents = new ArrayList<String>();
+        var handler = meteredHandler(documents);
+
+        handler.handleRequest(completeUploadRequestWithBody(), outputStream, context);
+
+        var document = dtoObjectMapper.readTree(documents.get(0));
+        assertThat(document.get(InvocationMetrics.ERRORS).get(0).asInt(), is(equalTo(1)));
+        assertThat(document.get(InvocationMetrics.ERROR_CLASS).asText(), is(equalTo("NotFoundException")));
+        assertThat(document.get(MeteredS3Gateway.S3_ERROR_CLASS).asText(), is(equalTo("InvalidPart")));
+    }
+
+    @Test
+    void shouldConfirmSinglePutUploadFromObjectMetadata() throws IOException {
+        var metadata = new ObjectMetadata();
+        metadata.setContentLength(PART_SIZE);
+        metadata.setContentType(PDF);
+        metadata.setContentDisposition("filename=\"filename.pdf\"");
+        when(s3client.getObjectMetadata(any(GetObjectMetadataRequest.class))).thenReturn(metadata);
+
+        completeUploadHandler.handleRequest(requestWithBody(new CompleteUploadRequestBody(null, SAMPLE_KEY, null)),
+                                            outputStream, context);
+
+        var response = GatewayResponse.fromOutputStream(outputStream, CompleteUploadResponseBody.class);
+        var body = response.getBodyObject(CompleteUploadResponseBody.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_OK)));
+        assertThat(body.location(), is(equalTo(SAMPLE_KEY)));
+        assertThat(body.size(), is(equalTo(PART_SIZE)));
+        assertThat(body.fileName(), is(equalTo("filename.pdf")));
+        verify(s3client, never()).completeMultipartUpload(any());
+    }
+
+    @Test
+    void shouldReturnNotFoundWhenSinglePutObjectIsMissing() throws IOException {
+        when(s3client.getObjectMetadata(any(GetObjectMetadataRequest.class)))
+            .thenThrow(new AmazonS3Exception("Not Found"));
+
+        completeUploadHandler.handleRequest(requestWithBody(new CompleteUploadRequestBody(null, SAMPLE_KEY, null)),
+                                            outputStream, context);
+
+        GatewayResponse<Problem> response = GatewayResponse.fromOutputStream(outputStream, Problem.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_NOT_FOUND)));
+    }
+
+    @Test
+    void shouldReturnBadRequestForPartsWithoutUploadId() throws IOException {
+        var body = new CompleteUploadRequestBody(null, SAMPLE_KEY, List.of(new CompleteUploadPart(1, "eTag1")));
+
+        completeUploadHandler.handleRequest(requestWithBody(body), outputStream, context);
+
+        GatewayResponse<Problem> response = GatewayResponse.fromOutputStream(outputStream, Problem.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_BAD_REQUEST)));
+        verify(s3client, never()).getObjectMetadata(any(GetObjectMetadataRequest.class));
+    }
+
     @Test
     void canCreateRequestWithEmptyElement() throws IOException {
         InputStream stream =
@@ -114,8 +231,36 @@ public class CompleteUploadHandlerTest {
         final CompleteMultipartUploadRequest completeMultipartUploadRequest =
                 completeUploadHandler.toCompleteMultipartUploadRequest(completeUploadRequestBody);
         assertThat(completeMultipartUploadRequest, is(notNullValue()));
-        assertThat(completeUploadRequestBody.getParts(),
-                not(hasSize(completeMultipartUploadRequest.getPartETags().size())));
+        assertThat(completeUploadRequestBody.getParts(), hasSize(EXPECTED_PARTS_WITHOUT_EMPTY_ELEMENT));
+        assertThat(completeMultipartUploadRequest.getPartETags(), hasSize(EXPECTED_PARTS_WITHOUT_EMPTY_ELEMENT));
+    }
+
+    @Test
+    void shouldSkipInvalidPartsWhileReadingRequest() throws IOException {
+        var json = "{\"uploadId\": \"uploadID\", \"key\": \"key\", \"parts\": ["
+                   + "{\"PartNumber\": \"2\", \"ETag\": \"eTag2\", \"Size\": 5, \"Extra\": {\"a\": [1]}},"
+                   + "null, [1], {\"ETag\": \"eTag3\"}, {\"PartNumber\": \"x\", \"ETag\": \"eTag4\"},"
+                   + "{\"PartNumber\": 1, \"ETag\": {}}, {\"PartNumber\": 5, \"ETag\": \"eTag5\", \"Size\": \"7\"}]}";
+
+        var body = dtoObjectMapper.readValue(json, CompleteUploadRequestBody.class);
+
+        assertThat(body.getParts(), hasSize(2));
+        assertThat(body.getParts().get(0).getPartNumber(), is(equalTo(2)));
+        assertThat(body.getParts().get(1).getETag(), is(equalTo("eTag5")));
+        assertThat(body.getParts().totalSize().getAsLong(), is(equalTo(12L)));
+    }
+
+    @Test
+    void shouldWritePartsInRequestFormat() throws IOException {
+        var parts = List.of(new CompleteUploadPart(1, "eTag1", PART_SIZE), new CompleteUploadPart(2, "eTag2"));
+        var body = new CompleteUploadRequestBody(SAMPLE_UPLOAD_ID, SAMPLE_KEY, parts);
+
+        var json = dtoObjectMapper.readTree(dtoObjectMapper.writeValueAsString(body));
+
+        assertThat(json.get("parts").get(0).get(CompletedPartsDeserializer.SIZE_FIELD).asLong(),
+                   is(equalTo(PART_SIZE)));
+        assertThat(json.get("parts").get(1).has(CompletedPartsDeserializer.SIZE_FIELD), is(false));
+        assertThat(body.getParts().totalSize().isPresent(), is(false));
     }
 
     @Test
@@ -134,6 +279,421 @@ public class CompleteUploadHandlerTest {
         assertThat(completeUploadRequestBody.getParts(), hasSize(completeMultipartUploadRequest.getPartETags().size()));
     }
 
+    @Test
+    void shouldBuildResponseFromRequestWithoutHeadWhenEnabled() throws IOException {
+        when(s3client.completeMultipartUpload(Mockito.any(CompleteMultipartUploadRequest.class)))
+            .thenReturn(completedResult());
+        var handler = new CompleteUploadHandler(requestMetadataEnvironment(), s3client, TEST_BUCKET_NAME);
+        var parts = List.of(new CompleteUploadPart(1, "eTag1", PART_SIZE), new CompleteUploadPart(2, "eTag2", 1L));
+        var body = new CompleteUploadRequestBody(SAMPLE_UPLOAD_ID, SAMPLE_KEY, parts, UNICODE_FILENAME, PDF);
+
+        handler.handleRequest(requestWithBody(body), outputStream, context);
+
+        var response = GatewayResponse.fromOutputStream(outputStream, CompleteUploadResponseBody.class);
+        var responseBody = response.getBodyObject(CompleteUploadResponseBody.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_OK)));
+        assertThat(responseBody.size(), is(equalTo(PART_SIZE + 1)));
+        assertThat(responseBody.mimeType(), is(equalTo(PDF)));
+        assertThat(responseBody.fileName(), is(equalTo(ESCAPED_UNICODE_FILENAME)));
+        verify(s3client, never()).getObjectMetadata(any());
+    }
+
+    @Test
+    void shouldBuildResponseFromSessionAndListedPartsWithoutHead() throws IOException {
+        when(s3client.completeMultipartUpload(Mockito.any(CompleteMultipartUploadRequest.class)))
+            .thenReturn(completedResult());
+        when(s3client.listParts(any(ListPartsRequest.class))).thenAnswer(invocation -> {
+            ListPartsRequest request = invocation.getArgument(0);
+            return request.getPartNumberMarker() == 0 ? partListing(1, 2) : partListing();
+        });
+        var sessionStore = new InMemoryUploadSessionStore();
+        sessionStore.put(new UploadSession(SAMPLE_KEY, SAMPLE_UPLOAD_ID, UNICODE_FILENAME, PDF, 1L, Instant.now()));
+        var sessionEnvironment = metadataSourceEnvironment(CompleteUploadHandler.METADATA_SOURCE_SESSION);
+        var handler = new CompleteUploadHandler(sessionEnvironment, new BlockingS3Gateway(s3client), TEST_BUCKET_NAME,
+                                                sessionStore, new PartListingCache());
+
+        handler.handleRequest(requestWithBody(new CompleteUploadRequestBody(SAMPLE_UPLOAD_ID, SAMPLE_KEY, null)),
+                              outputStream, context);
+
+        var responseBody = GatewayResponse.fromOutputStream(outputStream, CompleteUploadResponseBody.class)
+                               .getBodyObject(CompleteUploadResponseBody.class);
+        assertThat(responseBody.size(), is(equalTo(2 * PART_SIZE)));
+        assertThat(responseBody.mimeType(), is(equalTo(PDF)));
+        assertThat(responseBody.fileName(), is(equalTo(ESCAPED_UNICODE_FILENAME)));
+        assertThat(sessionStore.get(SAMPLE_KEY, SAMPLE_UPLOAD_ID).flatMap(UploadSession::getCompletion),
+                   is(equalTo(Optional.of(new UploadCompletion(responseBody.location(), ESCAPED_UNICODE_FILENAME,
+                                                               PDF, 2 * PART_SIZE)))));
+        verify(s3client, never()).getObjectMetadata(any());
+    }
+
+    @Test
+    void shouldHeadCompletedObjectInSessionModeWhenClientSentParts() throws IOException {
+        mockS3("filename=\"filename.pdf\"");
+        var sessionStore = new InMemoryUploadSessionStore();
+        sessionStore.put(new UploadSession(SAMPLE_KEY, SAMPLE_UPLOAD_ID, UNICODE_FILENAME, PDF, 1L, Instant.now()));
+        var sessionEnvironment = metadataSourceEnvironment(CompleteUploadHandler.METADATA_SOURCE_SESSION);
+        var handler = new CompleteUploadHandler(sessionEnvironment, new BlockingS3Gateway(s3client), TEST_BUCKET_NAME,
+                                                sessionStore, new PartListingCache());
+        var parts = List.of(new CompleteUploadPart(1, "eTag1", 1L));
+
+        handler.handleRequest(requestWithBody(new CompleteUploadRequestBody(SAMPLE_UPLOAD_ID, SAMPLE_KEY, parts)),
+                              outputStream, context);
+
+        var responseBody = GatewayResponse.fromOutputStream(outputStream, CompleteUploadResponseBody.class)
+                               .getBodyObject(CompleteUploadResponseBody.class);
+        assertThat(responseBody.fileName(), is(equalTo("filename.pdf")));
+        verify(s3client).getObjectMetadata(any());
+    }
+
+    @Test
+    void shouldPreferSessionOverRequestForResponseMetadata() throws IOException {
+        when(s3client.completeMultipartUpload(Mockito.any(CompleteMultipartUploadRequest.class)))
+            .thenReturn(completedResult());
+        var sessionStore = new InMemoryUploadSessionStore();
+        sessionStore.put(new UploadSession(SAMPLE_KEY, SAMPLE_UPLOAD_ID, UNICODE_FILENAME, PDF, PART_SIZE,
+                                           Instant.now()));
+        var handler = new CompleteUploadHandler(requestMetadataEnvironment(), new BlockingS3Gateway(s3client),
+                                                TEST_BUCKET_NAME, sessionStore, new PartListingCache());
+        var parts = List.of(new CompleteUploadPart(1, "eTag1", PART_SIZE));
+        var body = new CompleteUploadRequestBody(SAMPLE_UPLOAD_ID, SAMPLE_KEY, parts, "other.txt", "text/plain");
+
+        handler.handleRequest(requestWithBody(body), outputStream, context);
+
+        var responseBody = GatewayResponse.fromOutputStream(outputStream, CompleteUploadResponseBody.class)
+                               .getBodyObject(CompleteUploadResponseBody.class);
+        assertThat(responseBody.mimeType(), is(equalTo(PDF)));
+        assertThat(responseBody.fileName(), is(equalTo(ESCAPED_UNICODE_FILENAME)));
+        verify(s3client, never()).getObjectMetadata(any());
+    }
+
+    @Test
+    void shouldHeadCompletedObjectByDefaultEvenWithSession() throws IOException {
+        mockS3("filename=\"filename.pdf\"");
+        var sessionStore = new InMemoryUploadSessionStore();
+        sessionStore.put(new UploadSession(SAMPLE_KEY, SAMPLE_UPLOAD_ID, UNICODE_FILENAME, PDF, PART_SIZE,
+                                           Instant.now()));
+        var handler = new CompleteUploadHandler(environment, new BlockingS3Gateway(s3client), TEST_BUCKET_NAME,
+                                                sessionStore, new PartListingCache());
+        var parts = List.of(new CompleteUploadPart(1, "eTag1", PART_SIZE));
+
+        handler.handleRequest(requestWithBody(new CompleteUploadRequestBody(SAMPLE_UPLOAD_ID, SAMPLE_KEY, parts)),
+                              outputStream, context);
+
+        var responseBody = GatewayResponse.fromOutputStream(outputStream, CompleteUploadResponseBody.class)
+                               .getBodyObject(CompleteUploadResponseBody.class);
+        assertThat(responseBody.fileName(), is(equalTo("filename.pdf")));
+        verify(s3client).getObjectMetadata(any());
+    }
+
+    @Test
+    void shouldAnswerRetriedCompleteFromRecordedCompletion() throws IOException {
+        var sessionStore = new InMemoryUploadSessionStore();
+        var completion = new UploadCompletion(SAMPLE_KEY, "filename.pdf", PDF, PART_SIZE);
+        sessionStore.put(new UploadSession(SAMPLE_KEY, SAMPLE_UPLOAD_ID, "filename.pdf", PDF, PART_SIZE,
+                                           Instant.now()).completed(completion));
+        var handler = new CompleteUploadHandler(environment, new BlockingS3Gateway(s3client),
+                                                TEST_BUCKET_NAME, sessionStore, new PartListingCache());
+        var parts = List.of(new CompleteUploadPart(1, "eTag1", PART_SIZE));
+
+        handler.handleRequest(requestWithBody(new CompleteUploadRequestBody(SAMPLE_UPLOAD_ID, SAMPLE_KEY, parts)),
+                              outputStream, context);
+
+        var response = GatewayResponse.fromOutputStream(outputStream, CompleteUploadResponseBody.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_OK)));
+        var responseBody = response.getBodyObject(CompleteUploadResponseBody.class);
+        assertThat(responseBody.location(), is(equalTo(SAMPLE_KEY)));
+        assertThat(responseBody.fileName(), is(equalTo("filename.pdf")));
+        assertThat(responseBody.size(), is(equalTo(PART_SIZE)));
+        verify(s3client, never()).completeMultipartUpload(any());
+        verify(s3client, never()).getObjectMetadata(any());
+    }
+
+    @Test
+    void shouldAnswerFromCompletionRecordedByConcurrentComplete() throws IOException {
+        var sessionStore = new InMemoryUploadSessionStore();
+        var completion = new UploadCompletion(SAMPLE_KEY, "filename.pdf", PDF, PART_SIZE);
+        var session = new UploadSession(SAMPLE_KEY, SAMPLE_UPLOAD_ID, "filename.pdf", PDF, PART_SIZE, Instant.now());
+        when(s3client.completeMultipartUpload(Mockito.any(CompleteMultipartUploadRequest.class)))
+            .thenAnswer(invocation -> {
+                sessionStore.put(session.completed(completion));
+                throw new AmazonS3Exception("NoSuchUpload");
+            });
+        var handler = new CompleteUploadHandler(environment, new BlockingS3Gateway(s3client),
+                                                TEST_BUCKET_NAME, sessionStore, new PartListingCache());
+        var parts = List.of(new CompleteUploadPart(1, "eTag1", PART_SIZE));
+
+        handler.handleRequest(requestWithBody(new CompleteUploadRequestBody(SAMPLE_UPLOAD_ID, SAMPLE_KEY, parts)),
+                              outputStream, context);
+
+        var response = GatewayResponse.fromOutputStream(outputStream, CompleteUploadResponseBody.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_OK)));
+        assertThat(response.getBodyObject(CompleteUploadResponseBody.class).size(), is(equalTo(PART_SIZE)));
+    }
+
+    @Test
+    void shouldAnswerFromObjectWhenUploadWasCompletedWithoutRecordingIt() throws IOException {
+        mockS3("filename=\"filename.pdf\"");
+        when(s3client.completeMultipartUpload(Mockito.any(CompleteMultipartUploadRequest.class)))
+            .thenThrow(noSuchUpload());
+        var sessionStore = new InMemoryUploadSessionStore();
+        sessionStore.put(new UploadSession(SAMPLE_KEY, SAMPLE_UPLOAD_ID, "filename.pdf", PDF, PART_SIZE,
+                                           Instant.now()));
+        var handler = new CompleteUploadHandler(environment, new BlockingS3Gateway(s3client),
+                                                TEST_BUCKET_NAME, sessionStore, new PartListingCache());
+        var parts = List.of(new CompleteUploadPart(1, "eTag1", PART_SIZE));
+
+        handler.handleRequest(requestWithBody(new CompleteUploadRequestBody(SAMPLE_UPLOAD_ID, SAMPLE_KEY, parts)),
+                              outputStream, context);
+
+        var response = GatewayResponse.fromOutputStream(outputStream, CompleteUploadResponseBody.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_OK)));
+        assertThat(response.getBodyObject(CompleteUploadResponseBody.class).fileName(), is(equalTo("filename.pdf")));
+        assertThat(sessionStore.get(SAMPLE_KEY, SAMPLE_UPLOAD_ID).flatMap(UploadSession::getCompletion).isPresent(),
+                   is(true));
+    }
+
+    @Test
+    void shouldReturnNotFoundWhenUploadIsGoneAndObjectIsMissing() throws IOException {
+        when(s3client.completeMultipartUpload(Mockito.any(CompleteMultipartUploadRequest.class)))
+            .thenThrow(noSuchUpload());
+        var missing = new AmazonS3Exception("Not Found");
+        missing.setStatusCode(SC_NOT_FOUND);
+        when(s3client.getObjectMetadata(any(GetObjectMetadataRequest.class))).thenThrow(missing);
+        var sessionStore = new InMemoryUploadSessionStore();
+        sessionStore.put(new UploadSession(SAMPLE_KEY, SAMPLE_UPLOAD_ID, "filename.pdf", PDF, PART_SIZE,
+                                           Instant.now()));
+        var handler = new CompleteUploadHandler(environment, new BlockingS3Gateway(s3client),
+                                                TEST_BUCKET_NAME, sessionStore, new PartListingCache());
+        var parts = List.of(new CompleteUploadPart(1, "eTag1", PART_SIZE));
+
+        handler.handleRequest(requestWithBody(new CompleteUploadRequestBody(SAMPLE_UPLOAD_ID, SAMPLE_KEY, parts)),
+                              outputStream, context);
+
+        GatewayResponse<Problem> response = GatewayResponse.fromOutputStream(outputStream, Problem.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_NOT_FOUND)));
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownUploadEvenWhenObjectExists() throws IOException {
+        mockS3("filename=\"filename.pdf\"");
+        when(s3client.completeMultipartUpload(Mockito.any(CompleteMultipartUploadRequest.class)))
+            .thenThrow(noSuchUpload());
+        var sessionStore = new InMemoryUploadSessionStore();
+        var handler = new CompleteUploadHandler(environment, new BlockingS3Gateway(s3client),
+                                                TEST_BUCKET_NAME, sessionStore, new PartListingCache());
+        var parts = List.of(new CompleteUploadPart(1, "eTag1", PART_SIZE));
+
+        handler.handleRequest(requestWithBody(new CompleteUploadRequestBody("unknownUploadId", SAMPLE_KEY, parts)),
+                              outputStream, context);
+
+        GatewayResponse<Problem> response = GatewayResponse.fromOutputStream(outputStream, Problem.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_NOT_FOUND)));
+        assertThat(sessionStore.get(SAMPLE_KEY, "unknownUploadId"), is(equalTo(Optional.empty())));
+        verify(s3client, never()).getObjectMetadata(any());
+    }
+
+    @Test
+    void shouldNotRecordCompletionOfUploadWithoutSession() throws IOException {
+        mockS3("filename=\"filename.pdf\"");
+        var sessionStore = new InMemoryUploadSessionStore();
+        var handler = new CompleteUploadHandler(environment, new BlockingS3Gateway(s3client),
+                                                TEST_BUCKET_NAME, sessionStore, new PartListingCache());
+        var parts = List.of(new CompleteUploadPart(1, "eTag1", PART_SIZE));
+
+        handler.handleRequest(requestWithBody(new CompleteUploadRequestBody(SAMPLE_UPLOAD_ID, SAMPLE_KEY, parts)),
+                              outputStream, context);
+
+        var response = GatewayResponse.fromOutputStream(outputStream, CompleteUploadResponseBody.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_OK)));
+        assertThat(sessionStore.get(SAMPLE_KEY, SAMPLE_UPLOAD_ID), is(equalTo(Optional.empty())));
+    }
+
+    @Test
+    void shouldFallBackToHeadWhenRequestLacksPartSizes() throws IOException {
+        mockS3("filename=\"filename.pdf\"");
+        when(s3client.completeMultipartUpload(Mockito.any(CompleteMultipartUploadRequest.class)))
+            .thenReturn(completedResult());
+        var handler = new CompleteUploadHandler(requestMetadataEnvironment(), s3client, TEST_BUCKET_NAME);
+        var body = new CompleteUploadRequestBody(SAMPLE_UPLOAD_ID, SAMPLE_KEY,
+                                                 List.of(new CompleteUploadPart(1, "eTag1")), UNICODE_FILENAME, PDF);
+
+        handler.handleRequest(requestWithBody(body), outputStream, context);
+
+        var response = GatewayResponse.fromOutputStream(outputStream, CompleteUploadResponseBody.class);
+        assertThat(response.getBodyObject(CompleteUploadResponseBody.class).fileName(), is(equalTo("filename.pdf")));
+        verify(s3client).getObjectMetadata(any());
+    }
+
+    @Test
+    void shouldAssemblePartsFromS3WhenRequestHasNone() throws IOException {
+        mockS3("filename=\"filename.pdf\"");
+        when(s3client.listParts(any(ListPartsRequest.class))).thenAnswer(invocation -> {
+            ListPartsRequest request = invocation.getArgument(0);
+            return request.getPartNumberMarker() == 0 ? partListing(1, 2) : partListing();
+        });
+        var body = new CompleteUploadRequestBody(SAMPLE_UPLOAD_ID, SAMPLE_KEY, null);
+
+        completeUploadHandler.handleRequest(requestWithBody(body), outputStream, context);
+
+        var captor = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(s3client).completeMultipartUpload(captor.capture());
+        var response = GatewayResponse.fromOutputStream(outputStream, CompleteUploadResponseBody.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_OK)));
+        assertThat(captor.getValue().getPartETags(), hasSize(2));
+        assertThat(captor.getValue().getPartETags().get(1).getPartNumber(), is(equalTo(2)));
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenNoPartsHaveBeenUploaded() throws IOException {
+        var emptyListing = new PartListing();
+        when(s3client.listParts(any(ListPartsRequest.class))).thenReturn(emptyListing);
+        var body = new CompleteUploadRequestBody(SAMPLE_UPLOAD_ID, SAMPLE_KEY, null);
+
+        completeUploadHandler.handleRequest(requestWithBody(body), outputStream, context);
+
+        GatewayResponse<Problem> response = GatewayResponse.fromOutputStream(outputStream, Problem.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_BAD_REQUEST)));
+        verify(s3client, never()).completeMultipartUpload(any());
+    }
+
+    @Test
+    void shouldReturnBadRequestWithoutListingPartsForEmptyPartList() throws IOException {
+        var body = new CompleteUploadRequestBody(SAMPLE_UPLOAD_ID, SAMPLE_KEY, List.of());
+
+        completeUploadHandler.handleRequest(requestWithBody(body), outputStream, context);
+
+        GatewayResponse<Problem> response = GatewayResponse.fromOutputStream(outputStream, Problem.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_BAD_REQUEST)));
+        verify(s3client, never()).listParts(any(ListPartsRequest.class));
+        verify(s3client, never()).completeMultipartUpload(any());
+    }
+
+    @Test
+    void shouldReturnBadRequestWithoutListingPartsWhenNoListedPartIsUsable() throws IOException {
+        var json = "{\"uploadId\": \"uploadID\", \"key\": \"key\", \"parts\": ["
+                   + "{\"partNumber\": 1, \"etag\": \"eTag1\"}, {\"partNumber\": 2, \"etag\": \"eTag2\"}]}";
+        var request = new HandlerRequestBuilder<JsonNode>(dtoObjectMapper)
+                          .withBody(dtoObjectMapper.readTree(json))
+                          .build();
+
+        completeUploadHandler.handleRequest(request, outputStream, context);
+
+        GatewayResponse<Problem> response = GatewayResponse.fromOutputStream(outputStream, Problem.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_BAD_REQUEST)));
+        verify(s3client, never()).listParts(any(ListPartsRequest.class));
+        verify(s3client, never()).completeMultipartUpload(any());
+    }
+
+    @Test
+    void shouldWriteLeftOutPartsAsNull() throws IOException {
+        var body = new CompleteUploadRequestBody(SAMPLE_UPLOAD_ID, SAMPLE_KEY, null);
+
+        var read = dtoObjectMapper.readValue(dtoObjectMapper.writeValueAsString(body),
+                                             CompleteUploadRequestBody.class);
+
+        assertThat(read.listsParts(), is(false));
+        assertThat(read.getParts(), hasSize(0));
+    }
+
+    @Test
+    void shouldSendPartsSortedKeepingLastEtagOfDuplicates() throws IOException {
+        when(s3client.completeMultipartUpload(Mockito.any(CompleteMultipartUploadRequest.class)))
+            .thenReturn(completedResult());
+        var handler = new CompleteUploadHandler(requestMetadataEnvironment(), s3client, TEST_BUCKET_NAME);
+        var parts = List.of(new CompleteUploadPart(3, "eTag3", 1L),
+                            new CompleteUploadPart(1, "eTag1", PART_SIZE),
+                            new CompleteUploadPart(3, "eTag3b", 2L),
+                            new CompleteUploadPart(2, "eTag2", PART_SIZE));
+        var body = new CompleteUploadRequestBody(SAMPLE_UPLOAD_ID, SAMPLE_KEY, parts, UNICODE_FILENAME, PDF);
+
+        handler.handleRequest(requestWithBody(body), outputStream, context);
+
+        var captor = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(s3client).completeMultipartUpload(captor.capture());
+        var partETags = captor.getValue().getPartETags();
+        assertThat(partETags, hasSize(3));
+        assertThat(partETags.get(0).getPartNumber(), is(equalTo(1)));
+        assertThat(partETags.get(1).getPartNumber(), is(equalTo(2)));
+        assertThat(partETags.get(2).getETag(), is(equalTo("eTag3b")));
+        var response = GatewayResponse.fromOutputStream(outputStream, CompleteUploadResponseBody.class);
+        assertThat(response.getBodyObject(CompleteUploadResponseBody.class).size(), is(equalTo(2 * PART_SIZE + 2)));
+    }
+
+    @Test
+    void shouldKeepGapsInPartNumbers() {
+        var parts = CompletedParts.of(List.of(new CompleteUploadPart(1, "eTag1"), new CompleteUploadPart(4, "eTag4")));
+
+        assertThat(parts.normalise(), is(equalTo(2)));
+        assertThat(parts, hasSize(2));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"0,eTag", "10001,eTag", "1,' '"})
+    void shouldReturnBadRequestWithoutCallingS3ForInvalidParts(int partNumber, String etag) throws IOException {
+        var body = new CompleteUploadRequestBody(SAMPLE_UPLOAD_ID, SAMPLE_KEY,
+                                                 List.of(new CompleteUploadPart(partNumber, etag)));
+
+        completeUploadHandler.handleRequest(requestWithBody(body), outputStream, context);
+
+        GatewayResponse<Problem> response = GatewayResponse.fromOutputStream(outputStream, Problem.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_BAD_REQUEST)));
+        verify(s3client, never()).completeMultipartUpload(any());
+    }
+
+    private static PartListing partListing(int... partNumbers) {
+        List<PartSummary> parts = new ArrayList<>();
+        for (int partNumber : partNumbers) {
+            var part = new PartSummary();
+            part.setPartNumber(partNumber);
+            part.setETag("eTag" + partNumber);
+            part.setSize(PART_SIZE);
+            parts.add(part);
+        }
+        var listing = new PartListing();
+        listing.setParts(parts);
+        return listing;
+    }
+
+    private static Environment requestMetadataEnvironment() {
+        return metadataSourceEnvironment(CompleteUploadHandler.METADATA_SOURCE_REQUEST);
+    }
+
+    private static Environment metadataSourceEnvironment(String metadataSource) {
+        Environment environment = mock(Environment.class);
+        when(environment.readEnv(ALLOWED_ORIGIN_ENV)).thenReturn(WILDCARD);
+        when(environment.readEnvOpt(CompleteUploadHandler.COMPLETE_METADATA_SOURCE_KEY))
+            .thenReturn(Optional.of(metadataSource));
+        return environment;
+    }
+
+    private CompleteUploadHandler meteredHandler(List<String> documents) {
+        var metrics = new InvocationMetrics(InvocationMetrics.DEFAULT_NAMESPACE, documents::add,
+                                            Clock.systemUTC(), System::nanoTime);
+        return new CompleteUploadHandler(environment, new MeteredS3Gateway(new BlockingS3Gateway(s3client), metrics),
+                                         TEST_BUCKET_NAME, new InMemoryUploadSessionStore(), new PartListingCache(),
+                                         metrics);
+    }
+
+    private static AmazonS3Exception noSuchUpload() {
+        var exception = new AmazonS3Exception("The specified upload does not exist");
+        exception.setErrorCode("NoSuchUpload");
+        exception.setStatusCode(SC_NOT_FOUND);
+        return exception;
+    }
+
+    private static CompleteMultipartUploadResult completedResult() {
+        var result = new CompleteMultipartUploadResult();
+        result.setKey(SAMPLE_KEY);
+        return result;
+    }
+
+    private static InputStream requestWithBody(CompleteUploadRequestBody body)
+        throws com.fasterxml.jackson.core.JsonProcessingException {
+        return new HandlerRequestBuilder<CompleteUploadRequestBody>(dtoObjectMapper)
+                   .withBody(body)
+                   .build();
+    }
+
     private void mockS3(String filename) {
         when(s3client.completeMultipartUpload(Mockito.any(CompleteMultipartUploadRequest.class)))
             .thenReturn(new CompleteMultipartUploadResult());
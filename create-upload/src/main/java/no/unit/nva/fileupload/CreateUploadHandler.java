@@ -1,36 +1,86 @@
 package no.unit.nva.fileupload;
 
 import static java.util.Objects.requireNonNull;
+import static no.unit.nva.fileupload.priming.HandlerPriming.PRIMING_BUCKET;
+import static no.unit.nva.fileupload.util.S3Constants.MAX_PART_NUMBER;
+import static no.unit.nva.fileupload.util.S3Constants.MAX_PUT_OBJECT_SIZE;
+import static no.unit.nva.fileupload.util.S3Constants.MIN_PART_NUMBER;
 import static org.apache.http.HttpStatus.SC_CREATED;
+import com.amazonaws.HttpMethod;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import jakarta.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import no.unit.nva.fileupload.exception.InvalidInputException;
+import no.unit.nva.fileupload.exception.ServiceUnavailableException;
+import no.unit.nva.fileupload.gateway.BlockingS3Gateway;
+import no.unit.nva.fileupload.gateway.MeteredS3Gateway;
+import no.unit.nva.fileupload.gateway.ResilientS3Gateway;
+import no.unit.nva.fileupload.gateway.S3Gateway;
+import no.unit.nva.fileupload.metrics.HandlerInvocations;
+import no.unit.nva.fileupload.metrics.InvocationMetrics;
+import no.unit.nva.fileupload.metrics.MetricUnit;
 import no.unit.nva.fileupload.model.CreateUploadRequestBody;
 import no.unit.nva.fileupload.model.CreateUploadResponseBody;
+import no.unit.nva.fileupload.plan.UploadPlan;
+import no.unit.nva.fileupload.plan.UploadPlanner;
+import no.unit.nva.fileupload.presign.PartNumbers;
+import no.unit.nva.fileupload.presign.PresignedPart;
+import no.unit.nva.fileupload.presign.SigV4UploadPartPresigner;
+import no.unit.nva.fileupload.presign.UploadPartPresigner;
+import no.unit.nva.fileupload.priming.HandlerPriming;
+import no.unit.nva.fileupload.priming.StubAmazonS3;
+import no.unit.nva.fileupload.recording.HandlerRecording;
+import no.unit.nva.fileupload.resilience.Deadline;
+import no.unit.nva.fileupload.resilience.S3UnavailableException;
+import no.unit.nva.fileupload.session.InMemoryUploadSessionStore;
+import no.unit.nva.fileupload.session.UploadSession;
+import no.unit.nva.fileupload.session.UploadSessionStore;
+import no.unit.nva.fileupload.session.UploadSessionStores;
+import no.unit.nva.fileupload.util.ContentDisposition;
 import no.unit.nva.fileupload.util.S3Constants;
 import no.unit.nva.fileupload.util.S3Utils;
 import nva.commons.apigateway.ApiGatewayHandler;
 import nva.commons.apigateway.RequestInfo;
 import nva.commons.apigateway.exceptions.ApiGatewayException;
-
 import nva.commons.core.Environment;
 import nva.commons.core.JacocoGenerated;
-import org.apache.commons.text.translate.UnicodeEscaper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class CreateUploadHandler extends ApiGatewayHandler<CreateUploadRequestBody, CreateUploadResponseBody> {
 
     private static final Logger logger = LoggerFactory.getLogger(CreateUploadHandler.class);
-    public static final String CONTENT_DISPOSITION_TEMPLATE = "filename=\"%s\"";
-    public static final int LAST_ASCII_CODEPOINT = 127;
-    private final transient AmazonS3 s3Client;
+    private static final String PRIMING_FILENAME = "priming.pdf";
+    // Never below the single PutObject threshold, which is capped at this size, so priming warms the multipart path
+    private static final String PRIMING_SIZE = Long.toString(MAX_PUT_OBJECT_SIZE);
+    private static final String PRIMING_MIMETYPE = "application/pdf";
+    private static final int PRIMING_PRESIGN_PARTS = 1;
+    public static final String INVALID_PRESIGN_PARTS = "presignParts must be between 0 and %d";
+    public static final String S3_UNAVAILABLE = "S3 is unavailable, try again later";
+    // Files smaller than this many bytes get a presigned PutObject url instead of a multipart upload. Unset or 0
+    // turns the single PUT off; values above the PutObject limit of S3 are lowered to it
+    public static final String SINGLE_PUT_THRESHOLD_KEY = "SINGLE_PUT_THRESHOLD";
+    public static final String CONTENT_DISPOSITION_TEMPLATE = ContentDisposition.CONTENT_DISPOSITION_TEMPLATE;
+    public static final int LAST_ASCII_CODEPOINT = ContentDisposition.LAST_ASCII_CODEPOINT;
+    private final transient S3Gateway s3Gateway;
     private final transient String bucketName;
+    private final transient long singlePutThreshold;
+    private final transient UploadSessionStore sessionStore;
+    private final transient InvocationMetrics metrics;
 
     /**
      * Default constructor for CreateUploadHandler.
@@ -49,19 +99,67 @@ public class CreateUploadHandler extends ApiGatewayHandler<CreateUploadRequestBo
     public CreateUploadHandler(Environment environment) {
         this(
                 environment,
-                S3Utils.createAmazonS3Client(environment.readEnv(S3Constants.AWS_REGION_KEY)),
-                environment.readEnv(S3Constants.S3_UPLOAD_BUCKET_KEY)
+                ResilientS3Gateway.shared(
+                    environment,
+                    new MeteredS3Gateway(new BlockingS3Gateway(S3Utils.sharedAmazonS3Client(environment),
+                                                               SigV4UploadPartPresigner.create(
+                                                                   environment.readEnv(S3Constants.AWS_REGION_KEY))),
+                                         InvocationMetrics.shared(environment))),
+                environment.readEnv(S3Constants.S3_UPLOAD_BUCKET_KEY),
+                UploadSessionStores.fromEnvironment(environment),
+                InvocationMetrics.shared(environment)
         );
+        HandlerRecording.startFromEnvironment(environment);
+        HandlerPriming.register(primingHandler(environment), "/create",
+                                new CreateUploadRequestBody(PRIMING_FILENAME, PRIMING_SIZE, PRIMING_MIMETYPE, null,
+                                                            PRIMING_PRESIGN_PARTS));
+    }
+
+    /**
+     * Handler used to prime the SnapStart snapshot, calling a stub S3 instead of AWS.
+     */
+    @JacocoGenerated
+    private static CreateUploadHandler primingHandler(Environment environment) {
+        return new CreateUploadHandler(environment, new StubAmazonS3(), PRIMING_BUCKET);
     }
 
     /**
      * Construct for lambda eventhandler to create an upload request for S3.
      */
     public CreateUploadHandler(Environment environment, AmazonS3 s3Client, String bucketName) {
+        this(environment, new BlockingS3Gateway(s3Client), bucketName);
+    }
+
+    /**
+     * Construct for lambda event handler calling S3 through the given gateway.
+     */
+    public CreateUploadHandler(Environment environment, S3Gateway s3Gateway, String bucketName) {
+        this(environment, s3Gateway, bucketName, new InMemoryUploadSessionStore());
+    }
+
+    /**
+     * Construct for lambda event handler calling S3 through the given gateway and recording every upload in the
+     * given session store.
+     */
+    public CreateUploadHandler(Environment environment, S3Gateway s3Gateway, String bucketName,
+                               UploadSessionStore sessionStore) {
+        this(environment, s3Gateway, bucketName, sessionStore, InvocationMetrics.disabled());
+    }
+
+    /**
+     * Construct for lambda event handler as above, recording the metrics of every invocation.
+     */
+    public CreateUploadHandler(Environment environment, S3Gateway s3Gateway, String bucketName,
+                               UploadSessionStore sessionStore, InvocationMetrics metrics) {
         super(CreateUploadRequestBody.class, environment);
         this.bucketName = bucketName;
-        this.s3Client = s3Client;
-
+        this.s3Gateway = s3Gateway;
+        this.sessionStore = sessionStore;
+        this.metrics = metrics;
+        this.singlePutThreshold = environment.readEnvOpt(SINGLE_PUT_THRESHOLD_KEY)
+                                      .map(Long::parseLong)
+                                      .map(threshold -> Math.min(threshold, MAX_PUT_OBJECT_SIZE))
+                                      .orElse(0L);
     }
 
     /**
@@ -72,37 +170,122 @@ public class CreateUploadHandler extends ApiGatewayHandler<CreateUploadRequestBo
     protected ObjectMetadata toObjectMetadata(CreateUploadRequestBody requestBody) {
         ObjectMetadata objectMetadata = new ObjectMetadata();
         objectMetadata.setContentMD5(null);
-        objectMetadata.setContentDisposition(extractFormattedContentDispositionForFilename(requestBody));
+        objectMetadata.setContentDisposition(ContentDisposition.forFileName(requestBody.getFilename()));
         objectMetadata.setContentType(requestBody.getMimetype());
         return objectMetadata;
     }
 
-    private String escapeFilename(String filename) {
-        UnicodeEscaper unicodeEscaper = UnicodeEscaper.above(LAST_ASCII_CODEPOINT);
-        return unicodeEscaper.translate(filename);
-    }
-
-    private String extractFormattedContentDispositionForFilename(CreateUploadRequestBody requestBody) {
-        return String.format(CONTENT_DISPOSITION_TEMPLATE, escapeFilename(requestBody.getFilename()));
+    @Override
+    public void handleRequest(InputStream inputStream, OutputStream outputStream, Context context)
+        throws IOException {
+        HandlerInvocations.handle(metrics, getClass().getSimpleName(),
+                                  () -> super.handleRequest(inputStream, outputStream, context));
     }
 
     @Override
     protected void validateRequest(CreateUploadRequestBody createUploadRequestBody, RequestInfo requestInfo,
                                    Context context) throws ApiGatewayException {
-        validate(createUploadRequestBody);
+        HandlerInvocations.validate(metrics, () -> validate(createUploadRequestBody));
     }
 
     @Override
     protected CreateUploadResponseBody processInput(CreateUploadRequestBody input, RequestInfo requestInfo,
                                                     Context context) throws ApiGatewayException {
+        return HandlerInvocations.process(metrics, () -> create(input, context));
+    }
 
-
+    private CreateUploadResponseBody create(CreateUploadRequestBody input, Context context)
+        throws ApiGatewayException {
+        Optional<Long> size = parseSize(input.getSize());
+        size.ifPresent(bytes -> metrics.put(InvocationMetrics.SIZE, bytes, MetricUnit.BYTES));
         String keyName = UUID.randomUUID().toString();
+        if (size.filter(this::isSinglePut).isPresent()) {
+            return singlePut(input, keyName);
+        }
+        Optional<UploadPlan> plan = plan(input, size);
+        plan.ifPresent(uploadPlan -> metrics.put(InvocationMetrics.PARTS, uploadPlan.partCount(), MetricUnit.COUNT));
         InitiateMultipartUploadRequest initRequest =
                 new InitiateMultipartUploadRequest(bucketName, keyName, toObjectMetadata(input));
-        InitiateMultipartUploadResult initResponse = s3Client.initiateMultipartUpload(initRequest);
+        InitiateMultipartUploadResult initResponse =
+                Deadline.fromContext(context).call(() -> initiateMultipartUpload(initRequest));
+
+        String uploadId = initResponse.getUploadId();
+        sessionStore.put(new UploadSession(keyName, uploadId, input.getFilename(), input.getMimetype(),
+                                           size.orElse(null), Instant.now()));
+        List<PresignedPart> parts = presignFirstParts(input, plan, keyName, uploadId).orElse(null);
+        return new CreateUploadResponseBody(uploadId, keyName, plan.orElse(null), parts);
+    }
+
+    private boolean isSinglePut(long size) {
+        return size >= 0 && size < singlePutThreshold;
+    }
+
+    private InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest initRequest)
+        throws ServiceUnavailableException {
+        try {
+            return s3Gateway.initiateMultipartUpload(initRequest);
+        } catch (S3UnavailableException e) {
+            logger.warn(e.getMessage());
+            throw new ServiceUnavailableException(S3_UNAVAILABLE, e);
+        }
+    }
+
+    /**
+     * Presigned PutObject url for a file small enough to upload in one request, skipping the initiate, prepare and
+     * complete calls of a multipart upload. The Content-Type and Content-Disposition are signed into the url, so the
+     * object gets the same metadata as a multipart upload and the client must send the returned headers unchanged.
+     */
+    private CreateUploadResponseBody singlePut(CreateUploadRequestBody input, String key) {
+        ObjectMetadata metadata = toObjectMetadata(input);
+        Map<String, String> headers = new LinkedHashMap<>();
+        GeneratePresignedUrlRequest request = new GeneratePresignedUrlRequest(bucketName, key, HttpMethod.PUT);
+        if (metadata.getContentType() != null) {
+            request.setContentType(metadata.getContentType());
+            headers.put(Headers.CONTENT_TYPE, metadata.getContentType());
+        }
+        request.putCustomRequestHeader(Headers.CONTENT_DISPOSITION, metadata.getContentDisposition());
+        headers.put(Headers.CONTENT_DISPOSITION, metadata.getContentDisposition());
+        return CreateUploadResponseBody.singlePut(key, s3Gateway.generatePresignedUrl(request), headers);
+    }
+
+    /**
+     * Presigned URLs of the first parts, when the client asked for them, so it can start uploading without calling
+     * prepare first. No more parts are signed than the plan splits the file into.
+     */
+    private Optional<List<PresignedPart>> presignFirstParts(CreateUploadRequestBody input,
+                                                            Optional<UploadPlan> plan, String key, String uploadId) {
+        int partCount = plan.map(UploadPlan::partCount).orElse(MAX_PART_NUMBER);
+        int presignParts = Math.min(Optional.ofNullable(input.getPresignParts()).orElse(0), partCount);
+        if (presignParts == 0) {
+            return Optional.empty();
+        }
+        UploadPartPresigner presigner = s3Gateway::presignUploadPart;
+        metrics.put(InvocationMetrics.PRESIGNED_PARTS, presignParts, MetricUnit.COUNT);
+        return Optional.of(presigner.presignUploadParts(bucketName, key, uploadId,
+                                                        PartNumbers.range(MIN_PART_NUMBER, presignParts)));
+    }
+
+    /**
+     * Plan of the upload, when the size is a number of bytes. Clients have always been able to send any string as
+     * size, so they get no plan rather than an error when it is not.
+     */
+    private static Optional<UploadPlan> plan(CreateUploadRequestBody input, Optional<Long> size)
+        throws InvalidInputException {
+        try {
+            return size.map(bytes -> UploadPlanner.plan(bytes, input.getBandwidth()));
+        } catch (IllegalArgumentException e) {
+            logger.warn(e.getMessage());
+            throw new InvalidInputException(e);
+        }
+    }
 
-        return new CreateUploadResponseBody(initResponse.getUploadId(), keyName);
+    private static Optional<Long> parseSize(String size) {
+        try {
+            return Optional.of(Long.parseLong(size.trim()));
+        } catch (NumberFormatException e) {
+            logger.info("No upload plan for size {}", size);
+            return Optional.empty();
+        }
     }
 
     private void validate(CreateUploadRequestBody input) throws InvalidInputException {
@@ -111,17 +294,21 @@ public class CreateUploadHandler extends ApiGatewayHandler<CreateUploadRequestBo
             requireNonNull(input.getFilename());
             requireNonNull(input.getSize());
             MediaType.valueOf(input.getMimetype());
+            validatePresignParts(input.getPresignParts());
         } catch (Exception e) {
             logger.warn(e.getMessage());
             throw new InvalidInputException(e);
         }
     }
 
+    private static void validatePresignParts(Integer presignParts) {
+        if (presignParts != null && (presignParts < 0 || presignParts > MAX_PART_NUMBER)) {
+            throw new IllegalArgumentException(String.format(INVALID_PRESIGN_PARTS, MAX_PART_NUMBER));
+        }
+    }
+
     @Override
     protected Integer getSuccessStatusCode(CreateUploadRequestBody input, CreateUploadResponseBody output) {
         return SC_CREATED;
     }
-
-
-
 }
\ No newline at end of file
@@ -8,6 +8,12 @@ public class CreateUploadRequestBody {
     private final String filename;
     private final String size;
     private final String mimetype;
+    private final Long bandwidth;
+    private final Integer presignParts;
+
+    public CreateUploadRequestBody(String filename, String size, String mimetype) {
+        this(filename, size, mimetype, null, null);
+    }
 
     /**
      * Creates a request to upload a file to S3.
@@ -15,14 +21,20 @@ public class CreateUploadRequestBody {
      * @param filename name of the file  to upload
      * @param size     size fo the file to upload
      * @param mimetype mimetype of the uploaded file
+     * @param bandwidth optional upload bandwidth of the client in bytes per second
+     * @param presignParts optional number of parts, from part 1, to return presigned urls for
      */
     @JsonCreator
     public CreateUploadRequestBody(@JsonProperty("filename") String filename,
                                    @JsonProperty("size") String size,
-                                   @JsonProperty("mimetype") String mimetype) {
+                                   @JsonProperty("mimetype") String mimetype,
+                                   @JsonProperty("bandwidth") Long bandwidth,
+                                   @JsonProperty("presignParts") Integer presignParts) {
         this.filename = filename;
         this.size = size;
         this.mimetype = mimetype;
+        this.bandwidth = bandwidth;
+        this.presignParts = presignParts;
     }
 
 
@@ -39,4 +51,12 @@ public class CreateUploadRequestBody {
         return mimetype;
     }
 
+    public Long getBandwidth() {
+        return bandwidth;
+    }
+
+    public Integer getPresignParts() {
+        return presignParts;
+    }
+
 }
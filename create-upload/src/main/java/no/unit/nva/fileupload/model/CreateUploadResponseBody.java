@@ -3,20 +3,63 @@ package no.unit.nva.fileupload.model;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import no.unit.nva.fileupload.plan.UploadPlan;
+import no.unit.nva.fileupload.presign.PresignedPart;
 import nva.commons.core.JacocoGenerated;
 
 public class CreateUploadResponseBody {
 
     private final String uploadId;
     private final String key;
+    private final UploadPlan plan;
+    private final List<PresignedPart> parts;
+    private final URL url;
+    private final Map<String, String> headers;
 
+    public CreateUploadResponseBody(String uploadId, String key, UploadPlan plan, List<PresignedPart> parts) {
+        this(uploadId, key, plan, parts, null, null);
+    }
+
+    /**
+     * Creates the response to a create request.
+     *
+     * @param uploadId identifier of the upload
+     * @param key      bucket key of the uploaded file
+     * @param plan     how to split the file into parts, when its size is known
+     * @param parts    presigned urls of the first parts, when the client asked for them
+     * @param url      presigned PutObject url, when the file is small enough to be uploaded in one request
+     * @param headers  headers the client must send with the PutObject request, as they are part of the signature
+     */
     @JsonCreator
     public CreateUploadResponseBody(
             @JsonProperty("uploadId") String uploadId,
-            @JsonProperty("key") String key) {
+            @JsonProperty("key") String key,
+            @JsonProperty("plan") UploadPlan plan,
+            @JsonProperty("parts") List<PresignedPart> parts,
+            @JsonProperty("url") URL url,
+            @JsonProperty("headers") Map<String, String> headers) {
         this.uploadId = uploadId;
         this.key = key;
+        this.plan = plan;
+        this.parts = parts;
+        this.url = url;
+        this.headers = headers;
+    }
+
+    /**
+     * Creates the response for a file uploaded with a single PutObject request instead of a multipart upload.
+     *
+     * @param key     bucket key of the uploaded file
+     * @param url     presigned PutObject url
+     * @param headers headers the client must send with the PutObject request
+     * @return response without uploadId
+     */
+    public static CreateUploadResponseBody singlePut(String key, URL url, Map<String, String> headers) {
+        return new CreateUploadResponseBody(null, key, null, null, url, headers);
     }
 
     @Override
@@ -30,13 +73,17 @@ public class CreateUploadResponseBody {
         }
         CreateUploadResponseBody that = (CreateUploadResponseBody) o;
         return Objects.equals(getUploadId(), that.getUploadId())
-                && Objects.equals(getKey(), that.getKey());
+                && Objects.equals(getKey(), that.getKey())
+                && Objects.equals(getPlan(), that.getPlan())
+                && Objects.equals(getParts(), that.getParts())
+                && Objects.equals(getUrl(), that.getUrl())
+                && Objects.equals(getHeaders(), that.getHeaders());
     }
 
     @Override
     @JacocoGenerated
     public int hashCode() {
-        return Objects.hash(getUploadId(), getKey());
+        return Objects.hash(getUploadId(), getKey(), getPlan(), getParts(), getUrl(), getHeaders());
     }
 
     public String getUploadId() {
@@ -46,4 +93,20 @@ public class CreateUploadResponseBody {
     public String getKey() {
         return key;
     }
+
+    public UploadPlan getPlan() {
+        return plan;
+    }
+
+    public List<PresignedPart> getParts() {
+        return parts;
+    }
+
+    public URL getUrl() {
+        return url;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
 }
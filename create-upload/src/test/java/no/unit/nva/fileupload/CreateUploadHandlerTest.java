@@ -4,17 +4,25 @@ import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
 import static no.unit.nva.fileupload.CreateUploadHandler.CONTENT_DISPOSITION_TEMPLATE;
 import static org.apache.http.HttpStatus.SC_BAD_REQUEST;
 import static org.apache.http.HttpStatus.SC_INTERNAL_SERVER_ERROR;
+import static org.apache.http.HttpStatus.SC_SERVICE_UNAVAILABLE;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import com.amazonaws.SdkClientException;
+import com.amazonaws.HttpMethod;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
 import com.amazonaws.services.s3.model.ObjectMetadata;
@@ -23,8 +31,17 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.Optional;
 import no.unit.nva.fileupload.model.CreateUploadRequestBody;
 import no.unit.nva.fileupload.model.CreateUploadResponseBody;
+import no.unit.nva.fileupload.plan.UploadPlanner;
+import no.unit.nva.fileupload.gateway.BlockingS3Gateway;
+import no.unit.nva.fileupload.gateway.ResilientS3Gateway;
+import no.unit.nva.fileupload.presign.PresignedPart;
+import no.unit.nva.fileupload.resilience.S3UnavailableException;
+import no.unit.nva.fileupload.session.InMemoryUploadSessionStore;
 import no.unit.nva.fileupload.util.S3Constants;
 import no.unit.nva.testutils.HandlerRequestBuilder;
 import nva.commons.apigateway.ApiGatewayHandler;
@@ -32,6 +49,7 @@ import nva.commons.apigateway.GatewayResponse;
 import nva.commons.core.Environment;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.zalando.problem.Problem;
 
 public class CreateUploadHandlerTest {
@@ -39,6 +57,11 @@ public class CreateUploadHandlerTest {
     public static final String SAMPLE_FILENAME = "filename";
     public static final String SAMPLE_MIMETYPE = "mime/type";
     public static final String SAMPLE_SIZE_STRING = "222";
+    public static final String SAMPLE_LARGE_SIZE_STRING = "1073741824";
+    public static final Long SAMPLE_BANDWIDTH = 100L * 1024 * 1024;
+    public static final String SAMPLE_URL = "https://bucket.s3.amazonaws.com/key?partNumber=1";
+    public static final String SAMPLE_PUT_URL = "https://bucket.s3.amazonaws.com/key";
+    public static final String SINGLE_PUT_THRESHOLD = "1024";
     public static final String SAMPLE_UPLOAD_KEY = "uploadKey";
     public static final String SAMPLE_UPLOAD_ID = "uploadId";
     public static final String TEST_BUCKET_NAME = "bucketName";
@@ -55,6 +78,7 @@ public class CreateUploadHandlerTest {
     private ByteArrayOutputStream outputStream;
     private Context context;
     private AmazonS3Client s3client;
+    private Environment environment;
     private final ObjectMapper objectMapper = dtoObjectMapper;
 
     /**
@@ -62,7 +86,7 @@ public class CreateUploadHandlerTest {
      */
     @BeforeEach
     void setUp() {
-        Environment environment = mock(Environment.class);
+        environment = mock(Environment.class);
         when(environment.readEnv(ApiGatewayHandler.ALLOWED_ORIGIN_ENV)).thenReturn(WILDCARD);
         when(environment.readEnv(S3Constants.S3_UPLOAD_BUCKET_KEY)).thenReturn(S3Constants.S3_UPLOAD_BUCKET_KEY);
         s3client = mock(AmazonS3Client.class);
@@ -82,11 +106,164 @@ public class CreateUploadHandlerTest {
         GatewayResponse<CreateUploadResponseBody> actual =
             GatewayResponse.fromOutputStream(outputStream, CreateUploadResponseBody.class);
         var actualBody = actual.getBodyObject(CreateUploadResponseBody.class);
-        var expectedBody = new CreateUploadResponseBody(SAMPLE_UPLOAD_ID, getGeneratedKey(actual));
+        var expectedBody = new CreateUploadResponseBody(SAMPLE_UPLOAD_ID, getGeneratedKey(actual),
+                                                        UploadPlanner.plan(Long.parseLong(SAMPLE_SIZE_STRING)),
+                                                        null);
         assertThat(actualBody, is(equalTo(expectedBody)));
         assertThat(actual.getStatusCode(), is(equalTo(HttpURLConnection.HTTP_CREATED)));
     }
 
+    @Test
+    void shouldRecordSessionOfCreatedUpload() throws Exception {
+        when(s3client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+            .thenReturn(uploadResult());
+        var sessionStore = new InMemoryUploadSessionStore();
+        var handler = new CreateUploadHandler(environment, new BlockingS3Gateway(s3client),
+                                              TEST_BUCKET_NAME, sessionStore);
+
+        handler.handleRequest(createUploadRequestWithBody(createUploadRequestBody()), outputStream, context);
+
+        var key = getGeneratedKey(GatewayResponse.fromOutputStream(outputStream, CreateUploadResponseBody.class));
+        var session = sessionStore.get(key, SAMPLE_UPLOAD_ID).orElseThrow();
+        assertThat(session.filename(), is(equalTo(SAMPLE_FILENAME)));
+        assertThat(session.mimetype(), is(equalTo(SAMPLE_MIMETYPE)));
+        assertThat(session.size(), is(equalTo(Long.parseLong(SAMPLE_SIZE_STRING))));
+    }
+
+    @Test
+    void shouldReturnPlanForSizeAndBandwidth() throws Exception {
+        when(s3client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+            .thenReturn(uploadResult());
+        var requestBody = new CreateUploadRequestBody(SAMPLE_FILENAME, SAMPLE_LARGE_SIZE_STRING, SAMPLE_MIMETYPE,
+                                                      SAMPLE_BANDWIDTH, null);
+
+        createUploadHandler.handleRequest(createUploadRequestWithBody(requestBody), outputStream, context);
+
+        var plan = GatewayResponse.fromOutputStream(outputStream, CreateUploadResponseBody.class)
+                       .getBodyObject(CreateUploadResponseBody.class)
+                       .getPlan();
+        assertThat(plan, is(equalTo(UploadPlanner.plan(Long.parseLong(SAMPLE_LARGE_SIZE_STRING), SAMPLE_BANDWIDTH))));
+    }
+
+    @Test
+    void shouldCreateUploadWithoutPlanWhenSizeIsNotNumber() throws Exception {
+        when(s3client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+            .thenReturn(uploadResult());
+        var requestBody = new CreateUploadRequestBody(SAMPLE_FILENAME, "unknown", SAMPLE_MIMETYPE);
+
+        createUploadHandler.handleRequest(createUploadRequestWithBody(requestBody), outputStream, context);
+
+        var response = GatewayResponse.fromOutputStream(outputStream, CreateUploadResponseBody.class);
+        assertThat(response.getStatusCode(), is(equalTo(HttpURLConnection.HTTP_CREATED)));
+        assertThat(response.getBodyObject(CreateUploadResponseBody.class).getPlan(), is(nullValue()));
+    }
+
+    @Test
+    void shouldReturnBadRequestForSizeS3CannotStore() throws Exception {
+        var tooLarge = Long.toString(S3Constants.MAX_OBJECT_SIZE + 1);
+        var requestBody = new CreateUploadRequestBody(SAMPLE_FILENAME, tooLarge, SAMPLE_MIMETYPE);
+
+        createUploadHandler.handleRequest(createUploadRequestWithBody(requestBody), outputStream, context);
+
+        GatewayResponse<Problem> response = GatewayResponse.fromOutputStream(outputStream, Problem.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_BAD_REQUEST)));
+        verify(s3client, never()).initiateMultipartUpload(any());
+    }
+
+    @Test
+    void shouldReturnServiceUnavailableWhenS3IsUnavailable() throws Exception {
+        when(s3client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+            .thenThrow(new S3UnavailableException(ResilientS3Gateway.CIRCUIT_OPEN));
+
+        createUploadHandler.handleRequest(
+            createUploadRequestWithBody(createUploadRequestBody()), outputStream, context);
+
+        GatewayResponse<Problem> response = GatewayResponse.fromOutputStream(outputStream, Problem.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_SERVICE_UNAVAILABLE)));
+    }
+
+    @Test
+    void shouldPresignFirstPartsWhenRequested() throws Exception {
+        when(s3client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+            .thenReturn(uploadResult());
+        when(s3client.generatePresignedUrl(any(GeneratePresignedUrlRequest.class))).thenReturn(new URL(SAMPLE_URL));
+        var requestBody = new CreateUploadRequestBody(SAMPLE_FILENAME, SAMPLE_LARGE_SIZE_STRING, SAMPLE_MIMETYPE,
+                                                      null, 3);
+
+        createUploadHandler.handleRequest(createUploadRequestWithBody(requestBody), outputStream, context);
+
+        var parts = GatewayResponse.fromOutputStream(outputStream, CreateUploadResponseBody.class)
+                        .getBodyObject(CreateUploadResponseBody.class)
+                        .getParts();
+        assertThat(parts.stream().map(PresignedPart::getNumber).toList(), contains(1, 2, 3));
+        assertThat(parts.get(0).getUrl().toString(), is(equalTo(SAMPLE_URL)));
+    }
+
+    @Test
+    void shouldNotPresignMorePartsThanPlanned() throws Exception {
+        when(s3client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+            .thenReturn(uploadResult());
+        when(s3client.generatePresignedUrl(any(GeneratePresignedUrlRequest.class))).thenReturn(new URL(SAMPLE_URL));
+        var requestBody = new CreateUploadRequestBody(SAMPLE_FILENAME, SAMPLE_SIZE_STRING, SAMPLE_MIMETYPE, null, 5);
+
+        createUploadHandler.handleRequest(createUploadRequestWithBody(requestBody), outputStream, context);
+
+        var parts = GatewayResponse.fromOutputStream(outputStream, CreateUploadResponseBody.class)
+                        .getBodyObject(CreateUploadResponseBody.class)
+                        .getParts();
+        assertThat(parts, hasSize(1));
+    }
+
+    @Test
+    void shouldReturnBadRequestForNegativePresignParts() throws Exception {
+        var requestBody = new CreateUploadRequestBody(SAMPLE_FILENAME, SAMPLE_SIZE_STRING, SAMPLE_MIMETYPE, null, -1);
+
+        createUploadHandler.handleRequest(createUploadRequestWithBody(requestBody), outputStream, context);
+
+        GatewayResponse<Problem> response = GatewayResponse.fromOutputStream(outputStream, Problem.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_BAD_REQUEST)));
+        verify(s3client, never()).initiateMultipartUpload(any());
+    }
+
+    @Test
+    void shouldReturnPresignedPutObjectUrlForFileBelowSinglePutThreshold() throws Exception {
+        when(s3client.generatePresignedUrl(any(GeneratePresignedUrlRequest.class)))
+            .thenReturn(new URL(SAMPLE_PUT_URL));
+
+        singlePutHandler().handleRequest(createUploadRequestWithBody(createUploadRequestBody()), outputStream,
+                                         context);
+
+        var response = GatewayResponse.fromOutputStream(outputStream, CreateUploadResponseBody.class);
+        var body = response.getBodyObject(CreateUploadResponseBody.class);
+        var expectedHeaders = Map.of(Headers.CONTENT_TYPE, SAMPLE_MIMETYPE,
+                                     Headers.CONTENT_DISPOSITION, generateContentDisposition(SAMPLE_FILENAME));
+        assertThat(response.getStatusCode(), is(equalTo(HttpURLConnection.HTTP_CREATED)));
+        assertThat(body, is(equalTo(CreateUploadResponseBody.singlePut(body.getKey(), new URL(SAMPLE_PUT_URL),
+                                                                       expectedHeaders))));
+        var request = ArgumentCaptor.forClass(GeneratePresignedUrlRequest.class);
+        verify(s3client).generatePresignedUrl(request.capture());
+        assertThat(request.getValue().getMethod(), is(equalTo(HttpMethod.PUT)));
+        assertThat(request.getValue().getKey(), is(equalTo(body.getKey())));
+        assertThat(request.getValue().getCustomRequestHeaders().get(Headers.CONTENT_DISPOSITION),
+                   is(equalTo(generateContentDisposition(SAMPLE_FILENAME))));
+        verify(s3client, never()).initiateMultipartUpload(any());
+    }
+
+    @Test
+    void shouldCreateMultipartUploadForFileAtSinglePutThreshold() throws Exception {
+        when(s3client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+            .thenReturn(uploadResult());
+        var requestBody = new CreateUploadRequestBody(SAMPLE_FILENAME, SINGLE_PUT_THRESHOLD, SAMPLE_MIMETYPE);
+
+        singlePutHandler().handleRequest(createUploadRequestWithBody(requestBody), outputStream, context);
+
+        var body = GatewayResponse.fromOutputStream(outputStream, CreateUploadResponseBody.class)
+                       .getBodyObject(CreateUploadResponseBody.class);
+        assertThat(body.getUploadId(), is(equalTo(SAMPLE_UPLOAD_ID)));
+        assertThat(body.getUrl(), is(nullValue()));
+        verify(s3client, never()).generatePresignedUrl(any(GeneratePresignedUrlRequest.class));
+    }
+
     @Test
     void createUploadWithInvalidInputReturnBadRequest() throws Exception {
         createUploadHandler.handleRequest(createUploadRequestWithoutBody(), outputStream, context);
@@ -212,6 +389,14 @@ public class CreateUploadHandlerTest {
         return uploadResult;
     }
 
+    private CreateUploadHandler singlePutHandler() {
+        Environment environment = mock(Environment.class);
+        when(environment.readEnv(ApiGatewayHandler.ALLOWED_ORIGIN_ENV)).thenReturn(WILDCARD);
+        when(environment.readEnvOpt(CreateUploadHandler.SINGLE_PUT_THRESHOLD_KEY))
+            .thenReturn(Optional.of(SINGLE_PUT_THRESHOLD));
+        return new CreateUploadHandler(environment, s3client, TEST_BUCKET_NAME);
+    }
+
     private String generateContentDisposition(String filename) {
         return String.format(CONTENT_DISPOSITION_TEMPLATE, filename);
     }
@@ -0,0 +1,16 @@
+package no.unit.nva.fileupload.exception;
+
+import nva.commons.apigateway.exceptions.ApiGatewayException;
+import org.apache.http.HttpStatus;
+
+public class ServiceUnavailableException extends ApiGatewayException {
+
+    public ServiceUnavailableException(String message, Exception exception) {
+        super(exception, message);
+    }
+
+    @Override
+    protected Integer statusCode() {
+        return HttpStatus.SC_SERVICE_UNAVAILABLE;
+    }
+}
@@ -0,0 +1,35 @@
+package no.unit.nva.fileupload.gateway;
+
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartListing;
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The operations of {@link S3Gateway} without blocking the caller, so independent S3 calls can overlap.
+ * Failures complete the returned future exceptionally with the exceptions of the AWS SDK.
+ */
+public interface AsyncS3Gateway {
+
+    CompletableFuture<InitiateMultipartUploadResult> initiateMultipartUpload(InitiateMultipartUploadRequest request);
+
+    CompletableFuture<PartListing> listParts(ListPartsRequest request);
+
+    CompletableFuture<URL> presignUploadPart(String bucketName, String key, String uploadId, int partNumber);
+
+    CompletableFuture<Void> abortMultipartUpload(AbortMultipartUploadRequest request);
+
+    CompletableFuture<CompleteMultipartUploadResult> completeMultipartUpload(CompleteMultipartUploadRequest request);
+
+    CompletableFuture<ObjectMetadata> headObject(GetObjectMetadataRequest request);
+
+    CompletableFuture<URL> generatePresignedUrl(GeneratePresignedUrlRequest request);
+}
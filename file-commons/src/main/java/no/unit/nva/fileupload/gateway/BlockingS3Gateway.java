@@ -0,0 +1,69 @@
+package no.unit.nva.fileupload.gateway;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartListing;
+import java.net.URL;
+import no.unit.nva.fileupload.presign.SdkUploadPartPresigner;
+import no.unit.nva.fileupload.presign.UploadPartPresigner;
+
+/**
+ * {@link S3Gateway} calling the blocking {@link AmazonS3} client on the caller's thread.
+ */
+public class BlockingS3Gateway implements S3Gateway {
+
+    private final AmazonS3 s3Client;
+    private final UploadPartPresigner presigner;
+
+    public BlockingS3Gateway(AmazonS3 s3Client) {
+        this(s3Client, new SdkUploadPartPresigner(s3Client));
+    }
+
+    public BlockingS3Gateway(AmazonS3 s3Client, UploadPartPresigner presigner) {
+        this.s3Client = s3Client;
+        this.presigner = presigner;
+    }
+
+    @Override
+    public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request) {
+        return s3Client.initiateMultipartUpload(request);
+    }
+
+    @Override
+    public PartListing listParts(ListPartsRequest request) {
+        return s3Client.listParts(request);
+    }
+
+    @Override
+    public URL presignUploadPart(String bucketName, String key, String uploadId, int partNumber) {
+        return presigner.presignUploadPart(bucketName, key, uploadId, partNumber);
+    }
+
+    @Override
+    public void abortMultipartUpload(AbortMultipartUploadRequest request) {
+        s3Client.abortMultipartUpload(request);
+    }
+
+    @Override
+    public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        return s3Client.completeMultipartUpload(request);
+    }
+
+    @Override
+    public ObjectMetadata headObject(GetObjectMetadataRequest request) {
+        return s3Client.getObjectMetadata(request);
+    }
+
+    @Override
+    public URL generatePresignedUrl(GeneratePresignedUrlRequest request) {
+        return s3Client.generatePresignedUrl(request);
+    }
+}
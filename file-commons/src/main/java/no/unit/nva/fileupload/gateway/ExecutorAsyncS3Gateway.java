@@ -0,0 +1,74 @@
+package no.unit.nva.fileupload.gateway;
+
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartListing;
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import no.unit.nva.fileupload.resilience.Deadline;
+
+/**
+ * {@link AsyncS3Gateway} running the calls of a blocking {@link S3Gateway} on an executor. Version 1 of the AWS SDK
+ * has no non-blocking HTTP client, so the overlap comes from a bounded pool of threads sharing the connection pool
+ * of one client. Calls run with the {@link Deadline} of the thread that made them.
+ */
+public class ExecutorAsyncS3Gateway implements AsyncS3Gateway {
+
+    private final S3Gateway s3Gateway;
+    private final Executor executor;
+
+    public ExecutorAsyncS3Gateway(S3Gateway s3Gateway) {
+        this(s3Gateway, S3Executor.shared());
+    }
+
+    public ExecutorAsyncS3Gateway(S3Gateway s3Gateway, Executor executor) {
+        this.s3Gateway = s3Gateway;
+        this.executor = Deadline.propagating(executor);
+    }
+
+    @Override
+    public CompletableFuture<InitiateMultipartUploadResult> initiateMultipartUpload(
+        InitiateMultipartUploadRequest request) {
+        return CompletableFuture.supplyAsync(() -> s3Gateway.initiateMultipartUpload(request), executor);
+    }
+
+    @Override
+    public CompletableFuture<PartListing> listParts(ListPartsRequest request) {
+        return CompletableFuture.supplyAsync(() -> s3Gateway.listParts(request), executor);
+    }
+
+    @Override
+    public CompletableFuture<URL> presignUploadPart(String bucketName, String key, String uploadId, int partNumber) {
+        return CompletableFuture.supplyAsync(
+            () -> s3Gateway.presignUploadPart(bucketName, key, uploadId, partNumber), executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> abortMultipartUpload(AbortMultipartUploadRequest request) {
+        return CompletableFuture.runAsync(() -> s3Gateway.abortMultipartUpload(request), executor);
+    }
+
+    @Override
+    public CompletableFuture<CompleteMultipartUploadResult> completeMultipartUpload(
+        CompleteMultipartUploadRequest request) {
+        return CompletableFuture.supplyAsync(() -> s3Gateway.completeMultipartUpload(request), executor);
+    }
+
+    @Override
+    public CompletableFuture<ObjectMetadata> headObject(GetObjectMetadataRequest request) {
+        return CompletableFuture.supplyAsync(() -> s3Gateway.headObject(request), executor);
+    }
+
+    @Override
+    public CompletableFuture<URL> generatePresignedUrl(GeneratePresignedUrlRequest request) {
+        return CompletableFuture.supplyAsync(() -> s3Gateway.generatePresignedUrl(request), executor);
+    }
+}
@@ -0,0 +1,214 @@
+package no.unit.nva.fileupload.gateway;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartListing;
+import java.net.URL;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import no.unit.nva.fileupload.resilience.Deadline;
+import no.unit.nva.fileupload.resilience.HedgeBudget;
+import no.unit.nva.fileupload.resilience.LatencyTracker;
+import no.unit.nva.fileupload.resilience.S3UnavailableException;
+import nva.commons.core.Environment;
+import nva.commons.core.JacocoGenerated;
+
+/**
+ * {@link S3Gateway} hedging the idempotent reads, HeadObject and ListParts: when a read has not answered within a
+ * percentile of the recent read latencies, an identical second read goes out and the first successful answer wins.
+ * A {@link HedgeBudget} caps the share of reads that are hedged, so a slow S3 does not get twice the load. Every other
+ * call is passed straight through.
+ *
+ * <p>Each operation keeps its own latencies, as a listing of thousands of parts is much slower than a HEAD. Only the
+ * latency of the first read is kept, as the answer of a hedge would make the slow reads look fast and hedging ever
+ * more frequent. A hedge is therefore cancelled when the first read answers first, while a first read that loses is
+ * left to finish, within the timeouts the gateways below set, so its latency is known.
+ */
+public class HedgingS3Gateway implements S3Gateway {
+
+    public static final String HEDGE_READS_KEY = "S3_HEDGE_READS";
+    public static final String HEDGE_PERCENTILE_KEY = "S3_HEDGE_PERCENTILE";
+    public static final String HEDGE_BUDGET_PERCENT_KEY = "S3_HEDGE_BUDGET_PERCENT";
+    public static final double DEFAULT_PERCENTILE = 95;
+    public static final double DEFAULT_BUDGET_PERCENT = 10;
+    // Delay used until enough reads have been timed, and the bounds of the delay taken from the latencies
+    public static final Duration DEFAULT_DELAY = Duration.ofMillis(200);
+    public static final Duration MIN_DELAY = Duration.ofMillis(20);
+    public static final Duration MAX_DELAY = Duration.ofSeconds(2);
+    private static final double PERCENT = 100;
+
+    private final S3Gateway delegate;
+    private final Executor executor;
+    private final double percentile;
+    private final HedgeBudget budget;
+    private final LatencyTracker headLatencies;
+    private final LatencyTracker listLatencies;
+    private final LongSupplier nanoClock;
+
+    public HedgingS3Gateway(S3Gateway delegate, double percentile, HedgeBudget budget) {
+        this(delegate, S3Executor.hedging(), percentile, budget, System::nanoTime);
+    }
+
+    /**
+     * Creates a gateway.
+     *
+     * @param delegate   gateway making the calls
+     * @param executor   runs the reads, so the caller can wait for whichever answers first
+     * @param percentile percentile of the recent latencies after which a read is hedged
+     * @param budget     caps the share of reads that are hedged
+     * @param nanoClock  monotonic clock in nanoseconds
+     */
+    public HedgingS3Gateway(S3Gateway delegate, Executor executor, double percentile, HedgeBudget budget,
+                            LongSupplier nanoClock) {
+        this(delegate, executor, percentile, budget, nanoClock, new LatencyTracker(), new LatencyTracker());
+    }
+
+    HedgingS3Gateway(S3Gateway delegate, Executor executor, double percentile, HedgeBudget budget,
+                     LongSupplier nanoClock, LatencyTracker headLatencies, LatencyTracker listLatencies) {
+        this.delegate = delegate;
+        this.executor = Deadline.propagating(executor);
+        this.percentile = percentile;
+        this.budget = budget;
+        this.nanoClock = nanoClock;
+        this.headLatencies = headLatencies;
+        this.listLatencies = listLatencies;
+    }
+
+    /**
+     * Hedges the reads of a gateway when that is turned on in the environment.
+     *
+     * @param environment environment reader
+     * @param delegate    gateway making the calls
+     * @return hedging gateway, or the given gateway when hedging is off
+     */
+    @JacocoGenerated
+    public static S3Gateway fromEnvironment(Environment environment, S3Gateway delegate) {
+        if (!environment.readEnvOpt(HEDGE_READS_KEY).map(Boolean::parseBoolean).orElse(false)) {
+            return delegate;
+        }
+        double percentile = environment.readEnvOpt(HEDGE_PERCENTILE_KEY)
+                                .map(Double::parseDouble)
+                                .orElse(DEFAULT_PERCENTILE);
+        double budgetPercent = environment.readEnvOpt(HEDGE_BUDGET_PERCENT_KEY)
+                                   .map(Double::parseDouble)
+                                   .orElse(DEFAULT_BUDGET_PERCENT);
+        return new HedgingS3Gateway(delegate, percentile,
+                                    new HedgeBudget(budgetPercent / PERCENT, HedgeBudget.DEFAULT_MAX_TOKENS));
+    }
+
+    @Override
+    public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request) {
+        return delegate.initiateMultipartUpload(request);
+    }
+
+    @Override
+    public PartListing listParts(ListPartsRequest request) {
+        return hedge(listLatencies, () -> delegate.listParts(request),
+                     () -> delegate.listParts((ListPartsRequest) request.clone()));
+    }
+
+    @Override
+    public URL presignUploadPart(String bucketName, String key, String uploadId, int partNumber) {
+        return delegate.presignUploadPart(bucketName, key, uploadId, partNumber);
+    }
+
+    @Override
+    public void abortMultipartUpload(AbortMultipartUploadRequest request) {
+        delegate.abortMultipartUpload(request);
+    }
+
+    @Override
+    public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        return delegate.completeMultipartUpload(request);
+    }
+
+    @Override
+    public ObjectMetadata headObject(GetObjectMetadataRequest request) {
+        return hedge(headLatencies, () -> delegate.headObject(request),
+                     () -> delegate.headObject((GetObjectMetadataRequest) request.clone()));
+    }
+
+    @Override
+    public URL generatePresignedUrl(GeneratePresignedUrlRequest request) {
+        return delegate.generatePresignedUrl(request);
+    }
+
+    /**
+     * The delay after which a read of the operation is hedged.
+     *
+     * @param latencies recent latencies of the operation
+     * @return hedge delay
+     */
+    Duration hedgeDelay(LatencyTracker latencies) {
+        long delay = latencies.percentile(percentile).orElse(DEFAULT_DELAY).toNanos();
+        return Duration.ofNanos(Math.max(MIN_DELAY.toNanos(), Math.min(MAX_DELAY.toNanos(), delay)));
+    }
+
+    // The hedge reads a copy of the request, as the gateways below may set timeouts on the request of each call
+    private <T> T hedge(LatencyTracker latencies, Callable<T> read, Callable<T> hedgedRead) {
+        budget.onRequest();
+        CompletionService<T> completionService = new ExecutorCompletionService<>(executor);
+        Future<T> firstRead = completionService.submit(timed(latencies, read));
+        Future<T> hedge = null;
+        try {
+            Future<T> first = completionService.poll(hedgeDelay(latencies).toNanos(), TimeUnit.NANOSECONDS);
+            if (first == null && budget.tryAcquire()) {
+                hedge = completionService.submit(hedgedRead);
+            }
+            return firstSuccess(completionService, first, hedge == null ? 1 : 2);
+        } catch (InterruptedException e) {
+            firstRead.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new S3UnavailableException("Interrupted while waiting for S3", e);
+        } finally {
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+    }
+
+    private <T> Callable<T> timed(LatencyTracker latencies, Callable<T> read) {
+        long start = nanoClock.getAsLong();
+        return () -> {
+            T result = read.call();
+            latencies.record(Duration.ofNanos(nanoClock.getAsLong() - start));
+            return result;
+        };
+    }
+
+    private static <T> T firstSuccess(CompletionService<T> completionService, Future<T> first, int reads)
+        throws InterruptedException {
+        Future<T> next = first == null ? completionService.take() : first;
+        for (int answered = 1; ; answered++) {
+            try {
+                return next.get();
+            } catch (ExecutionException e) {
+                if (answered == reads) {
+                    throw unwrap(e);
+                }
+            }
+            next = completionService.take();
+        }
+    }
+
+    private static RuntimeException unwrap(ExecutionException exception) {
+        return exception.getCause() instanceof RuntimeException runtimeException
+                   ? runtimeException
+                   : new SdkClientException(exception.getCause());
+    }
+}
@@ -0,0 +1,140 @@
+package no.unit.nva.fileupload.gateway;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartListing;
+import java.net.URL;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import no.unit.nva.fileupload.metrics.InvocationMetrics;
+import no.unit.nva.fileupload.metrics.MetricUnit;
+import no.unit.nva.fileupload.recording.S3CallEvent;
+
+/**
+ * {@link S3Gateway} recording the latency of every S3 call, as {@code S3<Operation>Latency}, and counting the calls
+ * that fail, with the S3 error code or exception class of the last failure. Every call is also an {@link S3CallEvent}
+ * in a running flight recording. Placed directly around the gateway calling S3, each retried attempt is timed on its
+ * own. Presigning happens without calling S3 and is not recorded.
+ */
+public class MeteredS3Gateway implements S3Gateway {
+
+    public static final String S3_ERRORS = "S3Errors";
+    public static final String S3_ERROR_CLASS = "S3ErrorClass";
+    private static final Map<S3Operation, String> LATENCY_METRICS = latencyMetrics();
+
+    private final S3Gateway delegate;
+    private final InvocationMetrics metrics;
+    private final LongSupplier nanoClock;
+
+    public MeteredS3Gateway(S3Gateway delegate, InvocationMetrics metrics) {
+        this(delegate, metrics, System::nanoTime);
+    }
+
+    /**
+     * Creates a gateway.
+     *
+     * @param delegate  gateway making the calls
+     * @param metrics   metrics of the invocation making the calls
+     * @param nanoClock monotonic clock in nanoseconds
+     */
+    public MeteredS3Gateway(S3Gateway delegate, InvocationMetrics metrics, LongSupplier nanoClock) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Name of the latency metric of an operation, such as {@code S3HeadObjectLatency}.
+     *
+     * @param operation S3 operation
+     * @return metric name
+     */
+    public static String latencyMetric(S3Operation operation) {
+        return LATENCY_METRICS.get(operation);
+    }
+
+    @Override
+    public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request) {
+        return measure(S3Operation.INITIATE_MULTIPART_UPLOAD, () -> delegate.initiateMultipartUpload(request));
+    }
+
+    @Override
+    public PartListing listParts(ListPartsRequest request) {
+        return measure(S3Operation.LIST_PARTS, () -> delegate.listParts(request));
+    }
+
+    @Override
+    public URL presignUploadPart(String bucketName, String key, String uploadId, int partNumber) {
+        return delegate.presignUploadPart(bucketName, key, uploadId, partNumber);
+    }
+
+    @Override
+    public void abortMultipartUpload(AbortMultipartUploadRequest request) {
+        measure(S3Operation.ABORT_MULTIPART_UPLOAD, () -> {
+            delegate.abortMultipartUpload(request);
+            return null;
+        });
+    }
+
+    @Override
+    public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        return measure(S3Operation.COMPLETE_MULTIPART_UPLOAD, () -> delegate.completeMultipartUpload(request));
+    }
+
+    @Override
+    public ObjectMetadata headObject(GetObjectMetadataRequest request) {
+        return measure(S3Operation.HEAD_OBJECT, () -> delegate.headObject(request));
+    }
+
+    @Override
+    public URL generatePresignedUrl(GeneratePresignedUrlRequest request) {
+        return delegate.generatePresignedUrl(request);
+    }
+
+    private <T> T measure(S3Operation operation, Supplier<T> call) {
+        S3CallEvent event = new S3CallEvent(operation.name());
+        event.begin();
+        long start = nanoClock.getAsLong();
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            metrics.put(S3_ERRORS, 1, MetricUnit.COUNT);
+            metrics.putProperty(S3_ERROR_CLASS, errorClass(e));
+            event.setError(errorClass(e));
+            throw e;
+        } finally {
+            metrics.putDuration(latencyMetric(operation), Duration.ofNanos(nanoClock.getAsLong() - start));
+            event.commit();
+        }
+    }
+
+    private static String errorClass(RuntimeException exception) {
+        return exception instanceof AmazonServiceException serviceException && serviceException.getErrorCode() != null
+                   ? serviceException.getErrorCode()
+                   : exception.getClass().getSimpleName();
+    }
+
+    private static Map<S3Operation, String> latencyMetrics() {
+        Map<S3Operation, String> names = new EnumMap<>(S3Operation.class);
+        for (S3Operation operation : S3Operation.values()) {
+            StringBuilder name = new StringBuilder("S3");
+            for (String word : operation.name().split("_")) {
+                name.append(word.charAt(0)).append(word.substring(1).toLowerCase(Locale.ROOT));
+            }
+            names.put(operation, name.append("Latency").toString());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,119 @@
+package no.unit.nva.fileupload.gateway;
+
+import static no.unit.nva.fileupload.util.S3Constants.MAX_PART_NUMBER;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.PartListing;
+import com.amazonaws.services.s3.model.PartSummary;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Lists every part of an upload with concurrent ListParts calls instead of following nextPartNumberMarker page by
+ * page. The part number space 1..10 000 is split into ranges of {@value #RANGE_SIZE}, the most parts S3 returns in
+ * one page, so a single call started at the marker of a range always covers the whole range. The first range is
+ * fetched on its own, as most uploads fit in it, and the ranges after it in waves; parts are merged in part number
+ * order, and listing stops at the first range after which S3 reports no more parts.
+ */
+public class ParallelPartLister {
+
+    public static final int RANGE_SIZE = 1000;
+    public static final int RANGE_COUNT = MAX_PART_NUMBER / RANGE_SIZE;
+    public static final int MIN_RANGES_PER_WAVE = 1;
+
+    private final AsyncS3Gateway s3Gateway;
+    private final int rangesPerWave;
+
+    /**
+     * Lister fetching all ranges after the first in one wave, so an upload of up to {@value #RANGE_SIZE} parts takes
+     * one ListParts call and any upload at most two S3 round trips.
+     * @param s3Gateway gateway running the ListParts calls
+     */
+    public ParallelPartLister(AsyncS3Gateway s3Gateway) {
+        this(s3Gateway, RANGE_COUNT);
+    }
+
+    /**
+     * Lister fetching the given number of ranges concurrently after the first. Smaller waves make fewer calls for
+     * large uploads, at the cost of one more round trip for every wave they need.
+     * @param s3Gateway gateway running the ListParts calls
+     * @param rangesPerWave number of ranges fetched concurrently
+     */
+    public ParallelPartLister(AsyncS3Gateway s3Gateway, int rangesPerWave) {
+        if (rangesPerWave < MIN_RANGES_PER_WAVE) {
+            throw new IllegalArgumentException("rangesPerWave must be positive");
+        }
+        this.s3Gateway = s3Gateway;
+        this.rangesPerWave = rangesPerWave;
+    }
+
+    /**
+     * List every uploaded part of an upload.
+     * @param request bucket, key and uploadId of the upload, and the SDK timeouts to use for each call
+     * @return the parts in part number order
+     */
+    public List<PartSummary> listParts(ListPartsRequest request) {
+        List<PartSummary> parts = new ArrayList<>();
+        int firstRange = 0;
+        int waveSize = 1;
+        while (firstRange < RANGE_COUNT) {
+            int lastRange = Math.min(firstRange + waveSize, RANGE_COUNT);
+            List<CompletableFuture<PartListing>> wave = fetchRanges(request, firstRange, lastRange);
+            for (int range = firstRange; range < lastRange; range++) {
+                PartListing listing = join(wave.get(range - firstRange));
+                if (!listing.isTruncated()) {
+                    parts.addAll(listing.getParts());
+                    return parts;
+                }
+                addPartsInRange(listing, range, parts);
+            }
+            firstRange = lastRange;
+            waveSize = rangesPerWave;
+        }
+        return parts;
+    }
+
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    private List<CompletableFuture<PartListing>> fetchRanges(ListPartsRequest request, int firstRange,
+                                                             int lastRange) {
+        List<CompletableFuture<PartListing>> futures = new ArrayList<>(lastRange - firstRange);
+        for (int range = firstRange; range < lastRange; range++) {
+            futures.add(s3Gateway.listParts(rangeRequest(request, range)));
+        }
+        return futures;
+    }
+
+    private static ListPartsRequest rangeRequest(ListPartsRequest request, int range) {
+        ListPartsRequest rangeRequest =
+            new ListPartsRequest(request.getBucketName(), request.getKey(), request.getUploadId());
+        rangeRequest.setPartNumberMarker(range * RANGE_SIZE);
+        rangeRequest.setMaxParts(RANGE_SIZE);
+        if (request.getSdkRequestTimeout() != null) {
+            rangeRequest.setSdkRequestTimeout(request.getSdkRequestTimeout());
+        }
+        if (request.getSdkClientExecutionTimeout() != null) {
+            rangeRequest.setSdkClientExecutionTimeout(request.getSdkClientExecutionTimeout());
+        }
+        return rangeRequest;
+    }
+
+    // A truncated page started at a range's marker runs into the next range when the range has gaps; those parts
+    // are listed again by the next range. A page that is not truncated holds every remaining part and is kept whole.
+    private static void addPartsInRange(PartListing listing, int range, List<PartSummary> parts) {
+        int lastPartNumber = (range + 1) * RANGE_SIZE;
+        for (PartSummary part : listing.getParts()) {
+            if (part.getPartNumber() <= lastPartNumber) {
+                parts.add(part);
+            }
+        }
+    }
+
+    private static PartListing join(CompletableFuture<PartListing> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : e;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package no.unit.nva.fileupload.gateway;
+
+import com.amazonaws.services.s3.model.PartSummary;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import nva.commons.core.Environment;
+import nva.commons.core.JacocoGenerated;
+
+/**
+ * Complete part listings of uploads, kept for a short time so clients polling for progress or resuming an upload
+ * do not page through S3 on every call. Listings are evicted least recently used first, and the cache is bounded by
+ * the total number of parts it holds rather than by the number of uploads, as one listing can hold 10 000 parts.
+ *
+ * <p>A cached listing can miss parts uploaded after it was read, for at most the time to live. It must never be
+ * used to complete an upload, and abort and complete invalidate the listing of their upload on this instance.
+ */
+public class PartListingCache {
+
+    // How long a listing is served from the cache, in milliseconds; 0 turns the cache off
+    public static final String TIME_TO_LIVE_KEY = "PART_LISTING_CACHE_TTL_MS";
+    public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofSeconds(2);
+    // About 20 MB of PartSummary objects
+    public static final int DEFAULT_MAX_PARTS = 100_000;
+    public static final String HITS_METRIC = "PartListingCacheHits";
+    public static final String MISSES_METRIC = "PartListingCacheMisses";
+    public static final String CACHED_PARTS_METRIC = "PartListingCachedParts";
+
+    private static final Object LOCK = new Object();
+    private static PartListingCache sharedCache;
+
+    private final Map<UploadKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxParts;
+    private final long timeToLiveNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private int cachedParts;
+
+    public PartListingCache() {
+        this(DEFAULT_MAX_PARTS, DEFAULT_TIME_TO_LIVE, System::nanoTime);
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxParts   maximum number of parts held over all listings
+     * @param timeToLive how long a listing is served after it was read from S3
+     * @param nanoClock  monotonic clock in nanoseconds
+     */
+    public PartListingCache(int maxParts, Duration timeToLive, LongSupplier nanoClock) {
+        this.maxParts = maxParts;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Cache shared by every handler in this process, so abort and complete invalidate the listings served by list
+     * parts. It is created on first use with the time to live read from the environment.
+     *
+     * @param environment environment reader
+     * @return shared cache
+     */
+    @JacocoGenerated
+    public static PartListingCache shared(Environment environment) {
+        synchronized (LOCK) {
+            if (sharedCache == null) {
+                Duration timeToLive = environment.readEnvOpt(TIME_TO_LIVE_KEY)
+                                          .map(Long::parseLong)
+                                          .map(Duration::ofMillis)
+                                          .orElse(DEFAULT_TIME_TO_LIVE);
+                sharedCache = new PartListingCache(DEFAULT_MAX_PARTS, timeToLive, System::nanoTime);
+            }
+            return sharedCache;
+        }
+    }
+
+    /**
+     * The parts of an upload, from the cache while the listing is fresh or else from the loader. Failures of the
+     * loader are passed on and not cached.
+     *
+     * @param key      object key of the upload
+     * @param uploadId id of the multipart upload
+     * @param loader   reads the complete listing from S3
+     * @return parts of the upload, unmodifiable
+     */
+    public List<PartSummary> get(String key, String uploadId, Supplier<List<PartSummary>> loader) {
+        UploadKey uploadKey = new UploadKey(key, uploadId);
+        long now = nanoClock.getAsLong();
+        synchronized (entries) {
+            Entry entry = entries.get(uploadKey);
+            if (entry != null && now - entry.loadedAt < timeToLiveNanos) {
+                hits.incrementAndGet();
+                return entry.parts;
+            }
+        }
+        misses.incrementAndGet();
+        List<PartSummary> parts = List.copyOf(loader.get());
+        if (timeToLiveNanos > 0 && parts.size() <= maxParts) {
+            put(uploadKey, new Entry(parts, now));
+        }
+        return parts;
+    }
+
+    /**
+     * Drop the listing of an upload, when it is completed or aborted.
+     *
+     * @param key      object key of the upload
+     * @param uploadId id of the multipart upload
+     */
+    public void invalidate(String key, String uploadId) {
+        synchronized (entries) {
+            Entry removed = entries.remove(new UploadKey(key, uploadId));
+            if (removed != null) {
+                cachedParts -= removed.parts.size();
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Number of parts held over all cached listings.
+     *
+     * @return  cached parts
+     */
+    public int getCachedParts() {
+        synchronized (entries) {
+            return cachedParts;
+        }
+    }
+
+    private void put(UploadKey uploadKey, Entry entry) {
+        synchronized (entries) {
+            Entry replaced = entries.put(uploadKey, entry);
+            cachedParts += entry.parts.size() - (replaced == null ? 0 : replaced.parts.size());
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (cachedParts > maxParts && eldest.hasNext()) {
+                cachedParts -= eldest.next().parts.size();
+                eldest.remove();
+            }
+        }
+    }
+
+    private record UploadKey(String key, String uploadId) {
+
+    }
+
+    private record Entry(List<PartSummary> parts, long loadedAt) {
+
+    }
+}
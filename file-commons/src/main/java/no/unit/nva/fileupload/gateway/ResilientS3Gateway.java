@@ -0,0 +1,321 @@
+package no.unit.nva.fileupload.gateway;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartListing;
+import java.net.URL;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+import no.unit.nva.fileupload.resilience.AdaptiveConcurrencyLimit;
+import no.unit.nva.fileupload.resilience.CircuitBreaker;
+import no.unit.nva.fileupload.resilience.Deadline;
+import no.unit.nva.fileupload.resilience.RetryPolicy;
+import no.unit.nva.fileupload.resilience.S3UnavailableException;
+import nva.commons.core.Environment;
+import nva.commons.core.JacocoGenerated;
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link S3Gateway} retrying the calls of another gateway when S3 throttles or fails. Every operation has its own
+ * retry budget (see {@link S3Operation}); attempts are spaced with decorrelated jitter, the number of calls in flight
+ * shrinks when S3 answers 503 SlowDown and grows back as calls succeed, and a circuit breaker refuses calls while S3
+ * keeps failing. When a call cannot be made within its budget it fails with {@link S3UnavailableException}.
+ *
+ * <p>While a {@link Deadline} is current, a call may take the time left until it instead of the budget of its
+ * operation, and every attempt gets a share of that time, so a slow S3 is given as long as the invocation allows
+ * and the caller still gets an answer it can return before Lambda times out.
+ *
+ * <p>Failures that retrying cannot fix, such as a missing upload, are passed on at once. Presigning makes no call to
+ * S3 and is passed straight through.
+ */
+public class ResilientS3Gateway implements S3Gateway {
+
+    public static final String FAILURE_THRESHOLD_KEY = "S3_CIRCUIT_BREAKER_FAILURE_THRESHOLD";
+    public static final String OPEN_DURATION_MS_KEY = "S3_CIRCUIT_BREAKER_OPEN_MS";
+    public static final String MAX_CONCURRENCY_KEY = "S3_MAX_CONCURRENCY";
+    public static final String CIRCUIT_OPEN = "S3 is failing, calls are suspended";
+    public static final String BUDGET_EXHAUSTED = "S3 did not answer within the retry budget of %s";
+
+    private static final Logger logger = LoggerFactory.getLogger(ResilientS3Gateway.class);
+    private static final Object LOCK = new Object();
+    private static CircuitBreaker sharedCircuitBreaker;
+    private static AdaptiveConcurrencyLimit sharedConcurrencyLimit;
+
+    private final S3Gateway delegate;
+    private final Map<S3Operation, RetryPolicy> policies;
+    private final CircuitBreaker circuitBreaker;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final Sleeper sleeper;
+    private final Supplier<RandomGenerator> random;
+    private final LongSupplier nanoClock;
+
+    /**
+     * Pauses between attempts.
+     */
+    @FunctionalInterface
+    public interface Sleeper {
+
+        void sleep(Duration duration) throws InterruptedException;
+    }
+
+    public ResilientS3Gateway(S3Gateway delegate, CircuitBreaker circuitBreaker,
+                              AdaptiveConcurrencyLimit concurrencyLimit) {
+        this(delegate, defaultPolicies(), circuitBreaker, concurrencyLimit,
+             duration -> Thread.sleep(duration.toMillis()), ThreadLocalRandom::current, System::nanoTime);
+    }
+
+    /**
+     * Creates a gateway.
+     *
+     * @param delegate         gateway making the calls
+     * @param policies         retry budget of every operation
+     * @param circuitBreaker   breaker refusing calls while S3 keeps failing
+     * @param concurrencyLimit adaptive limit of calls in flight
+     * @param sleeper          pauses between attempts
+     * @param random           source of the jitter between attempts, asked on the thread making the call, as the
+     *                         gateway is called from many threads
+     * @param nanoClock        monotonic clock in nanoseconds
+     */
+    public ResilientS3Gateway(S3Gateway delegate, Map<S3Operation, RetryPolicy> policies,
+                              CircuitBreaker circuitBreaker, AdaptiveConcurrencyLimit concurrencyLimit,
+                              Sleeper sleeper, Supplier<RandomGenerator> random, LongSupplier nanoClock) {
+        this.delegate = delegate;
+        this.policies = new EnumMap<>(policies);
+        this.circuitBreaker = circuitBreaker;
+        this.concurrencyLimit = concurrencyLimit;
+        this.sleeper = sleeper;
+        this.random = random;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Wraps a gateway with the circuit breaker and concurrency limit shared by every handler in this process, so
+     * they all back off together when S3 throttles. Both are created on first use with settings read from the
+     * environment.
+     *
+     * @param environment environment reader
+     * @param delegate    gateway making the calls
+     * @return resilient gateway
+     */
+    @JacocoGenerated
+    public static ResilientS3Gateway shared(Environment environment, S3Gateway delegate) {
+        synchronized (LOCK) {
+            if (sharedCircuitBreaker == null) {
+                sharedCircuitBreaker = new CircuitBreaker(
+                    readInt(environment, FAILURE_THRESHOLD_KEY, CircuitBreaker.DEFAULT_FAILURE_THRESHOLD),
+                    Duration.ofMillis(readInt(environment, OPEN_DURATION_MS_KEY,
+                                              (int) CircuitBreaker.DEFAULT_OPEN_DURATION.toMillis())),
+                    System::nanoTime);
+                sharedConcurrencyLimit = new AdaptiveConcurrencyLimit(
+                    readInt(environment, MAX_CONCURRENCY_KEY, S3Executor.MAX_CONCURRENT_CALLS));
+            }
+            return new ResilientS3Gateway(delegate, sharedCircuitBreaker, sharedConcurrencyLimit);
+        }
+    }
+
+    /**
+     * The default retry budget of every operation.
+     *
+     * @return retry policy by operation
+     */
+    public static Map<S3Operation, RetryPolicy> defaultPolicies() {
+        Map<S3Operation, RetryPolicy> policies = new EnumMap<>(S3Operation.class);
+        for (S3Operation operation : S3Operation.values()) {
+            policies.put(operation, operation.getDefaultPolicy());
+        }
+        return policies;
+    }
+
+    @Override
+    public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request) {
+        return call(S3Operation.INITIATE_MULTIPART_UPLOAD, request, () -> delegate.initiateMultipartUpload(request));
+    }
+
+    @Override
+    public PartListing listParts(ListPartsRequest request) {
+        return call(S3Operation.LIST_PARTS, request, () -> delegate.listParts(request));
+    }
+
+    @Override
+    public URL presignUploadPart(String bucketName, String key, String uploadId, int partNumber) {
+        return delegate.presignUploadPart(bucketName, key, uploadId, partNumber);
+    }
+
+    @Override
+    public void abortMultipartUpload(AbortMultipartUploadRequest request) {
+        call(S3Operation.ABORT_MULTIPART_UPLOAD, request, () -> {
+            delegate.abortMultipartUpload(request);
+            return null;
+        });
+    }
+
+    @Override
+    public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        return call(S3Operation.COMPLETE_MULTIPART_UPLOAD, request, () -> delegate.completeMultipartUpload(request));
+    }
+
+    @Override
+    public ObjectMetadata headObject(GetObjectMetadataRequest request) {
+        return call(S3Operation.HEAD_OBJECT, request, () -> delegate.headObject(request));
+    }
+
+    @Override
+    public URL generatePresignedUrl(GeneratePresignedUrlRequest request) {
+        return delegate.generatePresignedUrl(request);
+    }
+
+    /**
+     * Whether S3 asked the caller to slow down.
+     *
+     * @param exception failure of a call
+     * @return true for throttling
+     */
+    public static boolean isThrottling(SdkClientException exception) {
+        return exception instanceof AmazonServiceException serviceException
+               && (RetryUtils.isThrottlingException(serviceException)
+                   || serviceException.getStatusCode() == HttpStatus.SC_SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * Whether a call that failed may succeed when made again: throttling, server errors and failures to reach S3.
+     *
+     * @param exception failure of a call
+     * @return true if the call may be retried
+     */
+    public static boolean isRetryable(SdkClientException exception) {
+        if (exception instanceof AmazonServiceException serviceException) {
+            return isThrottling(serviceException) || RetryUtils.isRetryableServiceException(serviceException);
+        }
+        return exception.isRetryable();
+    }
+
+    private <T> T call(S3Operation operation, AmazonWebServiceRequest request, Supplier<T> call) {
+        RetryPolicy policy = policies.get(operation);
+        Integer requestTimeout = request.getSdkRequestTimeout();
+        long start = nanoClock.getAsLong();
+        long end = start + Deadline.current().remaining().orElse(policy.budget()).toNanos();
+        Duration delay = policy.baseDelay();
+        SdkClientException lastFailure = null;
+        int attempts = 0;
+        while (true) {
+            long left = end - nanoClock.getAsLong();
+            if (left <= 0) {
+                throw budgetExhausted(operation, lastFailure);
+            }
+            if (concurrencyLimit.tryAcquire()) {
+                attempts++;
+                request.setSdkRequestTimeout(
+                    attemptTimeoutMillis(policy, requestTimeout, left, policy.maxAttempts() - attempts + 1));
+                try {
+                    return attempt(call);
+                } catch (SdkClientException e) {
+                    lastFailure = retryableFailure(operation, policy, attempts, e);
+                }
+            }
+            delay = policy.nextDelay(delay, random.get());
+            if (nanoClock.getAsLong() + delay.toNanos() > end) {
+                throw budgetExhausted(operation, lastFailure);
+            }
+            pause(delay, operation);
+        }
+    }
+
+    /**
+     * The failure of an attempt when another attempt may follow it; otherwise the failure to pass on is thrown.
+     */
+    private static SdkClientException retryableFailure(S3Operation operation, RetryPolicy policy, int attempts,
+                                                       SdkClientException failure) {
+        if (!isRetryable(failure)) {
+            throw failure;
+        }
+        if (attempts >= policy.maxAttempts()) {
+            throw budgetExhausted(operation, failure);
+        }
+        logger.warn("Attempt {} of {} failed, retrying: {}", attempts, operation, failure.getMessage());
+        return failure;
+    }
+
+    private static S3UnavailableException budgetExhausted(S3Operation operation, SdkClientException lastFailure) {
+        return new S3UnavailableException(String.format(BUDGET_EXHAUSTED, operation), lastFailure);
+    }
+
+    /**
+     * Timeout of the next attempt: the timeout the caller set, or else an even share of the time left over the
+     * remaining attempts but no less than the request timeout of the operation, and never more than the time left.
+     */
+    private static int attemptTimeoutMillis(RetryPolicy policy, Integer requestTimeout, long leftNanos,
+                                            int attemptsLeft) {
+        long leftMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(leftNanos));
+        long timeout = requestTimeout != null
+                           ? requestTimeout
+                           : Math.max(policy.requestTimeout().toMillis(), leftMillis / attemptsLeft);
+        return (int) Math.min(timeout, leftMillis);
+    }
+
+    private <T> T attempt(Supplier<T> call) {
+        try {
+            if (!circuitBreaker.tryAcquire()) {
+                throw new S3UnavailableException(CIRCUIT_OPEN);
+            }
+            try {
+                T result = call.get();
+                circuitBreaker.onSuccess();
+                concurrencyLimit.onSuccess();
+                return result;
+            } catch (SdkClientException e) {
+                recordFailure(e);
+                throw e;
+            } catch (RuntimeException | Error e) {
+                circuitBreaker.onInconclusive();
+                throw e;
+            }
+        } finally {
+            concurrencyLimit.release();
+        }
+    }
+
+    private void recordFailure(SdkClientException exception) {
+        if (isThrottling(exception)) {
+            concurrencyLimit.onThrottle();
+        }
+        if (isRetryable(exception)) {
+            circuitBreaker.onFailure();
+        } else {
+            // S3 answered, the request was wrong
+            circuitBreaker.onSuccess();
+        }
+    }
+
+    private void pause(Duration delay, S3Operation operation) {
+        try {
+            sleeper.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new S3UnavailableException(String.format(BUDGET_EXHAUSTED, operation), e);
+        }
+    }
+
+    @JacocoGenerated
+    private static int readInt(Environment environment, String key, int defaultValue) {
+        return environment.readEnvOpt(key).map(Integer::parseInt).orElse(defaultValue);
+    }
+}
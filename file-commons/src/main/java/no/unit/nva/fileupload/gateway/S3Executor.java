@@ -0,0 +1,58 @@
+package no.unit.nva.fileupload.gateway;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide pool for overlapping S3 calls. The threads are daemons so they never keep a JVM alive, and the
+ * pool is no larger than the default S3 connection pool, so concurrent calls do not queue for a connection.
+ */
+// Lambda gives a handler no managed executor, so the pools and their daemon threads are made here
+@SuppressWarnings("PMD.DoNotUseThreads")
+public final class S3Executor {
+
+    public static final int MAX_CONCURRENT_CALLS = 16;
+    private static final String THREAD_NAME_PREFIX = "s3-gateway-";
+    private static final String HEDGING_THREAD_NAME_PREFIX = "s3-hedging-";
+
+    private S3Executor() {
+    }
+
+    public static ExecutorService shared() {
+        return Holder.EXECUTOR;
+    }
+
+    /**
+     * Pool running hedged reads. It is separate from the shared pool because the reads of the part lister are
+     * themselves made from the shared pool, and waiting there for tasks queued behind them could starve it. Threads
+     * are created as needed and the hedge budget keeps their number low.
+     *
+     * @return pool for hedged reads
+     */
+    public static ExecutorService hedging() {
+        return HedgingHolder.EXECUTOR;
+    }
+
+    private static ThreadFactory daemonThreads(String threadNamePrefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, threadNamePrefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class Holder {
+
+        private static final ExecutorService EXECUTOR =
+            Executors.newFixedThreadPool(MAX_CONCURRENT_CALLS, daemonThreads(THREAD_NAME_PREFIX));
+    }
+
+    private static final class HedgingHolder {
+
+        private static final ExecutorService EXECUTOR =
+            Executors.newCachedThreadPool(daemonThreads(HEDGING_THREAD_NAME_PREFIX));
+    }
+}
@@ -0,0 +1,32 @@
+package no.unit.nva.fileupload.gateway;
+
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartListing;
+import java.net.URL;
+import no.unit.nva.fileupload.presign.UploadPartPresigner;
+
+/**
+ * The S3 operations used by the upload handlers. Failures are reported with the exceptions of the AWS SDK.
+ */
+public interface S3Gateway extends UploadPartPresigner {
+
+    InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request);
+
+    PartListing listParts(ListPartsRequest request);
+
+    void abortMultipartUpload(AbortMultipartUploadRequest request);
+
+    CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request);
+
+    ObjectMetadata headObject(GetObjectMetadataRequest request);
+
+    URL generatePresignedUrl(GeneratePresignedUrlRequest request);
+}
@@ -0,0 +1,34 @@
+package no.unit.nva.fileupload.gateway;
+
+import java.time.Duration;
+import no.unit.nva.fileupload.resilience.RetryPolicy;
+
+/**
+ * The S3 calls made by the gateway, each with the retry budget it gets by default. The budgets keep every call well
+ * inside the 20 second timeout of the functions, with room left to answer 503 when S3 is throttling.
+ */
+public enum S3Operation {
+
+    INITIATE_MULTIPART_UPLOAD(policy(3, 50, 1_000, 2_000, 5_000)),
+    LIST_PARTS(policy(3, 50, 1_000, 2_000, 5_000)),
+    ABORT_MULTIPART_UPLOAD(policy(3, 50, 1_000, 2_000, 5_000)),
+    // Completing thousands of parts takes S3 a while, so this gets the budget complete had before: 8 seconds
+    COMPLETE_MULTIPART_UPLOAD(policy(4, 100, 2_000, 2_000, 8_000)),
+    HEAD_OBJECT(policy(3, 50, 1_000, 2_000, 5_000));
+
+    private final RetryPolicy defaultPolicy;
+
+    S3Operation(RetryPolicy defaultPolicy) {
+        this.defaultPolicy = defaultPolicy;
+    }
+
+    public RetryPolicy getDefaultPolicy() {
+        return defaultPolicy;
+    }
+
+    private static RetryPolicy policy(int maxAttempts, long baseDelayMs, long maxDelayMs, long requestTimeoutMs,
+                                      long budgetMs) {
+        return new RetryPolicy(maxAttempts, Duration.ofMillis(baseDelayMs), Duration.ofMillis(maxDelayMs),
+                               Duration.ofMillis(requestTimeoutMs), Duration.ofMillis(budgetMs));
+    }
+}
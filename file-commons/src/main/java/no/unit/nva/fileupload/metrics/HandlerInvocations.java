@@ -0,0 +1,78 @@
+package no.unit.nva.fileupload.metrics;
+
+import no.unit.nva.fileupload.recording.HandlerStages;
+import no.unit.nva.fileupload.recording.Stage;
+import no.unit.nva.fileupload.util.S3Utils;
+
+/**
+ * Runs the parts of a handler invocation the same way in every handler: the invocation is measured and recorded as a
+ * whole, and the validation and processing are recorded as stages whose failures are counted as errors.
+ */
+public final class HandlerInvocations {
+
+    // Idle pooled S3 connections when an invocation starts, showing whether warm invocations reuse connections
+    public static final String S3_IDLE_CONNECTIONS = "S3IdleConnections";
+
+    private HandlerInvocations() {
+    }
+
+    /**
+     * Handle a request, recording its latency and stages and the idle S3 connections it starts with, and writing its
+     * metrics before returning.
+     *
+     * @param metrics metrics of the invocation
+     * @param handler name of the handler
+     * @param request handling of the request
+     * @param <E>     exception thrown by the handling
+     * @throws E when the handling fails
+     */
+    public static <E extends Exception> void handle(InvocationMetrics metrics, String handler, Action<E> request)
+        throws E {
+        metrics.put(S3_IDLE_CONNECTIONS, S3Utils.connectionPoolStats().available(), MetricUnit.COUNT);
+        metrics.measure(handler, () -> HandlerStages.invocation(handler, () -> {
+            request.run();
+            return null;
+        }));
+    }
+
+    /**
+     * Validate a request as the {@link Stage#VALIDATE} stage, counting an error when it is rejected.
+     *
+     * @param metrics    metrics of the invocation
+     * @param validation validation of the request
+     * @param <E>        exception thrown when the request is rejected
+     * @throws E when the request is rejected
+     */
+    public static <E extends Exception> void validate(InvocationMetrics metrics, Action<E> validation) throws E {
+        HandlerStages.stage(Stage.VALIDATE, () -> metrics.countingErrors(() -> {
+            validation.run();
+            return null;
+        }));
+    }
+
+    /**
+     * Process a request as the {@link Stage#PROCESS} stage, counting an error when it fails.
+     *
+     * @param metrics metrics of the invocation
+     * @param task    processing of the request
+     * @param <T>     type of the result
+     * @param <E>     exception thrown by the processing
+     * @return result of the processing
+     * @throws E when the processing fails
+     */
+    public static <T, E extends Exception> T process(InvocationMetrics metrics, InvocationMetrics.Task<T, E> task)
+        throws E {
+        return HandlerStages.stage(Stage.PROCESS, () -> metrics.countingErrors(task));
+    }
+
+    /**
+     * Part of an invocation returning nothing.
+     *
+     * @param <E> exception thrown by the part
+     */
+    @FunctionalInterface
+    public interface Action<E extends Exception> {
+
+        void run() throws E;
+    }
+}
@@ -0,0 +1,284 @@
+package no.unit.nva.fileupload.metrics;
+
+import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import nva.commons.core.Environment;
+import nva.commons.core.JacocoGenerated;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Metrics of the invocation being handled, written once it ends as one CloudWatch Embedded Metric Format document on
+ * standard output, where CloudWatch turns it into metrics without any call to the CloudWatch API. Handlers record
+ * their latency, error class, part counts and sizes, and a {@link no.unit.nva.fileupload.gateway.MeteredS3Gateway}
+ * records the latency of every S3 call made meanwhile. Values of the same metric are batched into one array.
+ *
+ * <p>Lambda handles one invocation at a time per instance, so a single instance is shared by every handler in the
+ * process and emptied at the end of each invocation. Documents are written before the handler returns, as Lambda may
+ * freeze the instance as soon as it does and a document not yet written would be lost or land in a later invocation.
+ */
+public class InvocationMetrics {
+
+    public static final String NAMESPACE_KEY = "METRICS_NAMESPACE";
+    public static final String DEFAULT_NAMESPACE = "NvaUploadMultipart";
+    public static final String HANDLER_DIMENSION = "Handler";
+    public static final String LATENCY = "Latency";
+    public static final String ERRORS = "Errors";
+    public static final String ERROR_CLASS = "ErrorClass";
+    public static final String PARTS = "Parts";
+    public static final String PRESIGNED_PARTS = "PresignedParts";
+    public static final String SIZE = "Size";
+    // CloudWatch takes at most 100 metrics per document and 100 values per metric
+    public static final int MAX_METRICS_PER_DOCUMENT = 100;
+    public static final int MAX_VALUES_PER_METRIC = 100;
+    private static final double NANOS_PER_MILLI = 1_000_000d;
+    private static final Logger logger = LoggerFactory.getLogger(InvocationMetrics.class);
+    private static final InvocationMetrics NO_METRICS =
+        new InvocationMetrics(false, DEFAULT_NAMESPACE, InvocationMetrics::discard, Clock.systemUTC(),
+                              System::nanoTime);
+    private static final Object LOCK = new Object();
+    private static InvocationMetrics sharedMetrics;
+
+    private final boolean enabled;
+    private final String namespace;
+    private final Consumer<String> sink;
+    private final Clock clock;
+    private final LongSupplier nanoClock;
+    private final Map<String, Metric> metrics = new LinkedHashMap<>();
+    private final Map<String, String> properties = new LinkedHashMap<>();
+
+    /**
+     * Creates metrics writing their documents to the given sink.
+     *
+     * @param namespace CloudWatch namespace of the metrics
+     * @param sink      receives each document as one line of JSON
+     * @param clock     clock giving the timestamp of the documents
+     * @param nanoClock monotonic clock in nanoseconds
+     */
+    public InvocationMetrics(String namespace, Consumer<String> sink, Clock clock, LongSupplier nanoClock) {
+        this(true, namespace, sink, clock, nanoClock);
+    }
+
+    private InvocationMetrics(boolean enabled, String namespace, Consumer<String> sink, Clock clock,
+                              LongSupplier nanoClock) {
+        this.enabled = enabled;
+        this.namespace = namespace;
+        this.sink = sink;
+        this.clock = clock;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * The metrics shared by every handler in this process, written to standard output. Created on first use with
+     * the namespace read from the environment.
+     *
+     * @param environment environment reader
+     * @return shared metrics
+     */
+    @JacocoGenerated
+    public static InvocationMetrics shared(Environment environment) {
+        synchronized (LOCK) {
+            if (sharedMetrics == null) {
+                sharedMetrics = new InvocationMetrics(environment.readEnvOpt(NAMESPACE_KEY).orElse(DEFAULT_NAMESPACE),
+                                               System.out::println, Clock.systemUTC(), System::nanoTime);
+            }
+            return sharedMetrics;
+        }
+    }
+
+    /**
+     * Metrics recording nothing, for handlers built without metrics.
+     *
+     * @return disabled metrics
+     */
+    public static InvocationMetrics disabled() {
+        return NO_METRICS;
+    }
+
+    // Sink of the disabled metrics, which never write a document
+    @JacocoGenerated
+    @SuppressWarnings("PMD.UnusedFormalParameter")
+    private static void discard(String document) {
+        // nothing to write
+    }
+
+    /**
+     * Record a value of a metric.
+     *
+     * @param name  name of the metric
+     * @param value value to record
+     * @param unit  unit of the value
+     */
+    public void put(String name, double value, MetricUnit unit) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            metrics.computeIfAbsent(name, ignored -> new Metric(unit)).values().add(value);
+        }
+    }
+
+    public void putDuration(String name, Duration duration) {
+        put(name, duration.toNanos() / NANOS_PER_MILLI, MetricUnit.MILLISECONDS);
+    }
+
+    /**
+     * Record a property written alongside the metrics, searchable in CloudWatch Logs but not a metric itself.
+     *
+     * @param name  name of the property
+     * @param value value of the property, replacing any earlier value in the same invocation
+     */
+    public void putProperty(String name, String value) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            properties.put(name, value);
+        }
+    }
+
+    /**
+     * Run an invocation of a handler, recording its latency and writing every metric recorded meanwhile when it
+     * ends.
+     *
+     * @param handler name of the handler, written as the {@value #HANDLER_DIMENSION} dimension
+     * @param task    the invocation
+     * @param <T>     type of the result
+     * @param <E>     exception thrown by the invocation
+     * @return result of the invocation
+     * @throws E when the invocation fails
+     */
+    public <T, E extends Exception> T measure(String handler, Task<T, E> task) throws E {
+        long start = nanoClock.getAsLong();
+        try {
+            return task.call();
+        } finally {
+            putDuration(LATENCY, Duration.ofNanos(nanoClock.getAsLong() - start));
+            flush(handler);
+        }
+    }
+
+    /**
+     * Run work, counting an error and recording its class when it fails.
+     *
+     * @param task work to run
+     * @param <T>  type of the result
+     * @param <E>  exception thrown by the work
+     * @return result of the work
+     * @throws E when the work fails
+     */
+    public <T, E extends Exception> T countingErrors(Task<T, E> task) throws E {
+        try {
+            return task.call();
+        } catch (Exception e) {
+            put(ERRORS, 1, MetricUnit.COUNT);
+            putProperty(ERROR_CLASS, e.getClass().getSimpleName());
+            throw e;
+        }
+    }
+
+    /**
+     * Write the metrics recorded since the last flush and start over.
+     *
+     * @param handler name of the handler, written as the {@value #HANDLER_DIMENSION} dimension
+     */
+    public void flush(String handler) {
+        Map<String, Metric> recordedMetrics;
+        Map<String, String> recordedProperties;
+        synchronized (this) {
+            if (metrics.isEmpty()) {
+                return;
+            }
+            recordedMetrics = new LinkedHashMap<>(metrics);
+            recordedProperties = new LinkedHashMap<>(properties);
+            metrics.clear();
+            properties.clear();
+        }
+        write(handler, clock.millis(), recordedMetrics, recordedProperties);
+    }
+
+    private void write(String handler, long timestamp, Map<String, Metric> recordedMetrics,
+                       Map<String, String> recordedProperties) {
+        try {
+            for (ObjectNode document : documents(handler, timestamp, recordedMetrics, recordedProperties)) {
+                sink.accept(dtoObjectMapper.writeValueAsString(document));
+            }
+        } catch (JsonProcessingException | RuntimeException e) {
+            logger.warn("Could not write metrics of {}", handler, e);
+        }
+    }
+
+    /**
+     * The documents holding the recorded metrics, as few as the CloudWatch limits allow: metrics beyond the first
+     * hundred, and values of a metric beyond its first hundred, go in further documents.
+     */
+    private List<ObjectNode> documents(String handler, long timestamp, Map<String, Metric> recordedMetrics,
+                                       Map<String, String> recordedProperties) {
+        List<Map.Entry<String, Metric>> entries = new ArrayList<>(recordedMetrics.entrySet());
+        List<ObjectNode> documents = new ArrayList<>();
+        for (int first = 0; first < entries.size(); first += MAX_METRICS_PER_DOCUMENT) {
+            List<Map.Entry<String, Metric>> group =
+                entries.subList(first, Math.min(entries.size(), first + MAX_METRICS_PER_DOCUMENT));
+            int mostValues = group.stream().mapToInt(entry -> entry.getValue().values().size()).max().orElse(0);
+            for (int offset = 0; offset < mostValues; offset += MAX_VALUES_PER_METRIC) {
+                documents.add(document(handler, timestamp, group, offset, recordedProperties));
+            }
+        }
+        return documents;
+    }
+
+    private ObjectNode document(String handler, long timestamp, List<Map.Entry<String, Metric>> group, int offset,
+                                Map<String, String> recordedProperties) {
+        ObjectNode document = dtoObjectMapper.createObjectNode();
+        ObjectNode directive = document.putObject("_aws")
+                                   .put("Timestamp", timestamp)
+                                   .putArray("CloudWatchMetrics")
+                                   .addObject()
+                                   .put("Namespace", namespace);
+        directive.putArray("Dimensions").addArray().add(HANDLER_DIMENSION);
+        ArrayNode definitions = directive.putArray("Metrics");
+        document.put(HANDLER_DIMENSION, handler);
+        recordedProperties.forEach(document::put);
+        for (Map.Entry<String, Metric> entry : group) {
+            List<Double> values = entry.getValue().values();
+            if (offset >= values.size()) {
+                continue;
+            }
+            definitions.addObject()
+                .put("Name", entry.getKey())
+                .put("Unit", entry.getValue().unit().getCloudWatchName());
+            ArrayNode array = document.putArray(entry.getKey());
+            values.subList(offset, Math.min(values.size(), offset + MAX_VALUES_PER_METRIC)).forEach(array::add);
+        }
+        return document;
+    }
+
+    private record Metric(MetricUnit unit, List<Double> values) {
+
+        Metric(MetricUnit unit) {
+            this(unit, new ArrayList<>());
+        }
+    }
+
+    /**
+     * Work whose metrics are recorded.
+     *
+     * @param <T> type of the result
+     * @param <E> exception thrown by the work
+     */
+    @FunctionalInterface
+    public interface Task<T, E extends Exception> {
+
+        T call() throws E;
+    }
+}
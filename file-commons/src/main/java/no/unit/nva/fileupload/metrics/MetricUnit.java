@@ -0,0 +1,21 @@
+package no.unit.nva.fileupload.metrics;
+
+/**
+ * Units of the recorded metrics, named as CloudWatch names them.
+ */
+public enum MetricUnit {
+
+    MILLISECONDS("Milliseconds"),
+    BYTES("Bytes"),
+    COUNT("Count");
+
+    private final String cloudWatchName;
+
+    MetricUnit(String cloudWatchName) {
+        this.cloudWatchName = cloudWatchName;
+    }
+
+    public String getCloudWatchName() {
+        return cloudWatchName;
+    }
+}
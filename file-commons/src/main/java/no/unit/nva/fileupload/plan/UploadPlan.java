@@ -0,0 +1,13 @@
+package no.unit.nva.fileupload.plan;
+
+/**
+ * How a client should upload a file: the size of every part but the last, the number of parts, and how many parts
+ * to upload at the same time.
+ *
+ * @param partSize    size in bytes of every part except the last, which holds the rest of the file
+ * @param partCount   number of parts the file is split into
+ * @param concurrency number of parts to upload in parallel
+ */
+public record UploadPlan(long partSize, int partCount, int concurrency) {
+
+}
@@ -0,0 +1,70 @@
+package no.unit.nva.fileupload.plan;
+
+import static no.unit.nva.fileupload.util.S3Constants.MAX_OBJECT_SIZE;
+import static no.unit.nva.fileupload.util.S3Constants.MAX_PART_NUMBER;
+import static no.unit.nva.fileupload.util.S3Constants.MAX_PART_SIZE;
+import static no.unit.nva.fileupload.util.S3Constants.MIN_PART_SIZE;
+
+/**
+ * Chooses the part size, part count and concurrency of an upload from the size of the file and, when the client
+ * knows it, its upload bandwidth. Parts stay within the 5 MiB to 5 GiB part size and 10 000 part limits of S3.
+ */
+public final class UploadPlanner {
+
+    public static final long MEBIBYTE = 1024 * 1024;
+    public static final long DEFAULT_PART_SIZE = 8 * MEBIBYTE;
+    public static final int DEFAULT_CONCURRENCY = 4;
+    // Browsers open at most six HTTP/1.1 connections to a host, and every part URL points to the bucket host
+    public static final int MAX_CONCURRENCY = 6;
+    // Bytes per second one connection to S3 is assumed to sustain, used to spread a bandwidth hint over connections
+    public static final long CONNECTION_THROUGHPUT = 8 * MEBIBYTE;
+    // Seconds one part takes on its connection: long enough to amortise the request, short enough to retry cheaply
+    public static final long TARGET_PART_SECONDS = 4;
+    public static final String INVALID_SIZE = "Size must be between 0 and %d bytes, was %d";
+    public static final String INVALID_BANDWIDTH = "Bandwidth must be a positive number of bytes per second, was %d";
+
+    private UploadPlanner() {
+    }
+
+    /**
+     * Plan the upload of a file without knowing the bandwidth of the client.
+     *
+     * @param size size of the file in bytes
+     * @return the plan
+     */
+    public static UploadPlan plan(long size) {
+        return plan(size, null);
+    }
+
+    /**
+     * Plan the upload of a file. With a bandwidth hint the concurrency is the number of connections needed to fill
+     * the bandwidth, and parts are sized to take {@value #TARGET_PART_SECONDS} seconds each on their connection.
+     *
+     * @param size      size of the file in bytes
+     * @param bandwidth optional upload bandwidth of the client in bytes per second
+     * @return the plan
+     * @throws IllegalArgumentException if the size cannot be stored in S3 or the bandwidth is not positive
+     */
+    public static UploadPlan plan(long size, Long bandwidth) {
+        if (size < 0 || size > MAX_OBJECT_SIZE) {
+            throw new IllegalArgumentException(String.format(INVALID_SIZE, MAX_OBJECT_SIZE, size));
+        }
+        if (bandwidth != null && bandwidth <= 0) {
+            throw new IllegalArgumentException(String.format(INVALID_BANDWIDTH, bandwidth));
+        }
+        int concurrency = bandwidth == null
+                              ? DEFAULT_CONCURRENCY
+                              : (int) Math.min(ceilDiv(bandwidth, CONNECTION_THROUGHPUT), MAX_CONCURRENCY);
+        long preferredPartSize = bandwidth == null
+                                     ? DEFAULT_PART_SIZE
+                                     : bandwidth / concurrency * TARGET_PART_SECONDS;
+        long partSize = Math.max(Math.max(preferredPartSize, ceilDiv(size, MAX_PART_NUMBER)), MIN_PART_SIZE);
+        partSize = Math.min(ceilDiv(partSize, MEBIBYTE) * MEBIBYTE, MAX_PART_SIZE);
+        int partCount = (int) Math.max(1, ceilDiv(size, partSize));
+        return new UploadPlan(partSize, partCount, Math.min(concurrency, partCount));
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return -Math.floorDiv(-dividend, divisor);
+    }
+}
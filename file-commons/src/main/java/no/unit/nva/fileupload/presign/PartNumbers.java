@@ -0,0 +1,65 @@
+package no.unit.nva.fileupload.presign;
+
+import static no.unit.nva.fileupload.util.S3Constants.MAX_PART_NUMBER;
+import static no.unit.nva.fileupload.util.S3Constants.MIN_PART_NUMBER;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Resolves and checks the part numbers of a batch against the S3 multipart limits.
+ */
+@SuppressWarnings("PMD.ShortMethodName")
+public final class PartNumbers {
+
+    public static final String PART_NUMBER_OUT_OF_RANGE = "Part number must be between %d and %d, was %d";
+    public static final String INVALID_RANGE = "Invalid part number range %d-%d";
+    public static final String EMPTY_PART_NUMBERS = "At least one part number is required";
+    public static final String TOO_MANY_PART_NUMBERS = "At most %d part numbers can be signed at once";
+
+    private PartNumbers() {
+    }
+
+    /**
+     * Part numbers from first to last, both inclusive.
+     *
+     * @param first first part number
+     * @param last  last part number
+     * @return part numbers in ascending order
+     */
+    public static int[] range(int first, int last) {
+        requireValid(first);
+        requireValid(last);
+        if (first > last) {
+            throw new IllegalArgumentException(String.format(INVALID_RANGE, first, last));
+        }
+        return IntStream.rangeClosed(first, last).toArray();
+    }
+
+    /**
+     * Part numbers from an explicit list.
+     *
+     * @param numbers part numbers
+     * @return part numbers in the given order
+     */
+    public static int[] of(List<Integer> numbers) {
+        if (numbers.isEmpty()) {
+            throw new IllegalArgumentException(EMPTY_PART_NUMBERS);
+        }
+        if (numbers.size() > MAX_PART_NUMBER) {
+            throw new IllegalArgumentException(String.format(TOO_MANY_PART_NUMBERS, MAX_PART_NUMBER));
+        }
+        int[] partNumbers = new int[numbers.size()];
+        for (int i = 0; i < partNumbers.length; i++) {
+            partNumbers[i] = requireValid(numbers.get(i));
+        }
+        return partNumbers;
+    }
+
+    private static int requireValid(Integer number) {
+        if (number == null || number < MIN_PART_NUMBER || number > MAX_PART_NUMBER) {
+            throw new IllegalArgumentException(
+                String.format(PART_NUMBER_OUT_OF_RANGE, MIN_PART_NUMBER, MAX_PART_NUMBER, number));
+        }
+        return number;
+    }
+}
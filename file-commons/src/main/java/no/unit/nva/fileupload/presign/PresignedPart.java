@@ -0,0 +1,26 @@
+package no.unit.nva.fileupload.presign;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.net.URL;
+
+public class PresignedPart {
+
+    private final int number;
+    private final URL url;
+
+    @JsonCreator
+    public PresignedPart(@JsonProperty("number") int number,
+                         @JsonProperty("url") URL url) {
+        this.number = number;
+        this.url = url;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public URL getUrl() {
+        return url;
+    }
+}
@@ -0,0 +1,29 @@
+package no.unit.nva.fileupload.presign;
+
+import static no.unit.nva.fileupload.util.S3Constants.PART_NUMBER_PARAMETER;
+import static no.unit.nva.fileupload.util.S3Constants.UPLOAD_ID_PARAMETER;
+import com.amazonaws.HttpMethod;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import java.net.URL;
+
+/**
+ * Presigns upload part urls through {@link AmazonS3#generatePresignedUrl(GeneratePresignedUrlRequest)}.
+ */
+public class SdkUploadPartPresigner implements UploadPartPresigner {
+
+    private final AmazonS3 s3Client;
+
+    public SdkUploadPartPresigner(AmazonS3 s3Client) {
+        this.s3Client = s3Client;
+    }
+
+    @Override
+    public URL presignUploadPart(String bucketName, String key, String uploadId, int partNumber) {
+        GeneratePresignedUrlRequest request =
+                new GeneratePresignedUrlRequest(bucketName, key).withMethod(HttpMethod.PUT);
+        request.addRequestParameter(UPLOAD_ID_PARAMETER, uploadId);
+        request.addRequestParameter(PART_NUMBER_PARAMETER, Integer.toString(partNumber));
+        return s3Client.generatePresignedUrl(request);
+    }
+}
@@ -0,0 +1,301 @@
+package no.unit.nva.fileupload.presign;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static no.unit.nva.fileupload.util.S3Constants.PART_NUMBER_PARAMETER;
+import static no.unit.nva.fileupload.util.S3Constants.UPLOAD_ID_PARAMETER;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.AWSSessionCredentials;
+import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
+import com.amazonaws.regions.RegionUtils;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.internal.BucketNameUtils;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import nva.commons.core.JacocoGenerated;
+
+/**
+ * Presigns upload part urls locally with AWS Signature Version 4, without going through the request pipeline of
+ * {@link AmazonS3}. The derived signing key only changes with the date, the region and the credentials, so it is
+ * computed once and reused for every url signed with the same combination.
+ *
+ * <p>The produced urls are identical to the ones from {@link AmazonS3#generatePresignedUrl}: virtual hosted style
+ * when the bucket name allows it, the request parameters first, then the signature parameters in the order the SDK
+ * appends them.
+ */
+public class SigV4UploadPartPresigner implements UploadPartPresigner {
+
+    public static final Duration DEFAULT_EXPIRY = Duration.ofMinutes(15);
+
+    private static final String SCHEME = "https://";
+    private static final String SERVICE = "s3";
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String TERMINATOR = "aws4_request";
+    private static final String HMAC_SHA256 = "HmacSHA256";
+    private static final String SHA_256 = "SHA-256";
+    private static final String SECRET_KEY_PREFIX = "AWS4";
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private static final String SIGNED_HEADERS = "host";
+    private static final char[] LOWER_HEX = "0123456789abcdef".toCharArray();
+    private static final char[] UPPER_HEX = "0123456789ABCDEF".toCharArray();
+    private static final DateTimeFormatter AMZ_DATE =
+        DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final int DATE_STAMP_LENGTH = 8;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final char FIRST_NON_ASCII = 0x80;
+
+    private static final ThreadLocal<Mac> MAC = ThreadLocal.withInitial(SigV4UploadPartPresigner::newMac);
+    private static final ThreadLocal<MessageDigest> DIGEST =
+        ThreadLocal.withInitial(SigV4UploadPartPresigner::newDigest);
+
+    private final AWSCredentialsProvider credentialsProvider;
+    private final String region;
+    private final String endpoint;
+    private final long expirySeconds;
+    private final Clock clock;
+    private final AtomicReference<SigningKey> cachedSigningKey = new AtomicReference<>();
+
+    /**
+     * Creates a presigner for the given region.
+     *
+     * @param credentialsProvider provider of the credentials to sign with
+     * @param region              region of the upload bucket
+     * @param expiry              how long the urls are valid
+     * @param clock               clock giving the signing time
+     */
+    public SigV4UploadPartPresigner(AWSCredentialsProvider credentialsProvider, String region, Duration expiry,
+                                    Clock clock) {
+        this.credentialsProvider = credentialsProvider;
+        this.region = region;
+        this.endpoint = RegionUtils.getRegion(region).getServiceEndpoint(SERVICE);
+        this.expirySeconds = expiry.getSeconds();
+        this.clock = clock;
+    }
+
+    /**
+     * Creates a presigner using the default credentials chain, the default expiry of the SDK and the system clock.
+     *
+     * @param region region of the upload bucket
+     * @return presigner
+     */
+    @JacocoGenerated
+    public static SigV4UploadPartPresigner create(String region) {
+        return new SigV4UploadPartPresigner(DefaultAWSCredentialsProviderChain.getInstance(), region,
+                                            DEFAULT_EXPIRY, Clock.systemUTC());
+    }
+
+    @Override
+    public URL presignUploadPart(String bucketName, String key, String uploadId, int partNumber) {
+        AWSCredentials credentials = credentialsProvider.getCredentials();
+        String amzDate = AMZ_DATE.format(clock.instant());
+        String dateStamp = amzDate.substring(0, DATE_STAMP_LENGTH);
+        String sessionToken = credentials instanceof AWSSessionCredentials
+                                  ? ((AWSSessionCredentials) credentials).getSessionToken()
+                                  : null;
+        boolean virtualHosted = BucketNameUtils.isDNSBucketName(bucketName);
+        String host = virtualHosted ? bucketName + '.' + endpoint : endpoint;
+
+        StringBuilder path = new StringBuilder(key.length() + bucketName.length() + 2).append('/');
+        if (!virtualHosted) {
+            uriEncode(bucketName, path, false).append('/');
+        }
+        uriEncode(key, path, true);
+
+        StringBuilder credential = new StringBuilder(128)
+                                       .append(credentials.getAWSAccessKeyId()).append('/')
+                                       .append(dateStamp).append('/')
+                                       .append(region).append('/')
+                                       .append(SERVICE).append('/')
+                                       .append(TERMINATOR);
+
+        StringBuilder buffer = new StringBuilder(INITIAL_CAPACITY);
+        appendCanonicalRequest(buffer, host, path, credential, amzDate, sessionToken, uploadId, partNumber);
+        String canonicalRequestHash = hex(sha256(buffer));
+
+        buffer.setLength(0);
+        buffer.append(ALGORITHM).append('\n')
+            .append(amzDate).append('\n')
+            .append(dateStamp).append('/').append(region).append('/').append(SERVICE).append('/').append(TERMINATOR)
+            .append('\n')
+            .append(canonicalRequestHash);
+        final String signature = hex(hmac(signingKey(credentials, dateStamp), buffer));
+
+        buffer.setLength(0);
+        buffer.append(SCHEME).append(host).append(path).append('?');
+        appendParameter(buffer, UPLOAD_ID_PARAMETER, uploadId).append('&');
+        appendParameter(buffer, PART_NUMBER_PARAMETER, Integer.toString(partNumber)).append('&');
+        if (sessionToken != null) {
+            appendParameter(buffer, "X-Amz-Security-Token", sessionToken).append('&');
+        }
+        appendParameter(buffer, "X-Amz-Algorithm", ALGORITHM).append('&');
+        appendParameter(buffer, "X-Amz-Date", amzDate).append('&');
+        appendParameter(buffer, "X-Amz-SignedHeaders", SIGNED_HEADERS).append('&');
+        appendParameter(buffer, "X-Amz-Expires", Long.toString(expirySeconds)).append('&');
+        appendParameter(buffer, "X-Amz-Credential", credential).append('&');
+        appendParameter(buffer, "X-Amz-Signature", signature);
+        return toUrl(buffer);
+    }
+
+    // Query parameters of the canonical request are sorted by name: upper case "X-Amz-*" before lower case names
+    private void appendCanonicalRequest(StringBuilder buffer, String host, CharSequence path, CharSequence credential,
+                                        String amzDate, String sessionToken, String uploadId, int partNumber) {
+        buffer.append("PUT\n").append(path).append('\n');
+        appendParameter(buffer, "X-Amz-Algorithm", ALGORITHM).append('&');
+        appendParameter(buffer, "X-Amz-Credential", credential).append('&');
+        appendParameter(buffer, "X-Amz-Date", amzDate).append('&');
+        appendParameter(buffer, "X-Amz-Expires", Long.toString(expirySeconds)).append('&');
+        if (sessionToken != null) {
+            appendParameter(buffer, "X-Amz-Security-Token", sessionToken).append('&');
+        }
+        appendParameter(buffer, "X-Amz-SignedHeaders", SIGNED_HEADERS).append('&');
+        appendParameter(buffer, PART_NUMBER_PARAMETER, Integer.toString(partNumber)).append('&');
+        appendParameter(buffer, UPLOAD_ID_PARAMETER, uploadId)
+            .append("\nhost:").append(host).append("\n\n")
+            .append(SIGNED_HEADERS).append('\n')
+            .append(UNSIGNED_PAYLOAD);
+    }
+
+    private byte[] signingKey(AWSCredentials credentials, String dateStamp) {
+        SigningKey current = cachedSigningKey.get();
+        if (current == null || !current.matches(dateStamp, credentials)) {
+            current = SigningKey.derive(dateStamp, region, credentials);
+            cachedSigningKey.set(current);
+        }
+        return current.key;
+    }
+
+    private static StringBuilder appendParameter(StringBuilder buffer, String name, CharSequence value) {
+        buffer.append(name).append('=');
+        return uriEncode(value, buffer, false);
+    }
+
+    /**
+     * Percent-encodes everything but the unreserved characters of RFC 3986, as required by Signature Version 4.
+     */
+    private static StringBuilder uriEncode(CharSequence value, StringBuilder buffer, boolean keepSlash) {
+        int index = 0;
+        while (index < value.length()) {
+            char character = value.charAt(index);
+            if (isUnreserved(character) || keepSlash && character == '/') {
+                buffer.append(character);
+                index++;
+            } else if (character < FIRST_NON_ASCII) {
+                appendEscaped(buffer, (byte) character);
+                index++;
+            } else {
+                index = appendEscapedUtf8(value, index, buffer);
+            }
+        }
+        return buffer;
+    }
+
+    // Escapes the UTF-8 bytes of the character at the index, together with its low surrogate if it has one
+    private static int appendEscapedUtf8(CharSequence value, int index, StringBuilder buffer) {
+        int end = Character.isHighSurrogate(value.charAt(index)) && index + 1 < value.length() ? index + 2 : index + 1;
+        for (byte b : value.subSequence(index, end).toString().getBytes(UTF_8)) {
+            appendEscaped(buffer, b);
+        }
+        return end;
+    }
+
+    private static boolean isUnreserved(char character) {
+        return character >= 'A' && character <= 'Z'
+               || character >= 'a' && character <= 'z'
+               || character >= '0' && character <= '9'
+               || character == '-' || character == '_' || character == '.' || character == '~';
+    }
+
+    private static void appendEscaped(StringBuilder buffer, byte value) {
+        buffer.append('%').append(UPPER_HEX[(value >> 4) & 0xF]).append(UPPER_HEX[value & 0xF]);
+    }
+
+    private static byte[] sha256(CharSequence value) {
+        MessageDigest digest = DIGEST.get();
+        digest.reset();
+        return digest.digest(value.toString().getBytes(UTF_8));
+    }
+
+    private static byte[] hmac(byte[] key, CharSequence value) {
+        Mac mac = MAC.get();
+        try {
+            mac.init(new SecretKeySpec(key, HMAC_SHA256));
+        } catch (GeneralSecurityException e) {
+            throw new SdkClientException("Unable to initialise " + HMAC_SHA256, e);
+        }
+        return mac.doFinal(value.toString().getBytes(UTF_8));
+    }
+
+    private static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = LOWER_HEX[(bytes[i] >> 4) & 0xF];
+            chars[2 * i + 1] = LOWER_HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    private static URL toUrl(CharSequence url) {
+        try {
+            return new URL(url.toString());
+        } catch (MalformedURLException e) {
+            throw new SdkClientException("Unable to create presigned url", e);
+        }
+    }
+
+    @JacocoGenerated
+    private static Mac newMac() {
+        try {
+            return Mac.getInstance(HMAC_SHA256);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @JacocoGenerated
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(SHA_256);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class SigningKey {
+
+        private final String dateStamp;
+        private final String accessKeyId;
+        private final String secretKey;
+        private final byte[] key;
+
+        private SigningKey(String dateStamp, String accessKeyId, String secretKey, byte[] key) {
+            this.dateStamp = dateStamp;
+            this.accessKeyId = accessKeyId;
+            this.secretKey = secretKey;
+            this.key = key;
+        }
+
+        private static SigningKey derive(String dateStamp, String region, AWSCredentials credentials) {
+            byte[] dateKey = hmac((SECRET_KEY_PREFIX + credentials.getAWSSecretKey()).getBytes(UTF_8), dateStamp);
+            byte[] regionKey = hmac(dateKey, region);
+            byte[] serviceKey = hmac(regionKey, SERVICE);
+            byte[] key = hmac(serviceKey, TERMINATOR);
+            return new SigningKey(dateStamp, credentials.getAWSAccessKeyId(), credentials.getAWSSecretKey(), key);
+        }
+
+        private boolean matches(String dateStamp, AWSCredentials credentials) {
+            return this.dateStamp.equals(dateStamp)
+                   && accessKeyId.equals(credentials.getAWSAccessKeyId())
+                   && secretKey.equals(credentials.getAWSSecretKey());
+        }
+    }
+}
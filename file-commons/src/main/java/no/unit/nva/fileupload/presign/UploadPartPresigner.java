@@ -0,0 +1,45 @@
+package no.unit.nva.fileupload.presign;
+
+import java.net.URL;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@FunctionalInterface
+public interface UploadPartPresigner {
+
+    // Below this many parts the fork/join overhead is larger than the signing itself
+    int PARALLEL_THRESHOLD = 16;
+
+    /**
+     * Creates a presigned PUT url for a single part of a multipart upload.
+     *
+     * @param bucketName bucket the upload was created in
+     * @param key        object key of the upload
+     * @param uploadId   id of the multipart upload
+     * @param partNumber number of the part, 1 to 10 000
+     * @return presigned url
+     */
+    URL presignUploadPart(String bucketName, String key, String uploadId, int partNumber);
+
+    /**
+     * Creates presigned PUT urls for several parts of the same upload, signing in parallel for larger batches.
+     *
+     * @param bucketName  bucket the upload was created in
+     * @param key         object key of the upload
+     * @param uploadId    id of the multipart upload
+     * @param partNumbers numbers of the parts to sign
+     * @return presigned parts, in the same order as partNumbers
+     */
+    default List<PresignedPart> presignUploadParts(String bucketName, String key, String uploadId,
+                                                   int... partNumbers) {
+        IntStream numbers = IntStream.of(partNumbers);
+        if (partNumbers.length >= PARALLEL_THRESHOLD) {
+            numbers = numbers.parallel();
+        }
+        return numbers
+                   .mapToObj(number -> new PresignedPart(number,
+                                                         presignUploadPart(bucketName, key, uploadId, number)))
+                   .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,112 @@
+package no.unit.nva.fileupload.priming;
+
+import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
+import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import no.unit.nva.fileupload.util.S3Utils;
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * CRaC resource warming up a handler before a SnapStart snapshot is taken, and refreshing the process state that
+ * must not be carried over from the snapshot once it is restored.
+ *
+ * <p>Before checkpoint the handler is invoked once with a synthetic API Gateway event, so the classes and caches
+ * used by a real request (Jackson, the SDK model classes, jersey and log4j) are loaded and initialised in the
+ * snapshot. The handler should be wired to a {@link StubAmazonS3}, so priming never calls AWS. After restore the
+ * cached credentials are dropped and pooled connections, which were open when the snapshot was taken, are closed.
+ */
+public final class HandlerPriming implements Resource {
+
+    public static final String PRIMING_BUCKET = "priming-bucket";
+    public static final String PRIMING_UPLOAD_ID = "priming-upload-id";
+    public static final String PRIMING_KEY = "priming-key";
+    public static final String PRIMING_FAILED = "Priming of {} failed";
+
+    private static final Logger logger = LoggerFactory.getLogger(HandlerPriming.class);
+    private static final String HTTP_METHOD = "POST";
+    private static final String APPLICATION_JSON = "application/json";
+
+    // The CRaC context only holds weak references to its resources
+    private static final List<HandlerPriming> REGISTERED = new CopyOnWriteArrayList<>();
+
+    private final RequestStreamHandler handler;
+    private final String path;
+    private final Object requestBody;
+
+    private HandlerPriming(RequestStreamHandler handler, String path, Object requestBody) {
+        this.handler = handler;
+        this.path = path;
+        this.requestBody = requestBody;
+    }
+
+    /**
+     * Register priming of a handler with the global CRaC context.
+     *
+     * @param handler     handler to invoke before checkpoint, wired to a stub S3
+     * @param path        API path of the handler
+     * @param requestBody representative request body
+     * @return the registered resource
+     */
+    public static HandlerPriming register(RequestStreamHandler handler, String path, Object requestBody) {
+        HandlerPriming priming = new HandlerPriming(handler, path, requestBody);
+        REGISTERED.add(priming);
+        Core.getGlobalContext().register(priming);
+        return priming;
+    }
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) {
+        prime();
+    }
+
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+        DefaultAWSCredentialsProviderChain.getInstance().refresh();
+        S3Utils.closePooledConnections();
+    }
+
+    /**
+     * Invoke the handler once with the representative request. Failures are logged and never stop a checkpoint.
+     */
+    public void prime() {
+        try (InputStream event = new ByteArrayInputStream(apiGatewayEvent(path, requestBody))) {
+            handler.handleRequest(event, OutputStream.nullOutputStream(), new PrimingContext(path));
+        } catch (IOException | RuntimeException e) {
+            logger.warn(PRIMING_FAILED, path, e);
+        }
+    }
+
+    /**
+     * API Gateway proxy event posting a JSON request body to a path, as a handler reads it from its input stream.
+     *
+     * @param path        API path of the handler
+     * @param requestBody request body, written as JSON
+     * @return the event
+     * @throws JsonProcessingException when the request body cannot be written as JSON
+     */
+    public static byte[] apiGatewayEvent(String path, Object requestBody) throws JsonProcessingException {
+        ObjectNode event = dtoObjectMapper.createObjectNode();
+        event.put("resource", path);
+        event.put("path", path);
+        event.put("httpMethod", HTTP_METHOD);
+        event.putObject("headers")
+            .put("Content-Type", APPLICATION_JSON)
+            .put("Accept", APPLICATION_JSON);
+        event.putObject("requestContext")
+            .put("requestId", PrimingContext.PRIMING_REQUEST_ID);
+        event.put("body", dtoObjectMapper.writeValueAsString(requestBody));
+        return dtoObjectMapper.writeValueAsBytes(event);
+    }
+}
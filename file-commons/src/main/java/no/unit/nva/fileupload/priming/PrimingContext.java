@@ -0,0 +1,92 @@
+package no.unit.nva.fileupload.priming;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import java.nio.charset.StandardCharsets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lambda {@link Context} for invocations made by {@link HandlerPriming} outside of a real Lambda request.
+ */
+public class PrimingContext implements Context {
+
+    public static final String PRIMING_REQUEST_ID = "priming";
+    public static final int REMAINING_TIME_MS = 20_000;
+
+    private static final Logger logger = LoggerFactory.getLogger(PrimingContext.class);
+    private static final LambdaLogger LAMBDA_LOGGER = new LambdaLogger() {
+        @Override
+        public void log(String message) {
+            logger.debug(message);
+        }
+
+        @Override
+        public void log(byte[] message) {
+            log(new String(message, StandardCharsets.UTF_8));
+        }
+    };
+
+    private final String functionName;
+
+    public PrimingContext(String functionName) {
+        this.functionName = functionName;
+    }
+
+    @Override
+    public String getAwsRequestId() {
+        return PRIMING_REQUEST_ID;
+    }
+
+    @Override
+    public String getLogGroupName() {
+        return functionName;
+    }
+
+    @Override
+    public String getLogStreamName() {
+        return PRIMING_REQUEST_ID;
+    }
+
+    @Override
+    public String getFunctionName() {
+        return functionName;
+    }
+
+    @Override
+    public String getFunctionVersion() {
+        return PRIMING_REQUEST_ID;
+    }
+
+    @Override
+    public String getInvokedFunctionArn() {
+        return functionName;
+    }
+
+    @Override
+    public CognitoIdentity getIdentity() {
+        return null;
+    }
+
+    @Override
+    public ClientContext getClientContext() {
+        return null;
+    }
+
+    @Override
+    public int getRemainingTimeInMillis() {
+        return REMAINING_TIME_MS;
+    }
+
+    @Override
+    public int getMemoryLimitInMB() {
+        return 0;
+    }
+
+    @Override
+    public LambdaLogger getLogger() {
+        return LAMBDA_LOGGER;
+    }
+}
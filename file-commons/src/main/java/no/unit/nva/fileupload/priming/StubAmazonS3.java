@@ -0,0 +1,133 @@
+package no.unit.nva.fileupload.priming;
+
+import static no.unit.nva.fileupload.util.S3Constants.PART_NUMBER_PARAMETER;
+import static no.unit.nva.fileupload.util.S3Constants.UPLOAD_ID_PARAMETER;
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartListing;
+import com.amazonaws.services.s3.model.PartSummary;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * {@link com.amazonaws.services.s3.AmazonS3} answering the multipart upload calls from memory, without any network
+ * access. Every upload reports the same number of uploaded parts, and every object is described from its key alone,
+ * so nothing is kept per upload however many calls a benchmark makes. Used to exercise the handlers before a
+ * checkpoint and in benchmarks.
+ */
+public class StubAmazonS3 extends AbstractAmazonS3 {
+
+    public static final int DEFAULT_PARTS_PER_UPLOAD = 3;
+    public static final long PART_SIZE = 5L * 1024 * 1024;
+    public static final int DEFAULT_MAX_PARTS = 1000;
+    public static final String ETAG_TEMPLATE = "\"%032x\"";
+    public static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+    private static final String CONTENT_DISPOSITION_TEMPLATE = "filename=\"%s\"";
+    private static final String URL_TEMPLATE = "https://%s.s3.amazonaws.com/%s?uploadId=%s&partNumber=%s";
+
+    private final int partsPerUpload;
+
+    public StubAmazonS3() {
+        this(DEFAULT_PARTS_PER_UPLOAD);
+    }
+
+    public StubAmazonS3(int partsPerUpload) {
+        super();
+        this.partsPerUpload = partsPerUpload;
+    }
+
+    @Override
+    public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request) {
+        InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+        result.setBucketName(request.getBucketName());
+        result.setKey(request.getKey());
+        result.setUploadId(UUID.randomUUID().toString());
+        return result;
+    }
+
+    @Override
+    public PartListing listParts(ListPartsRequest request) {
+        int marker = Optional.ofNullable(request.getPartNumberMarker()).orElse(0);
+        int maxParts = Optional.ofNullable(request.getMaxParts()).orElse(DEFAULT_MAX_PARTS);
+        int last = Math.min(partsPerUpload, marker + maxParts);
+
+        PartListing listing = new PartListing();
+        listing.setBucketName(request.getBucketName());
+        listing.setKey(request.getKey());
+        listing.setUploadId(request.getUploadId());
+        listing.setPartNumberMarker(marker);
+        listing.setMaxParts(maxParts);
+        listing.setParts(partSummaries(marker + 1, last));
+        listing.setTruncated(last < partsPerUpload);
+        listing.setNextPartNumberMarker(last);
+        return listing;
+    }
+
+    @Override
+    public void abortMultipartUpload(AbortMultipartUploadRequest request) {
+        // nothing is stored for an upload in progress
+    }
+
+    @Override
+    public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        CompleteMultipartUploadResult result = new CompleteMultipartUploadResult();
+        result.setBucketName(request.getBucketName());
+        result.setKey(request.getKey());
+        result.setETag(etag(request.getPartETags().size()));
+        return result;
+    }
+
+    @Override
+    public ObjectMetadata getObjectMetadata(GetObjectMetadataRequest request) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(DEFAULT_CONTENT_TYPE);
+        metadata.setContentDisposition(String.format(CONTENT_DISPOSITION_TEMPLATE, request.getKey()));
+        metadata.setContentLength(partsPerUpload * PART_SIZE);
+        return metadata;
+    }
+
+    @Override
+    public URL generatePresignedUrl(GeneratePresignedUrlRequest request) {
+        Map<String, String> parameters = request.getRequestParameters();
+        String url = String.format(URL_TEMPLATE, request.getBucketName(), request.getKey(),
+                                   parameters.get(UPLOAD_ID_PARAMETER), parameters.get(PART_NUMBER_PARAMETER));
+        try {
+            return new URL(url);
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException(url, e);
+        }
+    }
+
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    private static List<PartSummary> partSummaries(int first, int last) {
+        List<PartSummary> parts = new ArrayList<>(Math.max(0, last - first + 1));
+        Date lastModified = new Date();
+        for (int partNumber = first; partNumber <= last; partNumber++) {
+            PartSummary part = new PartSummary();
+            part.setPartNumber(partNumber);
+            part.setETag(etag(partNumber));
+            part.setSize(PART_SIZE);
+            part.setLastModified(lastModified);
+            parts.add(part);
+        }
+        return parts;
+    }
+
+    private static String etag(int seed) {
+        return String.format(ETAG_TEMPLATE, seed);
+    }
+}
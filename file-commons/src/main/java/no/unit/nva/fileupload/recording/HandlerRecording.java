@@ -0,0 +1,90 @@
+package no.unit.nva.fileupload.recording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Optional;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import nva.commons.core.Environment;
+import nva.commons.core.JacocoGenerated;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Flight Recorder recording of the handlers, turned on with {@value #JFR_RECORDING_KEY}. Besides the
+ * {@link HandlerStageEvent}s and {@link S3CallEvent}s it records what the chosen JFR settings include, such as
+ * garbage collections and socket reads, so a slow invocation shows whether time went to Jackson, the SDK, the network
+ * or GC. The recording is written to {@value #DEFAULT_DESTINATION} when the JVM exits, or where
+ * {@value #JFR_RECORDING_FILE_KEY} says, and can be opened in JDK Mission Control.
+ *
+ * <p>Meant for runs on a dev box and for functions deployed without SnapStart: a recording started before a snapshot
+ * is taken does not survive the restore.
+ */
+public final class HandlerRecording {
+
+    public static final String JFR_RECORDING_KEY = "JFR_RECORDING";
+    public static final String JFR_RECORDING_FILE_KEY = "JFR_RECORDING_FILE";
+    public static final String JFR_SETTINGS_KEY = "JFR_SETTINGS";
+    public static final String DEFAULT_DESTINATION = "/tmp/upload-handlers.jfr";
+    // Name of the JFR settings, "default" costs about one percent and "profile" a few percent
+    public static final String DEFAULT_SETTINGS = "default";
+    public static final Duration MAX_AGE = Duration.ofMinutes(30);
+    private static final String RECORDING_NAME = "upload-handlers";
+    private static final Logger logger = LoggerFactory.getLogger(HandlerRecording.class);
+    private static final Object LOCK = new Object();
+    private static Recording recording;
+
+    private HandlerRecording() {
+    }
+
+    /**
+     * Start the recording when it is turned on in the environment and not already running.
+     *
+     * @param environment environment reader
+     * @return the running recording, or empty when recording is off or could not start
+     */
+    @JacocoGenerated
+    public static Optional<Recording> startFromEnvironment(Environment environment) {
+        if (!environment.readEnvOpt(JFR_RECORDING_KEY).map(Boolean::parseBoolean).orElse(false)) {
+            return Optional.empty();
+        }
+        synchronized (LOCK) {
+            if (recording == null) {
+                try {
+                    recording = start(environment.readEnvOpt(JFR_SETTINGS_KEY).orElse(DEFAULT_SETTINGS),
+                                      Path.of(environment.readEnvOpt(JFR_RECORDING_FILE_KEY)
+                                                  .orElse(DEFAULT_DESTINATION)));
+                } catch (IOException | ParseException e) {
+                    logger.warn("Could not start the flight recording", e);
+                    return Optional.empty();
+                }
+            }
+            return Optional.of(recording);
+        }
+    }
+
+    /**
+     * Start a recording of the handler events and the events of the given JFR settings, keeping the last
+     * {@link #MAX_AGE} of them and writing them to the destination when the JVM exits.
+     *
+     * @param settings    name of the JFR settings, such as "default" or "profile"
+     * @param destination file the recording is written to
+     * @return the started recording
+     * @throws IOException    when the destination cannot be written
+     * @throws ParseException when the settings cannot be read
+     */
+    public static Recording start(String settings, Path destination) throws IOException, ParseException {
+        Recording started = new Recording(Configuration.getConfiguration(settings));
+        started.setName(RECORDING_NAME);
+        started.enable(HandlerStageEvent.class);
+        started.enable(S3CallEvent.class);
+        started.setMaxAge(MAX_AGE);
+        started.setDestination(destination);
+        started.setDumpOnExit(true);
+        started.start();
+        logger.info("Flight recording started, written to {} on exit", destination);
+        return started;
+    }
+}
@@ -0,0 +1,31 @@
+package no.unit.nva.fileupload.recording;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event spanning one stage of an invocation of a handler.
+ */
+@Name("no.unit.nva.fileupload.HandlerStage")
+@Label("Handler Stage")
+@Category({"NVA Upload", "Handler"})
+@Description("A stage of an invocation of an upload handler")
+@StackTrace(false)
+public class HandlerStageEvent extends Event {
+
+    @Label("Handler")
+    String handler;
+
+    @Label("Stage")
+    String stage;
+
+    public HandlerStageEvent(String handler, Stage stage) {
+        super();
+        this.handler = handler;
+        this.stage = stage.getLabel();
+    }
+}
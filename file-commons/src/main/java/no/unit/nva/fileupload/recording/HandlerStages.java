@@ -0,0 +1,121 @@
+package no.unit.nva.fileupload.recording;
+
+import jdk.jfr.EventType;
+
+/**
+ * Records the stages of the invocation running on this thread as {@link HandlerStageEvent}s. Handlers run their
+ * validation, processing and response mapping as stages; the time before the first stage is recorded as
+ * deserialization and the time after the last as serialization, as the handler base class reads the request and
+ * writes the response around them.
+ *
+ * <p>Events are only recorded while a Flight Recorder recording is running, see {@link HandlerRecording}; otherwise
+ * no event is created and each stage costs little more than the call it wraps.
+ */
+public final class HandlerStages {
+
+    private static final EventType STAGE_EVENT_TYPE = EventType.getEventType(HandlerStageEvent.class);
+    private static final ThreadLocal<Invocation> CURRENT = new ThreadLocal<>();
+
+    private HandlerStages() {
+    }
+
+    /**
+     * Run an invocation of a handler, recording the time before its first stage and after its last. Without a running
+     * recording the invocation and its stages are run without being recorded.
+     *
+     * @param handler name of the handler
+     * @param task    the invocation
+     * @param <T>     type of the result
+     * @param <E>     exception thrown by the invocation
+     * @return result of the invocation
+     * @throws E when the invocation fails
+     */
+    public static <T, E extends Exception> T invocation(String handler, Task<T, E> task) throws E {
+        if (!STAGE_EVENT_TYPE.isEnabled()) {
+            return task.call();
+        }
+        Invocation previous = CURRENT.get();
+        Invocation invocation = new Invocation(handler);
+        CURRENT.set(invocation);
+        try {
+            return task.call();
+        } finally {
+            invocation.end();
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Run a stage of the current invocation. Outside an invocation the stage is run without being recorded.
+     *
+     * @param stage stage to record
+     * @param task  work of the stage
+     * @param <T>   type of the result
+     * @param <E>   exception thrown by the stage
+     * @return result of the stage
+     * @throws E when the stage fails
+     */
+    public static <T, E extends Exception> T stage(Stage stage, Task<T, E> task) throws E {
+        Invocation invocation = CURRENT.get();
+        if (invocation == null) {
+            return task.call();
+        }
+        HandlerStageEvent event = invocation.startStage(stage);
+        try {
+            return task.call();
+        } finally {
+            event.commit();
+            invocation.endStage();
+        }
+    }
+
+    /**
+     * The invocation running on a thread, and the event of the time outside its stages.
+     */
+    private static final class Invocation {
+
+        private final String handler;
+        private HandlerStageEvent between;
+        private boolean staged;
+
+        Invocation(String handler) {
+            this.handler = handler;
+            this.between = begin(Stage.DESERIALIZE);
+        }
+
+        HandlerStageEvent startStage(Stage stage) {
+            // Only the time before the first stage is deserialization; time between stages is not recorded
+            if (!staged) {
+                between.commit();
+                staged = true;
+            }
+            return begin(stage);
+        }
+
+        void endStage() {
+            between = begin(Stage.SERIALIZE);
+        }
+
+        void end() {
+            between.commit();
+        }
+
+        private HandlerStageEvent begin(Stage stage) {
+            HandlerStageEvent event = new HandlerStageEvent(handler, stage);
+            event.begin();
+            return event;
+        }
+    }
+
+    /**
+     * Work recorded as an invocation or a stage.
+     *
+     * @param <T> type of the result
+     * @param <E> exception thrown by the work
+     */
+    @FunctionalInterface
+    public interface Task<T, E extends Exception> {
+
+        T call() throws E;
+    }
+}
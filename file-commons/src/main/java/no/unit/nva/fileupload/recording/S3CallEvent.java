@@ -0,0 +1,36 @@
+package no.unit.nva.fileupload.recording;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event spanning one S3 call, from marshalling the request to unmarshalling the response. Comparing
+ * it with the socket events recorded meanwhile tells the time spent in the SDK from the time spent on the network.
+ */
+@Name("no.unit.nva.fileupload.S3Call")
+@Label("S3 Call")
+@Category({"NVA Upload", "S3"})
+@Description("A call to S3 made by an upload handler")
+@StackTrace(false)
+public class S3CallEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Error")
+    @Description("S3 error code or exception class of a failed call")
+    String error;
+
+    public S3CallEvent(String operation) {
+        super();
+        this.operation = operation;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,26 @@
+package no.unit.nva.fileupload.recording;
+
+/**
+ * The stages of an invocation of a handler, as recorded in {@link HandlerStageEvent}s.
+ */
+public enum Stage {
+
+    // Reading the API Gateway event and the request body, before the request is validated
+    DESERIALIZE("deserialize"),
+    VALIDATE("validate"),
+    PROCESS("process"),
+    // Building the response body from what S3 returned, within processing
+    MAP_RESPONSE("map response"),
+    // Writing the response, or the problem of a failed request, after the handler is done with it
+    SERIALIZE("serialize");
+
+    private final String label;
+
+    Stage(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
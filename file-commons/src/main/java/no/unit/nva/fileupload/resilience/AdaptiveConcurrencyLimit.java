@@ -0,0 +1,73 @@
+package no.unit.nva.fileupload.resilience;
+
+/**
+ * Limits the number of calls in flight to a service that throttles, adjusting the limit with additive increase and
+ * multiplicative decrease (AIMD): every successful call raises the limit by one over the current limit, so the limit
+ * grows by about one per round of calls, and every throttled call halves it. Callers that do not get a permit back
+ * off and try again instead of waiting for one.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    public static final int MIN_LIMIT = 1;
+    private static final double DECREASE_FACTOR = 0.5;
+
+    private final int maxLimit;
+    private double limit;
+    private int inFlight;
+
+    /**
+     * Creates a limit that starts at its maximum.
+     *
+     * @param maxLimit largest number of calls in flight
+     */
+    public AdaptiveConcurrencyLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+        this.limit = maxLimit;
+    }
+
+    /**
+     * Take a permit for a call, if fewer calls than the limit are in flight. A caller that gets a permit must give
+     * it back with {@link #release()}.
+     *
+     * @return true if the call may be made
+     */
+    public boolean tryAcquire() {
+        synchronized (this) {
+            if (inFlight >= (int) limit) {
+                return false;
+            }
+            inFlight++;
+            return true;
+        }
+    }
+
+    public void release() {
+        synchronized (this) {
+            inFlight--;
+        }
+    }
+
+    public void onSuccess() {
+        synchronized (this) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    public void onThrottle() {
+        synchronized (this) {
+            limit = Math.max(MIN_LIMIT, limit * DECREASE_FACTOR);
+        }
+    }
+
+    public int getLimit() {
+        synchronized (this) {
+            return (int) limit;
+        }
+    }
+
+    public int getInFlight() {
+        synchronized (this) {
+            return inFlight;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package no.unit.nva.fileupload.resilience;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops calls to a service that keeps failing. After a number of consecutive failures the circuit opens and calls
+ * are refused without being made. Once the open duration has passed a single probe call is let through: its success
+ * closes the circuit, its failure opens it again.
+ */
+public class CircuitBreaker {
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(5);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final LongSupplier nanoClock;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    /**
+     * Creates a closed circuit breaker.
+     *
+     * @param failureThreshold consecutive failures that open the circuit
+     * @param openDuration     how long the circuit stays open before a probe call is let through
+     * @param nanoClock        monotonic clock in nanoseconds
+     */
+    public CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier nanoClock) {
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Whether a call may be made now. A caller that is let through must report the outcome of the call with
+     * {@link #onSuccess()}, {@link #onFailure()} or {@link #onInconclusive()}, or a probe call is never let through
+     * again.
+     *
+     * @return true if the call may be made
+     */
+    public boolean tryAcquire() {
+        synchronized (this) {
+            if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= openDurationNanos) {
+                state = State.HALF_OPEN;
+                probeInFlight = false;
+            }
+            if (state == State.HALF_OPEN) {
+                if (probeInFlight) {
+                    return false;
+                }
+                probeInFlight = true;
+                return true;
+            }
+            return state == State.CLOSED;
+        }
+    }
+
+    /**
+     * Report a call that reached the service, closing the circuit.
+     */
+    public void onSuccess() {
+        synchronized (this) {
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            probeInFlight = false;
+        }
+    }
+
+    /**
+     * Report a call that failed because the service is unavailable.
+     */
+    public void onFailure() {
+        synchronized (this) {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+                state = State.OPEN;
+                openedAt = nanoClock.getAsLong();
+                probeInFlight = false;
+            }
+        }
+    }
+
+    /**
+     * Report a call that ended without telling whether the service is available, such as one failing in this
+     * process. The circuit stays as it is, and a probe that ends this way lets the next call probe instead.
+     */
+    public void onInconclusive() {
+        synchronized (this) {
+            probeInFlight = false;
+        }
+    }
+
+    public State getState() {
+        synchronized (this) {
+            return state;
+        }
+    }
+}
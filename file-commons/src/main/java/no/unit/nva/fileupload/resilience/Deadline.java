@@ -0,0 +1,157 @@
+package no.unit.nva.fileupload.resilience;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.function.LongSupplier;
+
+/**
+ * The point in time by which an invocation must have its answer ready. A handler derives it from the time Lambda
+ * has left for the invocation, less a reserve for writing the response, and runs its work within it; S3 calls made
+ * while it is current size their timeouts and retries to fit, and fail with a retryable error rather than being cut
+ * off by the Lambda timeout.
+ *
+ * <p>The current deadline is kept per thread. Work handed to other threads keeps the deadline of the caller when it
+ * runs on an executor wrapped with {@link #propagating(Executor)}.
+ */
+public final class Deadline {
+
+    // Time kept back for serializing the response after the last S3 call
+    public static final Duration DEFAULT_RESERVE = Duration.ofSeconds(1);
+
+    private static final Deadline UNKNOWN_DEADLINE = new Deadline(0, null);
+    private static final ThreadLocal<Deadline> CURRENT_DEADLINE = ThreadLocal.withInitial(() -> UNKNOWN_DEADLINE);
+
+    private final long expiresAtNanos;
+    private final LongSupplier nanoClock;
+
+    private Deadline(long expiresAtNanos, LongSupplier nanoClock) {
+        this.expiresAtNanos = expiresAtNanos;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * A deadline that is not known: calls fall back to their own budgets.
+     *
+     * @return unknown deadline
+     */
+    public static Deadline none() {
+        return UNKNOWN_DEADLINE;
+    }
+
+    /**
+     * A deadline the given time from now.
+     *
+     * @param remaining time until the deadline
+     * @param nanoClock monotonic clock in nanoseconds
+     * @return deadline
+     */
+    public static Deadline after(Duration remaining, LongSupplier nanoClock) {
+        return new Deadline(nanoClock.getAsLong() + remaining.toNanos(), nanoClock);
+    }
+
+    /**
+     * The deadline of a Lambda invocation, keeping back the default reserve.
+     *
+     * @param context context of the invocation
+     * @return deadline of the invocation, or no deadline when the context does not tell the remaining time
+     */
+    public static Deadline fromContext(Context context) {
+        return fromContext(context, DEFAULT_RESERVE, System::nanoTime);
+    }
+
+    /**
+     * The deadline of a Lambda invocation. Contexts that report no remaining time, such as those of tests and local
+     * runs, give no deadline.
+     *
+     * @param context   context of the invocation
+     * @param reserve   time kept back for answering
+     * @param nanoClock monotonic clock in nanoseconds
+     * @return deadline of the invocation, or no deadline when the context does not tell the remaining time
+     */
+    public static Deadline fromContext(Context context, Duration reserve, LongSupplier nanoClock) {
+        int remainingMillis = context == null ? 0 : context.getRemainingTimeInMillis();
+        if (remainingMillis <= 0) {
+            return UNKNOWN_DEADLINE;
+        }
+        Duration remaining = Duration.ofMillis(remainingMillis).minus(reserve);
+        return after(remaining.isNegative() ? Duration.ZERO : remaining, nanoClock);
+    }
+
+    /**
+     * The deadline of the work running on this thread.
+     *
+     * @return current deadline, or no deadline
+     */
+    public static Deadline current() {
+        return CURRENT_DEADLINE.get();
+    }
+
+    /**
+     * Wraps an executor so that tasks run with the deadline that was current where they were submitted.
+     *
+     * @param executor executor running the tasks
+     * @return executor propagating the deadline
+     */
+    public static Executor propagating(Executor executor) {
+        return task -> {
+            Deadline deadline = current();
+            executor.execute(() -> deadline.run(task));
+        };
+    }
+
+    public boolean isKnown() {
+        return nanoClock != null;
+    }
+
+    /**
+     * Time left until the deadline, never negative.
+     *
+     * @return time left, or empty when the deadline is not known
+     */
+    public Optional<Duration> remaining() {
+        if (!isKnown()) {
+            return Optional.empty();
+        }
+        return Optional.of(Duration.ofNanos(Math.max(0, expiresAtNanos - nanoClock.getAsLong())));
+    }
+
+    /**
+     * Run work with this deadline as the current one, restoring the previous deadline afterwards.
+     *
+     * @param task work to run
+     * @param <T>  type of the result
+     * @param <E>  exception thrown by the work
+     * @return result of the work
+     * @throws E when the work fails
+     */
+    public <T, E extends Exception> T call(Task<T, E> task) throws E {
+        Deadline previous = CURRENT_DEADLINE.get();
+        CURRENT_DEADLINE.set(this);
+        try {
+            return task.call();
+        } finally {
+            CURRENT_DEADLINE.set(previous);
+        }
+    }
+
+    private void run(Runnable task) {
+        call(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Work run within a deadline.
+     *
+     * @param <T> type of the result
+     * @param <E> exception thrown by the work
+     */
+    @FunctionalInterface
+    public interface Task<T, E extends Exception> {
+
+        T call() throws E;
+    }
+}
@@ -0,0 +1,49 @@
+package no.unit.nva.fileupload.resilience;
+
+/**
+ * Caps the extra load that hedged requests add. Every request earns a fraction of a token, every hedge spends a
+ * whole one, and the tokens saved up are capped, so over time no more than that fraction of the requests are hedged
+ * and only a few hedges can go out in a burst.
+ */
+public class HedgeBudget {
+
+    public static final int DEFAULT_MAX_TOKENS = 5;
+    private static final double TOKENS_PER_HEDGE = 1;
+
+    private final double tokensPerRequest;
+    private final double maxTokens;
+    private double tokens;
+
+    /**
+     * Creates a full budget.
+     *
+     * @param tokensPerRequest share of the requests that may be hedged, between 0 and 1
+     * @param maxTokens        largest number of hedges that can go out in a burst
+     */
+    public HedgeBudget(double tokensPerRequest, int maxTokens) {
+        this.tokensPerRequest = tokensPerRequest;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+    }
+
+    public void onRequest() {
+        synchronized (this) {
+            tokens = Math.min(maxTokens, tokens + tokensPerRequest);
+        }
+    }
+
+    /**
+     * Spend a token on a hedge, if one is left.
+     *
+     * @return true if the hedge may go out
+     */
+    public boolean tryAcquire() {
+        synchronized (this) {
+            if (tokens < TOKENS_PER_HEDGE) {
+                return false;
+            }
+            tokens -= TOKENS_PER_HEDGE;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package no.unit.nva.fileupload.resilience;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * The latencies of the most recent calls, for estimating a percentile of the current latency. Older samples are
+ * overwritten, so the estimate follows S3 as it speeds up or slows down.
+ */
+public class LatencyTracker {
+
+    public static final int DEFAULT_WINDOW = 256;
+    public static final int DEFAULT_MIN_SAMPLES = 20;
+
+    private final long[] samples;
+    private final int minSamples;
+    private int next;
+    private int count;
+
+    public LatencyTracker() {
+        this(DEFAULT_WINDOW, DEFAULT_MIN_SAMPLES);
+    }
+
+    /**
+     * Creates a tracker.
+     *
+     * @param window     number of recent samples kept
+     * @param minSamples number of samples needed before a percentile is estimated
+     */
+    public LatencyTracker(int window, int minSamples) {
+        this.samples = new long[window];
+        this.minSamples = minSamples;
+    }
+
+    public void record(Duration latency) {
+        synchronized (this) {
+            samples[next] = latency.toNanos();
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+    }
+
+    /**
+     * The latency that the given share of the recent calls stayed within.
+     *
+     * @param percentile percentile between 0 and 100
+     * @return estimated latency, or empty while there are too few samples
+     */
+    public Optional<Duration> percentile(double percentile) {
+        long[] sorted;
+        synchronized (this) {
+            if (count < minSamples) {
+                return Optional.empty();
+            }
+            sorted = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return Optional.of(Duration.ofNanos(sorted[Math.max(0, Math.min(index, sorted.length - 1))]));
+    }
+}
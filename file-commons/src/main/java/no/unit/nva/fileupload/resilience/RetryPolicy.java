@@ -0,0 +1,35 @@
+package no.unit.nva.fileupload.resilience;
+
+import java.time.Duration;
+import java.util.random.RandomGenerator;
+
+/**
+ * How often and for how long a call is retried. Delays between attempts use decorrelated jitter: each delay is
+ * drawn between the base delay and three times the previous one, capped at the maximum delay, so clients that
+ * failed together do not retry together.
+ *
+ * @param maxAttempts    maximum number of calls, the first included
+ * @param baseDelay      smallest delay between attempts
+ * @param maxDelay       largest delay between attempts
+ * @param requestTimeout timeout of a single attempt
+ * @param budget         total time the attempts and the delays between them may take
+ */
+public record RetryPolicy(int maxAttempts, Duration baseDelay, Duration maxDelay, Duration requestTimeout,
+                          Duration budget) {
+
+    private static final int GROWTH_FACTOR = 3;
+
+    /**
+     * The delay before the next attempt.
+     *
+     * @param previousDelay delay before the previous attempt, or the base delay before the first retry
+     * @param random        source of the jitter
+     * @return delay before the next attempt
+     */
+    public Duration nextDelay(Duration previousDelay, RandomGenerator random) {
+        long base = baseDelay.toMillis();
+        long upper = Math.max(base, previousDelay.toMillis() * GROWTH_FACTOR);
+        long delay = upper > base ? random.nextLong(base, upper + 1) : base;
+        return Duration.ofMillis(Math.min(maxDelay.toMillis(), delay));
+    }
+}
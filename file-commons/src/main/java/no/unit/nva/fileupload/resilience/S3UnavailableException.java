@@ -0,0 +1,23 @@
+package no.unit.nva.fileupload.resilience;
+
+import com.amazonaws.SdkClientException;
+
+/**
+ * S3 could not be reached in time: it kept throttling or failing until the retry budget of the call ran out, or the
+ * circuit breaker refused the call. Callers should answer with 503 rather than retrying themselves.
+ */
+public class S3UnavailableException extends SdkClientException {
+
+    public S3UnavailableException(String message) {
+        super(message);
+    }
+
+    public S3UnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    @Override
+    public boolean isRetryable() {
+        return false;
+    }
+}
@@ -0,0 +1,166 @@
+package no.unit.nva.fileupload.session;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link UploadSessionStore} in a DynamoDB table with the object key as partition key, shared by every instance.
+ * Items carry an expiry time in epoch seconds for the time to live of the table, so sessions of uploads that were
+ * never completed or aborted, and the completions kept for retries, go away by themselves. Reads are strongly
+ * consistent, as a retried complete often follows the first one within a second.
+ */
+public class DynamoDbUploadSessionStore implements UploadSessionStore {
+
+    public static final String KEY_ATTRIBUTE = "key";
+    public static final String UPLOAD_ID_ATTRIBUTE = "uploadId";
+    public static final String FILENAME_ATTRIBUTE = "filename";
+    public static final String MIMETYPE_ATTRIBUTE = "mimetype";
+    public static final String SIZE_ATTRIBUTE = "size";
+    public static final String CREATED_AT_ATTRIBUTE = "createdAt";
+    public static final String EXPIRES_AT_ATTRIBUTE = "expiresAt";
+    public static final String COMPLETED_LOCATION_ATTRIBUTE = "completedLocation";
+    public static final String COMPLETED_FILE_NAME_ATTRIBUTE = "completedFileName";
+    public static final String COMPLETED_MIME_TYPE_ATTRIBUTE = "completedMimeType";
+    public static final String COMPLETED_SIZE_ATTRIBUTE = "completedSize";
+    public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofDays(7);
+    // Only the session of the given upload is deleted, not a session of a newer upload of the same key
+    public static final String SAME_UPLOAD_CONDITION = "#uploadId = :uploadId";
+    private static final String UPLOAD_ID_NAME = "#uploadId";
+    private static final String UPLOAD_ID_VALUE = ":uploadId";
+
+    private static final Logger logger = LoggerFactory.getLogger(DynamoDbUploadSessionStore.class);
+
+    private final AmazonDynamoDB client;
+    private final String tableName;
+    private final Duration timeToLive;
+
+    public DynamoDbUploadSessionStore(AmazonDynamoDB client, String tableName) {
+        this(client, tableName, DEFAULT_TIME_TO_LIVE);
+    }
+
+    /**
+     * Creates a store in the given table.
+     *
+     * @param client     DynamoDB client
+     * @param tableName  name of the table
+     * @param timeToLive how long after its creation a session expires
+     */
+    public DynamoDbUploadSessionStore(AmazonDynamoDB client, String tableName, Duration timeToLive) {
+        this.client = client;
+        this.tableName = tableName;
+        this.timeToLive = timeToLive;
+    }
+
+    @Override
+    public void put(UploadSession session) {
+        try {
+            client.putItem(new PutItemRequest(tableName, toItem(session)));
+        } catch (SdkClientException e) {
+            logger.warn("Could not store session of upload {}: {}", session.uploadId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public Optional<UploadSession> get(String key, String uploadId) {
+        try {
+            GetItemRequest request = new GetItemRequest(tableName, primaryKey(key)).withConsistentRead(true);
+            return Optional.ofNullable(client.getItem(request).getItem())
+                       .map(DynamoDbUploadSessionStore::toSession)
+                       .filter(session -> session.uploadId().equals(uploadId));
+        } catch (SdkClientException e) {
+            logger.warn("Could not read session of upload {}: {}", uploadId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void delete(String key, String uploadId) {
+        try {
+            DeleteItemRequest request = new DeleteItemRequest(tableName, primaryKey(key))
+                                            .withConditionExpression(SAME_UPLOAD_CONDITION)
+                                            .withExpressionAttributeNames(Map.of(UPLOAD_ID_NAME, UPLOAD_ID_ATTRIBUTE))
+                                            .withExpressionAttributeValues(
+                                                Map.of(UPLOAD_ID_VALUE, new AttributeValue(uploadId)));
+            client.deleteItem(request);
+        } catch (ConditionalCheckFailedException e) {
+            logger.debug("No session of upload {} to delete", uploadId);
+        } catch (SdkClientException e) {
+            logger.warn("Could not delete session of upload {}: {}", uploadId, e.getMessage());
+        }
+    }
+
+    private Map<String, AttributeValue> toItem(UploadSession session) {
+        Map<String, AttributeValue> item = primaryKey(session.key());
+        item.put(UPLOAD_ID_ATTRIBUTE, new AttributeValue(session.uploadId()));
+        putString(item, FILENAME_ATTRIBUTE, session.filename());
+        putString(item, MIMETYPE_ATTRIBUTE, session.mimetype());
+        if (session.size() != null) {
+            item.put(SIZE_ATTRIBUTE, number(session.size()));
+        }
+        item.put(CREATED_AT_ATTRIBUTE, number(session.createdAt().toEpochMilli()));
+        item.put(EXPIRES_AT_ATTRIBUTE, number(session.createdAt().plus(timeToLive).getEpochSecond()));
+        session.getCompletion().ifPresent(completion -> putCompletion(item, completion));
+        return item;
+    }
+
+    private static void putCompletion(Map<String, AttributeValue> item, UploadCompletion completion) {
+        putString(item, COMPLETED_LOCATION_ATTRIBUTE, completion.location());
+        putString(item, COMPLETED_FILE_NAME_ATTRIBUTE, completion.fileName());
+        putString(item, COMPLETED_MIME_TYPE_ATTRIBUTE, completion.mimeType());
+        item.put(COMPLETED_SIZE_ATTRIBUTE, number(completion.size()));
+    }
+
+    private static UploadSession toSession(Map<String, AttributeValue> item) {
+        return new UploadSession(item.get(KEY_ATTRIBUTE).getS(),
+                                 item.get(UPLOAD_ID_ATTRIBUTE).getS(),
+                                 string(item, FILENAME_ATTRIBUTE),
+                                 string(item, MIMETYPE_ATTRIBUTE),
+                                 Optional.ofNullable(item.get(SIZE_ATTRIBUTE))
+                                     .map(size -> Long.valueOf(size.getN()))
+                                     .orElse(null),
+                                 Instant.ofEpochMilli(Long.parseLong(item.get(CREATED_AT_ATTRIBUTE).getN())),
+                                 toCompletion(item));
+    }
+
+    private static UploadCompletion toCompletion(Map<String, AttributeValue> item) {
+        if (!item.containsKey(COMPLETED_SIZE_ATTRIBUTE)) {
+            return null;
+        }
+        return new UploadCompletion(string(item, COMPLETED_LOCATION_ATTRIBUTE),
+                                    string(item, COMPLETED_FILE_NAME_ATTRIBUTE),
+                                    string(item, COMPLETED_MIME_TYPE_ATTRIBUTE),
+                                    Long.parseLong(item.get(COMPLETED_SIZE_ATTRIBUTE).getN()));
+    }
+
+    private static Map<String, AttributeValue> primaryKey(String key) {
+        Map<String, AttributeValue> primaryKey = new HashMap<>();
+        primaryKey.put(KEY_ATTRIBUTE, new AttributeValue(key));
+        return primaryKey;
+    }
+
+    private static void putString(Map<String, AttributeValue> item, String name, String value) {
+        if (value != null) {
+            item.put(name, new AttributeValue(value));
+        }
+    }
+
+    private static String string(Map<String, AttributeValue> item, String name) {
+        return item.containsKey(name) ? item.get(name).getS() : null;
+    }
+
+    private static AttributeValue number(long value) {
+        return new AttributeValue().withN(Long.toString(value));
+    }
+}
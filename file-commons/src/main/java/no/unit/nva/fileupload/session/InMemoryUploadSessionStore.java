@@ -0,0 +1,65 @@
+package no.unit.nva.fileupload.session;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@link UploadSessionStore} in the memory of this process, holding the most recently used sessions. Sessions are
+ * only seen by calls that reach the same instance, which is every call when the upload router serves them all.
+ */
+public class InMemoryUploadSessionStore implements UploadSessionStore {
+
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    private final Map<String, UploadSession> sessions;
+
+    public InMemoryUploadSessionStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a store holding at most capacity sessions, dropping the least recently used beyond that.
+     *
+     * @param capacity maximum number of sessions
+     */
+    public InMemoryUploadSessionStore(int capacity) {
+        this.sessions = new LinkedHashMap<>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UploadSession> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public static InMemoryUploadSessionStore shared() {
+        return Holder.STORE;
+    }
+
+    @Override
+    public void put(UploadSession session) {
+        synchronized (sessions) {
+            sessions.put(session.key(), session);
+        }
+    }
+
+    @Override
+    public Optional<UploadSession> get(String key, String uploadId) {
+        synchronized (sessions) {
+            return Optional.ofNullable(sessions.get(key))
+                       .filter(session -> session.uploadId().equals(uploadId));
+        }
+    }
+
+    @Override
+    public void delete(String key, String uploadId) {
+        synchronized (sessions) {
+            get(key, uploadId).ifPresent(session -> sessions.remove(key));
+        }
+    }
+
+    private static final class Holder {
+
+        private static final InMemoryUploadSessionStore STORE = new InMemoryUploadSessionStore();
+    }
+}
@@ -0,0 +1,14 @@
+package no.unit.nva.fileupload.session;
+
+/**
+ * The outcome of completing a multipart upload, as it was returned to the client, so a retried complete can be
+ * answered the same way after the upload is gone from S3.
+ *
+ * @param location object key of the completed file
+ * @param fileName name of the file
+ * @param mimeType mimetype of the file
+ * @param size     size of the file in bytes
+ */
+public record UploadCompletion(String location, String fileName, String mimeType, long size) {
+
+}
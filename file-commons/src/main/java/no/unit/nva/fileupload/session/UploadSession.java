@@ -0,0 +1,39 @@
+package no.unit.nva.fileupload.session;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * What the service knows about a multipart upload from the moment it was created: the file the client described,
+ * stored so later calls do not have to ask S3 for it, and once it is completed, the result of completing it.
+ *
+ * @param key        object key of the upload
+ * @param uploadId   id of the multipart upload
+ * @param filename   name of the file given by the client
+ * @param mimetype   mimetype of the file given by the client
+ * @param size       size of the file in bytes given by the client, or null when it was not a number
+ * @param createdAt  when the upload was created
+ * @param completion result of completing the upload, or null while it is in progress
+ */
+public record UploadSession(String key, String uploadId, String filename, String mimetype, Long size,
+                            Instant createdAt, UploadCompletion completion) {
+
+    public UploadSession(String key, String uploadId, String filename, String mimetype, Long size,
+                         Instant createdAt) {
+        this(key, uploadId, filename, mimetype, size, createdAt, null);
+    }
+
+    /**
+     * This session with the upload completed.
+     *
+     * @param completion result of completing the upload
+     * @return completed session
+     */
+    public UploadSession completed(UploadCompletion completion) {
+        return new UploadSession(key, uploadId, filename, mimetype, size, createdAt, completion);
+    }
+
+    public Optional<UploadCompletion> getCompletion() {
+        return Optional.ofNullable(completion);
+    }
+}
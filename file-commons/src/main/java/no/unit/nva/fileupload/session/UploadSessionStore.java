@@ -0,0 +1,36 @@
+package no.unit.nva.fileupload.session;
+
+import java.util.Optional;
+
+/**
+ * Storage of {@link UploadSession}s. A session is only a shortcut around S3, never the source of truth, so
+ * implementations do not fail the calling request when their storage is unavailable: a session that cannot be
+ * written is lost, and one that cannot be read is reported as absent.
+ */
+public interface UploadSessionStore {
+
+    /**
+     * Store a session, replacing any session with the same key.
+     *
+     * @param session session to store
+     */
+    void put(UploadSession session);
+
+    /**
+     * Session of an upload.
+     *
+     * @param key      object key of the upload
+     * @param uploadId id of the multipart upload
+     * @return the session, or empty if it is unknown or belongs to another upload of the same key
+     */
+    Optional<UploadSession> get(String key, String uploadId);
+
+    /**
+     * Forget the session of an upload that was aborted. Sessions of completed uploads are kept with their
+     * completion, so retried completes can be answered from them.
+     *
+     * @param key      object key of the upload
+     * @param uploadId id of the multipart upload
+     */
+    void delete(String key, String uploadId);
+}
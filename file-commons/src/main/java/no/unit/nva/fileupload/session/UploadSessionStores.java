@@ -0,0 +1,48 @@
+package no.unit.nva.fileupload.session;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import no.unit.nva.fileupload.util.S3Constants;
+import nva.commons.core.Environment;
+
+public final class UploadSessionStores {
+
+    // Name of the DynamoDB table to keep sessions in. Without it sessions are only kept in the memory of each instance
+    public static final String UPLOAD_SESSION_TABLE_KEY = "UPLOAD_SESSION_TABLE";
+    // A session only saves a call to S3, so waiting longer for it than the call would take is pointless
+    public static final int REQUEST_TIMEOUT_MS = 500;
+    public static final int MAX_ERROR_RETRY = 1;
+
+    private static final Object LOCK = new Object();
+    private static AmazonDynamoDB dynamoDbClient;
+
+    private UploadSessionStores() {
+    }
+
+    /**
+     * Store of the upload sessions of this process: the DynamoDB table named in the environment, or else the shared
+     * in-memory store.
+     * @param environment environment reader
+     * @return session store
+     */
+    public static UploadSessionStore fromEnvironment(Environment environment) {
+        return environment.readEnvOpt(UPLOAD_SESSION_TABLE_KEY)
+                   .<UploadSessionStore>map(table -> new DynamoDbUploadSessionStore(sharedClient(environment), table))
+                   .orElseGet(InMemoryUploadSessionStore::shared);
+    }
+
+    private static AmazonDynamoDB sharedClient(Environment environment) {
+        synchronized (LOCK) {
+            if (dynamoDbClient == null) {
+                dynamoDbClient = AmazonDynamoDBClientBuilder.standard()
+                                   .withRegion(environment.readEnv(S3Constants.AWS_REGION_KEY))
+                                   .withClientConfiguration(new ClientConfiguration()
+                                                                .withRequestTimeout(REQUEST_TIMEOUT_MS)
+                                                                .withMaxErrorRetry(MAX_ERROR_RETRY))
+                                   .build();
+            }
+            return dynamoDbClient;
+        }
+    }
+}
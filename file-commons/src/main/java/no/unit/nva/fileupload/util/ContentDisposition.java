@@ -0,0 +1,41 @@
+package no.unit.nva.fileupload.util;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.text.translate.UnicodeEscaper;
+
+/**
+ * Content-Disposition values stored with uploaded objects. Create writes them from the client's filename, complete
+ * reads the filename back, so both sides must agree on the format.
+ */
+public final class ContentDisposition {
+
+    public static final String CONTENT_DISPOSITION_TEMPLATE = "filename=\"%s\"";
+    public static final String FILE_NAME_REGEX = "filename=\"(.*)\"";
+    public static final int LAST_ASCII_CODEPOINT = 127;
+
+    private static final Pattern FILE_NAME_PATTERN = Pattern.compile(FILE_NAME_REGEX);
+    private static final UnicodeEscaper NON_ASCII_ESCAPER = UnicodeEscaper.above(LAST_ASCII_CODEPOINT);
+
+    private ContentDisposition() {
+    }
+
+    /**
+     * Content-Disposition for a filename, with characters outside ASCII escaped as \\uXXXX.
+     * @param filename filename given by the client
+     * @return header value to store with the object
+     */
+    public static String forFileName(String filename) {
+        return String.format(CONTENT_DISPOSITION_TEMPLATE, NON_ASCII_ESCAPER.translate(filename));
+    }
+
+    /**
+     * Filename of a Content-Disposition value, or the whole value when it is not on the form filename="...".
+     * @param contentDisposition header value stored with the object
+     * @return the filename
+     */
+    public static String toFileName(String contentDisposition) {
+        Matcher matcher = FILE_NAME_PATTERN.matcher(contentDisposition);
+        return matcher.matches() ? matcher.group(1) : contentDisposition;
+    }
+}
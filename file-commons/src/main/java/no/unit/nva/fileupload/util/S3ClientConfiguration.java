@@ -0,0 +1,68 @@
+package no.unit.nva.fileupload.util;
+
+import com.amazonaws.ClientConfiguration;
+import nva.commons.core.Environment;
+
+/**
+ * Reads the HTTP client settings of the S3 client from the environment. Unset variables fall back to defaults
+ * suited for short-lived Lambda invocations that reuse connections while the instance is warm.
+ */
+public final class S3ClientConfiguration {
+
+    public static final String MAX_CONNECTIONS_KEY = "S3_MAX_CONNECTIONS";
+    public static final String CONNECTION_TIMEOUT_MS_KEY = "S3_CONNECTION_TIMEOUT_MS";
+    public static final String SOCKET_TIMEOUT_MS_KEY = "S3_SOCKET_TIMEOUT_MS";
+    public static final String CONNECTION_TTL_MS_KEY = "S3_CONNECTION_TTL_MS";
+    public static final String CONNECTION_MAX_IDLE_MS_KEY = "S3_CONNECTION_MAX_IDLE_MS";
+    public static final String VALIDATE_AFTER_INACTIVITY_MS_KEY = "S3_VALIDATE_AFTER_INACTIVITY_MS";
+    public static final String TCP_KEEP_ALIVE_KEY = "S3_TCP_KEEP_ALIVE";
+    public static final String MAX_ERROR_RETRY_KEY = "S3_MAX_ERROR_RETRY";
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 50;
+    public static final int DEFAULT_CONNECTION_TIMEOUT_MS = 2_000;
+    public static final int DEFAULT_SOCKET_TIMEOUT_MS = 10_000;
+    // Recycle connections well before S3 closes idle ones, so a warm instance rarely hits a stale connection
+    public static final long DEFAULT_CONNECTION_TTL_MS = 60_000;
+    public static final long DEFAULT_CONNECTION_MAX_IDLE_MS = 20_000;
+    public static final int DEFAULT_VALIDATE_AFTER_INACTIVITY_MS = 5_000;
+    public static final boolean DEFAULT_TCP_KEEP_ALIVE = true;
+    // Retries are made by ResilientS3Gateway, with a budget per operation; retrying in the SDK as well would
+    // multiply the attempts of a throttled call
+    public static final int DEFAULT_MAX_ERROR_RETRY = 0;
+
+    private S3ClientConfiguration() {
+    }
+
+    /**
+     * Builds the client configuration from the environment.
+     *
+     * @param environment environment reader
+     * @return client configuration
+     */
+    public static ClientConfiguration fromEnvironment(Environment environment) {
+        return new ClientConfiguration()
+                   .withMaxConnections(readInt(environment, MAX_CONNECTIONS_KEY, DEFAULT_MAX_CONNECTIONS))
+                   .withConnectionTimeout(readInt(environment, CONNECTION_TIMEOUT_MS_KEY,
+                                                  DEFAULT_CONNECTION_TIMEOUT_MS))
+                   .withSocketTimeout(readInt(environment, SOCKET_TIMEOUT_MS_KEY, DEFAULT_SOCKET_TIMEOUT_MS))
+                   .withConnectionTTL(readLong(environment, CONNECTION_TTL_MS_KEY, DEFAULT_CONNECTION_TTL_MS))
+                   .withConnectionMaxIdleMillis(readLong(environment, CONNECTION_MAX_IDLE_MS_KEY,
+                                                         DEFAULT_CONNECTION_MAX_IDLE_MS))
+                   .withValidateAfterInactivityMillis(readInt(environment, VALIDATE_AFTER_INACTIVITY_MS_KEY,
+                                                              DEFAULT_VALIDATE_AFTER_INACTIVITY_MS))
+                   .withTcpKeepAlive(readBoolean(environment, TCP_KEEP_ALIVE_KEY, DEFAULT_TCP_KEEP_ALIVE))
+                   .withMaxErrorRetry(readInt(environment, MAX_ERROR_RETRY_KEY, DEFAULT_MAX_ERROR_RETRY));
+    }
+
+    static int readInt(Environment environment, String key, int defaultValue) {
+        return environment.readEnvOpt(key).map(Integer::parseInt).orElse(defaultValue);
+    }
+
+    static long readLong(Environment environment, String key, long defaultValue) {
+        return environment.readEnvOpt(key).map(Long::parseLong).orElse(defaultValue);
+    }
+
+    static boolean readBoolean(Environment environment, String key, boolean defaultValue) {
+        return environment.readEnvOpt(key).map(Boolean::parseBoolean).orElse(defaultValue);
+    }
+}
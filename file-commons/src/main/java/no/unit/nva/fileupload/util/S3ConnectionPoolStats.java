@@ -0,0 +1,40 @@
+package no.unit.nva.fileupload.util;
+
+import com.amazonaws.http.IdleConnectionReaper;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+
+/**
+ * Snapshot of the HTTP connection pools of the S3 clients in this process.
+ *
+ * @param leased    connections currently in use
+ * @param pending   requests waiting for a connection
+ * @param available idle connections kept alive for reuse
+ * @param max       maximum number of connections
+ */
+public record S3ConnectionPoolStats(int leased, int pending, int available, int max) {
+
+    /**
+     * Sums the statistics of every connection pool registered with the SDK's idle connection reaper, which
+     * includes the pool of every SDK client built with default settings.
+     *
+     * @return current pool statistics
+     */
+    public static S3ConnectionPoolStats current() {
+        int leased = 0;
+        int pending = 0;
+        int available = 0;
+        int max = 0;
+        for (HttpClientConnectionManager connectionManager : IdleConnectionReaper.getRegisteredConnectionManagers()) {
+            if (connectionManager instanceof ConnPoolControl<?> poolControl) {
+                PoolStats stats = poolControl.getTotalStats();
+                leased += stats.getLeased();
+                pending += stats.getPending();
+                available += stats.getAvailable();
+                max += stats.getMax();
+            }
+        }
+        return new S3ConnectionPoolStats(leased, pending, available, max);
+    }
+}
@@ -5,6 +5,17 @@ public final class S3Constants {
     public static final String AWS_REGION_KEY = "AWS_REGION";
     public static final String S3_UPLOAD_BUCKET_KEY = "S3_UPLOAD_BUCKET";
 
+    public static final String UPLOAD_ID_PARAMETER = "uploadId";
+    public static final String PART_NUMBER_PARAMETER = "partNumber";
+
+    // S3 multipart limits, see https://docs.aws.amazon.com/AmazonS3/latest/userguide/qfacts.html
+    public static final int MIN_PART_NUMBER = 1;
+    public static final int MAX_PART_NUMBER = 10_000;
+    public static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    public static final long MAX_PART_SIZE = 5L * 1024 * 1024 * 1024;
+    public static final long MAX_OBJECT_SIZE = 5L * 1024 * 1024 * 1024 * 1024;
+    public static final long MAX_PUT_OBJECT_SIZE = 5L * 1024 * 1024 * 1024;
+
     private S3Constants() {
     }
 
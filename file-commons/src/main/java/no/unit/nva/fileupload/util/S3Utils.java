@@ -1,11 +1,19 @@
 package no.unit.nva.fileupload.util;
 
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.http.IdleConnectionReaper;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import java.util.concurrent.TimeUnit;
+import nva.commons.core.Environment;
 import nva.commons.core.JacocoGenerated;
+import org.apache.http.conn.HttpClientConnectionManager;
 
 public final class S3Utils {
 
+    private static final Object LOCK = new Object();
+    private static AmazonS3 sharedClient;
+
     private S3Utils() {
     }
 
@@ -15,9 +23,54 @@ public final class S3Utils {
      */
     @JacocoGenerated
     public static AmazonS3 createAmazonS3Client(String region) {
+        return createAmazonS3Client(region, new ClientConfiguration());
+    }
+
+    /**
+     * Create a client to access Amazon S3 storage with the given HTTP client settings.
+     * @param region region of the client
+     * @param clientConfiguration HTTP client settings
+     * @return client to access S3 storage
+     */
+    public static AmazonS3 createAmazonS3Client(String region, ClientConfiguration clientConfiguration) {
         return AmazonS3ClientBuilder.standard()
                 .withRegion(region)
+                .withClientConfiguration(clientConfiguration)
                 .build();
     }
 
+    /**
+     * Client shared by every handler in this process, so connections and TLS sessions are reused across warm
+     * invocations. It is created on first use with the region and settings read from the environment.
+     * @param environment environment reader
+     * @return shared client to access S3 storage
+     */
+    public static AmazonS3 sharedAmazonS3Client(Environment environment) {
+        synchronized (LOCK) {
+            if (sharedClient == null) {
+                sharedClient = createAmazonS3Client(environment.readEnv(S3Constants.AWS_REGION_KEY),
+                                                    S3ClientConfiguration.fromEnvironment(environment));
+            }
+            return sharedClient;
+        }
+    }
+
+    /**
+     * Statistics of the connection pools of the S3 clients in this process.
+     * @return current pool statistics
+     */
+    public static S3ConnectionPoolStats connectionPoolStats() {
+        return S3ConnectionPoolStats.current();
+    }
+
+    /**
+     * Close every idle pooled connection of the S3 clients in this process. Used after a snapshot restore, where
+     * the pooled sockets belong to a process that no longer exists; the clients open new connections on demand.
+     */
+    public static void closePooledConnections() {
+        for (HttpClientConnectionManager connectionManager : IdleConnectionReaper.getRegisteredConnectionManagers()) {
+            connectionManager.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+        }
+    }
+
 }
@@ -0,0 +1,30 @@
+package no.unit.nva.fileupload.exception;
+
+import static org.apache.http.HttpStatus.SC_BAD_REQUEST;
+import static org.apache.http.HttpStatus.SC_NOT_FOUND;
+import static org.apache.http.HttpStatus.SC_SERVICE_UNAVAILABLE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import org.junit.jupiter.api.Test;
+
+class ExceptionStatusCodeTest {
+
+    @Test
+    void invalidInputExceptionShouldMapToBadRequest() {
+        var exception = new InvalidInputException(new IllegalArgumentException("message"));
+        assertThat(exception.getStatusCode(), is(equalTo(SC_BAD_REQUEST)));
+    }
+
+    @Test
+    void notFoundExceptionShouldMapToNotFound() {
+        var exception = new NotFoundException("message", new IllegalStateException());
+        assertThat(exception.getStatusCode(), is(equalTo(SC_NOT_FOUND)));
+    }
+
+    @Test
+    void serviceUnavailableExceptionShouldMapToServiceUnavailable() {
+        var exception = new ServiceUnavailableException("message", new IllegalStateException());
+        assertThat(exception.getStatusCode(), is(equalTo(SC_SERVICE_UNAVAILABLE)));
+    }
+}
@@ -0,0 +1,206 @@
+package no.unit.nva.fileupload.gateway;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartListing;
+import java.net.URL;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import no.unit.nva.fileupload.resilience.HedgeBudget;
+import no.unit.nva.fileupload.resilience.LatencyTracker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class HedgingS3GatewayTest {
+
+    public static final String BUCKET = "bucket";
+    public static final String KEY = "key";
+    public static final String UPLOAD_ID = "uploadId";
+    public static final double PERCENTILE = 95;
+    // Longer than the hedge delay used before any latencies are known
+    public static final long SLOW_READ_MILLIS = HedgingS3Gateway.DEFAULT_DELAY.toMillis() + 300;
+
+    private S3Gateway delegate;
+    private CountDownLatch slowReadReleased;
+    private HedgingS3Gateway gateway;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(S3Gateway.class);
+        slowReadReleased = new CountDownLatch(1);
+        gateway = new HedgingS3Gateway(delegate, PERCENTILE, new HedgeBudget(1, HedgeBudget.DEFAULT_MAX_TOKENS));
+    }
+
+    @AfterEach
+    void tearDown() {
+        slowReadReleased.countDown();
+    }
+
+    @Test
+    void shouldAnswerWithHedgedReadWhenFirstReadIsSlow() {
+        var request = new GetObjectMetadataRequest(BUCKET, KEY);
+        var metadata = new ObjectMetadata();
+        when(delegate.headObject(any())).thenAnswer(invocation -> {
+            if (invocation.getArgument(0) == request) {
+                slowReadReleased.await();
+            }
+            return metadata;
+        });
+
+        var result = gateway.headObject(request);
+
+        assertThat(result, is(sameInstance(metadata)));
+        verify(delegate, times(2)).headObject(any());
+    }
+
+    @Test
+    void shouldAnswerWithHedgedListingWhenFirstListingIsSlow() {
+        var request = new ListPartsRequest(BUCKET, KEY, UPLOAD_ID);
+        var listing = new PartListing();
+        when(delegate.listParts(any())).thenAnswer(invocation -> {
+            if (invocation.getArgument(0) == request) {
+                slowReadReleased.await();
+            }
+            return listing;
+        });
+
+        var result = gateway.listParts(request);
+
+        assertThat(result, is(sameInstance(listing)));
+        verify(delegate, times(2)).listParts(any());
+    }
+
+    @Test
+    void shouldKeepLatencyOfFirstReadWhenHedgedReadAnswers() throws InterruptedException {
+        var headLatencies = new LatencyTracker(LatencyTracker.DEFAULT_WINDOW, 1);
+        var executor = Executors.newCachedThreadPool();
+        var hedging = new HedgingS3Gateway(delegate, executor, PERCENTILE,
+                                           new HedgeBudget(1, HedgeBudget.DEFAULT_MAX_TOKENS), System::nanoTime,
+                                           headLatencies, new LatencyTracker());
+        var request = new GetObjectMetadataRequest(BUCKET, KEY);
+        when(delegate.headObject(any())).thenAnswer(invocation -> {
+            if (invocation.getArgument(0) == request) {
+                slowReadReleased.await();
+            }
+            return new ObjectMetadata();
+        });
+
+        hedging.headObject(request);
+
+        assertThat(headLatencies.percentile(100).isPresent(), is(false));
+        slowReadReleased.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(SLOW_READ_MILLIS, TimeUnit.MILLISECONDS), is(true));
+        assertThat(headLatencies.percentile(100).orElseThrow(),
+                   is(greaterThanOrEqualTo(HedgingS3Gateway.DEFAULT_DELAY)));
+    }
+
+    @Test
+    void shouldNotHedgeReadAnsweringWithinDelay() {
+        var listing = new PartListing();
+        when(delegate.listParts(any())).thenReturn(listing);
+
+        var result = gateway.listParts(new ListPartsRequest(BUCKET, KEY, UPLOAD_ID));
+
+        assertThat(result, is(sameInstance(listing)));
+        verify(delegate, times(1)).listParts(any());
+    }
+
+    @Test
+    void shouldNotHedgeWhenBudgetIsSpent() {
+        var noBudget = new HedgingS3Gateway(delegate, PERCENTILE, new HedgeBudget(0, 0));
+        var metadata = new ObjectMetadata();
+        when(delegate.headObject(any())).thenAnswer(invocation -> {
+            slowReadReleased.await(SLOW_READ_MILLIS, TimeUnit.MILLISECONDS);
+            return metadata;
+        });
+
+        var result = noBudget.headObject(new GetObjectMetadataRequest(BUCKET, KEY));
+
+        assertThat(result, is(sameInstance(metadata)));
+        verify(delegate, times(1)).headObject(any());
+    }
+
+    @Test
+    void shouldThrowFailureWhenBothReadsFail() {
+        var request = new ListPartsRequest(BUCKET, KEY, UPLOAD_ID);
+        var failure = new AmazonS3Exception("NoSuchUpload");
+        when(delegate.listParts(any())).thenAnswer(invocation -> {
+            if (invocation.getArgument(0) == request) {
+                slowReadReleased.await(SLOW_READ_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            throw failure;
+        });
+
+        var thrown = assertThrows(AmazonS3Exception.class, () -> gateway.listParts(request));
+
+        assertThat(thrown, is(sameInstance(failure)));
+        verify(delegate, times(2)).listParts(any());
+    }
+
+    @Test
+    void shouldPassOtherCallsStraightThrough() throws Exception {
+        var initiated = new InitiateMultipartUploadResult();
+        var completed = new CompleteMultipartUploadResult();
+        var url = new URL("https://example.com/part");
+        when(delegate.initiateMultipartUpload(any())).thenReturn(initiated);
+        when(delegate.completeMultipartUpload(any())).thenReturn(completed);
+        when(delegate.presignUploadPart(BUCKET, KEY, UPLOAD_ID, 1)).thenReturn(url);
+        when(delegate.generatePresignedUrl(any())).thenReturn(url);
+
+        assertThat(gateway.initiateMultipartUpload(new InitiateMultipartUploadRequest(BUCKET, KEY)),
+                   is(sameInstance(initiated)));
+        assertThat(gateway.completeMultipartUpload(new CompleteMultipartUploadRequest()), is(sameInstance(completed)));
+        assertThat(gateway.presignUploadPart(BUCKET, KEY, UPLOAD_ID, 1), is(sameInstance(url)));
+        assertThat(gateway.generatePresignedUrl(new GeneratePresignedUrlRequest(BUCKET, KEY)), is(sameInstance(url)));
+        var abortRequest = new AbortMultipartUploadRequest(BUCKET, KEY, UPLOAD_ID);
+        gateway.abortMultipartUpload(abortRequest);
+        verify(delegate).abortMultipartUpload(abortRequest);
+    }
+
+    @Test
+    void shouldHedgeAfterDefaultDelayUntilEnoughLatenciesAreKnown() {
+        assertThat(gateway.hedgeDelay(new LatencyTracker()), is(equalTo(HedgingS3Gateway.DEFAULT_DELAY)));
+    }
+
+    @Test
+    void shouldKeepHedgeDelayWithinBounds() {
+        var fast = trackerOf(Duration.ofMillis(1));
+        var slow = trackerOf(Duration.ofSeconds(10));
+        var typical = trackerOf(Duration.ofMillis(80));
+
+        assertThat(gateway.hedgeDelay(fast), is(equalTo(HedgingS3Gateway.MIN_DELAY)));
+        assertThat(gateway.hedgeDelay(slow), is(equalTo(HedgingS3Gateway.MAX_DELAY)));
+        assertThat(gateway.hedgeDelay(typical), is(equalTo(Duration.ofMillis(80))));
+    }
+
+    private static LatencyTracker trackerOf(Duration latency) {
+        var tracker = new LatencyTracker();
+        for (int i = 0; i < LatencyTracker.DEFAULT_MIN_SAMPLES; i++) {
+            tracker.record(latency);
+        }
+        return tracker;
+    }
+}
@@ -0,0 +1,167 @@
+package no.unit.nva.fileupload.gateway;
+
+import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartListing;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import no.unit.nva.fileupload.metrics.InvocationMetrics;
+import no.unit.nva.fileupload.recording.HandlerRecording;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MeteredS3GatewayTest {
+
+    public static final String BUCKET = "bucket";
+    public static final String KEY = "key";
+    public static final String UPLOAD_ID = "uploadId";
+    public static final String HANDLER = "handler";
+    public static final long CALL_NANOS = 2_000_000;
+    public static final String S3_CALL_EVENT = "no.unit.nva.fileupload.S3Call";
+
+    private S3Gateway delegate;
+    private List<String> documents;
+    private InvocationMetrics metrics;
+    private MeteredS3Gateway gateway;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(S3Gateway.class);
+        documents = new ArrayList<>();
+        metrics = new InvocationMetrics(InvocationMetrics.DEFAULT_NAMESPACE, documents::add,
+                                        Clock.systemUTC(), System::nanoTime);
+        AtomicLong nanoTime = new AtomicLong();
+        gateway = new MeteredS3Gateway(delegate, metrics, () -> nanoTime.getAndAdd(CALL_NANOS));
+    }
+
+    @Test
+    void shouldRecordLatencyOfEveryS3Call() throws IOException {
+        var initiated = new InitiateMultipartUploadResult();
+        var listing = new PartListing();
+        var completed = new CompleteMultipartUploadResult();
+        var metadata = new ObjectMetadata();
+        when(delegate.initiateMultipartUpload(any())).thenReturn(initiated);
+        when(delegate.listParts(any())).thenReturn(listing);
+        when(delegate.completeMultipartUpload(any())).thenReturn(completed);
+        when(delegate.headObject(any())).thenReturn(metadata);
+
+        assertThat(gateway.initiateMultipartUpload(new InitiateMultipartUploadRequest(BUCKET, KEY)),
+                   is(sameInstance(initiated)));
+        assertThat(gateway.listParts(new ListPartsRequest(BUCKET, KEY, UPLOAD_ID)), is(sameInstance(listing)));
+        assertThat(gateway.completeMultipartUpload(new CompleteMultipartUploadRequest()), is(sameInstance(completed)));
+        assertThat(gateway.headObject(new GetObjectMetadataRequest(BUCKET, KEY)), is(sameInstance(metadata)));
+        var abortRequest = new AbortMultipartUploadRequest(BUCKET, KEY, UPLOAD_ID);
+        gateway.abortMultipartUpload(abortRequest);
+        verify(delegate).abortMultipartUpload(abortRequest);
+
+        JsonNode document = flush();
+        for (S3Operation operation : S3Operation.values()) {
+            assertThat(document.get(MeteredS3Gateway.latencyMetric(operation)).get(0).asDouble(), is(equalTo(2.0)));
+        }
+    }
+
+    @Test
+    void shouldTimeCallsWithSystemClockByDefault() throws IOException {
+        var systemTimedGateway = new MeteredS3Gateway(delegate, metrics);
+
+        systemTimedGateway.headObject(new GetObjectMetadataRequest(BUCKET, KEY));
+
+        JsonNode latency = flush().get(MeteredS3Gateway.latencyMetric(S3Operation.HEAD_OBJECT));
+        assertThat(latency.get(0).asDouble() >= 0, is(true));
+    }
+
+    @Test
+    void shouldNameLatencyMetricAfterOperation() {
+        assertThat(MeteredS3Gateway.latencyMetric(S3Operation.HEAD_OBJECT), is(equalTo("S3HeadObjectLatency")));
+        assertThat(MeteredS3Gateway.latencyMetric(S3Operation.COMPLETE_MULTIPART_UPLOAD),
+                   is(equalTo("S3CompleteMultipartUploadLatency")));
+    }
+
+    @Test
+    void shouldCountFailedCallsWithErrorCodeOrClass() throws IOException {
+        var serviceError = new AmazonS3Exception("Slow down");
+        serviceError.setErrorCode("SlowDown");
+        when(delegate.headObject(any())).thenThrow(serviceError);
+        when(delegate.listParts(any())).thenThrow(new SdkClientException("Unable to execute HTTP request"));
+
+        assertThrows(AmazonS3Exception.class, () -> gateway.headObject(new GetObjectMetadataRequest(BUCKET, KEY)));
+        assertThat(flush().get(MeteredS3Gateway.S3_ERROR_CLASS).asText(), is(equalTo("SlowDown")));
+
+        assertThrows(SdkClientException.class, () -> gateway.listParts(new ListPartsRequest(BUCKET, KEY, UPLOAD_ID)));
+        JsonNode document = flush();
+        assertThat(document.get(MeteredS3Gateway.S3_ERROR_CLASS).asText(), is(equalTo("SdkClientException")));
+        assertThat(document.get(MeteredS3Gateway.S3_ERRORS).get(0).asInt(), is(equalTo(1)));
+    }
+
+    @Test
+    void shouldRecordEveryCallInRunningFlightRecording(@TempDir Path tempDir) throws Exception {
+        var serviceError = new AmazonS3Exception("Slow down");
+        serviceError.setErrorCode("SlowDown");
+        when(delegate.headObject(any())).thenThrow(serviceError);
+        Path destination = tempDir.resolve("s3.jfr");
+        Recording recording = HandlerRecording.start(HandlerRecording.DEFAULT_SETTINGS, destination);
+        try {
+            assertThrows(AmazonS3Exception.class, () -> gateway.headObject(new GetObjectMetadataRequest(BUCKET, KEY)));
+        } finally {
+            recording.stop();
+            recording.close();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        List<RecordedEvent> events = RecordingFile.readAllEvents(destination).stream()
+                                         .filter(event -> S3_CALL_EVENT.equals(event.getEventType().getName()))
+                                         .filter(event -> event.getThread().getJavaThreadId() == threadId)
+                                         .toList();
+        assertThat(events, hasSize(1));
+        assertThat(events.get(0).getString("operation"), is(equalTo(S3Operation.HEAD_OBJECT.name())));
+        assertThat(events.get(0).getString("error"), is(equalTo("SlowDown")));
+    }
+
+    @Test
+    void shouldPassPresigningThroughUnrecorded() throws Exception {
+        var url = new URL("https://example.com/part");
+        when(delegate.presignUploadPart(BUCKET, KEY, UPLOAD_ID, 1)).thenReturn(url);
+        when(delegate.generatePresignedUrl(any())).thenReturn(url);
+
+        assertThat(gateway.presignUploadPart(BUCKET, KEY, UPLOAD_ID, 1), is(sameInstance(url)));
+        assertThat(gateway.generatePresignedUrl(new GeneratePresignedUrlRequest(BUCKET, KEY)), is(sameInstance(url)));
+
+        metrics.flush(HANDLER);
+        assertThat(documents.isEmpty(), is(true));
+    }
+
+    private JsonNode flush() throws IOException {
+        metrics.flush(HANDLER);
+        return dtoObjectMapper.readTree(documents.remove(0));
+    }
+}
@@ -0,0 +1,145 @@
+package no.unit.nva.fileupload.gateway;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.PartListing;
+import com.amazonaws.services.s3.model.PartSummary;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ParallelPartListerTest {
+
+    public static final String BUCKET = "bucket";
+    public static final String KEY = "key";
+    public static final String UPLOAD_ID = "uploadId";
+
+    private AsyncS3Gateway s3Gateway;
+
+    @BeforeEach
+    void setUp() {
+        s3Gateway = mock(AsyncS3Gateway.class);
+    }
+
+    @Test
+    void shouldMergeRangesInPartNumberOrder() {
+        stubUploadedParts(IntStream.rangeClosed(1, 2500).toArray());
+
+        List<PartSummary> parts = new ParallelPartLister(s3Gateway).listParts(request());
+
+        assertThat(partNumbers(parts), is(IntStream.rangeClosed(1, 2500).boxed().toList()));
+    }
+
+    @Test
+    void shouldStopAfterRangeHoldingLastPart() {
+        stubUploadedParts(1, 2, 3);
+
+        List<PartSummary> parts = new ParallelPartLister(s3Gateway, 1).listParts(request());
+
+        assertThat(partNumbers(parts), contains(1, 2, 3));
+        verify(s3Gateway, times(1)).listParts(any());
+    }
+
+    @Test
+    void shouldListSmallUploadWithOneCallByDefault() {
+        stubUploadedParts(1, 2, 3);
+
+        List<PartSummary> parts = new ParallelPartLister(s3Gateway).listParts(request());
+
+        assertThat(partNumbers(parts), contains(1, 2, 3));
+        verify(s3Gateway, times(1)).listParts(any());
+    }
+
+    @Test
+    void shouldFetchRemainingRangesInOneWaveByDefault() {
+        stubUploadedParts(IntStream.rangeClosed(1, 1001).toArray());
+
+        List<PartSummary> parts = new ParallelPartLister(s3Gateway).listParts(request());
+
+        assertThat(parts, hasSize(1001));
+        verify(s3Gateway, times(ParallelPartLister.RANGE_COUNT)).listParts(any());
+    }
+
+    @Test
+    void shouldListPartsOfRangeWithGapsOnlyOnce() {
+        stubUploadedParts(1, 999, 1001, 1002, 2001);
+
+        List<PartSummary> parts = new ParallelPartLister(s3Gateway, 2).listParts(request());
+
+        assertThat(partNumbers(parts), contains(1, 999, 1001, 1002, 2001));
+    }
+
+    @Test
+    void shouldReturnNoPartsForUploadWithoutParts() {
+        stubUploadedParts();
+
+        assertThat(new ParallelPartLister(s3Gateway).listParts(request()), is(empty()));
+    }
+
+    @Test
+    void shouldRethrowFailureOfListPartsCall() {
+        var failure = new AmazonS3Exception("NoSuchUpload");
+        when(s3Gateway.listParts(any())).thenReturn(CompletableFuture.failedFuture(failure));
+
+        var lister = new ParallelPartLister(s3Gateway);
+        var thrown = assertThrows(AmazonS3Exception.class, () -> lister.listParts(request()));
+
+        assertThat(thrown, is(sameInstance(failure)));
+    }
+
+    @Test
+    void shouldRejectEmptyWaves() {
+        assertThrows(IllegalArgumentException.class, () -> new ParallelPartLister(s3Gateway, 0));
+    }
+
+    private static ListPartsRequest request() {
+        var request = new ListPartsRequest(BUCKET, KEY, UPLOAD_ID);
+        request.setSdkRequestTimeout(1000);
+        request.setSdkClientExecutionTimeout(2000);
+        return request;
+    }
+
+    // Answers each call the way S3 does: up to maxParts parts numbered above the marker.
+    private void stubUploadedParts(int... partNumbers) {
+        when(s3Gateway.listParts(any())).thenAnswer(invocation -> {
+            ListPartsRequest request = invocation.getArgument(0);
+            List<PartSummary> page = new ArrayList<>();
+            int index = 0;
+            while (index < partNumbers.length && partNumbers[index] <= request.getPartNumberMarker()) {
+                index++;
+            }
+            while (index < partNumbers.length && page.size() < request.getMaxParts()) {
+                page.add(part(partNumbers[index++]));
+            }
+            var listing = new PartListing();
+            listing.setParts(page);
+            listing.setTruncated(index < partNumbers.length);
+            return CompletableFuture.completedFuture(listing);
+        });
+    }
+
+    private static PartSummary part(int partNumber) {
+        var part = new PartSummary();
+        part.setPartNumber(partNumber);
+        return part;
+    }
+
+    private static List<Integer> partNumbers(List<PartSummary> parts) {
+        return parts.stream().map(PartSummary::getPartNumber).toList();
+    }
+}
@@ -0,0 +1,139 @@
+package no.unit.nva.fileupload.gateway;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.PartSummary;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PartListingCacheTest {
+
+    public static final String KEY = "key";
+    public static final String UPLOAD_ID = "uploadId";
+    public static final Duration TIME_TO_LIVE = Duration.ofSeconds(2);
+    public static final int MAX_PARTS = 10;
+
+    private AtomicLong nanoTime;
+    private AtomicInteger loads;
+    private PartListingCache cache;
+
+    @BeforeEach
+    void setUp() {
+        nanoTime = new AtomicLong();
+        loads = new AtomicInteger();
+        cache = new PartListingCache(MAX_PARTS, TIME_TO_LIVE, nanoTime::get);
+    }
+
+    @Test
+    void shouldServeListingFromCacheWithinTimeToLive() {
+        var first = cache.get(KEY, UPLOAD_ID, loader(3));
+        nanoTime.addAndGet(TIME_TO_LIVE.toNanos() - 1);
+
+        assertThat(cache.get(KEY, UPLOAD_ID, loader(3)), is(sameInstance(first)));
+        assertThat(loads.get(), is(equalTo(1)));
+        assertThat(cache.getHits(), is(equalTo(1L)));
+        assertThat(cache.getMisses(), is(equalTo(1L)));
+    }
+
+    @Test
+    void shouldServeListingFromCacheWithDefaultSettings() {
+        var defaultCache = new PartListingCache();
+        var first = defaultCache.get(KEY, UPLOAD_ID, loader(3));
+
+        assertThat(defaultCache.get(KEY, UPLOAD_ID, loader(3)), is(sameInstance(first)));
+        assertThat(defaultCache.getCachedParts(), is(equalTo(3)));
+    }
+
+    @Test
+    void shouldReloadListingAfterTimeToLive() {
+        cache.get(KEY, UPLOAD_ID, loader(3));
+        nanoTime.addAndGet(TIME_TO_LIVE.toNanos());
+
+        assertThat(cache.get(KEY, UPLOAD_ID, loader(4)).size(), is(equalTo(4)));
+        assertThat(loads.get(), is(equalTo(2)));
+        assertThat(cache.getCachedParts(), is(equalTo(4)));
+    }
+
+    @Test
+    void shouldReloadListingAfterInvalidation() {
+        cache.get(KEY, UPLOAD_ID, loader(3));
+
+        cache.invalidate(KEY, UPLOAD_ID);
+
+        assertThat(cache.getCachedParts(), is(equalTo(0)));
+        cache.get(KEY, UPLOAD_ID, loader(3));
+        assertThat(loads.get(), is(equalTo(2)));
+    }
+
+    @Test
+    void shouldKeepListingsOfUploadsApart() {
+        cache.get(KEY, UPLOAD_ID, loader(1));
+        cache.get(KEY, "otherUploadId", loader(2));
+
+        assertThat(cache.get(KEY, UPLOAD_ID, loader(5)).size(), is(equalTo(1)));
+        assertThat(loads.get(), is(equalTo(2)));
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedListingsBeyondMaxParts() {
+        cache.get("first", UPLOAD_ID, loader(4));
+        cache.get("second", UPLOAD_ID, loader(4));
+        cache.get("first", UPLOAD_ID, loader(4));
+
+        cache.get("third", UPLOAD_ID, loader(4));
+
+        assertThat(cache.getCachedParts(), is(equalTo(8)));
+        cache.get("first", UPLOAD_ID, loader(4));
+        cache.get("second", UPLOAD_ID, loader(4));
+        assertThat(loads.get(), is(equalTo(4)));
+    }
+
+    @Test
+    void shouldNotCacheListingLargerThanMaxParts() {
+        cache.get(KEY, UPLOAD_ID, loader(MAX_PARTS + 1));
+
+        assertThat(cache.getCachedParts(), is(equalTo(0)));
+    }
+
+    @Test
+    void shouldNotCacheWhenTimeToLiveIsZero() {
+        var disabled = new PartListingCache(MAX_PARTS, Duration.ZERO, nanoTime::get);
+        disabled.get(KEY, UPLOAD_ID, loader(1));
+        disabled.get(KEY, UPLOAD_ID, loader(1));
+
+        assertThat(loads.get(), is(equalTo(2)));
+        assertThat(disabled.getHits(), is(equalTo(0L)));
+    }
+
+    @Test
+    void shouldNotCacheFailures() {
+        assertThrows(AmazonS3Exception.class, () -> cache.get(KEY, UPLOAD_ID, () -> {
+            throw new AmazonS3Exception("SlowDown");
+        }));
+
+        assertThat(cache.get(KEY, UPLOAD_ID, loader(1)).size(), is(equalTo(1)));
+    }
+
+    private Supplier<List<PartSummary>> loader(int partCount) {
+        return () -> {
+            loads.incrementAndGet();
+            return IntStream.rangeClosed(1, partCount).mapToObj(PartListingCacheTest::part).toList();
+        };
+    }
+
+    private static PartSummary part(int partNumber) {
+        var part = new PartSummary();
+        part.setPartNumber(partNumber);
+        return part;
+    }
+}
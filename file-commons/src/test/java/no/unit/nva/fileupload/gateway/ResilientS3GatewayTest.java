@@ -0,0 +1,297 @@
+package no.unit.nva.fileupload.gateway;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartListing;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import no.unit.nva.fileupload.resilience.AdaptiveConcurrencyLimit;
+import no.unit.nva.fileupload.resilience.CircuitBreaker;
+import no.unit.nva.fileupload.resilience.CircuitBreaker.State;
+import no.unit.nva.fileupload.resilience.Deadline;
+import no.unit.nva.fileupload.resilience.S3UnavailableException;
+import org.apache.http.HttpStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ResilientS3GatewayTest {
+
+    public static final String BUCKET = "bucket";
+    public static final String KEY = "key";
+    public static final String UPLOAD_ID = "uploadId";
+    public static final int MAX_CONCURRENCY = 8;
+    public static final Duration OPEN_DURATION = Duration.ofSeconds(5);
+
+    private S3Gateway delegate;
+    private AtomicLong nanoTime;
+    private List<Duration> sleeps;
+    private CircuitBreaker circuitBreaker;
+    private AdaptiveConcurrencyLimit concurrencyLimit;
+    private ResilientS3Gateway gateway;
+    private Random random;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(S3Gateway.class);
+        nanoTime = new AtomicLong();
+        sleeps = new ArrayList<>();
+        random = new Random(1);
+        circuitBreaker = new CircuitBreaker(CircuitBreaker.DEFAULT_FAILURE_THRESHOLD, OPEN_DURATION, nanoTime::get);
+        concurrencyLimit = new AdaptiveConcurrencyLimit(MAX_CONCURRENCY);
+        gateway = new ResilientS3Gateway(delegate, ResilientS3Gateway.defaultPolicies(), circuitBreaker,
+                                         concurrencyLimit, this::sleep, () -> random, nanoTime::get);
+    }
+
+    @Test
+    void shouldDelegateEveryOperation() throws Exception {
+        var initiated = new InitiateMultipartUploadResult();
+        var listing = new PartListing();
+        var completed = new CompleteMultipartUploadResult();
+        var metadata = new ObjectMetadata();
+        var url = new URL("https://example.com/part");
+        when(delegate.initiateMultipartUpload(any())).thenReturn(initiated);
+        when(delegate.listParts(any())).thenReturn(listing);
+        when(delegate.completeMultipartUpload(any())).thenReturn(completed);
+        when(delegate.headObject(any())).thenReturn(metadata);
+        when(delegate.presignUploadPart(BUCKET, KEY, UPLOAD_ID, 1)).thenReturn(url);
+        when(delegate.generatePresignedUrl(any())).thenReturn(url);
+
+        assertThat(gateway.initiateMultipartUpload(new InitiateMultipartUploadRequest(BUCKET, KEY)),
+                   is(sameInstance(initiated)));
+        assertThat(gateway.listParts(new ListPartsRequest(BUCKET, KEY, UPLOAD_ID)), is(sameInstance(listing)));
+        assertThat(gateway.completeMultipartUpload(new CompleteMultipartUploadRequest()), is(sameInstance(completed)));
+        assertThat(gateway.headObject(new GetObjectMetadataRequest(BUCKET, KEY)), is(sameInstance(metadata)));
+        assertThat(gateway.presignUploadPart(BUCKET, KEY, UPLOAD_ID, 1), is(sameInstance(url)));
+        assertThat(gateway.generatePresignedUrl(new GeneratePresignedUrlRequest(BUCKET, KEY)), is(sameInstance(url)));
+        gateway.abortMultipartUpload(new AbortMultipartUploadRequest(BUCKET, KEY, UPLOAD_ID));
+        verify(delegate).abortMultipartUpload(any());
+        assertThat(sleeps, hasSize(0));
+    }
+
+    @Test
+    void shouldRetryWithDefaultPoliciesWhenGivenOnlyBreakerAndLimit() {
+        var defaults = new ResilientS3Gateway(delegate, circuitBreaker, concurrencyLimit);
+        var listing = new PartListing();
+        when(delegate.listParts(any())).thenThrow(serverError()).thenReturn(listing);
+
+        var result = defaults.listParts(new ListPartsRequest(BUCKET, KEY, UPLOAD_ID));
+
+        assertThat(result, is(sameInstance(listing)));
+        verify(delegate, times(2)).listParts(any());
+    }
+
+    @Test
+    void shouldSetRequestTimeoutOfOperationUnlessRequestHasOne() {
+        var defaultTimeout = new ListPartsRequest(BUCKET, KEY, UPLOAD_ID);
+        var ownTimeout = new ListPartsRequest(BUCKET, KEY, UPLOAD_ID);
+        ownTimeout.setSdkRequestTimeout(500);
+
+        gateway.listParts(defaultTimeout);
+        gateway.listParts(ownTimeout);
+
+        int expected = (int) S3Operation.LIST_PARTS.getDefaultPolicy().requestTimeout().toMillis();
+        assertThat(defaultTimeout.getSdkRequestTimeout(), is(equalTo(expected)));
+        assertThat(ownTimeout.getSdkRequestTimeout(), is(equalTo(500)));
+    }
+
+    @Test
+    void shouldShareTimeLeftUntilDeadlineOverAttempts() {
+        var request = new GetObjectMetadataRequest(BUCKET, KEY);
+        var deadline = Deadline.after(Duration.ofSeconds(12), nanoTime::get);
+
+        deadline.call(() -> gateway.headObject(request));
+
+        int attempts = S3Operation.HEAD_OBJECT.getDefaultPolicy().maxAttempts();
+        assertThat(request.getSdkRequestTimeout(), is(equalTo(12_000 / attempts)));
+    }
+
+    @Test
+    void shouldNotCallS3WhenDeadlineHasPassed() {
+        var deadline = Deadline.after(Duration.ZERO, nanoTime::get);
+
+        assertThrows(S3UnavailableException.class,
+                     () -> deadline.call(() -> gateway.headObject(new GetObjectMetadataRequest(BUCKET, KEY))));
+
+        verify(delegate, never()).headObject(any());
+    }
+
+    @Test
+    void shouldNotLetAttemptOutlastDeadline() {
+        var request = new CompleteMultipartUploadRequest();
+        request.setSdkRequestTimeout(5_000);
+        var deadline = Deadline.after(Duration.ofMillis(1_500), nanoTime::get);
+
+        deadline.call(() -> gateway.completeMultipartUpload(request));
+
+        assertThat(request.getSdkRequestTimeout(), is(equalTo(1_500)));
+    }
+
+    @Test
+    void shouldRetryThrottledCallAndHalveConcurrency() {
+        var listing = new PartListing();
+        when(delegate.listParts(any())).thenThrow(slowDown()).thenReturn(listing);
+
+        assertThat(gateway.listParts(new ListPartsRequest(BUCKET, KEY, UPLOAD_ID)), is(sameInstance(listing)));
+        assertThat(sleeps, hasSize(1));
+        assertThat(concurrencyLimit.getLimit(), is(equalTo(MAX_CONCURRENCY / 2)));
+        assertThat(concurrencyLimit.getInFlight(), is(equalTo(0)));
+    }
+
+    @Test
+    void shouldDrawJitterOnThreadMakingTheCall() throws Exception {
+        var listing = new PartListing();
+        when(delegate.listParts(any())).thenThrow(slowDown()).thenReturn(listing);
+        var threads = new ArrayList<Thread>();
+        var gatewayRecordingThreads =
+            new ResilientS3Gateway(delegate, ResilientS3Gateway.defaultPolicies(), circuitBreaker, concurrencyLimit,
+                                   this::sleep, () -> {
+                                       threads.add(Thread.currentThread());
+                                       return random;
+                                   }, nanoTime::get);
+        var caller = new Thread(() -> gatewayRecordingThreads.listParts(new ListPartsRequest(BUCKET, KEY, UPLOAD_ID)));
+
+        caller.start();
+        caller.join();
+
+        assertThat(threads, is(equalTo(List.of(caller))));
+    }
+
+    @Test
+    void shouldSpaceAttemptsWithinMaximumDelay() {
+        when(delegate.headObject(any())).thenThrow(serverError());
+
+        assertThrows(S3UnavailableException.class,
+                     () -> gateway.headObject(new GetObjectMetadataRequest(BUCKET, KEY)));
+
+        var policy = S3Operation.HEAD_OBJECT.getDefaultPolicy();
+        verify(delegate, times(policy.maxAttempts())).headObject(any());
+        assertThat(sleeps, hasSize(policy.maxAttempts() - 1));
+        assertThat(sleeps, everyItem(is(lessThanOrEqualTo(policy.maxDelay()))));
+    }
+
+    @Test
+    void shouldPassOnFailuresThatRetryingCannotFix() {
+        var noSuchUpload = new AmazonS3Exception("NoSuchUpload");
+        noSuchUpload.setStatusCode(HttpStatus.SC_NOT_FOUND);
+        doThrow(noSuchUpload).when(delegate).abortMultipartUpload(any());
+
+        var exception = assertThrows(AmazonS3Exception.class, () -> gateway.abortMultipartUpload(
+            new AbortMultipartUploadRequest(BUCKET, KEY, UPLOAD_ID)));
+
+        assertThat(exception, is(sameInstance(noSuchUpload)));
+        verify(delegate, times(1)).abortMultipartUpload(any());
+        assertThat(circuitBreaker.getState(), is(equalTo(State.CLOSED)));
+    }
+
+    @Test
+    void shouldRefuseCallsWhileCircuitIsOpen() {
+        for (int failure = 0; failure < CircuitBreaker.DEFAULT_FAILURE_THRESHOLD; failure++) {
+            circuitBreaker.onFailure();
+        }
+
+        var exception = assertThrows(S3UnavailableException.class,
+                                     () -> gateway.headObject(new GetObjectMetadataRequest(BUCKET, KEY)));
+
+        assertThat(exception.getMessage(), is(equalTo(ResilientS3Gateway.CIRCUIT_OPEN)));
+        verify(delegate, never()).headObject(any());
+    }
+
+    @Test
+    void shouldLetNextCallProbeWhenProbeFailsWithoutReachingS3() {
+        var metadata = new ObjectMetadata();
+        when(delegate.headObject(any())).thenThrow(new IllegalStateException("Broken")).thenReturn(metadata);
+        for (int failure = 0; failure < CircuitBreaker.DEFAULT_FAILURE_THRESHOLD; failure++) {
+            circuitBreaker.onFailure();
+        }
+        nanoTime.addAndGet(OPEN_DURATION.toNanos());
+
+        assertThrows(IllegalStateException.class, () -> gateway.headObject(new GetObjectMetadataRequest(BUCKET, KEY)));
+
+        assertThat(gateway.headObject(new GetObjectMetadataRequest(BUCKET, KEY)), is(sameInstance(metadata)));
+        assertThat(circuitBreaker.getState(), is(equalTo(State.CLOSED)));
+    }
+
+    @Test
+    void shouldStopRetryingWhenBudgetIsSpent() {
+        when(delegate.completeMultipartUpload(any())).thenAnswer(invocation -> {
+            nanoTime.addAndGet(Duration.ofSeconds(4).toNanos());
+            throw new SdkClientException("Unable to execute HTTP request: Read timed out");
+        });
+
+        assertThrows(S3UnavailableException.class,
+                     () -> gateway.completeMultipartUpload(new CompleteMultipartUploadRequest()));
+
+        verify(delegate, times(2)).completeMultipartUpload(any());
+    }
+
+    @Test
+    void shouldBackOffWhenConcurrencyLimitIsReached() {
+        var listing = new PartListing();
+        when(delegate.listParts(any())).thenReturn(listing);
+        for (int call = 0; call < MAX_CONCURRENCY; call++) {
+            concurrencyLimit.tryAcquire();
+        }
+        var gatewayReleasingOnSleep =
+            new ResilientS3Gateway(delegate, ResilientS3Gateway.defaultPolicies(), circuitBreaker, concurrencyLimit,
+                                   duration -> concurrencyLimit.release(), () -> random, nanoTime::get);
+
+        assertThat(gatewayReleasingOnSleep.listParts(new ListPartsRequest(BUCKET, KEY, UPLOAD_ID)),
+                   is(sameInstance(listing)));
+    }
+
+    @Test
+    void shouldClassifyFailures() {
+        assertThat(ResilientS3Gateway.isThrottling(slowDown()), is(true));
+        assertThat(ResilientS3Gateway.isThrottling(serverError()), is(false));
+        assertThat(ResilientS3Gateway.isRetryable(serverError()), is(true));
+        assertThat(ResilientS3Gateway.isRetryable(new SdkClientException("Connection reset")), is(true));
+        assertThat(ResilientS3Gateway.isRetryable(new S3UnavailableException("unavailable")), is(false));
+    }
+
+    private void sleep(Duration duration) {
+        sleeps.add(duration);
+        nanoTime.addAndGet(duration.toNanos());
+    }
+
+    private static AmazonS3Exception slowDown() {
+        var exception = new AmazonS3Exception("Please reduce your request rate.");
+        exception.setStatusCode(HttpStatus.SC_SERVICE_UNAVAILABLE);
+        exception.setErrorCode("SlowDown");
+        return exception;
+    }
+
+    private static AmazonS3Exception serverError() {
+        var exception = new AmazonS3Exception("We encountered an internal error. Please try again.");
+        exception.setStatusCode(HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        exception.setErrorCode("InternalError");
+        return exception;
+    }
+}
@@ -0,0 +1,85 @@
+package no.unit.nva.fileupload.gateway;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartListing;
+import java.net.URL;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class S3GatewayTest {
+
+    public static final String BUCKET = "bucket";
+    public static final String KEY = "key";
+    public static final String UPLOAD_ID = "uploadId";
+
+    private AmazonS3 s3Client;
+    private S3Gateway s3Gateway;
+    private AsyncS3Gateway asyncS3Gateway;
+
+    @BeforeEach
+    void setUp() {
+        s3Client = mock(AmazonS3.class);
+        s3Gateway = new BlockingS3Gateway(s3Client);
+        asyncS3Gateway = new ExecutorAsyncS3Gateway(s3Gateway);
+    }
+
+    @Test
+    void shouldDelegateEveryOperationToClient() throws Exception {
+        var initiated = new InitiateMultipartUploadResult();
+        var listing = new PartListing();
+        var completed = new CompleteMultipartUploadResult();
+        var metadata = new ObjectMetadata();
+        var url = new URL("https://localhost");
+        when(s3Client.initiateMultipartUpload(any())).thenReturn(initiated);
+        when(s3Client.listParts(any())).thenReturn(listing);
+        when(s3Client.completeMultipartUpload(any())).thenReturn(completed);
+        when(s3Client.getObjectMetadata(any(GetObjectMetadataRequest.class))).thenReturn(metadata);
+        when(s3Client.generatePresignedUrl(any(GeneratePresignedUrlRequest.class))).thenReturn(url);
+
+        assertThat(asyncS3Gateway.initiateMultipartUpload(new InitiateMultipartUploadRequest(BUCKET, KEY)).get(),
+                   is(sameInstance(initiated)));
+        assertThat(asyncS3Gateway.listParts(new ListPartsRequest(BUCKET, KEY, UPLOAD_ID)).get(),
+                   is(sameInstance(listing)));
+        assertThat(asyncS3Gateway.completeMultipartUpload(new CompleteMultipartUploadRequest()).get(),
+                   is(sameInstance(completed)));
+        assertThat(asyncS3Gateway.headObject(new GetObjectMetadataRequest(BUCKET, KEY)).get(),
+                   is(sameInstance(metadata)));
+        assertThat(asyncS3Gateway.presignUploadPart(BUCKET, KEY, UPLOAD_ID, 1).get(), is(sameInstance(url)));
+        assertThat(asyncS3Gateway.generatePresignedUrl(new GeneratePresignedUrlRequest(BUCKET, KEY)).get(),
+                   is(sameInstance(url)));
+
+        var abortRequest = new AbortMultipartUploadRequest(BUCKET, KEY, UPLOAD_ID);
+        asyncS3Gateway.abortMultipartUpload(abortRequest).get();
+        verify(s3Client).abortMultipartUpload(abortRequest);
+    }
+
+    @Test
+    void shouldCompleteFutureExceptionallyWhenClientFails() {
+        when(s3Client.listParts(any())).thenThrow(new AmazonS3Exception("No such upload"));
+
+        var future = asyncS3Gateway.listParts(new ListPartsRequest(BUCKET, KEY, UPLOAD_ID));
+
+        var exception = assertThrows(ExecutionException.class, future::get);
+        assertThat(exception.getCause(), is(instanceOf(AmazonS3Exception.class)));
+    }
+}
@@ -0,0 +1,70 @@
+package no.unit.nva.fileupload.metrics;
+
+import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class HandlerInvocationsTest {
+
+    public static final String HANDLER = "handler";
+
+    private List<String> documents;
+    private InvocationMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        documents = new ArrayList<>();
+        metrics = new InvocationMetrics(InvocationMetrics.DEFAULT_NAMESPACE, documents::add, Clock.systemUTC(),
+                                        System::nanoTime);
+    }
+
+    @Test
+    void shouldWriteMetricsOfInvocationBeforeReturning() throws IOException {
+        HandlerInvocations.handle(metrics, HANDLER, () -> HandlerInvocations.validate(metrics, () -> { }));
+
+        assertThat(documents, hasSize(1));
+        JsonNode document = dtoObjectMapper.readTree(documents.get(0));
+        assertThat(document.get(InvocationMetrics.HANDLER_DIMENSION).asText(), is(equalTo(HANDLER)));
+        assertThat(document.has(InvocationMetrics.LATENCY), is(true));
+        assertThat(document.has(HandlerInvocations.S3_IDLE_CONNECTIONS), is(true));
+        assertThat(document.has(InvocationMetrics.ERRORS), is(false));
+    }
+
+    @Test
+    void shouldCountRejectedValidationAsError() throws IOException {
+        var rejected = new IllegalArgumentException("rejected");
+
+        var thrown = assertThrows(IllegalArgumentException.class, () -> HandlerInvocations.handle(
+            metrics, HANDLER, () -> HandlerInvocations.validate(metrics, () -> {
+                throw rejected;
+            })));
+
+        assertThat(thrown, is(equalTo(rejected)));
+        JsonNode document = dtoObjectMapper.readTree(documents.get(0));
+        assertThat(document.get(InvocationMetrics.ERRORS).toString(), is(equalTo("[1.0]")));
+    }
+
+    @Test
+    void shouldReturnResultOfProcessingAndCountFailures() throws IOException {
+        var result = HandlerInvocations.process(metrics, () -> "result");
+        assertThrows(IllegalStateException.class, () -> HandlerInvocations.process(metrics, () -> {
+            throw new IllegalStateException("failed");
+        }));
+
+        metrics.flush(HANDLER);
+
+        assertThat(result, is(equalTo("result")));
+        JsonNode document = dtoObjectMapper.readTree(documents.get(0));
+        assertThat(document.get(InvocationMetrics.ERROR_CLASS).asText(), is(equalTo("IllegalStateException")));
+    }
+}
@@ -0,0 +1,118 @@
+package no.unit.nva.fileupload.metrics;
+
+import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class InvocationMetricsTest {
+
+    public static final String NAMESPACE = "namespace";
+    public static final String HANDLER = "handler";
+    public static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+
+    private List<String> documents;
+    private AtomicLong nanoTime;
+    private InvocationMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        documents = new ArrayList<>();
+        nanoTime = new AtomicLong();
+        metrics = new InvocationMetrics(NAMESPACE, documents::add, Clock.fixed(NOW, ZoneOffset.UTC),
+                                        nanoTime::get);
+    }
+
+    @Test
+    void shouldWriteInvocationAsOneEmbeddedMetricFormatDocument() throws IOException {
+        metrics.measure(HANDLER, () -> {
+            metrics.put(InvocationMetrics.PARTS, 3, MetricUnit.COUNT);
+            metrics.put(InvocationMetrics.PARTS, 4, MetricUnit.COUNT);
+            metrics.putProperty("UploadId", "uploadId");
+            nanoTime.addAndGet(Duration.ofMillis(25).toNanos());
+            return null;
+        });
+
+        assertThat(documents, hasSize(1));
+        JsonNode document = dtoObjectMapper.readTree(documents.get(0));
+        JsonNode directive = document.get("_aws").get("CloudWatchMetrics").get(0);
+        assertThat(document.get("_aws").get("Timestamp").asLong(), is(equalTo(NOW.toEpochMilli())));
+        assertThat(directive.get("Namespace").asText(), is(equalTo(NAMESPACE)));
+        assertThat(directive.get("Dimensions").get(0).get(0).asText(),
+                   is(equalTo(InvocationMetrics.HANDLER_DIMENSION)));
+        assertThat(directive.get("Metrics").get(0).get("Name").asText(), is(equalTo(InvocationMetrics.PARTS)));
+        assertThat(directive.get("Metrics").get(0).get("Unit").asText(), is(equalTo("Count")));
+        assertThat(directive.get("Metrics").get(1).get("Unit").asText(), is(equalTo("Milliseconds")));
+        assertThat(document.get(InvocationMetrics.HANDLER_DIMENSION).asText(), is(equalTo(HANDLER)));
+        assertThat(document.get(InvocationMetrics.PARTS).toString(), is(equalTo("[3.0,4.0]")));
+        assertThat(document.get(InvocationMetrics.LATENCY).get(0).asDouble(), is(equalTo(25.0)));
+        assertThat(document.get("UploadId").asText(), is(equalTo("uploadId")));
+    }
+
+    @Test
+    void shouldWriteBeforeInvocationEndsAndStartOverAfterEachInvocation() {
+        metrics.measure(HANDLER, () -> null);
+
+        assertThat(documents, hasSize(1));
+
+        metrics.measure(HANDLER, () -> null);
+
+        assertThat(documents, hasSize(2));
+    }
+
+    @Test
+    void shouldSplitValuesBeyondLimitOverDocuments() throws IOException {
+        for (int i = 0; i < InvocationMetrics.MAX_VALUES_PER_METRIC + 1; i++) {
+            metrics.put(InvocationMetrics.PARTS, i, MetricUnit.COUNT);
+        }
+        metrics.put(InvocationMetrics.SIZE, 1, MetricUnit.BYTES);
+
+        metrics.flush(HANDLER);
+
+        assertThat(documents, hasSize(2));
+        JsonNode first = dtoObjectMapper.readTree(documents.get(0));
+        JsonNode second = dtoObjectMapper.readTree(documents.get(1));
+        assertThat(first.get(InvocationMetrics.PARTS).size(), is(equalTo(InvocationMetrics.MAX_VALUES_PER_METRIC)));
+        assertThat(second.get(InvocationMetrics.PARTS).size(), is(equalTo(1)));
+        assertThat(second.has(InvocationMetrics.SIZE), is(false));
+    }
+
+    @Test
+    void shouldCountErrorAndRecordItsClass() throws IOException {
+        assertThrows(IllegalStateException.class, () -> metrics.countingErrors(() -> {
+            throw new IllegalStateException("failed");
+        }));
+        var result = metrics.countingErrors(() -> "result");
+
+        metrics.flush(HANDLER);
+
+        JsonNode document = dtoObjectMapper.readTree(documents.get(0));
+        assertThat(result, is(equalTo("result")));
+        assertThat(document.get(InvocationMetrics.ERRORS).toString(), is(equalTo("[1.0]")));
+        assertThat(document.get(InvocationMetrics.ERROR_CLASS).asText(), is(equalTo("IllegalStateException")));
+    }
+
+    @Test
+    void shouldRecordNothingWhenDisabled() {
+        var disabled = InvocationMetrics.disabled();
+
+        disabled.put(InvocationMetrics.PARTS, 1, MetricUnit.COUNT);
+        disabled.putProperty(InvocationMetrics.ERROR_CLASS, "IllegalStateException");
+        var result = disabled.measure(HANDLER, () -> "result");
+
+        assertThat(result, is(equalTo("result")));
+    }
+}
@@ -0,0 +1,59 @@
+package no.unit.nva.fileupload.plan;
+
+import static no.unit.nva.fileupload.plan.UploadPlanner.DEFAULT_CONCURRENCY;
+import static no.unit.nva.fileupload.plan.UploadPlanner.DEFAULT_PART_SIZE;
+import static no.unit.nva.fileupload.plan.UploadPlanner.MAX_CONCURRENCY;
+import static no.unit.nva.fileupload.plan.UploadPlanner.MEBIBYTE;
+import static no.unit.nva.fileupload.util.S3Constants.MAX_OBJECT_SIZE;
+import static no.unit.nva.fileupload.util.S3Constants.MAX_PART_NUMBER;
+import static no.unit.nva.fileupload.util.S3Constants.MIN_PART_SIZE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+class UploadPlannerTest {
+
+    public static final long GIBIBYTE = 1024 * MEBIBYTE;
+
+    @Test
+    void shouldUseDefaultsWhenBandwidthIsUnknown() {
+        assertThat(UploadPlanner.plan(GIBIBYTE), is(equalTo(new UploadPlan(DEFAULT_PART_SIZE, 128,
+                                                                           DEFAULT_CONCURRENCY))));
+    }
+
+    @Test
+    void shouldPlanOnePartForEmptyFile() {
+        assertThat(UploadPlanner.plan(0), is(equalTo(new UploadPlan(DEFAULT_PART_SIZE, 1, 1))));
+    }
+
+    @Test
+    void shouldGrowPartsToStayWithinPartLimit() {
+        UploadPlan plan = UploadPlanner.plan(MAX_OBJECT_SIZE);
+
+        assertThat(plan.partCount(), is(lessThanOrEqualTo(MAX_PART_NUMBER)));
+        assertThat(plan.partSize() % MEBIBYTE, is(equalTo(0L)));
+        assertThat(plan.partSize() * plan.partCount() >= MAX_OBJECT_SIZE, is(true));
+    }
+
+    @Test
+    void shouldSpreadBandwidthOverConnections() {
+        UploadPlan plan = UploadPlanner.plan(GIBIBYTE, 100 * MEBIBYTE);
+
+        assertThat(plan, is(equalTo(new UploadPlan(67 * MEBIBYTE, 16, MAX_CONCURRENCY))));
+    }
+
+    @Test
+    void shouldNotGoBelowMinimumPartSizeOnSlowConnections() {
+        assertThat(UploadPlanner.plan(GIBIBYTE, MEBIBYTE), is(equalTo(new UploadPlan(MIN_PART_SIZE, 205, 1))));
+    }
+
+    @Test
+    void shouldRejectSizesAndBandwidthsS3CannotServe() {
+        assertThrows(IllegalArgumentException.class, () -> UploadPlanner.plan(-1));
+        assertThrows(IllegalArgumentException.class, () -> UploadPlanner.plan(MAX_OBJECT_SIZE + 1));
+        assertThrows(IllegalArgumentException.class, () -> UploadPlanner.plan(GIBIBYTE, 0L));
+    }
+}
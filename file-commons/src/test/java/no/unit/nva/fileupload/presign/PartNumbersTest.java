@@ -0,0 +1,42 @@
+package no.unit.nva.fileupload.presign;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PartNumbersTest {
+
+    public static final int MAX_PARTS = 10_000;
+
+    @Test
+    void shouldReturnInclusiveRange() {
+        assertThat(PartNumbers.range(3, 5), is(equalTo(new int[]{3, 4, 5})));
+    }
+
+    @Test
+    void shouldKeepOrderOfExplicitPartNumbers() {
+        assertThat(PartNumbers.of(List.of(9, 2, 5)), is(equalTo(new int[]{9, 2, 5})));
+    }
+
+    @Test
+    void shouldRejectPartNumbersOutsideS3Limits() {
+        assertThrows(IllegalArgumentException.class, () -> PartNumbers.range(0, 5));
+        assertThrows(IllegalArgumentException.class, () -> PartNumbers.range(1, MAX_PARTS + 1));
+        assertThrows(IllegalArgumentException.class, () -> PartNumbers.of(List.of(1, MAX_PARTS + 1)));
+    }
+
+    @Test
+    void shouldRejectReversedRange() {
+        assertThrows(IllegalArgumentException.class, () -> PartNumbers.range(5, 3));
+    }
+
+    @Test
+    void shouldRejectEmptyAndOversizedLists() {
+        assertThrows(IllegalArgumentException.class, () -> PartNumbers.of(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> PartNumbers.of(Collections.nCopies(MAX_PARTS + 1, 1)));
+    }
+}
@@ -0,0 +1,147 @@
+package no.unit.nva.fileupload.presign;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import com.amazonaws.HttpMethod;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.auth.BasicSessionCredentials;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import java.net.URL;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class SigV4UploadPartPresignerTest {
+
+    public static final String ACCESS_KEY = "AKIDEXAMPLE";
+    public static final String SECRET_KEY = "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY";
+    public static final String SESSION_TOKEN = "IQoJb3JpZ2luX2VjE/+=token";
+    public static final String UPLOAD_ID = "2~abc.DEF_ghi-jkl+o/p=q";
+    public static final String KEY = "f335ab02-35b3-4fda-9204-cd999e166ce0";
+    public static final String BUCKET = "nva-upload-bucket";
+    public static final String REGION = "eu-west-1";
+    public static final int PART_NUMBER = 17;
+    private static final Pattern AMZ_DATE = Pattern.compile("X-Amz-Date=(\\d{8}T\\d{6}Z)");
+    private static final Pattern AMZ_EXPIRES = Pattern.compile("X-Amz-Expires=(\\d+)");
+    private static final DateTimeFormatter AMZ_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+
+    public static Stream<Arguments> presignCombinations() {
+        var credentials = List.of(new BasicAWSCredentials(ACCESS_KEY, SECRET_KEY),
+                                  new BasicSessionCredentials(ACCESS_KEY, SECRET_KEY, SESSION_TOKEN));
+        var regions = List.of(REGION, "us-east-1", "eu-north-1");
+        var buckets = List.of(BUCKET, "Bucket_Needing.Path-Style");
+        var keys = List.of(KEY, "folder/file name (1)*.pdf", "normal_üñīḉøđḝ_ƒıļæ_😀.pdf");
+        return credentials.stream()
+                   .flatMap(credential -> regions.stream()
+                       .flatMap(region -> buckets.stream()
+                           .flatMap(bucket -> keys.stream()
+                               .map(key -> Arguments.of(credential, region, bucket, key)))));
+    }
+
+    @ParameterizedTest
+    @MethodSource("presignCombinations")
+    void shouldProduceSameUrlAsSdk(AWSCredentials credentials, String region, String bucket, String key) {
+        var credentialsProvider = new AWSStaticCredentialsProvider(credentials);
+        String expected = sdkPresignedUrl(credentialsProvider, region, bucket, key).toString();
+
+        var presigner = new SigV4UploadPartPresigner(credentialsProvider, region,
+                                                     Duration.ofSeconds(Long.parseLong(find(AMZ_EXPIRES, expected))),
+                                                     clockAt(find(AMZ_DATE, expected)));
+        String actual = presigner.presignUploadPart(bucket, key, UPLOAD_ID, PART_NUMBER).toString();
+
+        assertThat(actual, is(equalTo(expected)));
+    }
+
+    @Test
+    void shouldDeriveNewSigningKeyWhenCredentialsChange() {
+        AWSCredentialsProvider credentialsProvider = mock(AWSCredentialsProvider.class);
+        when(credentialsProvider.getCredentials())
+            .thenReturn(new BasicAWSCredentials(ACCESS_KEY, SECRET_KEY))
+            .thenReturn(new BasicAWSCredentials(ACCESS_KEY, SECRET_KEY))
+            .thenReturn(new BasicAWSCredentials(ACCESS_KEY, "rotated" + SECRET_KEY));
+        var presigner = new SigV4UploadPartPresigner(credentialsProvider, REGION,
+                                                     SigV4UploadPartPresigner.DEFAULT_EXPIRY,
+                                                     clockAt("20240502T094028Z"));
+
+        URL first = presigner.presignUploadPart(BUCKET, KEY, UPLOAD_ID, PART_NUMBER);
+        URL cached = presigner.presignUploadPart(BUCKET, KEY, UPLOAD_ID, PART_NUMBER);
+        URL rotated = presigner.presignUploadPart(BUCKET, KEY, UPLOAD_ID, PART_NUMBER);
+
+        assertThat(cached.toString(), is(equalTo(first.toString())));
+        assertThat(rotated.toString(), is(not(equalTo(first.toString()))));
+    }
+
+    @Test
+    void shouldPresignBatchInRequestedOrder() {
+        var presigner = new SigV4UploadPartPresigner(
+            new AWSStaticCredentialsProvider(new BasicAWSCredentials(ACCESS_KEY, SECRET_KEY)), REGION,
+            SigV4UploadPartPresigner.DEFAULT_EXPIRY, clockAt("20240502T094028Z"));
+        int[] partNumbers = IntStream.rangeClosed(1, 1000).map(number -> 1001 - number).toArray();
+
+        List<PresignedPart> parts = presigner.presignUploadParts(BUCKET, KEY, UPLOAD_ID, partNumbers);
+
+        assertThat(parts.stream().map(PresignedPart::getNumber).collect(Collectors.toList()),
+                   is(equalTo(IntStream.of(partNumbers).boxed().collect(Collectors.toList()))));
+        assertThat(parts.get(0).getUrl(),
+                   is(equalTo(presigner.presignUploadPart(BUCKET, KEY, UPLOAD_ID, partNumbers[0]))));
+    }
+
+    @Test
+    void shouldPresignThroughSdkClient() {
+        AmazonS3 s3Client = sdkClient(new AWSStaticCredentialsProvider(new BasicAWSCredentials(ACCESS_KEY,
+                                                                                               SECRET_KEY)), REGION);
+        var presigner = new SdkUploadPartPresigner(s3Client);
+
+        List<PresignedPart> parts = presigner.presignUploadParts(BUCKET, KEY, UPLOAD_ID, 1, 2);
+
+        assertThat(parts.stream().map(PresignedPart::getNumber).collect(Collectors.toList()), contains(1, 2));
+    }
+
+    private static URL sdkPresignedUrl(AWSCredentialsProvider credentialsProvider, String region, String bucket,
+                                       String key) {
+        var request = new GeneratePresignedUrlRequest(bucket, key).withMethod(HttpMethod.PUT);
+        request.addRequestParameter("uploadId", UPLOAD_ID);
+        request.addRequestParameter("partNumber", Integer.toString(PART_NUMBER));
+        return sdkClient(credentialsProvider, region).generatePresignedUrl(request);
+    }
+
+    private static AmazonS3 sdkClient(AWSCredentialsProvider credentialsProvider, String region) {
+        return AmazonS3ClientBuilder.standard()
+                   .withRegion(region)
+                   .withCredentials(credentialsProvider)
+                   .build();
+    }
+
+    private static Clock clockAt(String amzDate) {
+        Instant instant = LocalDateTime.parse(amzDate, AMZ_DATE_FORMAT).toInstant(ZoneOffset.UTC);
+        return Clock.fixed(instant, ZoneOffset.UTC);
+    }
+
+    private static String find(Pattern pattern, String url) {
+        Matcher matcher = pattern.matcher(url);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+}
@@ -0,0 +1,132 @@
+package no.unit.nva.fileupload.priming;
+
+import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
+import static no.unit.nva.fileupload.priming.HandlerPriming.PRIMING_BUCKET;
+import static no.unit.nva.fileupload.priming.HandlerPriming.PRIMING_KEY;
+import static no.unit.nva.fileupload.priming.HandlerPriming.PRIMING_UPLOAD_ID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import no.unit.nva.fileupload.util.S3Utils;
+import org.junit.jupiter.api.Test;
+
+class HandlerPrimingTest {
+
+    public static final String PATH = "/create";
+    public static final String CONTENT_TYPE = "application/pdf";
+
+    @Test
+    void shouldInvokeHandlerWithApiGatewayEventBeforeCheckpoint() throws Exception {
+        var handler = new RecordingHandler();
+        var priming = HandlerPriming.register(handler, PATH, Map.of("filename", "priming.pdf"));
+
+        priming.beforeCheckpoint(null);
+
+        assertThat(handler.event.get("path").asText(), is(equalTo(PATH)));
+        assertThat(handler.event.get("body").asText(), containsString("priming.pdf"));
+        assertThat(handler.context.getFunctionName(), is(equalTo(PATH)));
+    }
+
+    @Test
+    void shouldNotFailCheckpointWhenHandlerFails() throws Exception {
+        var handler = mock(RequestStreamHandler.class);
+        doThrow(new IOException()).when(handler).handleRequest(any(), any(), any());
+
+        HandlerPriming.register(handler, PATH, Map.of()).beforeCheckpoint(null);
+
+        verify(handler).handleRequest(any(), any(), any());
+    }
+
+    @Test
+    void shouldRefreshCredentialsAndConnectionsAfterRestore() {
+        HandlerPriming.register(mock(RequestStreamHandler.class), PATH, Map.of()).afterRestore(null);
+
+        assertThat(S3Utils.connectionPoolStats().available(), is(equalTo(0)));
+    }
+
+    @Test
+    void shouldDescribeItselfAsPrimingContext() {
+        var context = new PrimingContext(PATH);
+
+        context.getLogger().log("bytes".getBytes());
+        assertThat(context.getAwsRequestId(), is(equalTo(PrimingContext.PRIMING_REQUEST_ID)));
+        assertThat(context.getLogGroupName(), is(equalTo(PATH)));
+        assertThat(context.getLogStreamName(), is(equalTo(PrimingContext.PRIMING_REQUEST_ID)));
+        assertThat(context.getFunctionVersion(), is(equalTo(PrimingContext.PRIMING_REQUEST_ID)));
+        assertThat(context.getInvokedFunctionArn(), is(equalTo(PATH)));
+        assertThat(context.getIdentity(), is(nullValue()));
+        assertThat(context.getClientContext(), is(nullValue()));
+        assertThat(context.getRemainingTimeInMillis(), is(equalTo(PrimingContext.REMAINING_TIME_MS)));
+        assertThat(context.getMemoryLimitInMB(), is(equalTo(0)));
+    }
+
+    @Test
+    void shouldAnswerMultipartUploadCallsFromMemory() {
+        var s3 = new StubAmazonS3(StubAmazonS3.DEFAULT_MAX_PARTS + 1);
+        var metadata = new ObjectMetadata();
+        metadata.setContentType(CONTENT_TYPE);
+
+        var initiated = s3.initiateMultipartUpload(new InitiateMultipartUploadRequest(PRIMING_BUCKET, PRIMING_KEY,
+                                                                                      metadata));
+        var firstPage = s3.listParts(new ListPartsRequest(PRIMING_BUCKET, PRIMING_KEY, initiated.getUploadId()));
+        final var completed = s3.completeMultipartUpload(new CompleteMultipartUploadRequest(
+            PRIMING_BUCKET, PRIMING_KEY, initiated.getUploadId(), List.of(new PartETag(1, "etag"))));
+        s3.abortMultipartUpload(null);
+
+        assertThat(firstPage.getParts(), hasSize(StubAmazonS3.DEFAULT_MAX_PARTS));
+        assertThat(firstPage.isTruncated(), is(true));
+        assertThat(completed.getKey(), is(equalTo(PRIMING_KEY)));
+        final var head = s3.getObjectMetadata(new GetObjectMetadataRequest(PRIMING_BUCKET, PRIMING_KEY));
+        assertThat(head.getContentType(), is(equalTo(StubAmazonS3.DEFAULT_CONTENT_TYPE)));
+        assertThat(head.getContentLength(),
+                   is(equalTo((StubAmazonS3.DEFAULT_MAX_PARTS + 1) * StubAmazonS3.PART_SIZE)));
+    }
+
+    @Test
+    void shouldDescribeUnknownObjectsAndSignUrlsLocally() {
+        var s3 = new StubAmazonS3();
+        var request = new GeneratePresignedUrlRequest(PRIMING_BUCKET, PRIMING_KEY);
+        request.addRequestParameter("uploadId", PRIMING_UPLOAD_ID);
+        request.addRequestParameter("partNumber", "1");
+
+        var head = s3.getObjectMetadata(new GetObjectMetadataRequest(PRIMING_BUCKET, PRIMING_KEY));
+        var url = s3.generatePresignedUrl(request);
+
+        assertThat(head.getContentType(), is(equalTo(StubAmazonS3.DEFAULT_CONTENT_TYPE)));
+        assertThat(url.getQuery(), containsString(PRIMING_UPLOAD_ID));
+    }
+
+    private static class RecordingHandler implements RequestStreamHandler {
+
+        private JsonNode event;
+        private Context context;
+
+        @Override
+        public void handleRequest(InputStream input, OutputStream output, Context context) throws IOException {
+            this.event = dtoObjectMapper.readTree(input);
+            this.context = context;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package no.unit.nva.fileupload.recording;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HandlerStagesTest {
+
+    public static final String HANDLER = "TestHandler";
+    public static final String HANDLER_STAGE_EVENT = "no.unit.nva.fileupload.HandlerStage";
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void shouldRecordEveryStageOfInvocation() throws Exception {
+        Path destination = tempDir.resolve("stages.jfr");
+        Recording recording = HandlerRecording.start(HandlerRecording.DEFAULT_SETTINGS, destination);
+        String response;
+        try {
+            response = HandlerStages.invocation(HANDLER, () -> {
+                HandlerStages.stage(Stage.VALIDATE, () -> null);
+                return HandlerStages.stage(Stage.PROCESS, () -> HandlerStages.stage(Stage.MAP_RESPONSE,
+                                                                                    () -> "response"));
+            });
+        } finally {
+            recording.stop();
+            recording.close();
+        }
+
+        List<RecordedEvent> events = stageEvents(destination);
+        assertThat(response, is(equalTo("response")));
+        assertThat(events.stream().map(event -> event.getString("stage")).toList(),
+                   containsInAnyOrder(Stage.DESERIALIZE.getLabel(), Stage.VALIDATE.getLabel(),
+                                      Stage.PROCESS.getLabel(), Stage.MAP_RESPONSE.getLabel(),
+                                      Stage.SERIALIZE.getLabel()));
+        assertThat(events.stream().map(event -> event.getString("handler")).toList(), everyItem(is(HANDLER)));
+    }
+
+    @Test
+    void shouldRecordFailedStageAndTimeUntilInvocationEnds() throws Exception {
+        Path destination = tempDir.resolve("failure.jfr");
+        Recording recording = HandlerRecording.start(HandlerRecording.DEFAULT_SETTINGS, destination);
+        try {
+            assertThrows(IOException.class, () -> HandlerStages.invocation(HANDLER, () -> {
+                try {
+                    HandlerStages.stage(Stage.VALIDATE, () -> {
+                        throw new IllegalArgumentException("invalid");
+                    });
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("writing the problem failed", e);
+                }
+                return null;
+            }));
+        } finally {
+            recording.stop();
+            recording.close();
+        }
+
+        assertThat(stageEvents(destination).stream().map(event -> event.getString("stage")).toList(),
+                   containsInAnyOrder(Stage.DESERIALIZE.getLabel(), Stage.VALIDATE.getLabel(),
+                                      Stage.SERIALIZE.getLabel()));
+    }
+
+    @Test
+    void shouldRunStageOutsideInvocationWithoutRecordingIt() throws Exception {
+        Path destination = tempDir.resolve("outside.jfr");
+        Recording recording = HandlerRecording.start(HandlerRecording.DEFAULT_SETTINGS, destination);
+        String result;
+        try {
+            result = HandlerStages.stage(Stage.PROCESS, () -> "result");
+        } finally {
+            recording.stop();
+            recording.close();
+        }
+
+        assertThat(result, is(equalTo("result")));
+        assertThat(stageEvents(destination), is(empty()));
+    }
+
+    @Test
+    void shouldRunInvocationAndStagesWithoutRecordingWhenNoRecordingIsRunning() {
+        String response = HandlerStages.invocation(HANDLER, () -> HandlerStages.stage(Stage.PROCESS, () -> "response"));
+
+        assertThat(response, is(equalTo("response")));
+    }
+
+    // Events of this thread only, as other tests may run handlers meanwhile
+    private static List<RecordedEvent> stageEvents(Path recording) throws IOException {
+        long threadId = Thread.currentThread().getId();
+        return RecordingFile.readAllEvents(recording).stream()
+                   .filter(event -> HANDLER_STAGE_EVENT.equals(event.getEventType().getName()))
+                   .filter(event -> event.getThread() != null && event.getThread().getJavaThreadId() == threadId)
+                   .toList();
+    }
+}
@@ -0,0 +1,53 @@
+package no.unit.nva.fileupload.resilience;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimitTest {
+
+    public static final int MAX_LIMIT = 8;
+
+    @Test
+    void shouldRefusePermitsBeyondLimit() {
+        var limit = new AdaptiveConcurrencyLimit(2);
+
+        assertThat(limit.tryAcquire(), is(true));
+        assertThat(limit.tryAcquire(), is(true));
+        assertThat(limit.tryAcquire(), is(false));
+
+        limit.release();
+        assertThat(limit.tryAcquire(), is(true));
+        assertThat(limit.getInFlight(), is(equalTo(2)));
+    }
+
+    @Test
+    void shouldHalveLimitOnThrottleButKeepOne() {
+        var limit = new AdaptiveConcurrencyLimit(MAX_LIMIT);
+
+        limit.onThrottle();
+        assertThat(limit.getLimit(), is(equalTo(MAX_LIMIT / 2)));
+
+        for (int throttle = 0; throttle < 10; throttle++) {
+            limit.onThrottle();
+        }
+        assertThat(limit.getLimit(), is(equalTo(AdaptiveConcurrencyLimit.MIN_LIMIT)));
+    }
+
+    @Test
+    void shouldGrowBackByAboutOnePerRoundOfSuccessfulCalls() {
+        var limit = new AdaptiveConcurrencyLimit(MAX_LIMIT);
+        limit.onThrottle();
+
+        for (int call = 0; call <= MAX_LIMIT / 2; call++) {
+            limit.onSuccess();
+        }
+        assertThat(limit.getLimit(), is(equalTo(MAX_LIMIT / 2 + 1)));
+
+        for (int call = 0; call < 100; call++) {
+            limit.onSuccess();
+        }
+        assertThat(limit.getLimit(), is(equalTo(MAX_LIMIT)));
+    }
+}
@@ -0,0 +1,97 @@
+package no.unit.nva.fileupload.resilience;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import no.unit.nva.fileupload.resilience.CircuitBreaker.State;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+    public static final int FAILURE_THRESHOLD = 3;
+    public static final Duration OPEN_DURATION = Duration.ofSeconds(5);
+
+    private AtomicLong nanoTime;
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        nanoTime = new AtomicLong();
+        circuitBreaker = new CircuitBreaker(FAILURE_THRESHOLD, OPEN_DURATION, nanoTime::get);
+    }
+
+    @Test
+    void shouldOpenAfterConsecutiveFailures() {
+        fail(FAILURE_THRESHOLD - 1);
+        assertThat(circuitBreaker.tryAcquire(), is(true));
+
+        fail(1);
+
+        assertThat(circuitBreaker.getState(), is(equalTo(State.OPEN)));
+        assertThat(circuitBreaker.tryAcquire(), is(false));
+    }
+
+    @Test
+    void shouldResetFailuresOnSuccess() {
+        fail(FAILURE_THRESHOLD - 1);
+        circuitBreaker.onSuccess();
+        fail(FAILURE_THRESHOLD - 1);
+
+        assertThat(circuitBreaker.getState(), is(equalTo(State.CLOSED)));
+    }
+
+    @Test
+    void shouldLetOneProbeThroughAfterOpenDuration() {
+        fail(FAILURE_THRESHOLD);
+        nanoTime.addAndGet(OPEN_DURATION.toNanos());
+
+        assertThat(circuitBreaker.tryAcquire(), is(true));
+        assertThat(circuitBreaker.getState(), is(equalTo(State.HALF_OPEN)));
+        assertThat(circuitBreaker.tryAcquire(), is(false));
+    }
+
+    @Test
+    void shouldCloseWhenProbeSucceeds() {
+        fail(FAILURE_THRESHOLD);
+        nanoTime.addAndGet(OPEN_DURATION.toNanos());
+        circuitBreaker.tryAcquire();
+
+        circuitBreaker.onSuccess();
+
+        assertThat(circuitBreaker.getState(), is(equalTo(State.CLOSED)));
+        assertThat(circuitBreaker.tryAcquire(), is(true));
+    }
+
+    @Test
+    void shouldOpenAgainWhenProbeFails() {
+        fail(FAILURE_THRESHOLD);
+        nanoTime.addAndGet(OPEN_DURATION.toNanos());
+        circuitBreaker.tryAcquire();
+
+        fail(1);
+
+        assertThat(circuitBreaker.getState(), is(equalTo(State.OPEN)));
+        assertThat(circuitBreaker.tryAcquire(), is(false));
+    }
+
+    @Test
+    void shouldLetAnotherProbeThroughWhenProbeIsInconclusive() {
+        fail(FAILURE_THRESHOLD);
+        nanoTime.addAndGet(OPEN_DURATION.toNanos());
+        circuitBreaker.tryAcquire();
+
+        circuitBreaker.onInconclusive();
+
+        assertThat(circuitBreaker.getState(), is(equalTo(State.HALF_OPEN)));
+        assertThat(circuitBreaker.tryAcquire(), is(true));
+    }
+
+    private void fail(int failures) {
+        for (int failure = 0; failure < failures; failure++) {
+            circuitBreaker.onFailure();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package no.unit.nva.fileupload.resilience;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import com.amazonaws.services.lambda.runtime.Context;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DeadlineTest {
+
+    public static final Duration RESERVE = Duration.ofSeconds(1);
+
+    private AtomicLong nanoTime;
+    private Context context;
+
+    @BeforeEach
+    void setUp() {
+        nanoTime = new AtomicLong();
+        context = mock(Context.class);
+    }
+
+    @Test
+    void shouldKeepReserveBackFromRemainingTimeOfInvocation() {
+        when(context.getRemainingTimeInMillis()).thenReturn(20_000);
+
+        var deadline = Deadline.fromContext(context, RESERVE, nanoTime::get);
+        nanoTime.addAndGet(Duration.ofSeconds(4).toNanos());
+
+        assertThat(deadline.remaining(), is(equalTo(Optional.of(Duration.ofSeconds(15)))));
+    }
+
+    @Test
+    void shouldHaveNoDeadlineWhenContextDoesNotTellRemainingTime() {
+        when(context.getRemainingTimeInMillis()).thenReturn(0);
+
+        assertThat(Deadline.fromContext(context).isKnown(), is(false));
+        assertThat(Deadline.fromContext(null).remaining(), is(equalTo(Optional.empty())));
+    }
+
+    @Test
+    void shouldNeverReportNegativeRemainingTime() {
+        when(context.getRemainingTimeInMillis()).thenReturn(500);
+
+        var deadline = Deadline.fromContext(context, RESERVE, nanoTime::get);
+
+        assertThat(deadline.remaining(), is(equalTo(Optional.of(Duration.ZERO))));
+    }
+
+    @Test
+    void shouldBeCurrentOnlyWhileWorkRuns() {
+        var deadline = Deadline.after(Duration.ofSeconds(1), nanoTime::get);
+
+        var current = deadline.call(Deadline::current);
+
+        assertThat(current, is(sameInstance(deadline)));
+        assertThat(Deadline.current(), is(sameInstance(Deadline.none())));
+        assertThrows(IOException.class, () -> deadline.call(() -> {
+            throw new IOException("failed");
+        }));
+        assertThat(Deadline.current(), is(sameInstance(Deadline.none())));
+    }
+
+    @Test
+    void shouldPropagateDeadlineToTasksOfWrappedExecutor() {
+        var deadline = Deadline.after(Duration.ofSeconds(1), nanoTime::get);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            var executorWithDeadline = Deadline.propagating(executor);
+
+            var current = deadline.call(() -> CompletableFuture.supplyAsync(Deadline::current, executorWithDeadline))
+                              .join();
+
+            assertThat(current, is(sameInstance(deadline)));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package no.unit.nva.fileupload.resilience;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import org.junit.jupiter.api.Test;
+
+class HedgeBudgetTest {
+
+    @Test
+    void shouldAllowBurstUpToMaxTokens() {
+        var budget = new HedgeBudget(0.1, 2);
+
+        assertThat(budget.tryAcquire(), is(true));
+        assertThat(budget.tryAcquire(), is(true));
+        assertThat(budget.tryAcquire(), is(false));
+    }
+
+    @Test
+    void shouldEarnHedgeBackAfterEnoughRequests() {
+        var budget = new HedgeBudget(0.25, 1);
+        budget.tryAcquire();
+
+        for (int i = 0; i < 3; i++) {
+            budget.onRequest();
+        }
+        assertThat(budget.tryAcquire(), is(false));
+
+        for (int i = 0; i < 4; i++) {
+            budget.onRequest();
+        }
+        assertThat(budget.tryAcquire(), is(true));
+    }
+
+    @Test
+    void shouldNotSaveMoreThanMaxTokens() {
+        var budget = new HedgeBudget(1, 1);
+
+        for (int i = 0; i < 10; i++) {
+            budget.onRequest();
+        }
+
+        assertThat(budget.tryAcquire(), is(true));
+        assertThat(budget.tryAcquire(), is(false));
+    }
+}
@@ -0,0 +1,45 @@
+package no.unit.nva.fileupload.resilience;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import java.time.Duration;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class LatencyTrackerTest {
+
+    @Test
+    void shouldEstimateNothingUntilEnoughSamplesAreRecorded() {
+        var tracker = new LatencyTracker(10, 3);
+        tracker.record(Duration.ofMillis(5));
+        tracker.record(Duration.ofMillis(5));
+
+        assertThat(tracker.percentile(50), is(equalTo(Optional.empty())));
+    }
+
+    @Test
+    void shouldEstimatePercentileOfRecordedSamples() {
+        var tracker = new LatencyTracker(100, 1);
+        for (int millis = 1; millis <= 100; millis++) {
+            tracker.record(Duration.ofMillis(millis));
+        }
+
+        assertThat(tracker.percentile(95), is(equalTo(Optional.of(Duration.ofMillis(95)))));
+        assertThat(tracker.percentile(100), is(equalTo(Optional.of(Duration.ofMillis(100)))));
+        assertThat(tracker.percentile(0), is(equalTo(Optional.of(Duration.ofMillis(1)))));
+    }
+
+    @Test
+    void shouldForgetSamplesOlderThanWindow() {
+        var tracker = new LatencyTracker(4, 1);
+        for (int i = 0; i < 4; i++) {
+            tracker.record(Duration.ofSeconds(10));
+        }
+        for (int i = 0; i < 4; i++) {
+            tracker.record(Duration.ofMillis(10));
+        }
+
+        assertThat(tracker.percentile(100), is(equalTo(Optional.of(Duration.ofMillis(10)))));
+    }
+}
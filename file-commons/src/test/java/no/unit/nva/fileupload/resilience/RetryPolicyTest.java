@@ -0,0 +1,46 @@
+package no.unit.nva.fileupload.resilience;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import java.time.Duration;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class RetryPolicyTest {
+
+    public static final Duration BASE_DELAY = Duration.ofMillis(50);
+    public static final Duration MAX_DELAY = Duration.ofSeconds(1);
+    public static final RetryPolicy POLICY =
+        new RetryPolicy(3, BASE_DELAY, MAX_DELAY, Duration.ofSeconds(2), Duration.ofSeconds(5));
+
+    @Test
+    void shouldDrawDelayBetweenBaseAndThreeTimesPreviousDelay() {
+        var random = new Random(1);
+        var previous = Duration.ofMillis(100);
+
+        for (int draw = 0; draw < 1000; draw++) {
+            var delay = POLICY.nextDelay(previous, random);
+            assertThat(delay, is(greaterThanOrEqualTo(BASE_DELAY)));
+            assertThat(delay, is(lessThanOrEqualTo(previous.multipliedBy(3))));
+        }
+    }
+
+    @Test
+    void shouldCapDelayAtMaximum() {
+        var random = new Random(1);
+        var delay = BASE_DELAY;
+
+        for (int draw = 0; draw < 100; draw++) {
+            delay = POLICY.nextDelay(delay, random);
+            assertThat(delay, is(lessThanOrEqualTo(MAX_DELAY)));
+        }
+    }
+
+    @Test
+    void shouldUseBaseDelayWhenPreviousDelayIsZero() {
+        assertThat(POLICY.nextDelay(Duration.ZERO, new Random(1)), is(equalTo(BASE_DELAY)));
+    }
+}
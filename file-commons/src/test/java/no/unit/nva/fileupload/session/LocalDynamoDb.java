@@ -0,0 +1,72 @@
+package no.unit.nva.fileupload.session;
+
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemResult;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stand-in for a DynamoDB table with a string partition key, keeping the items in memory. Deletes honour a
+ * condition expression comparing one attribute with a value, as in {@code #name = :value}.
+ */
+public class LocalDynamoDb extends AbstractAmazonDynamoDB {
+
+    private final String partitionKey;
+    private final Map<String, Map<String, Map<String, AttributeValue>>> tables = new ConcurrentHashMap<>();
+
+    public LocalDynamoDb(String partitionKey) {
+        super();
+        this.partitionKey = partitionKey;
+    }
+
+    @Override
+    public PutItemResult putItem(PutItemRequest request) {
+        String key = request.getItem().get(partitionKey).getS();
+        table(request.getTableName()).put(key, new HashMap<>(request.getItem()));
+        return new PutItemResult();
+    }
+
+    @Override
+    public GetItemResult getItem(GetItemRequest request) {
+        String key = request.getKey().get(partitionKey).getS();
+        return new GetItemResult().withItem(table(request.getTableName()).get(key));
+    }
+
+    @Override
+    public DeleteItemResult deleteItem(DeleteItemRequest request) {
+        Map<String, Map<String, AttributeValue>> table = table(request.getTableName());
+        String key = request.getKey().get(partitionKey).getS();
+        synchronized (table) {
+            if (!matchesCondition(request, table.get(key))) {
+                throw new ConditionalCheckFailedException("The conditional request failed");
+            }
+            table.remove(key);
+        }
+        return new DeleteItemResult();
+    }
+
+    public Map<String, AttributeValue> item(String tableName, String key) {
+        return table(tableName).get(key);
+    }
+
+    private static boolean matchesCondition(DeleteItemRequest request, Map<String, AttributeValue> item) {
+        if (request.getConditionExpression() == null) {
+            return true;
+        }
+        String[] operands = request.getConditionExpression().split(" = ");
+        String attribute = request.getExpressionAttributeNames().getOrDefault(operands[0], operands[0]);
+        return item != null && request.getExpressionAttributeValues().get(operands[1]).equals(item.get(attribute));
+    }
+
+    private Map<String, Map<String, AttributeValue>> table(String tableName) {
+        return tables.computeIfAbsent(tableName, name -> new ConcurrentHashMap<>());
+    }
+}
@@ -0,0 +1,170 @@
+package no.unit.nva.fileupload.session;
+
+import static no.unit.nva.fileupload.session.DynamoDbUploadSessionStore.DEFAULT_TIME_TO_LIVE;
+import static no.unit.nva.fileupload.session.DynamoDbUploadSessionStore.EXPIRES_AT_ATTRIBUTE;
+import static no.unit.nva.fileupload.session.DynamoDbUploadSessionStore.KEY_ATTRIBUTE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.stream.Stream;
+import no.unit.nva.fileupload.util.S3Constants;
+import nva.commons.core.Environment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class UploadSessionStoreTest {
+
+    public static final String TABLE_NAME = "sessions";
+    public static final String KEY = "key";
+    public static final String UPLOAD_ID = "uploadId";
+    public static final Instant CREATED_AT = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    public static final UploadSession SESSION =
+        new UploadSession(KEY, UPLOAD_ID, "filename.pdf", "application/pdf", 1024L, CREATED_AT);
+
+    static Stream<UploadSessionStore> stores() {
+        return Stream.of(new InMemoryUploadSessionStore(),
+                         new DynamoDbUploadSessionStore(new LocalDynamoDb(KEY_ATTRIBUTE), TABLE_NAME));
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void shouldReturnStoredSession(UploadSessionStore store) {
+        store.put(SESSION);
+
+        assertThat(store.get(KEY, UPLOAD_ID), is(equalTo(Optional.of(SESSION))));
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void shouldKeepSessionWithoutSize(UploadSessionStore store) {
+        var session = new UploadSession(KEY, UPLOAD_ID, "filename.pdf", "application/pdf", null, CREATED_AT);
+        store.put(session);
+
+        assertThat(store.get(KEY, UPLOAD_ID), is(equalTo(Optional.of(session))));
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void shouldKeepCompletionOfSession(UploadSessionStore store) {
+        var completed = SESSION.completed(new UploadCompletion("location", "filename.pdf", "application/pdf", 1024L));
+        store.put(completed);
+
+        assertThat(store.get(KEY, UPLOAD_ID), is(equalTo(Optional.of(completed))));
+        assertThat(store.get(KEY, UPLOAD_ID).flatMap(UploadSession::getCompletion),
+                   is(equalTo(completed.getCompletion())));
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void shouldNotReturnSessionOfAnotherUpload(UploadSessionStore store) {
+        store.put(SESSION);
+
+        assertThat(store.get(KEY, "otherUploadId"), is(equalTo(Optional.empty())));
+        assertThat(store.get("otherKey", UPLOAD_ID), is(equalTo(Optional.empty())));
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void shouldForgetDeletedSession(UploadSessionStore store) {
+        store.put(SESSION);
+
+        store.delete(KEY, UPLOAD_ID);
+
+        assertThat(store.get(KEY, UPLOAD_ID), is(equalTo(Optional.empty())));
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void shouldKeepSessionWhenDeletingAnotherUploadOfSameKey(UploadSessionStore store) {
+        store.put(SESSION);
+
+        store.delete(KEY, "otherUploadId");
+
+        assertThat(store.get(KEY, UPLOAD_ID), is(equalTo(Optional.of(SESSION))));
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void shouldIgnoreDeleteOfUnknownSession(UploadSessionStore store) {
+        store.delete(KEY, UPLOAD_ID);
+
+        assertThat(store.get(KEY, UPLOAD_ID), is(equalTo(Optional.empty())));
+    }
+
+    @Test
+    void shouldDropLeastRecentlyUsedSessionsBeyondCapacity() {
+        var store = new InMemoryUploadSessionStore(2);
+        var second = new UploadSession("second", UPLOAD_ID, null, null, null, CREATED_AT);
+        var third = new UploadSession("third", UPLOAD_ID, null, null, null, CREATED_AT);
+        store.put(SESSION);
+        store.put(second);
+        store.get(KEY, UPLOAD_ID);
+
+        store.put(third);
+
+        assertThat(store.get(KEY, UPLOAD_ID), is(equalTo(Optional.of(SESSION))));
+        assertThat(store.get("second", UPLOAD_ID), is(equalTo(Optional.empty())));
+        assertThat(store.get("third", UPLOAD_ID), is(equalTo(Optional.of(third))));
+    }
+
+    @Test
+    void shouldExpireItemsAfterTimeToLive() {
+        var dynamoDb = new LocalDynamoDb(KEY_ATTRIBUTE);
+        new DynamoDbUploadSessionStore(dynamoDb, TABLE_NAME).put(SESSION);
+
+        var expiresAt = dynamoDb.item(TABLE_NAME, KEY).get(EXPIRES_AT_ATTRIBUTE).getN();
+
+        assertThat(Long.parseLong(expiresAt), is(equalTo(CREATED_AT.plus(DEFAULT_TIME_TO_LIVE).getEpochSecond())));
+    }
+
+    @Test
+    void shouldNotFailWhenTableIsUnavailable() {
+        var dynamoDb = mock(AmazonDynamoDB.class);
+        when(dynamoDb.putItem(any(PutItemRequest.class))).thenThrow(new AmazonServiceException("Throttled"));
+        when(dynamoDb.getItem(any(GetItemRequest.class))).thenThrow(new AmazonServiceException("Throttled"));
+        when(dynamoDb.deleteItem(any(DeleteItemRequest.class))).thenThrow(new AmazonServiceException("Throttled"));
+        var store = new DynamoDbUploadSessionStore(dynamoDb, TABLE_NAME);
+
+        store.put(SESSION);
+        store.delete(KEY, UPLOAD_ID);
+
+        assertThat(store.get(KEY, UPLOAD_ID), is(equalTo(Optional.empty())));
+    }
+
+    @Test
+    void shouldKeepSessionsInSharedMemoryWhenNoTableIsConfigured() {
+        var store = UploadSessionStores.fromEnvironment(environment(Optional.empty()));
+
+        assertThat(store, is(sameInstance(InMemoryUploadSessionStore.shared())));
+    }
+
+    @Test
+    void shouldKeepSessionsInConfiguredTable() {
+        var store = UploadSessionStores.fromEnvironment(environment(Optional.of(TABLE_NAME)));
+
+        assertThat(store, is(instanceOf(DynamoDbUploadSessionStore.class)));
+    }
+
+    private static Environment environment(Optional<String> table) {
+        Environment environment = mock(Environment.class);
+        when(environment.readEnv(S3Constants.AWS_REGION_KEY)).thenReturn("eu-west-1");
+        when(environment.readEnvOpt(anyString())).thenReturn(Optional.empty());
+        when(environment.readEnvOpt(UploadSessionStores.UPLOAD_SESSION_TABLE_KEY)).thenReturn(table);
+        return environment;
+    }
+}
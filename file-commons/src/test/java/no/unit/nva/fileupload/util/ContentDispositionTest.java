@@ -0,0 +1,29 @@
+package no.unit.nva.fileupload.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class ContentDispositionTest {
+
+    @ParameterizedTest
+    @CsvSource({"filename.pdf,filename=\"filename.pdf\"", "ø.pdf,filename=\"\\u00F8.pdf\""})
+    void shouldEscapeNonAsciiCharactersInFileName(String filename, String expected) {
+        assertThat(ContentDisposition.forFileName(filename), is(equalTo(expected)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"filename.pdf", "Screenshot 2023-08-17 at 19.18.56.png", "\\u00F8.pdf", ""})
+    void shouldReadBackFileNameWrittenAtCreate(String filename) {
+        assertThat(ContentDisposition.toFileName(ContentDisposition.forFileName(filename)), is(equalTo(filename)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"filename.pdf", ""})
+    void shouldReturnWholeValueWhenNotOnFileNameForm(String contentDisposition) {
+        assertThat(ContentDisposition.toFileName(contentDisposition), is(equalTo(contentDisposition)));
+    }
+}
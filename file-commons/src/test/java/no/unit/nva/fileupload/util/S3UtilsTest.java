@@ -0,0 +1,74 @@
+package no.unit.nva.fileupload.util;
+
+import static no.unit.nva.fileupload.util.S3ClientConfiguration.CONNECTION_TTL_MS_KEY;
+import static no.unit.nva.fileupload.util.S3ClientConfiguration.DEFAULT_MAX_CONNECTIONS;
+import static no.unit.nva.fileupload.util.S3ClientConfiguration.DEFAULT_TCP_KEEP_ALIVE;
+import static no.unit.nva.fileupload.util.S3ClientConfiguration.MAX_CONNECTIONS_KEY;
+import static no.unit.nva.fileupload.util.S3ClientConfiguration.TCP_KEEP_ALIVE_KEY;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.util.Optional;
+import nva.commons.core.Environment;
+import org.junit.jupiter.api.Test;
+
+class S3UtilsTest {
+
+    public static final String REGION = "eu-west-1";
+
+    @Test
+    void shouldUseDefaultsWhenEnvironmentIsEmpty() {
+        var configuration = S3ClientConfiguration.fromEnvironment(emptyEnvironment());
+
+        assertThat(configuration.getMaxConnections(), is(equalTo(DEFAULT_MAX_CONNECTIONS)));
+        assertThat(configuration.useTcpKeepAlive(), is(equalTo(DEFAULT_TCP_KEEP_ALIVE)));
+    }
+
+    @Test
+    void shouldReadClientSettingsFromEnvironment() {
+        var environment = emptyEnvironment();
+        when(environment.readEnvOpt(MAX_CONNECTIONS_KEY)).thenReturn(Optional.of("7"));
+        when(environment.readEnvOpt(CONNECTION_TTL_MS_KEY)).thenReturn(Optional.of("1234"));
+        when(environment.readEnvOpt(TCP_KEEP_ALIVE_KEY)).thenReturn(Optional.of("false"));
+
+        var configuration = S3ClientConfiguration.fromEnvironment(environment);
+
+        assertThat(configuration.getMaxConnections(), is(equalTo(7)));
+        assertThat(configuration.getConnectionTTL(), is(equalTo(1234L)));
+        assertThat(configuration.useTcpKeepAlive(), is(equalTo(false)));
+    }
+
+    @Test
+    void shouldShareOneClientAcrossCallers() {
+        var environment = emptyEnvironment();
+
+        var first = S3Utils.sharedAmazonS3Client(environment);
+        var second = S3Utils.sharedAmazonS3Client(environment);
+
+        assertThat(second, is(sameInstance(first)));
+    }
+
+    @Test
+    void shouldExposeConnectionPoolStatistics() {
+        S3Utils.sharedAmazonS3Client(emptyEnvironment());
+
+        var stats = S3Utils.connectionPoolStats();
+
+        assertThat(stats.max(), is(greaterThanOrEqualTo(1)));
+        assertThat(stats.leased(), is(equalTo(0)));
+        assertThat(stats.pending(), is(equalTo(0)));
+        assertThat(stats.available(), is(greaterThanOrEqualTo(0)));
+    }
+
+    private static Environment emptyEnvironment() {
+        Environment environment = mock(Environment.class);
+        when(environment.readEnv(S3Constants.AWS_REGION_KEY)).thenReturn(REGION);
+        when(environment.readEnvOpt(anyString())).thenReturn(Optional.empty());
+        return environment;
+    }
+}
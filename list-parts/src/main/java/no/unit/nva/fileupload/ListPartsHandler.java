@@ -1,18 +1,47 @@
 package no.unit.nva.fileupload;
 
 import static java.util.Objects.requireNonNull;
-import static no.unit.nva.fileupload.util.S3Constants.AWS_REGION_KEY;
-import static no.unit.nva.fileupload.util.S3Utils.createAmazonS3Client;
+import static no.unit.nva.fileupload.priming.HandlerPriming.PRIMING_BUCKET;
+import static no.unit.nva.fileupload.priming.HandlerPriming.PRIMING_KEY;
+import static no.unit.nva.fileupload.priming.HandlerPriming.PRIMING_UPLOAD_ID;
+import static no.unit.nva.fileupload.util.S3Utils.sharedAmazonS3Client;
 import static org.apache.http.HttpStatus.SC_OK;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.ListPartsRequest;
 import com.amazonaws.services.s3.model.PartListing;
-import java.util.ArrayList;
+import com.amazonaws.services.s3.model.PartSummary;
+import com.google.common.net.HttpHeaders;
+import com.google.common.net.MediaType;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 import no.unit.nva.fileupload.exception.InvalidInputException;
 import no.unit.nva.fileupload.exception.NotFoundException;
+import no.unit.nva.fileupload.exception.ServiceUnavailableException;
+import no.unit.nva.fileupload.gateway.BlockingS3Gateway;
+import no.unit.nva.fileupload.gateway.ExecutorAsyncS3Gateway;
+import no.unit.nva.fileupload.gateway.HedgingS3Gateway;
+import no.unit.nva.fileupload.gateway.MeteredS3Gateway;
+import no.unit.nva.fileupload.gateway.ParallelPartLister;
+import no.unit.nva.fileupload.gateway.PartListingCache;
+import no.unit.nva.fileupload.gateway.ResilientS3Gateway;
+import no.unit.nva.fileupload.gateway.S3Gateway;
+import no.unit.nva.fileupload.metrics.HandlerInvocations;
+import no.unit.nva.fileupload.metrics.InvocationMetrics;
+import no.unit.nva.fileupload.metrics.MetricUnit;
+import no.unit.nva.fileupload.priming.HandlerPriming;
+import no.unit.nva.fileupload.priming.StubAmazonS3;
+import no.unit.nva.fileupload.recording.HandlerRecording;
+import no.unit.nva.fileupload.recording.HandlerStages;
+import no.unit.nva.fileupload.recording.Stage;
+import no.unit.nva.fileupload.resilience.Deadline;
+import no.unit.nva.fileupload.resilience.S3UnavailableException;
 import no.unit.nva.fileupload.util.S3Constants;
 import nva.commons.apigateway.ApiGatewayHandler;
 import nva.commons.apigateway.RequestInfo;
@@ -27,9 +56,19 @@ public class ListPartsHandler extends ApiGatewayHandler<ListPartsRequestBody, Li
 
     private static final Logger logger = LoggerFactory.getLogger(ListPartsHandler.class);
     public static final String S3_ERROR = "S3 error";
+    public static final String S3_UNAVAILABLE = "S3 is unavailable, try again later";
+    // S3 returns at most 1000 parts per ListParts call
+    public static final int MAX_PARTS_PER_PAGE = 1000;
+    public static final String INVALID_MAX_PARTS = "maxParts must be between 1 and %d";
+    public static final String INVALID_PART_NUMBER_MARKER = "partNumberMarker must not be negative";
+    // Opt-in representation writing the parts as parallel arrays of numbers and ETags, see ListPartsResponseBody
+    public static final MediaType COLUMNAR_MEDIA_TYPE = MediaType.create("application", "vnd.nva.parts.columnar+json");
 
     private final transient String bucketName;
-    private final transient AmazonS3 s3Client;
+    private final transient S3Gateway s3Gateway;
+    private final transient ParallelPartLister partLister;
+    private final transient PartListingCache partListingCache;
+    private final transient InvocationMetrics metrics;
 
     /**
      * Default constructor for ListPartsHandler.
@@ -48,64 +87,180 @@ public class ListPartsHandler extends ApiGatewayHandler<ListPartsRequestBody, Li
     public ListPartsHandler(Environment environment) {
         this(
                 environment,
-                createAmazonS3Client(environment.readEnv(AWS_REGION_KEY)),
-                environment.readEnv(S3Constants.S3_UPLOAD_BUCKET_KEY)
+                HedgingS3Gateway.fromEnvironment(
+                    environment,
+                    ResilientS3Gateway.shared(
+                        environment,
+                        new MeteredS3Gateway(new BlockingS3Gateway(sharedAmazonS3Client(environment)),
+                                             InvocationMetrics.shared(environment)))),
+                environment.readEnv(S3Constants.S3_UPLOAD_BUCKET_KEY),
+                PartListingCache.shared(environment),
+                InvocationMetrics.shared(environment)
         );
+        HandlerRecording.startFromEnvironment(environment);
+        HandlerPriming.register(primingHandler(environment), "/listparts",
+                                new ListPartsRequestBody(PRIMING_UPLOAD_ID, PRIMING_KEY));
+    }
+
+    /**
+     * Handler used to prime the SnapStart snapshot, calling a stub S3 instead of AWS.
+     */
+    @JacocoGenerated
+    private static ListPartsHandler primingHandler(Environment environment) {
+        return new ListPartsHandler(environment, new StubAmazonS3(), PRIMING_BUCKET);
     }
 
     /**
      * Constructor for lambda event handler to create an upload request for S3.
      */
     public ListPartsHandler(Environment environment, AmazonS3 s3Client, String bucketName) {
+        this(environment, new BlockingS3Gateway(s3Client), bucketName);
+    }
+
+    /**
+     * Construct for lambda event handler calling S3 through the given gateway.
+     */
+    public ListPartsHandler(Environment environment, S3Gateway s3Gateway, String bucketName) {
+        this(environment, s3Gateway, bucketName, new PartListingCache());
+    }
+
+    /**
+     * Construct for lambda event handler calling S3 through the given gateway and serving complete listings from the
+     * given cache.
+     */
+    public ListPartsHandler(Environment environment, S3Gateway s3Gateway, String bucketName,
+                            PartListingCache partListingCache) {
+        this(environment, s3Gateway, bucketName, partListingCache, InvocationMetrics.disabled());
+    }
+
+    /**
+     * Construct for lambda event handler as above, recording the metrics of every invocation.
+     */
+    public ListPartsHandler(Environment environment, S3Gateway s3Gateway, String bucketName,
+                            PartListingCache partListingCache, InvocationMetrics metrics) {
         super(ListPartsRequestBody.class, environment);
         this.bucketName = bucketName;
-        this.s3Client = s3Client;
+        this.s3Gateway = s3Gateway;
+        this.partLister = new ParallelPartLister(new ExecutorAsyncS3Gateway(s3Gateway));
+        this.partListingCache = partListingCache;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void handleRequest(InputStream inputStream, OutputStream outputStream, Context context)
+        throws IOException {
+        HandlerInvocations.handle(metrics, getClass().getSimpleName(),
+                                  () -> super.handleRequest(inputStream, outputStream, context));
     }
 
     @Override
     protected void validateRequest(ListPartsRequestBody listPartsRequestBody, RequestInfo requestInfo, Context context)
         throws ApiGatewayException {
-        validate(listPartsRequestBody);
+        HandlerInvocations.validate(metrics, () -> validate(listPartsRequestBody));
     }
 
     @Override
     protected ListPartsResponseBody processInput(ListPartsRequestBody input, RequestInfo requestInfo,
                                                  Context context) throws ApiGatewayException {
+        boolean columnar = acceptsColumnar(requestInfo);
+        Deadline deadline = Deadline.fromContext(context);
+        return HandlerInvocations.process(metrics, () -> deadline.call(() -> listParts(input, columnar)));
+    }
 
-        ListPartsRequest listPartsRequest = toListPartsRequest(input);
-        List<ListPartsElement> listParts = getListParts(listPartsRequest);
-        return ListPartsResponseBody.of(listParts);
+    private ListPartsResponseBody listParts(ListPartsRequestBody input, boolean columnar) throws ApiGatewayException {
+        ListPartsRequest listPartsRequest = input.toListPartsRequest(bucketName);
+        if (input.isPaginated()) {
+            PartListing page = getPage(listPartsRequest);
+            metrics.put(InvocationMetrics.PARTS, page.getParts().size(), MetricUnit.COUNT);
+            return HandlerStages.stage(Stage.MAP_RESPONSE, () -> columnar
+                       ? ListPartsResponseBody.columnarPage(page.getParts(), page.isTruncated(),
+                                                            page.getNextPartNumberMarker())
+                       : ListPartsResponseBody.page(toElements(page.getParts()), page.isTruncated(),
+                                                    page.getNextPartNumberMarker()));
+        }
+        List<PartSummary> parts = getListParts(listPartsRequest);
+        metrics.put(InvocationMetrics.PARTS, parts.size(), MetricUnit.COUNT);
+        return HandlerStages.stage(Stage.MAP_RESPONSE, () -> columnar
+                                                                 ? ListPartsResponseBody.columnar(parts)
+                                                                 : ListPartsResponseBody.of(toElements(parts)));
     }
 
-    private ListPartsRequest toListPartsRequest(ListPartsRequestBody input) {
-        return new ListPartsRequest(bucketName, input.getKey(), input.getUploadId());
+    @Override
+    protected List<MediaType> listSupportedMediaTypes() {
+        return List.of(MediaType.JSON_UTF_8, COLUMNAR_MEDIA_TYPE);
     }
 
-    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
-    private List<ListPartsElement> getListParts(ListPartsRequest listPartsRequest) throws NotFoundException {
-        List<ListPartsElement> listPartsElements = new ArrayList<>();
+    /**
+     * Whether the client prefers the columnar representation: the columnar media type is listed in Accept before
+     * any media range covering JSON.
+     */
+    private static boolean acceptsColumnar(RequestInfo requestInfo) {
+        String accept = requestInfo.getHeaders().entrySet().stream()
+                            .filter(header -> HttpHeaders.ACCEPT.equalsIgnoreCase(header.getKey()))
+                            .map(Map.Entry::getValue)
+                            .findFirst()
+                            .orElse("");
+        for (String mediaRange : accept.split(",")) {
+            Optional<MediaType> mediaType = parseMediaType(mediaRange);
+            if (mediaType.isPresent() && COLUMNAR_MEDIA_TYPE.equals(mediaType.get())) {
+                return true;
+            }
+            if (mediaType.isPresent() && MediaType.JSON_UTF_8.withoutParameters().is(mediaType.get())) {
+                return false;
+            }
+        }
+        return false;
+    }
 
+    private static Optional<MediaType> parseMediaType(String mediaRange) {
         try {
-            PartListing partListing = s3Client.listParts(listPartsRequest);
-            boolean moreParts = true;
-            while (moreParts) {
-                partListing.getParts()
-                        .stream()
-                        .map(ListPartsElement::of)
-                        .forEach(listPartsElements::add);
-                if (partListing.isTruncated()) {
-                    Integer partNumberMarker = partListing.getNextPartNumberMarker();
-                    listPartsRequest.setPartNumberMarker(partNumberMarker);
-                    partListing = s3Client.listParts(listPartsRequest);
-                } else {
-                    moreParts = false;
-                }
-            }
+            return Optional.of(MediaType.parse(mediaRange.trim()).withoutParameters());
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private PartListing getPage(ListPartsRequest listPartsRequest)
+        throws NotFoundException, ServiceUnavailableException {
+        try {
+            return s3Gateway.listParts(listPartsRequest);
+        } catch (AmazonS3Exception e) {
+            throw new NotFoundException(S3_ERROR, e);
+        } catch (S3UnavailableException e) {
+            throw new ServiceUnavailableException(S3_UNAVAILABLE, e);
+        }
+    }
+
+    private List<PartSummary> getListParts(ListPartsRequest listPartsRequest)
+        throws NotFoundException, ServiceUnavailableException {
+        long hits = partListingCache.getHits();
+        long misses = partListingCache.getMisses();
+        try {
+            return partListingCache.get(listPartsRequest.getKey(), listPartsRequest.getUploadId(),
+                                        () -> partLister.listParts(listPartsRequest));
         } catch (AmazonS3Exception e) {
             throw new NotFoundException(S3_ERROR, e);
+        } catch (S3UnavailableException e) {
+            throw new ServiceUnavailableException(S3_UNAVAILABLE, e);
+        } finally {
+            recordCacheUse(hits, misses);
         }
+    }
+
+    /**
+     * Records how this invocation used the part listing cache. Lambda runs one invocation at a time per instance, so
+     * the counters of the cache only moved for this invocation.
+     */
+    private void recordCacheUse(long hitsBefore, long missesBefore) {
+        metrics.put(PartListingCache.HITS_METRIC, partListingCache.getHits() - hitsBefore, MetricUnit.COUNT);
+        metrics.put(PartListingCache.MISSES_METRIC, partListingCache.getMisses() - missesBefore, MetricUnit.COUNT);
+        metrics.put(PartListingCache.CACHED_PARTS_METRIC, partListingCache.getCachedParts(), MetricUnit.COUNT);
+    }
 
-        return listPartsElements;
+    private static List<ListPartsElement> toElements(List<PartSummary> parts) {
+        return parts.stream()
+                   .map(ListPartsElement::of)
+                   .collect(Collectors.toList());
     }
 
     private void validate(ListPartsRequestBody input) throws InvalidInputException {
@@ -113,12 +268,22 @@ public class ListPartsHandler extends ApiGatewayHandler<ListPartsRequestBody, Li
             requireNonNull(input);
             requireNonNull(input.getKey());
             requireNonNull(input.getUploadId());
+            validatePagination(input);
         } catch (Exception e) {
             logger.warn(e.getMessage());
             throw new InvalidInputException(e);
         }
     }
 
+    private static void validatePagination(ListPartsRequestBody input) {
+        if (input.getMaxParts() != null && (input.getMaxParts() < 1 || input.getMaxParts() > MAX_PARTS_PER_PAGE)) {
+            throw new IllegalArgumentException(String.format(INVALID_MAX_PARTS, MAX_PARTS_PER_PAGE));
+        }
+        if (input.getPartNumberMarker() != null && input.getPartNumberMarker() < 0) {
+            throw new IllegalArgumentException(INVALID_PART_NUMBER_MARKER);
+        }
+    }
+
     @Override
     protected Integer getSuccessStatusCode(ListPartsRequestBody input, ListPartsResponseBody output) {
         return SC_OK;
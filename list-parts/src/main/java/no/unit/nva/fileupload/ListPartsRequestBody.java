@@ -1,19 +1,38 @@
 package no.unit.nva.fileupload;
 
+import com.amazonaws.services.s3.model.ListPartsRequest;
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class ListPartsRequestBody {
 
     private final String uploadId;
     private final String key;
+    private final Integer maxParts;
+    private final Integer partNumberMarker;
 
+    public ListPartsRequestBody(String uploadId, String key) {
+        this(uploadId, key, null, null);
+    }
+
+    /**
+     * Creates a request to list the uploaded parts of an upload.
+     * @param uploadId identifier of the upload from create
+     * @param key bucket key identifying the s3 object
+     * @param maxParts optional maximum number of parts to return in one page
+     * @param partNumberMarker optional part number after which the page starts
+     */
     @JsonCreator
     public ListPartsRequestBody(
             @JsonProperty("uploadId") String uploadId,
-            @JsonProperty("key") String key) {
+            @JsonProperty("key") String key,
+            @JsonProperty("maxParts") Integer maxParts,
+            @JsonProperty("partNumberMarker") Integer partNumberMarker) {
         this.uploadId = uploadId;
         this.key = key;
+        this.maxParts = maxParts;
+        this.partNumberMarker = partNumberMarker;
     }
 
     public String getUploadId() {
@@ -23,4 +42,37 @@ public class ListPartsRequestBody {
     public String getKey() {
         return key;
     }
+
+    public Integer getMaxParts() {
+        return maxParts;
+    }
+
+    public Integer getPartNumberMarker() {
+        return partNumberMarker;
+    }
+
+    /**
+     * Whether the client asked for one page of parts instead of all of them.
+     * @return true if maxParts or partNumberMarker is given
+     */
+    @JsonIgnore
+    public boolean isPaginated() {
+        return maxParts != null || partNumberMarker != null;
+    }
+
+    /**
+     * The S3 request listing the parts asked for. Without maxParts or partNumberMarker S3 uses its own defaults.
+     * @param bucketName bucket of the upload
+     * @return request to list the parts
+     */
+    public ListPartsRequest toListPartsRequest(String bucketName) {
+        ListPartsRequest listPartsRequest = new ListPartsRequest(bucketName, key, uploadId);
+        if (maxParts != null) {
+            listPartsRequest.setMaxParts(maxParts);
+        }
+        if (partNumberMarker != null) {
+            listPartsRequest.setPartNumberMarker(partNumberMarker);
+        }
+        return listPartsRequest;
+    }
 }
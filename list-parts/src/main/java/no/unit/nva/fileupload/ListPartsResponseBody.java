@@ -1,11 +1,25 @@
 package no.unit.nva.fileupload;
 
+import com.amazonaws.services.s3.model.PartSummary;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Uploaded parts of an upload. A complete listing is written as a JSON array, as it always has been. A page
+ * requested with maxParts or partNumberMarker is written as an object carrying the parts and where the next page
+ * starts, see {@link ListPartsResponseBodySerializer}. A columnar body keeps the part summaries of S3 as they are
+ * and is written as parallel arrays of part numbers, sizes and ETags.
+ */
 @SuppressWarnings("PMD.ShortMethodName")
+@JsonSerialize(using = ListPartsResponseBodySerializer.class)
 public class ListPartsResponseBody extends ArrayList<ListPartsElement> {
 
+    private Boolean truncated;
+    private Integer nextPartNumberMarker;
+    private List<PartSummary> columns;
+
     /**
      * Default constructor for ListPartsResponseBody.
      */
@@ -24,4 +38,73 @@ public class ListPartsResponseBody extends ArrayList<ListPartsElement> {
         listPartsResponseBody.addAll(listParts);
         return listPartsResponseBody;
     }
+
+    /**
+     * Create a page of parts.
+     *
+     * @param listParts parts of the page
+     * @param truncated whether more parts follow this page
+     * @param nextPartNumberMarker partNumberMarker of the next page
+     * @return  ListPartsResponseBody
+     */
+    public static ListPartsResponseBody page(List<ListPartsElement> listParts, boolean truncated,
+                                             Integer nextPartNumberMarker) {
+        ListPartsResponseBody listPartsResponseBody = of(listParts);
+        listPartsResponseBody.truncated = truncated;
+        listPartsResponseBody.nextPartNumberMarker = nextPartNumberMarker;
+        return listPartsResponseBody;
+    }
+
+    /**
+     * Create a columnar ListPartsResponseBody of all parts of an upload.
+     *
+     * @param parts part summaries from S3
+     * @return  ListPartsResponseBody
+     */
+    public static ListPartsResponseBody columnar(List<PartSummary> parts) {
+        ListPartsResponseBody listPartsResponseBody = new ListPartsResponseBody();
+        listPartsResponseBody.columns = parts;
+        return listPartsResponseBody;
+    }
+
+    /**
+     * Create a columnar page of parts.
+     *
+     * @param parts part summaries of the page from S3
+     * @param truncated whether more parts follow this page
+     * @param nextPartNumberMarker partNumberMarker of the next page
+     * @return  ListPartsResponseBody
+     */
+    public static ListPartsResponseBody columnarPage(List<PartSummary> parts, boolean truncated,
+                                                     Integer nextPartNumberMarker) {
+        ListPartsResponseBody listPartsResponseBody = columnar(parts);
+        listPartsResponseBody.truncated = truncated;
+        listPartsResponseBody.nextPartNumberMarker = nextPartNumberMarker;
+        return listPartsResponseBody;
+    }
+
+    @JsonIgnore
+    public boolean isColumnar() {
+        return columns != null;
+    }
+
+    @JsonIgnore
+    public List<PartSummary> getColumns() {
+        return columns;
+    }
+
+    @JsonIgnore
+    public boolean isPage() {
+        return truncated != null;
+    }
+
+    @JsonIgnore
+    public boolean isTruncated() {
+        return Boolean.TRUE.equals(truncated);
+    }
+
+    @JsonIgnore
+    public Integer getNextPartNumberMarker() {
+        return nextPartNumberMarker;
+    }
 }
@@ -0,0 +1,87 @@
+package no.unit.nva.fileupload;
+
+import com.amazonaws.services.s3.model.PartSummary;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes the parts straight to the generator one by one, without building an intermediate tree of the response.
+ * Columnar bodies are written as {"partNumbers": [...], "sizes": [...], "etags": [...]} with numbers written as
+ * numbers, read straight from the part summaries of S3 without allocating anything per part.
+ */
+public class ListPartsResponseBodySerializer extends StdSerializer<ListPartsResponseBody> {
+
+    public static final String PARTS_FIELD = "parts";
+    public static final String IS_TRUNCATED_FIELD = "isTruncated";
+    public static final String NEXT_PART_NUMBER_MARKER_FIELD = "nextPartNumberMarker";
+    public static final String PART_NUMBERS_FIELD = "partNumbers";
+    public static final String SIZES_FIELD = "sizes";
+    public static final String ETAGS_FIELD = "etags";
+
+    public ListPartsResponseBodySerializer() {
+        super(ListPartsResponseBody.class);
+    }
+
+    @Override
+    public void serialize(ListPartsResponseBody body, JsonGenerator generator, SerializerProvider provider)
+        throws IOException {
+        if (body.isColumnar()) {
+            generator.writeStartObject();
+            writeColumns(body.getColumns(), generator);
+            writePagination(body, generator);
+            generator.writeEndObject();
+        } else if (body.isPage()) {
+            generator.writeStartObject();
+            generator.writeFieldName(PARTS_FIELD);
+            writeParts(body, generator, provider);
+            writePagination(body, generator);
+            generator.writeEndObject();
+        } else {
+            writeParts(body, generator, provider);
+        }
+    }
+
+    private static void writePagination(ListPartsResponseBody body, JsonGenerator generator) throws IOException {
+        if (!body.isPage()) {
+            return;
+        }
+        generator.writeBooleanField(IS_TRUNCATED_FIELD, body.isTruncated());
+        if (body.getNextPartNumberMarker() != null) {
+            generator.writeNumberField(NEXT_PART_NUMBER_MARKER_FIELD, body.getNextPartNumberMarker());
+        }
+    }
+
+    private static void writeColumns(List<PartSummary> parts, JsonGenerator generator) throws IOException {
+        int size = parts.size();
+        generator.writeFieldName(PART_NUMBERS_FIELD);
+        generator.writeStartArray(parts, size);
+        for (int i = 0; i < size; i++) {
+            generator.writeNumber(parts.get(i).getPartNumber());
+        }
+        generator.writeEndArray();
+        generator.writeFieldName(SIZES_FIELD);
+        generator.writeStartArray(parts, size);
+        for (int i = 0; i < size; i++) {
+            generator.writeNumber(parts.get(i).getSize());
+        }
+        generator.writeEndArray();
+        generator.writeFieldName(ETAGS_FIELD);
+        generator.writeStartArray(parts, size);
+        for (int i = 0; i < size; i++) {
+            generator.writeString(parts.get(i).getETag());
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writeParts(ListPartsResponseBody body, JsonGenerator generator, SerializerProvider provider)
+        throws IOException {
+        generator.writeStartArray(body, body.size());
+        for (ListPartsElement element : body) {
+            provider.defaultSerializeValue(element, generator);
+        }
+        generator.writeEndArray();
+    }
+}
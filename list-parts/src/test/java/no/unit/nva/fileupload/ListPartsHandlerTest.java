@@ -5,12 +5,15 @@ import static nva.commons.apigateway.ApiGatewayHandler.ALLOWED_ORIGIN_ENV;
 import static org.apache.http.HttpStatus.SC_BAD_REQUEST;
 import static org.apache.http.HttpStatus.SC_NOT_FOUND;
 import static org.apache.http.HttpStatus.SC_OK;
+import static org.apache.http.HttpStatus.SC_SERVICE_UNAVAILABLE;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.s3.AmazonS3Client;
@@ -18,18 +21,30 @@ import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.ListPartsRequest;
 import com.amazonaws.services.s3.model.PartListing;
 import com.amazonaws.services.s3.model.PartSummary;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.net.HttpHeaders;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Clock;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import no.unit.nva.fileupload.gateway.BlockingS3Gateway;
+import no.unit.nva.fileupload.gateway.PartListingCache;
+import no.unit.nva.fileupload.gateway.ResilientS3Gateway;
+import no.unit.nva.fileupload.metrics.InvocationMetrics;
+import no.unit.nva.fileupload.resilience.S3UnavailableException;
 import no.unit.nva.fileupload.util.S3Constants;
 import no.unit.nva.testutils.HandlerRequestBuilder;
 import nva.commons.apigateway.GatewayResponse;
 import nva.commons.core.Environment;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.ArgumentCaptor;
 import org.zalando.problem.Problem;
 
 public class ListPartsHandlerTest {
@@ -41,11 +56,14 @@ public class ListPartsHandlerTest {
     public static final String SAMPLE_KEY = "key";
     public static final String TEST_BUCKET_NAME = "bucketName";
     public static final String WILDCARD = "*";
+    public static final String COLUMNAR_FIRST = "application/vnd.nva.parts.columnar+json, application/json;q=0.5";
+    public static final String JSON_FIRST = "application/json, application/vnd.nva.parts.columnar+json";
 
     private ListPartsHandler listPartsHandler;
     private ByteArrayOutputStream outputStream;
     private Context context;
     private AmazonS3Client s3client;
+    private Environment environment;
     private final ObjectMapper objectMapper = dtoObjectMapper;
 
     /**
@@ -53,7 +71,7 @@ public class ListPartsHandlerTest {
      */
     @BeforeEach
     void setUp() {
-        Environment environment = mock(Environment.class);
+        environment = mock(Environment.class);
         when(environment.readEnv(ALLOWED_ORIGIN_ENV)).thenReturn(WILDCARD);
         when(environment.readEnv(S3Constants.S3_UPLOAD_BUCKET_KEY)).thenReturn(S3Constants.S3_UPLOAD_BUCKET_KEY);
         s3client = mock(AmazonS3Client.class);
@@ -75,6 +93,68 @@ public class ListPartsHandlerTest {
         assertThat(responseBody, is(notNullValue()));
     }
 
+    @Test
+    void shouldListWithoutMaxPartsOrMarkerWhenNeitherIsGiven() throws IOException {
+        when(s3client.listParts(any(ListPartsRequest.class))).thenReturn(listPartsResponse());
+
+        listPartsHandler.handleRequest(listPartsRequestWithBody(new ListPartsRequestBody(SAMPLE_UPLOAD_ID, SAMPLE_KEY)),
+                                       outputStream, context);
+
+        var response = GatewayResponse.fromOutputStream(outputStream, ListPartsResponseBody.class);
+        JsonNode body = objectMapper.readTree(response.getBody());
+        assertThat(response.getStatusCode(), is(equalTo(SC_OK)));
+        assertThat(body.isArray(), is(true));
+        assertThat(body.size(), is(equalTo(2)));
+    }
+
+    @Test
+    void shouldServeRepeatedListingFromCache() throws IOException {
+        when(s3client.listParts(any(ListPartsRequest.class))).thenReturn(listPartsResponse());
+        var partListingCache = new PartListingCache();
+        var handler = new ListPartsHandler(environment, new BlockingS3Gateway(s3client), TEST_BUCKET_NAME,
+                                           partListingCache);
+
+        handler.handleRequest(listPartsRequestWithBody(), new ByteArrayOutputStream(), context);
+        handler.handleRequest(listPartsRequestWithBody(), outputStream, context);
+
+        var response = GatewayResponse.fromOutputStream(outputStream, ListPartsResponseBody.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_OK)));
+        assertThat(partListingCache.getMisses(), is(equalTo(1L)));
+        assertThat(partListingCache.getHits(), is(equalTo(1L)));
+        verify(s3client, times(1)).listParts(any(ListPartsRequest.class));
+    }
+
+    @Test
+    void shouldRecordCacheUseInMetricsOfInvocation() throws IOException {
+        when(s3client.listParts(any(ListPartsRequest.class))).thenReturn(listPartsResponse());
+        List<String> documents = new ArrayList<>();
+        var metrics = new InvocationMetrics(InvocationMetrics.DEFAULT_NAMESPACE, documents::add, Clock.systemUTC(),
+                                            System::nanoTime);
+        var handler = new ListPartsHandler(environment, new BlockingS3Gateway(s3client), TEST_BUCKET_NAME,
+                                           new PartListingCache(), metrics);
+
+        handler.handleRequest(listPartsRequestWithBody(), new ByteArrayOutputStream(), context);
+        handler.handleRequest(listPartsRequestWithBody(), outputStream, context);
+
+        JsonNode miss = objectMapper.readTree(documents.get(0));
+        JsonNode hit = objectMapper.readTree(documents.get(1));
+        assertThat(miss.get(PartListingCache.MISSES_METRIC).toString(), is(equalTo("[1.0]")));
+        assertThat(miss.get(PartListingCache.HITS_METRIC).toString(), is(equalTo("[0.0]")));
+        assertThat(hit.get(PartListingCache.HITS_METRIC).toString(), is(equalTo("[1.0]")));
+        assertThat(hit.get(PartListingCache.CACHED_PARTS_METRIC).toString(), is(equalTo("[2.0]")));
+    }
+
+    @Test
+    void shouldReturnServiceUnavailableWhenS3IsUnavailable() throws IOException {
+        when(s3client.listParts(any(ListPartsRequest.class)))
+            .thenThrow(new S3UnavailableException(ResilientS3Gateway.CIRCUIT_OPEN));
+
+        listPartsHandler.handleRequest(listPartsRequestWithBody(), outputStream, context);
+
+        GatewayResponse<Problem> response = GatewayResponse.fromOutputStream(outputStream, Problem.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_SERVICE_UNAVAILABLE)));
+    }
+
     @Test
     void canListPartsWhenManyParts() throws IOException {
         PartListing partListing = truncatedPartListing();
@@ -89,6 +169,88 @@ public class ListPartsHandlerTest {
         assertThat(responseBody, is(notNullValue()));
     }
 
+    @Test
+    void shouldReturnOnePageWhenPaginationIsRequested() throws IOException {
+        PartListing page = listPartsResponse();
+        page.setTruncated(true);
+        page.setNextPartNumberMarker(2);
+        when(s3client.listParts(any(ListPartsRequest.class))).thenReturn(page);
+
+        listPartsHandler.handleRequest(listPartsRequestWithBody(new ListPartsRequestBody(SAMPLE_UPLOAD_ID, SAMPLE_KEY,
+                                                                                         2, 0)),
+                                       outputStream, context);
+
+        var captor = ArgumentCaptor.forClass(ListPartsRequest.class);
+        verify(s3client, times(1)).listParts(captor.capture());
+        assertThat(captor.getValue().getMaxParts(), is(equalTo(2)));
+        GatewayResponse<ListPartsResponseBody> response =
+            GatewayResponse.fromOutputStream(outputStream, ListPartsResponseBody.class);
+        JsonNode body = objectMapper.readTree(response.getBody());
+        assertThat(response.getStatusCode(), is(equalTo(SC_OK)));
+        assertThat(body.get(ListPartsResponseBodySerializer.PARTS_FIELD).size(), is(equalTo(2)));
+        assertThat(body.get(ListPartsResponseBodySerializer.IS_TRUNCATED_FIELD).asBoolean(), is(true));
+        assertThat(body.get(ListPartsResponseBodySerializer.NEXT_PART_NUMBER_MARKER_FIELD).asInt(), is(equalTo(2)));
+    }
+
+    @Test
+    void shouldWriteColumnarListingWhenColumnarMediaTypeIsAccepted() throws IOException {
+        when(s3client.listParts(any(ListPartsRequest.class))).thenReturn(listPartsResponse());
+
+        listPartsHandler.handleRequest(listPartsRequestWithAccept(listPartsRequestBody(),
+                                                                  ListPartsHandler.COLUMNAR_MEDIA_TYPE.toString()),
+                                       outputStream, context);
+
+        GatewayResponse<ListPartsResponseBody> response =
+            GatewayResponse.fromOutputStream(outputStream, ListPartsResponseBody.class);
+        JsonNode body = objectMapper.readTree(response.getBody());
+        assertThat(response.getStatusCode(), is(equalTo(SC_OK)));
+        assertThat(body.get(ListPartsResponseBodySerializer.PART_NUMBERS_FIELD).get(1).asInt(), is(equalTo(2)));
+        assertThat(body.get(ListPartsResponseBodySerializer.SIZES_FIELD).get(1).isNumber(), is(true));
+        assertThat(body.get(ListPartsResponseBodySerializer.ETAGS_FIELD).get(1).asText(), is(equalTo("ETag2")));
+        assertThat(body.has(ListPartsResponseBodySerializer.IS_TRUNCATED_FIELD), is(false));
+    }
+
+    @Test
+    void shouldWriteColumnarPageWhenColumnarMediaTypeIsAccepted() throws IOException {
+        PartListing page = listPartsResponse();
+        page.setTruncated(true);
+        page.setNextPartNumberMarker(2);
+        when(s3client.listParts(any(ListPartsRequest.class))).thenReturn(page);
+
+        var requestBody = new ListPartsRequestBody(SAMPLE_UPLOAD_ID, SAMPLE_KEY, 2, 0);
+        listPartsHandler.handleRequest(listPartsRequestWithAccept(requestBody, COLUMNAR_FIRST), outputStream, context);
+
+        GatewayResponse<ListPartsResponseBody> response =
+            GatewayResponse.fromOutputStream(outputStream, ListPartsResponseBody.class);
+        JsonNode body = objectMapper.readTree(response.getBody());
+        assertThat(body.get(ListPartsResponseBodySerializer.PART_NUMBERS_FIELD).size(), is(equalTo(2)));
+        assertThat(body.get(ListPartsResponseBodySerializer.IS_TRUNCATED_FIELD).asBoolean(), is(true));
+        assertThat(body.get(ListPartsResponseBodySerializer.NEXT_PART_NUMBER_MARKER_FIELD).asInt(), is(equalTo(2)));
+    }
+
+    @Test
+    void shouldWriteJsonArrayWhenJsonIsPreferredOverColumnar() throws IOException {
+        when(s3client.listParts(any(ListPartsRequest.class))).thenReturn(listPartsResponse());
+
+        listPartsHandler.handleRequest(listPartsRequestWithAccept(listPartsRequestBody(), JSON_FIRST),
+                                       outputStream, context);
+
+        GatewayResponse<ListPartsResponseBody> response =
+            GatewayResponse.fromOutputStream(outputStream, ListPartsResponseBody.class);
+        assertThat(objectMapper.readTree(response.getBody()).isArray(), is(true));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"0,", "1001,", ",-1"})
+    void shouldReturnBadRequestForInvalidPagination(Integer maxParts, Integer partNumberMarker) throws IOException {
+        var requestBody = new ListPartsRequestBody(SAMPLE_UPLOAD_ID, SAMPLE_KEY, maxParts, partNumberMarker);
+
+        listPartsHandler.handleRequest(listPartsRequestWithBody(requestBody), outputStream, context);
+
+        GatewayResponse<Problem> response = GatewayResponse.fromOutputStream(outputStream, Problem.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_BAD_REQUEST)));
+    }
+
     @Test
     void listPartsWithInvalidInputReturnsBadRequest() throws IOException {
         listPartsHandler.handleRequest(listPartsRequestWithoutBody(), outputStream, context);
@@ -136,8 +298,21 @@ public class ListPartsHandlerTest {
     }
 
     private InputStream listPartsRequestWithBody() throws com.fasterxml.jackson.core.JsonProcessingException {
+        return listPartsRequestWithBody(listPartsRequestBody());
+    }
+
+    private InputStream listPartsRequestWithBody(ListPartsRequestBody requestBody)
+        throws com.fasterxml.jackson.core.JsonProcessingException {
+        return new HandlerRequestBuilder<ListPartsRequestBody>(objectMapper)
+                .withBody(requestBody)
+                .build();
+    }
+
+    private InputStream listPartsRequestWithAccept(ListPartsRequestBody requestBody, String accept)
+        throws com.fasterxml.jackson.core.JsonProcessingException {
         return new HandlerRequestBuilder<ListPartsRequestBody>(objectMapper)
-                .withBody(listPartsRequestBody())
+                .withHeaders(Map.of(HttpHeaders.ACCEPT, accept))
+                .withBody(requestBody)
                 .build();
     }
 
@@ -1,17 +1,35 @@
 package no.unit.nva.fileupload;
 
 import static java.util.Objects.requireNonNull;
+import static no.unit.nva.fileupload.priming.HandlerPriming.PRIMING_BUCKET;
+import static no.unit.nva.fileupload.priming.HandlerPriming.PRIMING_KEY;
+import static no.unit.nva.fileupload.priming.HandlerPriming.PRIMING_UPLOAD_ID;
 import static org.apache.http.HttpStatus.SC_OK;
-import com.amazonaws.HttpMethod;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
-import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
+import java.time.Clock;
+import java.util.List;
+import java.util.Objects;
 import no.unit.nva.fileupload.exception.InvalidInputException;
 import no.unit.nva.fileupload.exception.NotFoundException;
+import no.unit.nva.fileupload.metrics.HandlerInvocations;
+import no.unit.nva.fileupload.metrics.InvocationMetrics;
+import no.unit.nva.fileupload.metrics.MetricUnit;
+import no.unit.nva.fileupload.presign.PartNumbers;
+import no.unit.nva.fileupload.presign.PresignedPart;
+import no.unit.nva.fileupload.presign.SdkUploadPartPresigner;
+import no.unit.nva.fileupload.presign.SigV4UploadPartPresigner;
+import no.unit.nva.fileupload.presign.UploadPartPresigner;
+import no.unit.nva.fileupload.priming.HandlerPriming;
+import no.unit.nva.fileupload.recording.HandlerRecording;
 import no.unit.nva.fileupload.util.S3Constants;
-import no.unit.nva.fileupload.util.S3Utils;
 import nva.commons.apigateway.ApiGatewayHandler;
 import nva.commons.apigateway.RequestInfo;
 import nva.commons.apigateway.exceptions.ApiGatewayException;
@@ -24,14 +42,19 @@ import org.slf4j.LoggerFactory;
 public class PrepareUploadPartHandler extends ApiGatewayHandler<PrepareUploadPartRequestBody,
         PrepareUploadPartResponseBody> {
 
-    public static final String PARAMETER_UPLOAD_ID_KEY = "uploadId";
-    public static final String PARAMETER_PART_NUMBER_KEY = "partNumber";
+    public static final String PARAMETER_UPLOAD_ID_KEY = S3Constants.UPLOAD_ID_PARAMETER;
+    public static final String PARAMETER_PART_NUMBER_KEY = S3Constants.PART_NUMBER_PARAMETER;
+    public static final String NUMBER_OR_BATCH_REQUIRED = "Either number, numbers or firstNumber and lastNumber "
+                                                          + "must be given";
 
     private static final Logger logger = LoggerFactory.getLogger(PrepareUploadPartHandler.class);
+    private static final int PRIMING_PART_COUNT = 20;
+    private static final String PRIMING_CREDENTIAL = "priming";
     public static final String S3_ERROR = "S3 error";
 
     private final transient String bucketName;
-    private final transient AmazonS3 s3Client;
+    private final transient UploadPartPresigner presigner;
+    private final transient InvocationMetrics metrics;
 
     /**
      * Default constructor for PrepareUploadPartHandler.
@@ -50,65 +73,129 @@ public class PrepareUploadPartHandler extends ApiGatewayHandler<PrepareUploadPar
     public PrepareUploadPartHandler(Environment environment) {
         this(
                 environment,
-                S3Utils.createAmazonS3Client(environment.readEnv(S3Constants.AWS_REGION_KEY)),
-                environment.readEnv(S3Constants.S3_UPLOAD_BUCKET_KEY)
+                SigV4UploadPartPresigner.create(environment.readEnv(S3Constants.AWS_REGION_KEY)),
+                environment.readEnv(S3Constants.S3_UPLOAD_BUCKET_KEY),
+                InvocationMetrics.shared(environment)
         );
+        HandlerRecording.startFromEnvironment(environment);
+        HandlerPriming.register(primingHandler(environment), "/prepare",
+                                new PrepareUploadPartRequestBody(PRIMING_UPLOAD_ID, PRIMING_KEY, null, null, null, 1,
+                                                                 PRIMING_PART_COUNT));
+    }
+
+    /**
+     * Handler used to prime the SnapStart snapshot, signing with placeholder credentials.
+     */
+    @JacocoGenerated
+    private static PrepareUploadPartHandler primingHandler(Environment environment) {
+        String region = environment.readEnv(S3Constants.AWS_REGION_KEY);
+        UploadPartPresigner presigner = new SigV4UploadPartPresigner(primingCredentials(), region,
+                                                                     SigV4UploadPartPresigner.DEFAULT_EXPIRY,
+                                                                     Clock.systemUTC());
+        return new PrepareUploadPartHandler(environment, presigner, PRIMING_BUCKET);
+    }
+
+    @JacocoGenerated
+    private static AWSStaticCredentialsProvider primingCredentials() {
+        return new AWSStaticCredentialsProvider(new BasicAWSCredentials(PRIMING_CREDENTIAL, PRIMING_CREDENTIAL));
     }
 
     /**
      * Construct for lambda eventhandler to create an upload request for S3.
      */
     public PrepareUploadPartHandler(Environment environment, AmazonS3 s3Client, String bucketName) {
+        this(environment, new SdkUploadPartPresigner(s3Client), bucketName);
+    }
+
+    /**
+     * Construct for lambda eventhandler with a custom presigner.
+     */
+    public PrepareUploadPartHandler(Environment environment, UploadPartPresigner presigner, String bucketName) {
+        this(environment, presigner, bucketName, InvocationMetrics.disabled());
+    }
+
+    /**
+     * Construct for lambda eventhandler with a custom presigner, recording the metrics of every invocation.
+     */
+    public PrepareUploadPartHandler(Environment environment, UploadPartPresigner presigner, String bucketName,
+                                    InvocationMetrics metrics) {
         super(PrepareUploadPartRequestBody.class, environment);
         this.bucketName = bucketName;
-        this.s3Client = s3Client;
+        this.presigner = presigner;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void handleRequest(InputStream inputStream, OutputStream outputStream, Context context)
+        throws IOException {
+        HandlerInvocations.handle(metrics, getClass().getSimpleName(),
+                                  () -> super.handleRequest(inputStream, outputStream, context));
     }
 
     @Override
     protected void validateRequest(PrepareUploadPartRequestBody prepareUploadPartRequestBody, RequestInfo requestInfo,
                                    Context context) throws ApiGatewayException {
-        validate(prepareUploadPartRequestBody);
+        HandlerInvocations.validate(metrics, () -> validate(prepareUploadPartRequestBody));
     }
 
     @Override
     protected PrepareUploadPartResponseBody processInput(PrepareUploadPartRequestBody input, RequestInfo requestInfo,
                                                          Context context) throws ApiGatewayException {
+        return HandlerInvocations.process(metrics, () -> prepare(input));
+    }
 
-        GeneratePresignedUrlRequest predesignedUrlUploadRequest = toGeneratePresignedUrlRequest(input);
-        return new PrepareUploadPartResponseBody(getUrl(predesignedUrlUploadRequest));
+    private PrepareUploadPartResponseBody prepare(PrepareUploadPartRequestBody input) throws NotFoundException {
+        if (!input.isBatch()) {
+            metrics.put(InvocationMetrics.PRESIGNED_PARTS, 1, MetricUnit.COUNT);
+            return new PrepareUploadPartResponseBody(getUrl(input));
+        }
+        int[] partNumbers = toPartNumbers(input);
+        metrics.put(InvocationMetrics.PRESIGNED_PARTS, partNumbers.length, MetricUnit.COUNT);
+        return new PrepareUploadPartResponseBody(getUrls(input, partNumbers));
     }
 
-    private URL getUrl(GeneratePresignedUrlRequest predesignedUrlUploadRequest) throws NotFoundException {
+    private URL getUrl(PrepareUploadPartRequestBody input) throws NotFoundException {
         try {
-            return s3Client.generatePresignedUrl(predesignedUrlUploadRequest);
+            return presigner.presignUploadPart(bucketName, input.getKey(), input.getUploadId(),
+                                               Integer.parseInt(input.getNumber()));
         } catch (AmazonS3Exception e) {
             throw new NotFoundException(S3_ERROR, e);
         }
     }
 
+    private List<PresignedPart> getUrls(PrepareUploadPartRequestBody input, int... partNumbers)
+        throws NotFoundException {
+        try {
+            return presigner.presignUploadParts(bucketName, input.getKey(), input.getUploadId(), partNumbers);
+        } catch (AmazonS3Exception e) {
+            throw new NotFoundException(S3_ERROR, e);
+        }
+    }
+
+    private static int[] toPartNumbers(PrepareUploadPartRequestBody input) {
+        return Objects.nonNull(input.getNumbers())
+                   ? PartNumbers.of(input.getNumbers())
+                   : PartNumbers.range(requireNonNull(input.getFirstNumber(), NUMBER_OR_BATCH_REQUIRED),
+                                       requireNonNull(input.getLastNumber(), NUMBER_OR_BATCH_REQUIRED));
+    }
+
     private void validate(PrepareUploadPartRequestBody input) throws ApiGatewayException {
         try {
             requireNonNull(input);
             requireNonNull(input.getKey());
             requireNonNull(input.getUploadId());
-            requireNonNull(input.getNumber());
+            if (input.isBatch()) {
+                toPartNumbers(input);
+            } else {
+                requireNonNull(input.getNumber(), NUMBER_OR_BATCH_REQUIRED);
+                Integer.parseInt(input.getNumber());
+            }
         } catch (Exception e) {
             logger.warn(e.getMessage());
             throw new InvalidInputException(e);
         }
     }
 
-    private GeneratePresignedUrlRequest toGeneratePresignedUrlRequest(PrepareUploadPartRequestBody input) {
-        GeneratePresignedUrlRequest predesignedUrlUploadRequest =
-                new GeneratePresignedUrlRequest(
-                        bucketName,
-                        input.getKey()
-                ).withMethod(HttpMethod.PUT);
-        predesignedUrlUploadRequest.addRequestParameter(PARAMETER_UPLOAD_ID_KEY, input.getUploadId());
-        predesignedUrlUploadRequest.addRequestParameter(PARAMETER_PART_NUMBER_KEY, input.getNumber());
-        return predesignedUrlUploadRequest;
-    }
-
     @Override
     protected Integer getSuccessStatusCode(PrepareUploadPartRequestBody input, PrepareUploadPartResponseBody output) {
         return SC_OK;
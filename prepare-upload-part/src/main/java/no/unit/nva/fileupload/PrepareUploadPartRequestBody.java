@@ -1,7 +1,10 @@
 package no.unit.nva.fileupload;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+import java.util.Objects;
 
 public class PrepareUploadPartRequestBody {
 
@@ -9,6 +12,9 @@ public class PrepareUploadPartRequestBody {
     private final  String key;
     private final  String body;
     private final  String number;
+    private final  List<Integer> numbers;
+    private final  Integer firstNumber;
+    private final  Integer lastNumber;
 
     /**
      * Creates an presigned url to upload a file part to.
@@ -17,16 +23,36 @@ public class PrepareUploadPartRequestBody {
      * @param body body of the file to upload
      * @param number partNumber of this file in upload
      */
+    public PrepareUploadPartRequestBody(String uploadId, String key, String body, String number) {
+        this(uploadId, key, body, number, null, null, null);
+    }
+
+    /**
+     * Creates presigned urls to upload one or more file parts to.
+     * @param uploadId  id of the upload from the create call
+     * @param key key of the upload from the create call
+     * @param body body of the file to upload
+     * @param number partNumber of a single part in upload
+     * @param numbers explicit list of partNumbers to sign in one batch
+     * @param firstNumber first partNumber of a range to sign in one batch
+     * @param lastNumber last partNumber (inclusive) of a range to sign in one batch
+     */
     @JsonCreator
     public PrepareUploadPartRequestBody(
             @JsonProperty("uploadId") String uploadId,
             @JsonProperty("key") String key,
             @JsonProperty("body") String body,
-            @JsonProperty("number") String number) {
+            @JsonProperty("number") String number,
+            @JsonProperty("numbers") List<Integer> numbers,
+            @JsonProperty("firstNumber") Integer firstNumber,
+            @JsonProperty("lastNumber") Integer lastNumber) {
         this.uploadId = uploadId;
         this.key = key;
         this.body = body;
         this.number = number;
+        this.numbers = numbers;
+        this.firstNumber = firstNumber;
+        this.lastNumber = lastNumber;
     }
 
     public String getUploadId() {
@@ -44,4 +70,26 @@ public class PrepareUploadPartRequestBody {
     public String getNumber() {
         return number;
     }
+
+    public List<Integer> getNumbers() {
+        return numbers;
+    }
+
+    public Integer getFirstNumber() {
+        return firstNumber;
+    }
+
+    public Integer getLastNumber() {
+        return lastNumber;
+    }
+
+    /**
+     * Check if the request asks for a batch of presigned urls rather than a single one.
+     *
+     * @return true if a list or a range of part numbers is given
+     */
+    @JsonIgnore
+    public boolean isBatch() {
+        return Objects.nonNull(numbers) || Objects.nonNull(firstNumber) || Objects.nonNull(lastNumber);
+    }
 }
@@ -4,17 +4,34 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.net.URL;
+import java.util.List;
+import no.unit.nva.fileupload.presign.PresignedPart;
 
 public class PrepareUploadPartResponseBody {
 
     private final URL url;
+    private final List<PresignedPart> parts;
+
+    public PrepareUploadPartResponseBody(URL url) {
+        this(url, null);
+    }
+
+    public PrepareUploadPartResponseBody(List<PresignedPart> parts) {
+        this(null, parts);
+    }
 
     @JsonCreator
-    public PrepareUploadPartResponseBody(@JsonProperty("url") URL url) {
+    public PrepareUploadPartResponseBody(@JsonProperty("url") URL url,
+                                         @JsonProperty("parts") List<PresignedPart> parts) {
         this.url = url;
+        this.parts = parts;
     }
 
     public URL getUrl() {
         return url;
     }
+
+    public List<PresignedPart> getParts() {
+        return parts;
+    }
 }
@@ -5,7 +5,9 @@ import static org.apache.http.HttpStatus.SC_BAD_REQUEST;
 import static org.apache.http.HttpStatus.SC_NOT_FOUND;
 import static org.apache.http.HttpStatus.SC_OK;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.mockito.Mockito.mock;
@@ -19,6 +21,10 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import no.unit.nva.fileupload.presign.PresignedPart;
 import no.unit.nva.fileupload.util.S3Constants;
 import no.unit.nva.testutils.HandlerRequestBuilder;
 import nva.commons.apigateway.ApiGatewayHandler;
@@ -38,6 +44,7 @@ public class PrepareUploadPartHandlerTest {
     public static final String SAMPLE_PART_NUMBER = "1";
     public static final String TEST_BUCKET_NAME = "bucketName";
     public static final String WILDCARD = "*";
+    public static final int MAX_PARTS = 10_000;
 
     private PrepareUploadPartHandler prepareUploadPartHandler;
     private ByteArrayOutputStream outputStream;
@@ -95,9 +102,79 @@ public class PrepareUploadPartHandlerTest {
         assertThat(response.getBody(), is(notNullValue()));
     }
 
+    @Test
+    void canPrepareUploadPartsForRange() throws IOException {
+        URL dummyUrl = new URL("http://localhost");
+        when(s3client.generatePresignedUrl(Mockito.any(GeneratePresignedUrlRequest.class))).thenReturn(dummyUrl);
+
+        var requestBody = new PrepareUploadPartRequestBody(SAMPLE_UPLOADID, SAMPLE_KEY, null, null, null, 1, 100);
+        prepareUploadPartHandler.handleRequest(prepareUploadPartRequestWithBody(requestBody), outputStream, context);
+        GatewayResponse<PrepareUploadPartResponseBody> response =
+            GatewayResponse.fromOutputStream(outputStream, PrepareUploadPartResponseBody.class);
+
+        assertThat(response.getStatusCode(), is(equalTo(SC_OK)));
+        PrepareUploadPartResponseBody responseBody = response.getBodyObject(PrepareUploadPartResponseBody.class);
+        assertThat(partNumbers(responseBody.getParts()),
+                   is(equalTo(IntStream.rangeClosed(1, 100).boxed().collect(Collectors.toList()))));
+    }
+
+    @Test
+    void canPrepareUploadPartsForListOfPartNumbers() throws IOException {
+        URL dummyUrl = new URL("http://localhost");
+        when(s3client.generatePresignedUrl(Mockito.any(GeneratePresignedUrlRequest.class))).thenReturn(dummyUrl);
+
+        var requestBody = new PrepareUploadPartRequestBody(SAMPLE_UPLOADID, SAMPLE_KEY, null, null,
+                                                           List.of(3, 1, 7), null, null);
+        prepareUploadPartHandler.handleRequest(prepareUploadPartRequestWithBody(requestBody), outputStream, context);
+        GatewayResponse<PrepareUploadPartResponseBody> response =
+            GatewayResponse.fromOutputStream(outputStream, PrepareUploadPartResponseBody.class);
+
+        assertThat(response.getStatusCode(), is(equalTo(SC_OK)));
+        PrepareUploadPartResponseBody responseBody = response.getBodyObject(PrepareUploadPartResponseBody.class);
+        assertThat(responseBody.getParts(), hasSize(3));
+        assertThat(partNumbers(responseBody.getParts()), contains(3, 1, 7));
+    }
+
+    @Test
+    void prepareUploadPartsBeyondS3PartLimitReturnsBadRequest() throws IOException {
+        var requestBody = new PrepareUploadPartRequestBody(SAMPLE_UPLOADID, SAMPLE_KEY, null, null, null,
+                                                           1, MAX_PARTS + 1);
+        prepareUploadPartHandler.handleRequest(prepareUploadPartRequestWithBody(requestBody), outputStream, context);
+        GatewayResponse<Problem> response = GatewayResponse.fromOutputStream(outputStream, Problem.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_BAD_REQUEST)));
+    }
+
+    @Test
+    void prepareUploadPartsWithIncompleteRangeReturnsBadRequest() throws IOException {
+        var requestBody = new PrepareUploadPartRequestBody(SAMPLE_UPLOADID, SAMPLE_KEY, null, null, null, 1, null);
+        prepareUploadPartHandler.handleRequest(prepareUploadPartRequestWithBody(requestBody), outputStream, context);
+        GatewayResponse<Problem> response = GatewayResponse.fromOutputStream(outputStream, Problem.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_BAD_REQUEST)));
+    }
+
+    @Test
+    void prepareUploadPartsWithS3ErrorReturnsNotFound() throws IOException {
+        when(s3client.generatePresignedUrl(Mockito.any(GeneratePresignedUrlRequest.class)))
+                .thenThrow(AmazonS3Exception.class);
+
+        var requestBody = new PrepareUploadPartRequestBody(SAMPLE_UPLOADID, SAMPLE_KEY, null, null, null, 1, 2);
+        prepareUploadPartHandler.handleRequest(prepareUploadPartRequestWithBody(requestBody), outputStream, context);
+        GatewayResponse<Problem> response = GatewayResponse.fromOutputStream(outputStream, Problem.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_NOT_FOUND)));
+    }
+
+    private static List<Integer> partNumbers(List<PresignedPart> parts) {
+        return parts.stream().map(PresignedPart::getNumber).collect(Collectors.toList());
+    }
+
     private InputStream prepareUploadPartRequestWithBody() throws com.fasterxml.jackson.core.JsonProcessingException {
+        return prepareUploadPartRequestWithBody(prepareUploadPartRequestBody());
+    }
+
+    private InputStream prepareUploadPartRequestWithBody(PrepareUploadPartRequestBody requestBody)
+            throws com.fasterxml.jackson.core.JsonProcessingException {
         return new HandlerRequestBuilder<PrepareUploadPartRequestBody>(objectMapper)
-                .withBody(prepareUploadPartRequestBody())
+                .withBody(requestBody)
                 .build();
     }
 
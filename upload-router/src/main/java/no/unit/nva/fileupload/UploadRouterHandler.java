@@ -0,0 +1,201 @@
+package no.unit.nva.fileupload;
+
+import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
+import static org.apache.http.HttpStatus.SC_NOT_FOUND;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.amazonaws.services.s3.AmazonS3;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import no.unit.nva.fileupload.gateway.BlockingS3Gateway;
+import no.unit.nva.fileupload.gateway.PartListingCache;
+import no.unit.nva.fileupload.gateway.S3Gateway;
+import no.unit.nva.fileupload.session.InMemoryUploadSessionStore;
+import no.unit.nva.fileupload.session.UploadSessionStore;
+import nva.commons.apigateway.ApiGatewayHandler;
+import nva.commons.core.Environment;
+import nva.commons.core.JacocoGenerated;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.zalando.problem.Problem;
+import org.zalando.problem.Status;
+
+/**
+ * Single Lambda entry point for all multipart upload operations. Dispatches each API Gateway proxy event to the
+ * handler of its resource, so one function instance serves a whole upload session and every operation shares the
+ * same S3 client, presigner and object mapper.
+ */
+public class UploadRouterHandler implements RequestStreamHandler {
+
+    public static final String CREATE_PATH = "/create";
+    public static final String LIST_PARTS_PATH = "/listparts";
+    public static final String PREPARE_PATH = "/prepare";
+    public static final String ABORT_PATH = "/abort";
+    public static final String COMPLETE_PATH = "/complete";
+    public static final String NO_ROUTE_TITLE = "Not Found";
+    public static final String NO_ROUTE_DETAIL = "No upload operation for resource %s";
+    public static final String ACCESS_CONTROL_ALLOW_ORIGIN = "Access-Control-Allow-Origin";
+    public static final String STRICT_TRANSPORT_SECURITY = "Strict-Transport-Security";
+    public static final String X_CONTENT_TYPE_OPTIONS = "X-Content-Type-Options";
+    public static final String VARY = "Vary";
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadRouterHandler.class);
+    private static final String RESOURCE_FIELD = "resource";
+    private static final String PATH_FIELD = "path";
+    private static final String PROBLEM_CONTENT_TYPE = "application/problem+json";
+    private static final String NO_ROUTE_LOG = "No upload operation for resource {}";
+    private static final String ORIGINS_DELIMITER = ",";
+    private static final String HSTS = "max-age=63072000; includeSubDomains; preload";
+    private static final String NOSNIFF = "nosniff";
+    private static final String VARY_HEADERS = "Origin, Accept";
+
+    private final Map<String, RequestStreamHandler> routes;
+    private final String allowedOrigin;
+
+    /**
+     * Default constructor for UploadRouterHandler.
+     */
+    @JacocoGenerated
+    public UploadRouterHandler() {
+        this(new Environment());
+    }
+
+    /**
+     * Constructor for UploadRouterHandler. Every handler is built the way its own function builds it, so they share
+     * the process-wide S3 client and register their snapshot priming.
+     *
+     * @param environment environment reader
+     */
+    @JacocoGenerated
+    public UploadRouterHandler(Environment environment) {
+        this(environment, Map.of(
+            CREATE_PATH, new CreateUploadHandler(environment),
+            LIST_PARTS_PATH, new ListPartsHandler(environment),
+            PREPARE_PATH, new PrepareUploadPartHandler(environment),
+            ABORT_PATH, new AbortMultipartUploadHandler(environment),
+            COMPLETE_PATH, new CompleteUploadHandler(environment)
+        ));
+    }
+
+    /**
+     * Construct a router whose handlers all call S3 through the given client and share one in-memory session store
+     * and part listing cache.
+     */
+    public UploadRouterHandler(Environment environment, AmazonS3 s3Client, String bucketName) {
+        this(environment, s3Client, new BlockingS3Gateway(s3Client), bucketName, new InMemoryUploadSessionStore(),
+             new PartListingCache());
+    }
+
+    private UploadRouterHandler(Environment environment, AmazonS3 s3Client, S3Gateway s3Gateway, String bucketName,
+                                UploadSessionStore sessionStore, PartListingCache partListingCache) {
+        this(environment, Map.of(
+            CREATE_PATH, new CreateUploadHandler(environment, s3Gateway, bucketName, sessionStore),
+            LIST_PARTS_PATH, new ListPartsHandler(environment, s3Gateway, bucketName, partListingCache),
+            PREPARE_PATH, new PrepareUploadPartHandler(environment, s3Client, bucketName),
+            ABORT_PATH, new AbortMultipartUploadHandler(environment, s3Gateway, bucketName, sessionStore,
+                                                        partListingCache),
+            COMPLETE_PATH, new CompleteUploadHandler(environment, s3Gateway, bucketName, sessionStore,
+                                                     partListingCache)
+        ));
+    }
+
+    /**
+     * Construct a router from handlers keyed by API resource path, answering unknown resources with the allowed
+     * origin configured for the handlers.
+     */
+    public UploadRouterHandler(Environment environment, Map<String, RequestStreamHandler> routes) {
+        this.routes = Map.copyOf(routes);
+        this.allowedOrigin = readAllowedOrigin(environment.readEnv(ApiGatewayHandler.ALLOWED_ORIGIN_ENV));
+    }
+
+    @Override
+    public void handleRequest(InputStream input, OutputStream output, Context context) throws IOException {
+        byte[] event = input.readAllBytes();
+        Route route = routeOf(event);
+        Optional<RequestStreamHandler> handler = route.handler(routes);
+        if (handler.isPresent()) {
+            handler.get().handleRequest(new ByteArrayInputStream(event), output, context);
+        } else {
+            logger.warn(NO_ROUTE_LOG, route.describe());
+            writeNotFound(output, route);
+        }
+    }
+
+    private static Route routeOf(byte[] event) throws IOException {
+        String resource = null;
+        String path = null;
+        try (JsonParser parser = dtoObjectMapper.getFactory().createParser(event)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return new Route(null, null);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if (RESOURCE_FIELD.equals(field)) {
+                    resource = parser.getValueAsString();
+                } else if (PATH_FIELD.equals(field)) {
+                    path = parser.getValueAsString();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new Route(resource, path);
+    }
+
+    // The request origin is not echoed here, so a list of origins answers with the first unless all are allowed
+    private static String readAllowedOrigin(String configuredOrigins) {
+        var origins = Arrays.stream(configuredOrigins.split(ORIGINS_DELIMITER)).map(String::trim).toList();
+        return origins.contains(ApiGatewayHandler.ALL_ORIGINS_ALLOWED) ? ApiGatewayHandler.ALL_ORIGINS_ALLOWED
+                   : origins.get(0);
+    }
+
+    private void writeNotFound(OutputStream output, Route route) throws IOException {
+        Problem problem = Problem.builder()
+                              .withStatus(Status.NOT_FOUND)
+                              .withTitle(NO_ROUTE_TITLE)
+                              .withDetail(String.format(NO_ROUTE_DETAIL, route.describe()))
+                              .build();
+        ObjectNode response = dtoObjectMapper.createObjectNode();
+        response.put("statusCode", SC_NOT_FOUND);
+        response.putObject("headers")
+            .put(ACCESS_CONTROL_ALLOW_ORIGIN, allowedOrigin)
+            .put("Content-Type", PROBLEM_CONTENT_TYPE)
+            .put(X_CONTENT_TYPE_OPTIONS, NOSNIFF)
+            .put(STRICT_TRANSPORT_SECURITY, HSTS)
+            .put(VARY, VARY_HEADERS);
+        response.put("body", dtoObjectMapper.writeValueAsString(problem));
+        response.put("isBase64Encoded", false);
+        dtoObjectMapper.writeValue(output, response);
+    }
+
+    /**
+     * Resource and path of an API Gateway proxy event. The resource is matched exactly; the path, which may carry
+     * a base path mapping prefix, is matched on its suffix.
+     */
+    private record Route(String resource, String path) {
+
+        Optional<RequestStreamHandler> handler(Map<String, RequestStreamHandler> routes) {
+            if (resource != null && routes.containsKey(resource)) {
+                return Optional.of(routes.get(resource));
+            }
+            return Optional.ofNullable(path)
+                       .flatMap(p -> routes.entrySet().stream()
+                                         .filter(entry -> p.endsWith(entry.getKey()))
+                                         .map(Map.Entry::getValue)
+                                         .findFirst());
+        }
+
+        String describe() {
+            return Optional.ofNullable(resource).orElse(String.valueOf(path));
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package no.unit.nva.fileupload;
+
+import static no.unit.nva.commons.json.JsonUtils.dtoObjectMapper;
+import static org.apache.http.HttpStatus.SC_CREATED;
+import static org.apache.http.HttpStatus.SC_NOT_FOUND;
+import static org.apache.http.HttpStatus.SC_OK;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import no.unit.nva.fileupload.model.CreateUploadRequestBody;
+import no.unit.nva.fileupload.model.CreateUploadResponseBody;
+import no.unit.nva.fileupload.util.S3Constants;
+import nva.commons.apigateway.ApiGatewayHandler;
+import nva.commons.apigateway.GatewayResponse;
+import nva.commons.core.Environment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.zalando.problem.Problem;
+
+class UploadRouterHandlerTest {
+
+    public static final String TEST_BUCKET_NAME = "bucketName";
+    public static final String WILDCARD = "*";
+    public static final String SAMPLE_UPLOAD_ID = "uploadId";
+    public static final String SAMPLE_KEY = "key";
+    public static final String UNKNOWN_PATH = "/unknown";
+    public static final String FIRST_ORIGIN = "https://nva.sikt.no";
+    public static final String OTHER_ORIGIN = "https://nva.example.org";
+
+    private UploadRouterHandler router;
+    private AmazonS3Client s3client;
+    private ByteArrayOutputStream outputStream;
+    private Context context;
+
+    @BeforeEach
+    void setUp() {
+        Environment environment = mock(Environment.class);
+        when(environment.readEnv(ApiGatewayHandler.ALLOWED_ORIGIN_ENV)).thenReturn(WILDCARD);
+        when(environment.readEnv(S3Constants.S3_UPLOAD_BUCKET_KEY)).thenReturn(TEST_BUCKET_NAME);
+        s3client = mock(AmazonS3Client.class);
+        router = new UploadRouterHandler(environment, s3client, TEST_BUCKET_NAME);
+        outputStream = new ByteArrayOutputStream();
+        context = mock(Context.class);
+    }
+
+    @Test
+    void shouldRouteEventToHandlerOfResource() throws IOException {
+        var initiated = new InitiateMultipartUploadResult();
+        initiated.setUploadId(SAMPLE_UPLOAD_ID);
+        when(s3client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).thenReturn(initiated);
+
+        var body = new CreateUploadRequestBody("filename", "222", "mime/type");
+        router.handleRequest(event(UploadRouterHandler.CREATE_PATH, UploadRouterHandler.CREATE_PATH, body),
+                             outputStream, context);
+
+        GatewayResponse<CreateUploadResponseBody> response =
+            GatewayResponse.fromOutputStream(outputStream, CreateUploadResponseBody.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_CREATED)));
+        assertThat(response.getBodyObject(CreateUploadResponseBody.class).getUploadId(),
+                   is(equalTo(SAMPLE_UPLOAD_ID)));
+    }
+
+    @Test
+    void shouldRouteOnPathSuffixWhenResourceIsMissing() throws IOException {
+        var body = new AbortMultipartUploadRequestBody(SAMPLE_UPLOAD_ID, SAMPLE_KEY);
+        router.handleRequest(event(null, "/upload" + UploadRouterHandler.ABORT_PATH, body), outputStream, context);
+
+        GatewayResponse<SimpleMessageResponse> response =
+            GatewayResponse.fromOutputStream(outputStream, SimpleMessageResponse.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_OK)));
+        verify(s3client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownResource() throws IOException {
+        router.handleRequest(event(UNKNOWN_PATH, UNKNOWN_PATH, Map.of()), outputStream, context);
+
+        GatewayResponse<Problem> response = GatewayResponse.fromOutputStream(outputStream, Problem.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_NOT_FOUND)));
+        assertThat(response.getBody(), containsString(UNKNOWN_PATH));
+        assertThat(response.getHeaders().get(UploadRouterHandler.ACCESS_CONTROL_ALLOW_ORIGIN), is(equalTo(WILDCARD)));
+        assertThat(response.getHeaders().get(UploadRouterHandler.VARY), is(equalTo("Origin, Accept")));
+    }
+
+    @Test
+    void shouldAllowFirstConfiguredOriginWhenRouteIsUnknown() throws IOException {
+        Environment environment = mock(Environment.class);
+        when(environment.readEnv(ApiGatewayHandler.ALLOWED_ORIGIN_ENV)).thenReturn(FIRST_ORIGIN + ", " + OTHER_ORIGIN);
+        router = new UploadRouterHandler(environment, Map.of());
+
+        router.handleRequest(event(UNKNOWN_PATH, UNKNOWN_PATH, Map.of()), outputStream, context);
+
+        GatewayResponse<Problem> response = GatewayResponse.fromOutputStream(outputStream, Problem.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_NOT_FOUND)));
+        assertThat(response.getHeaders().get(UploadRouterHandler.ACCESS_CONTROL_ALLOW_ORIGIN),
+                   is(equalTo(FIRST_ORIGIN)));
+    }
+
+    @Test
+    void shouldReturnNotFoundForEventWithoutRoute() throws IOException {
+        router.handleRequest(new ByteArrayInputStream("[]".getBytes(StandardCharsets.UTF_8)), outputStream, context);
+
+        GatewayResponse<Problem> response = GatewayResponse.fromOutputStream(outputStream, Problem.class);
+        assertThat(response.getStatusCode(), is(equalTo(SC_NOT_FOUND)));
+    }
+
+    private InputStream event(String resource, String path, Object body) throws IOException {
+        ObjectNode event = dtoObjectMapper.createObjectNode();
+        event.put("resource", resource);
+        event.put("path", path);
+        event.put("httpMethod", "POST");
+        event.putObject("headers").put("Content-Type", "application/json");
+        event.put("body", dtoObjectMapper.writeValueAsString(body));
+        return new ByteArrayInputStream(dtoObjectMapper.writeValueAsBytes(event));
+    }
+}